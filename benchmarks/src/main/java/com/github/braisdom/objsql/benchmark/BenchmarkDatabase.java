@@ -0,0 +1,162 @@
+package com.github.braisdom.objsql.benchmark;
+
+import com.github.braisdom.objsql.Databases;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+
+/**
+ * The in-memory SQLite database shared by the benchmarks. The database lives as long as its
+ * connection, so the connection is shared by all queries and never closed by the
+ * <code>Databases</code>.
+ */
+public final class BenchmarkDatabase {
+
+    public static final int[] COLUMN_COUNTS = {4, 16, 64};
+    public static final String[] ROW_TABLE_NAMES = {"narrow_rows", "medium_rows", "wide_rows"};
+
+    private static final String[] COLUMN_TYPES = {"TEXT", "INTEGER", "REAL"};
+
+    private static Connection connection;
+
+    private BenchmarkDatabase() {
+    }
+
+    public static synchronized Connection open() throws SQLException {
+        if (connection == null) {
+            try {
+                Class.forName("org.sqlite.JDBC");
+            } catch (ClassNotFoundException ex) {
+                throw new IllegalStateException(ex.getMessage(), ex);
+            }
+            Connection sqliteConnection = DriverManager.getConnection("jdbc:sqlite::memory:");
+            connection = (Connection) Proxy.newProxyInstance(BenchmarkDatabase.class.getClassLoader(),
+                    new Class[]{Connection.class}, (proxy, method, args) -> {
+                        if ("close".equals(method.getName())) {
+                            return null;
+                        }
+                        try {
+                            return method.invoke(sqliteConnection, args);
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getTargetException();
+                        }
+                    });
+            createSchemas(connection);
+            Databases.installConnectionFactory(dataSourceName -> connection);
+        }
+        return connection;
+    }
+
+    /**
+     * Replaces the rows of table with generated values, the columns are named from
+     * <code>c1</code> to <code>cN</code>.
+     */
+    public static void fillRows(String tableName, int columnCount, int rowCount) throws SQLException {
+        Connection connection = open();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM " + tableName);
+        }
+
+        StringBuilder columns = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        for (int i = 1; i <= columnCount; i++) {
+            columns.append(i == 1 ? "" : ", ").append("c").append(i);
+            values.append(i == 1 ? "" : ", ").append("?");
+        }
+
+        String sql = String.format("INSERT INTO %s (id, %s) VALUES (?, %s)", tableName, columns, values);
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int row = 1; row <= rowCount; row++) {
+                statement.setInt(1, row);
+                for (int i = 1; i <= columnCount; i++) {
+                    statement.setObject(i + 1, columnValue(i, row));
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Replaces the members and orders, each member has the same number of orders.
+     */
+    public static void fillMembers(int memberCount, int ordersPerMember) throws SQLException {
+        Connection connection = open();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM members");
+            statement.execute("DELETE FROM orders");
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement memberStatement = connection.prepareStatement(
+                "INSERT INTO members (id, no, name, mobile) VALUES (?, ?, ?, ?)");
+             PreparedStatement orderStatement = connection.prepareStatement(
+                     "INSERT INTO orders (id, no, member_id, amount, quantity) VALUES (?, ?, ?, ?, ?)")) {
+            int orderId = 1;
+            for (int memberId = 1; memberId <= memberCount; memberId++) {
+                memberStatement.setInt(1, memberId);
+                memberStatement.setString(2, "M" + memberId);
+                memberStatement.setString(3, "member " + memberId);
+                memberStatement.setString(4, "1380000" + memberId);
+                memberStatement.addBatch();
+
+                for (int i = 0; i < ordersPerMember; i++, orderId++) {
+                    orderStatement.setInt(1, orderId);
+                    orderStatement.setString(2, "O" + orderId);
+                    orderStatement.setInt(3, memberId);
+                    orderStatement.setDouble(4, orderId * 1.5);
+                    orderStatement.setDouble(5, i + 1);
+                    orderStatement.addBatch();
+                }
+            }
+            memberStatement.executeBatch();
+            orderStatement.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    public static void clear(String tableName) throws SQLException {
+        try (Statement statement = open().createStatement()) {
+            statement.execute("DELETE FROM " + tableName);
+        }
+    }
+
+    public static Object columnValue(int column, int row) {
+        switch ((column - 1) % COLUMN_TYPES.length) {
+            case 0:
+                return "value " + row + "-" + column;
+            case 1:
+                return row * column;
+            default:
+                return row * 0.5 + column;
+        }
+    }
+
+    private static void createSchemas(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (int i = 0; i < COLUMN_COUNTS.length; i++) {
+                StringBuilder ddl = new StringBuilder("CREATE TABLE ").append(ROW_TABLE_NAMES[i])
+                        .append(" (id INTEGER PRIMARY KEY AUTOINCREMENT");
+                for (int column = 1; column <= COLUMN_COUNTS[i]; column++) {
+                    ddl.append(", c").append(column).append(' ')
+                            .append(COLUMN_TYPES[(column - 1) % COLUMN_TYPES.length]);
+                }
+                statement.execute(ddl.append(")").toString());
+            }
+            statement.execute("CREATE TABLE members (id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "no TEXT, name TEXT, mobile TEXT)");
+            statement.execute("CREATE TABLE orders (id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "no TEXT, member_id INTEGER, amount REAL, quantity REAL)");
+            statement.execute("CREATE INDEX idx_orders_member_id ON orders (member_id)");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.braisdom.objsql.benchmark;
+
+import com.github.braisdom.objsql.benchmark.domains.MediumRow;
+import com.github.braisdom.objsql.benchmark.domains.NarrowRow;
+import com.github.braisdom.objsql.benchmark.domains.WideRow;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the mapping from rows to domain objects with 4, 16 and 64 columns, including
+ * the row fetching of SQLite, which is the same for all versions of ObjectiveSql.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HydrationBenchmark {
+
+    @Param({"100", "1000"})
+    private int rowCount;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        for (int i = 0; i < BenchmarkDatabase.COLUMN_COUNTS.length; i++) {
+            BenchmarkDatabase.fillRows(BenchmarkDatabase.ROW_TABLE_NAMES[i],
+                    BenchmarkDatabase.COLUMN_COUNTS[i], rowCount);
+        }
+    }
+
+    @Benchmark
+    public List<NarrowRow> columns4() throws SQLException {
+        return NarrowRow.queryAll();
+    }
+
+    @Benchmark
+    public List<MediumRow> columns16() throws SQLException {
+        return MediumRow.queryAll();
+    }
+
+    @Benchmark
+    public List<WideRow> columns64() throws SQLException {
+        return WideRow.queryAll();
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.braisdom.objsql.benchmark;
+
+import com.github.braisdom.objsql.benchmark.domains.MediumRow;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the inserting of domain objects with 16 columns, one by one and in batch.
+ * The table is cleared before each iteration, so it grows only within an iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int batchSize;
+
+    private MediumRow[] rows;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        BenchmarkDatabase.open();
+        rows = new MediumRow[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            rows[i] = new MediumRow()
+                    .setC1("value " + i).setC2(i).setC3(i * 0.5).setC4("value " + i)
+                    .setC5(i).setC6(i * 0.5).setC7("value " + i).setC8(i)
+                    .setC9(i * 0.5).setC10("value " + i).setC11(i).setC12(i * 0.5)
+                    .setC13("value " + i).setC14(i).setC15(i * 0.5).setC16("value " + i);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clear() throws SQLException {
+        BenchmarkDatabase.clear(BenchmarkDatabase.ROW_TABLE_NAMES[1]);
+    }
+
+    /**
+     * The generated keys are written back into the rows, they are cleared for the
+     * next inserting.
+     */
+    @Setup(Level.Invocation)
+    public void resetKeys() {
+        for (MediumRow row : rows) {
+            row.setId(null);
+        }
+    }
+
+    @Benchmark
+    public int[] batchInsert() throws SQLException {
+        return MediumRow.create(rows, true);
+    }
+
+    @Benchmark
+    public MediumRow singleInserts() throws SQLException {
+        MediumRow lastRow = null;
+        for (MediumRow row : rows) {
+            lastRow = MediumRow.create(row, true);
+        }
+        return lastRow;
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.braisdom.objsql.benchmark;
+
+import com.github.braisdom.objsql.benchmark.domains.Member;
+import com.github.braisdom.objsql.benchmark.domains.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the loading of relations, the members have the same number of orders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelationBenchmark {
+
+    @Param({"100", "1000"})
+    private int memberCount;
+
+    @Param({"10"})
+    private int ordersPerMember;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        BenchmarkDatabase.fillMembers(memberCount, ordersPerMember);
+    }
+
+    @Benchmark
+    public List<Member> hasManyOrders() throws SQLException {
+        return Member.queryAll(Member.HAS_MANY_ORDERS);
+    }
+
+    @Benchmark
+    public List<Order> belongsToMember() throws SQLException {
+        return Order.queryAll(Order.BELONGS_TO_MEMBER);
+    }
+}
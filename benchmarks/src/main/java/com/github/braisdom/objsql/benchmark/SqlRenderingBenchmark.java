@@ -0,0 +1,84 @@
+package com.github.braisdom.objsql.benchmark;
+
+import com.github.braisdom.objsql.DatabaseType;
+import com.github.braisdom.objsql.benchmark.domains.Member;
+import com.github.braisdom.objsql.benchmark.domains.Order;
+import com.github.braisdom.objsql.sql.DefaultExpressionContext;
+import com.github.braisdom.objsql.sql.SQLSyntaxException;
+import com.github.braisdom.objsql.sql.Select;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.github.braisdom.objsql.sql.Expressions.$;
+import static com.github.braisdom.objsql.sql.function.Ansi.*;
+
+/**
+ * Measures the building and rendering of DSL queries, no database is involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlRenderingBenchmark {
+
+    @Param({"MySQL", "PostgreSQL"})
+    private String databaseName;
+
+    private DefaultExpressionContext expressionContext;
+    private Select simpleSelect;
+    private Select aggregateSelect;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        expressionContext = new DefaultExpressionContext(DatabaseType.valueOf(databaseName));
+        simpleSelect = createSimpleSelect();
+        aggregateSelect = createAggregateSelect();
+    }
+
+    @Benchmark
+    public String renderSimpleSelect() throws SQLSyntaxException {
+        return simpleSelect.toSql(expressionContext);
+    }
+
+    @Benchmark
+    public String renderAggregateSelect() throws SQLSyntaxException {
+        return aggregateSelect.toSql(expressionContext);
+    }
+
+    @Benchmark
+    public String buildAndRenderAggregateSelect() throws SQLSyntaxException {
+        return createAggregateSelect().toSql(expressionContext);
+    }
+
+    private static Select createSimpleSelect() {
+        Member.Table member = Member.asTable();
+        Select select = new Select();
+
+        select.project(member.id, member.no, member.name, member.mobile)
+                .from(member)
+                .where(member.id.gt($(10)).and(member.name.like($("member%"))))
+                .orderBy(member.id.desc())
+                .limit(20);
+        return select;
+    }
+
+    private static Select createAggregateSelect() {
+        Member.Table member = Member.asTable();
+        Order.Table order = Order.asTable();
+        Select select = new Select();
+
+        select.from(order, member)
+                .where(order.memberId.eq(member.id));
+        select.project(member.no,
+                member.name,
+                member.mobile,
+                countDistinct(order.no).as("order_count"),
+                sum(order.quantity).as("total_quantity"),
+                sum(order.amount).as("total_amount"));
+        select.groupBy(member.no, member.name, member.mobile);
+        return select;
+    }
+}
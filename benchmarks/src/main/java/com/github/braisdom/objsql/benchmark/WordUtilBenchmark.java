@@ -0,0 +1,44 @@
+package com.github.braisdom.objsql.benchmark;
+
+import com.github.braisdom.objsql.util.WordUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversions between the names of fields, columns and tables, which are
+ * performed for each field of domain models.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordUtilBenchmark {
+
+    private String fieldName = "registeredAtTimestamp";
+    private String columnName = "registered_at_timestamp";
+    private String className = "OrderLine";
+    private String singular = "category";
+
+    @Benchmark
+    public String underscore() {
+        return WordUtil.underscore(fieldName);
+    }
+
+    @Benchmark
+    public String camelize() {
+        return WordUtil.camelize(columnName, true);
+    }
+
+    @Benchmark
+    public String tableize() {
+        return WordUtil.tableize(className);
+    }
+
+    @Benchmark
+    public String pluralize() {
+        return WordUtil.pluralize(singular);
+    }
+}
@@ -0,0 +1,23 @@
+package com.github.braisdom.objsql.benchmark.domains;
+
+import com.github.braisdom.objsql.annotations.DomainModel;
+
+@DomainModel(primaryClass = Integer.class)
+public class MediumRow {
+    private String c1;
+    private Integer c2;
+    private Double c3;
+    private String c4;
+    private Integer c5;
+    private Double c6;
+    private String c7;
+    private Integer c8;
+    private Double c9;
+    private String c10;
+    private Integer c11;
+    private Double c12;
+    private String c13;
+    private Integer c14;
+    private Double c15;
+    private String c16;
+}
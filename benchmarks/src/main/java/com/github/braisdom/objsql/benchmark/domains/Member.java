@@ -0,0 +1,19 @@
+package com.github.braisdom.objsql.benchmark.domains;
+
+import com.github.braisdom.objsql.annotations.DomainModel;
+import com.github.braisdom.objsql.annotations.Queryable;
+import com.github.braisdom.objsql.annotations.Relation;
+import com.github.braisdom.objsql.relation.RelationType;
+
+import java.util.List;
+
+@DomainModel(primaryClass = Integer.class)
+public class Member {
+    @Queryable
+    private String no;
+    private String name;
+    private String mobile;
+
+    @Relation(relationType = RelationType.HAS_MANY)
+    private List<Order> orders;
+}
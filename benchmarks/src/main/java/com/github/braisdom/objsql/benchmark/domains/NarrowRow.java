@@ -0,0 +1,11 @@
+package com.github.braisdom.objsql.benchmark.domains;
+
+import com.github.braisdom.objsql.annotations.DomainModel;
+
+@DomainModel(primaryClass = Integer.class)
+public class NarrowRow {
+    private String c1;
+    private Integer c2;
+    private Double c3;
+    private String c4;
+}
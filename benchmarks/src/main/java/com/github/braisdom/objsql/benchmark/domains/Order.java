@@ -0,0 +1,16 @@
+package com.github.braisdom.objsql.benchmark.domains;
+
+import com.github.braisdom.objsql.annotations.DomainModel;
+import com.github.braisdom.objsql.annotations.Relation;
+import com.github.braisdom.objsql.relation.RelationType;
+
+@DomainModel(primaryClass = Integer.class)
+public class Order {
+    private String no;
+    private Integer memberId;
+    private Double amount;
+    private Double quantity;
+
+    @Relation(relationType = RelationType.BELONGS_TO)
+    private Member member;
+}
@@ -0,0 +1,71 @@
+package com.github.braisdom.objsql.benchmark.domains;
+
+import com.github.braisdom.objsql.annotations.DomainModel;
+
+@DomainModel(primaryClass = Integer.class)
+public class WideRow {
+    private String c1;
+    private Integer c2;
+    private Double c3;
+    private String c4;
+    private Integer c5;
+    private Double c6;
+    private String c7;
+    private Integer c8;
+    private Double c9;
+    private String c10;
+    private Integer c11;
+    private Double c12;
+    private String c13;
+    private Integer c14;
+    private Double c15;
+    private String c16;
+    private Integer c17;
+    private Double c18;
+    private String c19;
+    private Integer c20;
+    private Double c21;
+    private String c22;
+    private Integer c23;
+    private Double c24;
+    private String c25;
+    private Integer c26;
+    private Double c27;
+    private String c28;
+    private Integer c29;
+    private Double c30;
+    private String c31;
+    private Integer c32;
+    private Double c33;
+    private String c34;
+    private Integer c35;
+    private Double c36;
+    private String c37;
+    private Integer c38;
+    private Double c39;
+    private String c40;
+    private Integer c41;
+    private Double c42;
+    private String c43;
+    private Integer c44;
+    private Double c45;
+    private String c46;
+    private Integer c47;
+    private Double c48;
+    private String c49;
+    private Integer c50;
+    private Double c51;
+    private String c52;
+    private Integer c53;
+    private Double c54;
+    private String c55;
+    private Integer c56;
+    private Double c57;
+    private String c58;
+    private Integer c59;
+    private Double c60;
+    private String c61;
+    private Integer c62;
+    private Double c63;
+    private String c64;
+}
@@ -16,9 +16,14 @@
  */
 package com.github.braisdom.objsql;
 
+import com.github.braisdom.objsql.annotations.DomainModel;
+import com.github.braisdom.objsql.annotations.PrimaryKey;
+
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The class provides abstracted method of SQL construction.
@@ -28,11 +33,199 @@ import java.util.Optional;
 public abstract class AbstractPersistence<T> implements Persistence<T> {
 
     private static final String INSERT_TEMPLATE = "INSERT INTO %s (%s) VALUES (%s)";
+    private static final String MULTI_ROW_INSERT_TEMPLATE = "INSERT INTO %s (%s) VALUES ";
+    private static final String COPY_STATEMENT = "COPY %s (%s) FROM STDIN";
+    private static final String BATCH_DELETE_TEMPLATE = "DELETE FROM %s WHERE %s IN (";
     private static final String UPDATE_STATEMENT = "UPDATE %s SET %s WHERE %s";
     private static final String DELETE_STATEMENT = "DELETE FROM %s WHERE %s";
+    private static final String SELECT_STATEMENT = "SELECT * FROM %s WHERE %s";
+
+    private static final int MAX_CACHED_TEMPLATES = 1024;
+    private static final int MAX_CACHED_MULTI_ROW_STATEMENTS = 8;
+
+    /**
+     * The maximum of rows in a multi-row insert statement, it keeps the size of
+     * statement acceptable for the packet limits of databases.
+     */
+    public static final int MAX_ROWS_PER_INSERT = 1000;
+
+    /**
+     * The maximum of rows in a JDBC batch, or identifiers in the IN clause of a
+     * batch delete statement.
+     */
+    public static final int MAX_ROWS_PER_BATCH = 1000;
+
+    private static final Map<TemplateKey, StatementTemplate> STATEMENT_TEMPLATES = new ConcurrentHashMap<>();
 
     protected final DomainModelDescriptor domainModelDescriptor;
 
+    private static class TemplateKey {
+
+        private final DomainModelDescriptor domainModelDescriptor;
+        private final String databaseName;
+        private final Quoter quoter;
+
+        public TemplateKey(DomainModelDescriptor domainModelDescriptor, String databaseName, Quoter quoter) {
+            this.domainModelDescriptor = domainModelDescriptor;
+            this.databaseName = databaseName;
+            this.quoter = quoter;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TemplateKey)) {
+                return false;
+            }
+            TemplateKey templateKey = (TemplateKey) o;
+            return domainModelDescriptor.equals(templateKey.domainModelDescriptor)
+                    && Objects.equals(databaseName, templateKey.databaseName)
+                    && quoter == templateKey.quoter;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(domainModelDescriptor, databaseName, System.identityHashCode(quoter));
+        }
+    }
+
+    /**
+     * The pre-quoted SQL statements of a domain model for a specific database, the primary
+     * key is bound as the last parameter of update, delete and select statement.
+     */
+    protected static final class StatementTemplate {
+
+        private final String quotedTableName;
+        private final String quotedPrimaryKeyName;
+        private final String insertSql;
+        private final String[] insertFieldNames;
+        private final String multiRowInsertPrefix;
+        private final String insertValues;
+        private final String copySql;
+        private final Map<Integer, String> multiRowInsertSqls;
+        private final String updateSql;
+        private final String[] updatableFieldNames;
+        private final String[] quotedUpdatableColumnNames;
+        private final String deleteSql;
+        private final String batchDeletePrefix;
+        private final Map<Integer, String> batchDeleteSqls;
+        private final String selectSql;
+
+        private StatementTemplate(String quotedTableName, String quotedPrimaryKeyName,
+                                  String insertSql, String[] insertFieldNames,
+                                  String multiRowInsertPrefix, String insertValues,
+                                  String copySql,
+                                  String updateSql, String[] updatableFieldNames,
+                                  String[] quotedUpdatableColumnNames, String deleteSql,
+                                  String batchDeletePrefix, String selectSql) {
+            this.quotedTableName = quotedTableName;
+            this.quotedPrimaryKeyName = quotedPrimaryKeyName;
+            this.insertSql = insertSql;
+            this.insertFieldNames = insertFieldNames;
+            this.multiRowInsertPrefix = multiRowInsertPrefix;
+            this.insertValues = insertValues;
+            this.copySql = copySql;
+            this.multiRowInsertSqls = new ConcurrentHashMap<>();
+            this.updateSql = updateSql;
+            this.updatableFieldNames = updatableFieldNames;
+            this.quotedUpdatableColumnNames = quotedUpdatableColumnNames;
+            this.deleteSql = deleteSql;
+            this.batchDeletePrefix = batchDeletePrefix;
+            this.batchDeleteSqls = new ConcurrentHashMap<>();
+            this.selectSql = selectSql;
+        }
+
+        public String getQuotedTableName() {
+            return quotedTableName;
+        }
+
+        public String getQuotedPrimaryKeyName() {
+            return quotedPrimaryKeyName;
+        }
+
+        public String getInsertSql() {
+            return insertSql;
+        }
+
+        /**
+         * Returns the fields bound as parameters of insert statement, the fields
+         * with default value are excluded.
+         */
+        public String[] getInsertFieldNames() {
+            return insertFieldNames;
+        }
+
+        /**
+         * Returns the insert statement with the given count of rows in VALUES clause, the
+         * parameters of rows are bound in the order of {@link #getInsertFieldNames()}.
+         */
+        public String getMultiRowInsertSql(int rowCount) {
+            return getRepeatedSql(multiRowInsertSqls, multiRowInsertPrefix, insertValues, "", rowCount);
+        }
+
+        /**
+         * Returns the COPY statement of PostgreSQL, or null if the domain model is not
+         * copied at batch inserting, or the values of some columns are not bound.
+         */
+        public String getCopySql() {
+            return copySql;
+        }
+
+        /**
+         * Returns the statement updating all updatable columns by primary key.
+         */
+        public String getUpdateSql() {
+            return updateSql;
+        }
+
+        public String[] getUpdatableFieldNames() {
+            return updatableFieldNames;
+        }
+
+        public String[] getQuotedUpdatableColumnNames() {
+            return quotedUpdatableColumnNames;
+        }
+
+        public String getDeleteSql() {
+            return deleteSql;
+        }
+
+        /**
+         * Returns the statement deleting rows by the given count of primary keys.
+         */
+        public String getBatchDeleteSql(int idCount) {
+            return getRepeatedSql(batchDeleteSqls, batchDeletePrefix, "?", ")", idCount);
+        }
+
+        public String getSelectSql() {
+            return selectSql;
+        }
+
+        private static String getRepeatedSql(Map<Integer, String> cachedSqls, String prefix,
+                                             String item, String suffix, int count) {
+            String sql = cachedSqls.get(count);
+            if (sql == null) {
+                StringBuilder sqlBuilder = new StringBuilder(prefix.length()
+                        + (item.length() + 1) * count + suffix.length());
+                sqlBuilder.append(prefix);
+                for (int i = 0; i < count; i++) {
+                    if (i > 0) {
+                        sqlBuilder.append(",");
+                    }
+                    sqlBuilder.append(item);
+                }
+                sql = sqlBuilder.append(suffix).toString();
+                if (cachedSqls.size() >= MAX_CACHED_MULTI_ROW_STATEMENTS) {
+                    cachedSqls.clear();
+                }
+                cachedSqls.put(count, sql);
+            }
+            return sql;
+        }
+    }
+
     public AbstractPersistence(Class<T> domainClass) {
         this(new BeanModelDescriptor(domainClass));
     }
@@ -43,7 +236,133 @@ public abstract class AbstractPersistence<T> implements Persistence<T> {
         this.domainModelDescriptor = domainModelDescriptor;
     }
 
+    /**
+     * Returns the statement template of domain model for the database, it will be
+     * resolved at the first time and reused for the subsequent persistence.
+     */
+    protected StatementTemplate getStatementTemplate(String databaseName) {
+        Quoter quoter = Databases.getQuoter();
+        TemplateKey templateKey = new TemplateKey(domainModelDescriptor, databaseName, quoter);
+        StatementTemplate statementTemplate = STATEMENT_TEMPLATES.get(templateKey);
+        if (statementTemplate == null) {
+            statementTemplate = createStatementTemplate(databaseName, quoter);
+            if (STATEMENT_TEMPLATES.size() >= MAX_CACHED_TEMPLATES) {
+                STATEMENT_TEMPLATES.clear();
+            }
+            STATEMENT_TEMPLATES.put(templateKey, statementTemplate);
+        }
+        return statementTemplate;
+    }
+
+    protected StatementTemplate createStatementTemplate(String databaseName, Quoter quoter) {
+        String tableName = quoter.quoteTableName(databaseName, domainModelDescriptor.getTableName());
+        String quotedPrimaryKeyName = domainModelDescriptor.getPrimaryKey() == null ? null
+                : quoter.quoteColumnName(databaseName, domainModelDescriptor.getPrimaryKey().name());
+        String primaryKeyPredicate = String.format("%s = ?", quotedPrimaryKeyName);
+
+        String[] insertableColumns = domainModelDescriptor.getInsertableColumns();
+        String[] quotedInsertableColumns = quoter.quoteColumnNames(databaseName, insertableColumns);
+        String insertSql = formatInsertSql(tableName, insertableColumns, quotedInsertableColumns);
+        String[] insertFieldNames = Arrays.stream(insertableColumns)
+                .map(columnName -> domainModelDescriptor.getFieldName(columnName))
+                .filter(fieldName -> !domainModelDescriptor.hasDefaultValue(fieldName))
+                .toArray(String[]::new);
+        String multiRowInsertPrefix = String.format(MULTI_ROW_INSERT_TEMPLATE, tableName,
+                String.join(",", quotedInsertableColumns));
+        String insertValues = String.format("(%s)", formatInsertValues(insertableColumns));
+
+        String copySql = isCopyable(insertableColumns, insertFieldNames)
+                ? String.format(COPY_STATEMENT, tableName, String.join(",", quotedInsertableColumns)) : null;
+
+        String[] updatableColumns = domainModelDescriptor.getUpdatableColumns();
+        String[] updatableFieldNames = Arrays.stream(updatableColumns)
+                .map(columnName -> domainModelDescriptor.getFieldName(columnName))
+                .toArray(String[]::new);
+        String[] quotedUpdatableColumnNames = quoter.quoteColumnNames(databaseName, updatableColumns);
+        String updateSql = quotedUpdatableColumnNames.length == 0 ? null
+                : formatUpdateSql(tableName, formatUpdates(quotedUpdatableColumnNames), primaryKeyPredicate);
+
+        return new StatementTemplate(tableName, quotedPrimaryKeyName, insertSql, insertFieldNames,
+                multiRowInsertPrefix, insertValues, copySql, updateSql, updatableFieldNames, quotedUpdatableColumnNames,
+                formatDeleteSql(tableName, primaryKeyPredicate),
+                String.format(BATCH_DELETE_TEMPLATE, tableName, quotedPrimaryKeyName),
+                String.format(SELECT_STATEMENT, tableName, primaryKeyPredicate));
+    }
+
+    /**
+     * The primary key bound at inserting is the default value of primary key instead of
+     * the value of domain object, so the rows cannot be copied with the primary key.
+     */
+    private boolean isCopyable(String[] insertableColumns, String[] insertFieldNames) {
+        Class domainModelClass = domainModelDescriptor.getDomainModelClass();
+        DomainModel domainModel = domainModelClass == null ? null
+                : (DomainModel) domainModelClass.getAnnotation(DomainModel.class);
+        PrimaryKey primaryKey = domainModelDescriptor.getPrimaryKey();
+
+        if (domainModel == null || !domainModel.copyOnBatchInserting()
+                || insertFieldNames.length != insertableColumns.length) {
+            return false;
+        }
+        return primaryKey == null || !Arrays.asList(insertableColumns).contains(primaryKey.name());
+    }
+
+    protected String formatUpdates(String[] quotedColumnNames) {
+        StringBuilder updatesSql = new StringBuilder();
+        for (String columnName : quotedColumnNames) {
+            if (updatesSql.length() > 0) {
+                updatesSql.append(",");
+            }
+            updatesSql.append(columnName).append("=").append("?");
+        }
+        return updatesSql.toString();
+    }
+
+    /**
+     * Returns the count of rows in a multi-row insert statement for the database, the
+     * parameters of statement cannot exceed the limit of database or driver. It returns 1
+     * if the database does not support the multi-row VALUES clause.
+     *
+     * @param parameterCount the count of parameters for each row
+     */
+    protected int getMaxRowsPerInsert(String databaseName, int parameterCount) {
+        if (!(DatabaseType.MySQL.nameEquals(databaseName) || DatabaseType.MariaDB.nameEquals(databaseName)
+                || DatabaseType.PostgreSQL.nameEquals(databaseName) || DatabaseType.SQLite.nameEquals(databaseName)
+                || DatabaseType.MsSqlServer.nameEquals(databaseName) || isH2Database(databaseName))) {
+            return 1;
+        }
+        return parameterCount == 0 ? MAX_ROWS_PER_INSERT
+                : Math.max(1, Math.min(MAX_ROWS_PER_INSERT, getMaxParameters(databaseName) / parameterCount));
+    }
+
+    /**
+     * Returns the maximum of parameters bound to a statement for the database or driver.
+     */
+    protected int getMaxParameters(String databaseName) {
+        if (DatabaseType.MySQL.nameEquals(databaseName) || DatabaseType.MariaDB.nameEquals(databaseName)) {
+            return 65535;
+        } else if (DatabaseType.PostgreSQL.nameEquals(databaseName)) {
+            return 32767;
+        } else if (DatabaseType.SQLite.nameEquals(databaseName)) {
+            return 999;
+        } else if (DatabaseType.MsSqlServer.nameEquals(databaseName)) {
+            return 2100;
+        } else if (isH2Database(databaseName)) {
+            return 100000;
+        } else {
+            // The Oracle limits the expressions in a IN list to 1000
+            return 1000;
+        }
+    }
+
+    private static boolean isH2Database(String databaseName) {
+        return DatabaseType.H2Database.nameEquals(databaseName) || "H2".equalsIgnoreCase(databaseName);
+    }
+
     protected String formatInsertSql(String tableName, String[] columnNames, String[] quotedColumnNames) {
+        return formatInsertSql(tableName, quotedColumnNames, formatInsertValues(columnNames));
+    }
+
+    protected String formatInsertValues(String[] columnNames) {
         String[] valuesPlaceHolder = Arrays.stream(columnNames)
                 .map(columnName -> {
                     String fieldName = domainModelDescriptor.getFieldName(columnName);
@@ -54,7 +373,7 @@ public abstract class AbstractPersistence<T> implements Persistence<T> {
                         return "?";
                     }
                 }).toArray(String[]::new);
-        return formatInsertSql(tableName, quotedColumnNames, String.join(",", valuesPlaceHolder));
+        return String.join(",", valuesPlaceHolder);
     }
 
     protected String formatInsertSql(String tableName, String[] columnNames, String values) {
@@ -30,6 +30,7 @@ public abstract class AbstractQuery<T> implements Query<T> {
 
     protected int limit = -1;
     protected int offset = -1;
+    protected int fetchSize = Tables.DEFAULT_FETCH_SIZE;
 
     protected String projection;
     protected String filter;
@@ -89,6 +90,12 @@ public abstract class AbstractQuery<T> implements Query<T> {
         return this;
     }
 
+    @Override
+    public Query fetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
     protected String getTableName(Class tableClass) {
         return Tables.getTableName(tableClass);
     }
@@ -22,6 +22,7 @@ import com.github.braisdom.objsql.annotations.PrimaryKey;
 import com.github.braisdom.objsql.annotations.Transient;
 import com.github.braisdom.objsql.reflection.ClassUtils;
 import com.github.braisdom.objsql.reflection.PropertyUtils;
+import com.github.braisdom.objsql.reflection.ReflectionException;
 import com.github.braisdom.objsql.transition.ColumnTransition;
 import com.github.braisdom.objsql.util.StringUtil;
 import com.github.braisdom.objsql.util.WordUtil;
@@ -51,9 +52,16 @@ public class BeanModelDescriptor<T> implements DomainModelDescriptor<T> {
             BigInteger.class, BigDecimal.class
     });
 
+    private final static ClassValue<BeanModelDescriptor> RELATED_DESCRIPTORS = new ClassValue<BeanModelDescriptor>() {
+        @Override
+        protected BeanModelDescriptor computeValue(Class<?> relatedClass) {
+            return new BeanModelDescriptor(relatedClass);
+        }
+    };
+
     private final Class<T> domainModelClass;
-    private final Map<String, ColumnTransition> columnTransitionMap;
-    private final Map<String, Field> columnToField;
+    private final BeanModelMetadata metadata;
+    private final FieldAccessor<T> fieldAccessor;
     private final boolean skipPrimaryKeyOnInserting;
     private final boolean autoGeneratedPrimaryKey;
 
@@ -104,21 +112,16 @@ public class BeanModelDescriptor<T> implements DomainModelDescriptor<T> {
     public BeanModelDescriptor(Class<T> domainModelClass, boolean skipPrimaryKeyOnInserting) {
         Objects.requireNonNull(domainModelClass, "The domainModelClass cannot be null");
 
-        if (Tables.getPrimaryKey(domainModelClass) == null) {
+        BeanModelMetadata metadata = BeanModelMetadata.get(getClass(), domainModelClass);
+        if (metadata.getPrimaryKey() == null) {
             throw new DomainModelException(String.format("The %s has no primary key", domainModelClass.getSimpleName()));
         }
 
-        DomainModel domainModel = domainModelClass.getAnnotation(DomainModel.class);
-
         this.domainModelClass = domainModelClass;
+        this.metadata = metadata;
         this.skipPrimaryKeyOnInserting = skipPrimaryKeyOnInserting;
-        this.columnTransitionMap = new HashMap<>();
-        this.columnToField = new HashMap<>();
-
-        this.autoGeneratedPrimaryKey = domainModel.autoGeneratedPrimaryKey();
-
-        prepareColumnToPropertyOverrides(domainModelClass);
-        instantiateColumnTransitionMap(domainModelClass.getDeclaredFields());
+        this.autoGeneratedPrimaryKey = metadata.getDomainModel().autoGeneratedPrimaryKey();
+        this.fieldAccessor = metadata.getFieldAccessor();
     }
 
     @Override
@@ -128,7 +131,7 @@ public class BeanModelDescriptor<T> implements DomainModelDescriptor<T> {
 
     @Override
     public void setGeneratedKey(T bean, Object primaryKeyValue) {
-        Field primaryField = Tables.getPrimaryField(domainModelClass);
+        Field primaryField = metadata.getPrimaryField();
         if (primaryKeyValue instanceof BigInteger) {
             primaryKeyValue = Long.valueOf(primaryKeyValue.toString());
         }
@@ -142,23 +145,22 @@ public class BeanModelDescriptor<T> implements DomainModelDescriptor<T> {
 
     @Override
     public DomainModelDescriptor getRelatedModeDescriptor(Class relatedClass) {
-        return new BeanModelDescriptor(relatedClass);
+        return RELATED_DESCRIPTORS.get(relatedClass);
     }
 
     @Override
     public String[] getColumns() {
-        return Arrays.stream(getColumnizableFields(domainModelClass, true, true))
-                .map(field -> getColumnName(field)).toArray(String[]::new);
+        return metadata.getColumns(this).clone();
     }
 
     @Override
     public String getTableName() {
-        return Tables.getTableName(domainModelClass);
+        return metadata.getTableName();
     }
 
     @Override
     public PrimaryKey getPrimaryKey() {
-        return Tables.getPrimaryKey(domainModelClass);
+        return metadata.getPrimaryKey();
     }
 
     @Override
@@ -168,125 +170,186 @@ public class BeanModelDescriptor<T> implements DomainModelDescriptor<T> {
 
     @Override
     public boolean skipNullOnUpdate() {
-        return domainModelClass.getAnnotation(DomainModel.class).skipNullValueOnUpdating();
+        return metadata.getDomainModel().skipNullValueOnUpdating();
     }
 
     @Override
     public String[] getInsertableColumns() {
-        return Arrays.stream(getColumnizableFields(domainModelClass, true, false))
-                .filter(field -> skipPrimaryKeyOnInserting ? field.getAnnotation(PrimaryKey.class) == null : true)
-                .filter(field -> autoGeneratedPrimaryKey ? field.getAnnotation(PrimaryKey.class) == null : true)
-                .map(field -> getColumnName(field)).toArray(String[]::new);
+        return metadata.getInsertableColumns(this, skipPrimaryKeyOnInserting || autoGeneratedPrimaryKey).clone();
     }
 
     @Override
     public String[] getUpdatableColumns() {
-        return Arrays.stream(getColumnizableFields(domainModelClass, false, true))
-                .filter(field -> field.getAnnotation(PrimaryKey.class) == null)
-                .map(field -> getColumnName(field)).toArray(String[]::new);
+        return metadata.getUpdatableColumns(this).clone();
     }
 
     @Override
     public String getFieldName(String fieldName) {
-        Field field = columnToField.get(fieldName);
+        Field field = metadata.getFieldByColumn(fieldName);
         return field == null ? null : field.getName();
     }
 
     @Override
     public Optional<String> getFieldDefaultValue(String fieldName) {
-        try {
-            DomainModel domainModel = domainModelClass.getAnnotation(DomainModel.class);
-            Field field = domainModelClass.getDeclaredField(fieldName);
-
-            if(field.getName().equals(domainModel.primaryFieldName())
-                    && !WordUtil.isEmpty(domainModel.primaryKeyDefaultValue())) {
-                return Optional.of(domainModel.primaryKeyDefaultValue());
-            }
-
-            Column column = field.getAnnotation(Column.class);
-            if (column != null && !WordUtil.isEmpty(column.defaultValue())) {
-                return Optional.of(column.defaultValue());
-            }
-            return Optional.empty();
-        } catch (NoSuchFieldException ex) {
-            throw new IllegalArgumentException(ex.getMessage(), ex);
+        Optional<String> defaultValue = metadata.getFieldDefaultValue(fieldName);
+        if (defaultValue == null) {
+            throw new IllegalArgumentException(fieldName);
         }
+        return defaultValue;
     }
 
     @Override
     public boolean hasDefaultValue(String fieldName) {
-        try {
-            DomainModel domainModel = domainModelClass.getAnnotation(DomainModel.class);
-            Field field = domainModelClass.getDeclaredField(fieldName);
-
-            if(field.getName().equals(domainModel.primaryFieldName())) {
-                return !WordUtil.isEmpty(domainModel.primaryKeyDefaultValue());
-            }
-
-            Column column = field.getAnnotation(Column.class);
-            if (column != null) {
-                return !WordUtil.isEmpty(column.defaultValue());
-            }
-            return false;
-        } catch (NoSuchFieldException ex) {
-            throw new IllegalArgumentException(ex.getMessage(), ex);
+        if (metadata.isPrimaryFieldName(fieldName)) {
+            return !WordUtil.isEmpty(metadata.getDomainModel().primaryKeyDefaultValue());
         }
+        return getFieldDefaultValue(fieldName).isPresent();
     }
 
     @Override
     public FieldValue getFieldValue(Object bean, String fieldName) {
-        try {
-            Object value = PropertyUtils.read(bean, fieldName);
+        Object value = readFieldValue(bean, fieldName);
+        SQLType sqlType = metadata.getFieldSqlType(fieldName);
 
-            DomainModel domainModel = domainModelClass.getAnnotation(DomainModel.class);
-            Field field = domainModelClass.getDeclaredField(fieldName);
+        if (sqlType == null) {
+            throw new IllegalArgumentException(fieldName);
+        }
 
-            if (domainModel.primaryFieldName().equals(fieldName)) {
-                String primaryValue = domainModel.primaryKeyDefaultValue();
-                return new DefaultFieldValue(JDBCType.NULL, primaryValue);
-            }
+        if (metadata.isPrimaryFieldName(fieldName)) {
+            String primaryValue = metadata.getDomainModel().primaryKeyDefaultValue();
+            return new DefaultFieldValue(JDBCType.NULL, primaryValue);
+        }
 
-            if (value == null) {
-                return new DefaultFieldValue(null);
-            }
+        if (value == null) {
+            return new DefaultFieldValue(null);
+        }
 
-            Column column = field.getAnnotation(Column.class);
-            if (column != null) {
-                return new DefaultFieldValue(column.sqlType(), value);
-            }
+        return new DefaultFieldValue(sqlType, value);
+    }
 
-            return new DefaultFieldValue(value);
-        } catch (NoSuchFieldException ex) {
-            throw new IllegalArgumentException(ex.getMessage(), ex);
+    @Override
+    public Class getFieldType(String fieldName) {
+        if (fieldName == null) {
+            return null;
+        }
+        Field field = metadata.getField(fieldName);
+        if (field == null) {
+            throw new IllegalStateException(fieldName);
         }
+        return field.getType();
     }
 
     @Override
-    public Class getFieldType(String fieldName) {
+    public void setFieldValue(T modelObject, String fieldName, Object fieldValue) {
+        Integer fieldIndex = metadata.getFieldIndex(fieldName);
+        if (fieldIndex == null) {
+            PropertyUtils.write(modelObject, fieldName, fieldValue);
+        } else {
+            setFieldValue(modelObject, fieldIndex, fieldValue);
+        }
+    }
+
+    /**
+     * Returns the index of field in the generated <code>FieldAccessor</code>, or -1 if the
+     * domain model has no generated accessor or the field is not accessible by it.
+     */
+    public int getFieldIndex(String fieldName) {
+        Integer fieldIndex = metadata.getFieldIndex(fieldName);
+        return fieldIndex == null ? -1 : fieldIndex;
+    }
+
+    /**
+     * Reads the field by the index from {@link #getFieldIndex(String)}.
+     */
+    public Object getFieldValue(T modelObject, int fieldIndex) {
+        return fieldAccessor.getFieldValue(modelObject, fieldIndex);
+    }
+
+    /**
+     * Writes the field by the index from {@link #getFieldIndex(String)}, it avoids the
+     * reflection of setter for the domain model compiled with ObjectiveSQL.
+     */
+    public void setFieldValue(T modelObject, int fieldIndex, Object fieldValue) {
         try {
-            if (fieldName == null) {
-                return null;
-            }
-            Field field = domainModelClass.getDeclaredField(fieldName);
-            return field == null ? null : field.getType();
-        } catch (NoSuchFieldException ex) {
-            throw new IllegalStateException(ex.getMessage(), ex);
+            fieldAccessor.setFieldValue(modelObject, fieldIndex, fieldValue);
+        } catch (RuntimeException ex) {
+            String realTypeName = fieldValue != null ? fieldValue.getClass().getSimpleName() : "Null";
+            String message = String.format("Failed to write %s.%s, because setter method require %s, but given %s(%s)",
+                    domainModelClass.getName(), fieldAccessor.getFieldNames()[fieldIndex],
+                    getFieldType(fieldAccessor.getFieldNames()[fieldIndex]).getSimpleName(), realTypeName, fieldValue);
+            throw new ReflectionException(message, ex);
         }
     }
 
     @Override
-    public void setFieldValue(T modelObject, String fieldName, Object fieldValue) {
-        PropertyUtils.write(modelObject, fieldName, fieldValue);
+    public boolean isDirtyTracked(T domainObject) {
+        DirtyFields dirtyFields = fieldAccessor == null ? null : fieldAccessor.getDirtyFields(domainObject);
+        return dirtyFields != null && dirtyFields.isTracking();
+    }
+
+    @Override
+    public boolean isFieldDirty(T domainObject, String fieldName) {
+        Integer fieldIndex = metadata.getFieldIndex(fieldName);
+        if (fieldIndex == null || !metadata.isDirtyTracked(fieldIndex)) {
+            return true;
+        }
+        DirtyFields dirtyFields = fieldAccessor.getDirtyFields(domainObject);
+        return dirtyFields == null || dirtyFields.isDirty(fieldIndex);
+    }
+
+    @Override
+    public void markDirty(T domainObject) {
+        DirtyFields dirtyFields = fieldAccessor == null ? null : fieldAccessor.getDirtyFields(domainObject);
+        if (dirtyFields != null) {
+            dirtyFields.markAll();
+        }
+    }
+
+    @Override
+    public void resetDirtyFields(T domainObject) {
+        DirtyFields dirtyFields = fieldAccessor == null ? null : fieldAccessor.getDirtyFields(domainObject);
+        if (dirtyFields != null) {
+            dirtyFields.reset();
+        }
     }
 
     @Override
     public boolean isTransitable(String fieldName) {
-        return columnTransitionMap.get(fieldName) != null;
+        return metadata.getColumnTransition(fieldName) != null;
     }
 
     @Override
     public ColumnTransition getColumnTransition(String fieldName) {
-        return columnTransitionMap.get(fieldName);
+        return metadata.getColumnTransition(fieldName);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BeanModelDescriptor that = (BeanModelDescriptor) o;
+        return skipPrimaryKeyOnInserting == that.skipPrimaryKeyOnInserting
+                && domainModelClass.equals(that.domainModelClass);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(domainModelClass, skipPrimaryKeyOnInserting);
+    }
+
+    /**
+     * Resolves the column names by the overridable methods, it is invoked only once for
+     * each variant of columns, and the result will be shared by the descriptors of the
+     * same class.
+     */
+    String[] resolveColumns(boolean insertable, boolean updatable, boolean skipPrimaryKey) {
+        return Arrays.stream(getColumnizableFields(domainModelClass, insertable, updatable))
+                .filter(field -> (insertable && !skipPrimaryKey) || field.getAnnotation(PrimaryKey.class) == null)
+                .map(field -> getColumnName(field)).toArray(String[]::new);
     }
 
     protected Field[] getColumnizableFields(Class domainModelClass, boolean insertable, boolean updatable) {
@@ -351,37 +414,32 @@ public class BeanModelDescriptor<T> implements DomainModelDescriptor<T> {
         }
     }
 
-    private void prepareColumnToPropertyOverrides(Class<T> rowClass) {
-        Field[] fields = rowClass.getDeclaredFields();
-        Arrays.stream(fields).forEach(field -> {
-            PrimaryKey primaryKey = field.getAnnotation(PrimaryKey.class);
-            Column column = field.getAnnotation(Column.class);
-
-            if (primaryKey != null) {
-                String columnName = StringUtil.isBlank(primaryKey.name())
-                        ? WordUtil.underscore(field.getName()) : primaryKey.name();
-                columnToField.put(columnName, field);
-                columnToField.put(columnName.toUpperCase(), field);
-            } else if (column != null) {
-                String columnName = StringUtil.isBlank(column.name())
-                        ? WordUtil.underscore(field.getName()) : column.name();
-                columnToField.put(columnName.toUpperCase(), field);
-                columnToField.put(columnName, field);
-            } else {
-                columnToField.put(WordUtil.underscore(field.getName()), field);
-                columnToField.put(WordUtil.underscore(field.getName()).toUpperCase(), field);
+    @Override
+    public T copyDomainObject(T domainObject) {
+        T copiedObject = newInstance();
+        for (String columnName : metadata.getColumns(this)) {
+            Field field = metadata.getFieldByColumn(columnName);
+            if (field != null) {
+                setFieldValue(copiedObject, field.getName(), readFieldValue(domainObject, field.getName()));
             }
-        });
-    }
-
-    private Map<String, ColumnTransition> instantiateColumnTransitionMap(Field[] fields) {
-        Arrays.stream(fields).forEach(field -> {
-            Column column = field.getAnnotation(Column.class);
-            if (column != null && !column.transition().equals(ColumnTransition.class)) {
-                columnTransitionMap.put(field.getName(), ClassUtils.createNewInstance(column.transition()));
+        }
+        if (PropertyUtils.supportRawAttribute(domainObject)) {
+            Map<String, Object> rawAttributes = PropertyUtils.getRawAttributes(domainObject);
+            if (rawAttributes != null) {
+                for (Map.Entry<String, Object> rawAttribute : rawAttributes.entrySet()) {
+                    PropertyUtils.writeRawAttribute(copiedObject, rawAttribute.getKey(), rawAttribute.getValue());
+                }
             }
-        });
+        }
+        resetDirtyFields(copiedObject);
+        return copiedObject;
+    }
 
-        return columnTransitionMap;
+    private Object readFieldValue(Object bean, String fieldName) {
+        Integer fieldIndex = metadata.getFieldIndex(fieldName);
+        if (fieldIndex == null) {
+            return PropertyUtils.read(bean, fieldName);
+        }
+        return fieldAccessor.getFieldValue((T) bean, fieldIndex);
     }
 }
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import com.github.braisdom.objsql.annotations.Column;
+import com.github.braisdom.objsql.annotations.DomainModel;
+import com.github.braisdom.objsql.annotations.PrimaryKey;
+import com.github.braisdom.objsql.reflection.ClassUtils;
+import com.github.braisdom.objsql.transition.ColumnTransition;
+import com.github.braisdom.objsql.util.StringUtil;
+import com.github.braisdom.objsql.util.WordUtil;
+
+import java.lang.reflect.Field;
+import java.sql.JDBCType;
+import java.sql.SQLType;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The immutable metadata of a domain model, it is resolved from the annotations and declared
+ * fields once, and shared by all <code>BeanModelDescriptor</code>s across threads.
+ *
+ * <p>The metadata is registered with the domain model class by <code>ClassValue</code>, so the
+ * metadata of a dynamically loaded class will be released together with its class loader.
+ * The columns are resolved by the protected methods of descriptor, so the metadata is
+ * distinguished by the class of descriptor either.
+ */
+final class BeanModelMetadata {
+
+    private static final ClassValue<Map<Class, BeanModelMetadata>> REGISTRY = new ClassValue<Map<Class, BeanModelMetadata>>() {
+        @Override
+        protected Map<Class, BeanModelMetadata> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final DomainModel domainModel;
+    private final String tableName;
+    private final PrimaryKey primaryKey;
+    private final Field primaryField;
+    private final Map<String, Field> fields;
+    private final Map<String, Field> columnToField;
+    private final Map<String, ColumnTransition> columnTransitionMap;
+    private final Map<String, Optional<String>> fieldDefaultValues;
+    private final Map<String, SQLType> fieldSqlTypes;
+    private final FieldAccessor fieldAccessor;
+    private final Map<String, Integer> fieldIndexes;
+    private final boolean[] dirtyTrackedFields;
+
+    private volatile String[] columns;
+    private volatile String[] insertableColumns;
+    private volatile String[] insertableColumnsWithoutPrimaryKey;
+    private volatile String[] updatableColumns;
+
+    private BeanModelMetadata(Class domainModelClass) {
+        this.domainModel = (DomainModel) domainModelClass.getAnnotation(DomainModel.class);
+        this.primaryKey = Tables.getPrimaryKey(domainModelClass);
+        this.primaryField = Tables.getPrimaryField(domainModelClass);
+        this.tableName = domainModel == null ? null : Tables.getTableName(domainModelClass);
+
+        Map<String, Field> fields = new HashMap<>();
+        Map<String, Field> columnToField = new HashMap<>();
+        Map<String, ColumnTransition> columnTransitionMap = new HashMap<>();
+        Map<String, Optional<String>> fieldDefaultValues = new HashMap<>();
+        Map<String, SQLType> fieldSqlTypes = new HashMap<>();
+
+        for (Field field : domainModelClass.getDeclaredFields()) {
+            PrimaryKey fieldPrimaryKey = field.getAnnotation(PrimaryKey.class);
+            Column column = field.getAnnotation(Column.class);
+
+            fields.put(field.getName(), field);
+            prepareColumnToField(columnToField, field, fieldPrimaryKey, column);
+            fieldDefaultValues.put(field.getName(), resolveDefaultValue(field, column));
+            fieldSqlTypes.put(field.getName(), column == null ? JDBCType.NULL : column.sqlType());
+
+            if (column != null && !column.transition().equals(ColumnTransition.class)) {
+                columnTransitionMap.put(field.getName(), ClassUtils.createNewInstance(column.transition()));
+            }
+        }
+
+        this.fields = Collections.unmodifiableMap(fields);
+        this.columnToField = Collections.unmodifiableMap(columnToField);
+        this.columnTransitionMap = Collections.unmodifiableMap(columnTransitionMap);
+        this.fieldDefaultValues = Collections.unmodifiableMap(fieldDefaultValues);
+        this.fieldSqlTypes = Collections.unmodifiableMap(fieldSqlTypes);
+
+        this.fieldAccessor = loadFieldAccessor(domainModelClass);
+        Map<String, Integer> fieldIndexes = new HashMap<>();
+        String[] fieldNames = fieldAccessor == null ? new String[0] : fieldAccessor.getFieldNames();
+        this.dirtyTrackedFields = new boolean[fieldNames.length];
+        for (int i = 0; i < fieldNames.length; i++) {
+            fieldIndexes.put(fieldNames[i], i);
+            dirtyTrackedFields[i] = fieldAccessor.isDirtyTracked(i);
+        }
+        this.fieldIndexes = Collections.unmodifiableMap(fieldIndexes);
+    }
+
+    public static BeanModelMetadata get(Class descriptorClass, Class domainModelClass) {
+        return REGISTRY.get(domainModelClass).computeIfAbsent(descriptorClass,
+                clazz -> new BeanModelMetadata(domainModelClass));
+    }
+
+    public DomainModel getDomainModel() {
+        return domainModel;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public PrimaryKey getPrimaryKey() {
+        return primaryKey;
+    }
+
+    public Field getPrimaryField() {
+        return primaryField;
+    }
+
+    public boolean isPrimaryFieldName(String fieldName) {
+        return domainModel != null && domainModel.primaryFieldName().equals(fieldName);
+    }
+
+    public Field getField(String fieldName) {
+        return fieldName == null ? null : fields.get(fieldName);
+    }
+
+    public Field getFieldByColumn(String columnName) {
+        return columnToField.get(columnName);
+    }
+
+    public ColumnTransition getColumnTransition(String fieldName) {
+        return columnTransitionMap.get(fieldName);
+    }
+
+    public Optional<String> getFieldDefaultValue(String fieldName) {
+        return fieldDefaultValues.get(fieldName);
+    }
+
+    public SQLType getFieldSqlType(String fieldName) {
+        return fieldSqlTypes.get(fieldName);
+    }
+
+    public FieldAccessor getFieldAccessor() {
+        return fieldAccessor;
+    }
+
+    public Integer getFieldIndex(String fieldName) {
+        return fieldIndexes.get(fieldName);
+    }
+
+    public boolean isDirtyTracked(int fieldIndex) {
+        return dirtyTrackedFields[fieldIndex];
+    }
+
+    public String[] getColumns(BeanModelDescriptor descriptor) {
+        if (columns == null) {
+            columns = descriptor.resolveColumns(true, true, false);
+        }
+        return columns;
+    }
+
+    public String[] getInsertableColumns(BeanModelDescriptor descriptor, boolean skipPrimaryKey) {
+        if (skipPrimaryKey) {
+            if (insertableColumnsWithoutPrimaryKey == null) {
+                insertableColumnsWithoutPrimaryKey = descriptor.resolveColumns(true, false, true);
+            }
+            return insertableColumnsWithoutPrimaryKey;
+        } else {
+            if (insertableColumns == null) {
+                insertableColumns = descriptor.resolveColumns(true, false, false);
+            }
+            return insertableColumns;
+        }
+    }
+
+    public String[] getUpdatableColumns(BeanModelDescriptor descriptor) {
+        if (updatableColumns == null) {
+            updatableColumns = descriptor.resolveColumns(false, true, false);
+        }
+        return updatableColumns;
+    }
+
+    private Optional<String> resolveDefaultValue(Field field, Column column) {
+        if (isPrimaryFieldName(field.getName())
+                && !WordUtil.isEmpty(domainModel.primaryKeyDefaultValue())) {
+            return Optional.of(domainModel.primaryKeyDefaultValue());
+        }
+        if (column != null && !WordUtil.isEmpty(column.defaultValue())) {
+            return Optional.of(column.defaultValue());
+        }
+        return Optional.empty();
+    }
+
+    private static void prepareColumnToField(Map<String, Field> columnToField, Field field,
+                                             PrimaryKey primaryKey, Column column) {
+        String columnName;
+        if (primaryKey != null) {
+            columnName = StringUtil.isBlank(primaryKey.name())
+                    ? WordUtil.underscore(field.getName()) : primaryKey.name();
+        } else if (column != null) {
+            columnName = StringUtil.isBlank(column.name())
+                    ? WordUtil.underscore(field.getName()) : column.name();
+        } else {
+            columnName = WordUtil.underscore(field.getName());
+        }
+        columnToField.put(columnName, field);
+        columnToField.put(columnName.toUpperCase(), field);
+    }
+
+    private static FieldAccessor loadFieldAccessor(Class domainModelClass) {
+        String accessorClassName = String.format("%s$%s", domainModelClass.getName(), FieldAccessor.GENERATED_CLASS_NAME);
+        try {
+            Class accessorClass = Class.forName(accessorClassName, true, domainModelClass.getClassLoader());
+            if (FieldAccessor.class.isAssignableFrom(accessorClass)) {
+                return (FieldAccessor) ClassUtils.createNewInstance(accessorClass);
+            }
+            return null;
+        } catch (ClassNotFoundException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,425 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * The decorator of <code>SQLExecutor</code> which caches the results of queries in a
+ * {@link QueryResultCache}. The results are identified by the data source, sql, parameters and
+ * the domain model class, and stored with the tables read by the query, which are resolved
+ * from the <code>FROM</code> and <code>JOIN</code> clauses of sql.
+ *
+ * <p>The cached results are invalidated by the tables changed through the decorator, such
+ * as the inserting, updating and deleting of <code>DefaultPersistence</code>. The whole
+ * cache is cleared if the changed table cannot be resolved from the sql, and the changes
+ * made outside of the decorator are visible only after the results expired.
+ *
+ * <p>Only the results of domain models queried in auto-commit mode are cached, because the
+ * uncommitted rows in a transaction may be rolled back. The streaming queries are never
+ * cached. The tables changed in a transaction are invalidated again after the transaction
+ * completed, and each table has a version increased by the invalidation, so the result of
+ * a query overlapping with the invalidation of its tables is not cached.
+ *
+ * <pre>
+ *     Databases.installQueryResultCache(new LocalQueryResultCache(1000, 60_000));
+ * </pre>
+ */
+public class CachingSQLExecutor<T> implements SQLExecutor<T> {
+
+    private static final String TABLE_NAME = "((?:[`\"\\[]?[\\w$]+[`\"\\]]?\\.)*[`\"\\[]?[\\w$]+[`\"\\]]?)";
+    private static final Pattern READ_TABLE_PATTERN = Pattern.compile("\\b(?:FROM|JOIN)\\b\\s*",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern TABLE_NAME_PATTERN = Pattern.compile(TABLE_NAME);
+    private static final Pattern TABLE_ALIAS_PATTERN = Pattern.compile("\\s+(?:AS\\s+)?(?!(?:WHERE|JOIN|INNER|LEFT"
+            + "|RIGHT|FULL|CROSS|OUTER|NATURAL|ON|USING|GROUP|ORDER|HAVING|LIMIT|OFFSET|UNION|INTERSECT|EXCEPT"
+            + "|MINUS|WINDOW|FOR|FETCH|WITH|START|CONNECT|LATERAL)\\b)[`\"\\[]?[\\w$]+[`\"\\]]?",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern TABLE_SEPARATOR_PATTERN = Pattern.compile("\\s*,\\s*");
+    private static final Pattern WRITE_TABLE_PATTERN = Pattern.compile(
+            "^\\s*(?:INSERT\\s+(?:IGNORE\\s+)?INTO|REPLACE\\s+INTO|MERGE\\s+INTO|UPDATE|DELETE\\s+FROM"
+                    + "|TRUNCATE(?:\\s+TABLE)?|COPY)\\s+" + TABLE_NAME, Pattern.CASE_INSENSITIVE);
+    private static final Pattern READ_ONLY_PATTERN = Pattern.compile("^\\s*SELECT\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    @FunctionalInterface
+    private interface DelegateQuery<T> {
+        List<T> apply() throws SQLException;
+    }
+
+    private final SQLExecutor<T> delegate;
+    private final QueryResultCache queryResultCache;
+    private final Predicate<Class> cacheable;
+
+    private final Map<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+    private final AtomicLong clearVersion = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public CachingSQLExecutor(SQLExecutor<T> delegate, QueryResultCache queryResultCache) {
+        this(delegate, queryResultCache, domainModelClass -> true);
+    }
+
+    /**
+     * @param cacheable determines whether the results of domain model class are cached
+     */
+    public CachingSQLExecutor(SQLExecutor<T> delegate, QueryResultCache queryResultCache,
+                              Predicate<Class> cacheable) {
+        Objects.requireNonNull(delegate, "The delegate cannot be null");
+        Objects.requireNonNull(queryResultCache, "The queryResultCache cannot be null");
+        Objects.requireNonNull(cacheable, "The cacheable cannot be null");
+        this.delegate = delegate;
+        this.queryResultCache = queryResultCache;
+        this.cacheable = cacheable;
+    }
+
+    public SQLExecutor<T> getDelegate() {
+        return delegate;
+    }
+
+    public QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
+    @Override
+    public List<T> query(Connection connection, String sql, TableRowAdapter tableRowAdapter,
+                         Object... params) throws SQLException {
+        return query(null, connection, sql, tableRowAdapter, params,
+                () -> delegate.query(connection, sql, tableRowAdapter, params));
+    }
+
+    @Override
+    public List<T> query(DatabaseContext databaseContext, String sql, TableRowAdapter tableRowAdapter,
+                         Object... params) throws SQLException {
+        return query(databaseContext.getDataSourceName(), databaseContext.getConnection(), sql,
+                tableRowAdapter, params, () -> delegate.query(databaseContext, sql, tableRowAdapter, params));
+    }
+
+    private List<T> query(String dataSourceName, Connection connection, String sql,
+                          TableRowAdapter tableRowAdapter, Object[] params,
+                          DelegateQuery<T> delegateQuery) throws SQLException {
+        if (!isCacheable(connection, tableRowAdapter)) {
+            return delegateQuery.apply();
+        }
+
+        DomainModelDescriptor domainModelDescriptor = (DomainModelDescriptor) tableRowAdapter;
+        QueryResultCache.Key key = new QueryResultCache.Key(dataSourceName, sql, params,
+                tableRowAdapter.getDomainModelClass());
+        List cachedResult = queryResultCache.get(key);
+        if (cachedResult != null) {
+            hitCount.incrementAndGet();
+            return copyResult(domainModelDescriptor, cachedResult);
+        }
+
+        missCount.incrementAndGet();
+        Set<String> tableNames = getReadTableNames(sql, tableRowAdapter);
+        if (tableNames == null) {
+            return delegateQuery.apply();
+        }
+        long version = getVersion(tableNames);
+        List<T> result = delegateQuery.apply();
+        if (version == getVersion(tableNames)) {
+            queryResultCache.put(key, copyResult(domainModelDescriptor, result), tableNames);
+            // The tables invalidated while putting might miss the result put
+            if (version != getVersion(tableNames)) {
+                tableNames.forEach(queryResultCache::invalidate);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<T> stream(Connection connection, int fetchSize, String sql,
+                            TableRowAdapter tableRowAdapter, Object... params) throws SQLException {
+        return delegate.stream(connection, fetchSize, sql, tableRowAdapter, params);
+    }
+
+    @Override
+    public Stream<T> stream(DatabaseContext databaseContext, int fetchSize, String sql,
+                            TableRowAdapter tableRowAdapter, Object... params) throws SQLException {
+        return delegate.stream(databaseContext, fetchSize, sql, tableRowAdapter, params);
+    }
+
+    @Override
+    public T insert(Connection connection, String sql, TableRowAdapter tableRowAdapter,
+                    Object... params) throws SQLException {
+        try {
+            return delegate.insert(connection, sql, tableRowAdapter, params);
+        } finally {
+            invalidate(sql);
+        }
+    }
+
+    @Override
+    public T insert(DatabaseContext databaseContext, String sql, TableRowAdapter tableRowAdapter,
+                    Object... params) throws SQLException {
+        try {
+            return delegate.insert(databaseContext, sql, tableRowAdapter, params);
+        } finally {
+            invalidate(sql);
+        }
+    }
+
+    @Override
+    public int[] insert(Connection connection, String sql, TableRowAdapter tableRowAdapter,
+                        Object[][] params) throws SQLException {
+        try {
+            return delegate.insert(connection, sql, tableRowAdapter, params);
+        } finally {
+            invalidate(sql);
+        }
+    }
+
+    @Override
+    public Object[] insertRows(Connection connection, String sql, String keyColumnName,
+                               Object... params) throws SQLException {
+        try {
+            return delegate.insertRows(connection, sql, keyColumnName, params);
+        } finally {
+            invalidate(sql);
+        }
+    }
+
+    @Override
+    public Object[] insertRows(Connection connection, String sql, TableRowAdapter tableRowAdapter,
+                               String keyColumnName, Object... params) throws SQLException {
+        try {
+            return delegate.insertRows(connection, sql, tableRowAdapter, keyColumnName, params);
+        } finally {
+            invalidate(sql);
+        }
+    }
+
+    @Override
+    public long copyIn(Connection connection, String sql, Object[][] rows) throws SQLException {
+        try {
+            return delegate.copyIn(connection, sql, rows);
+        } finally {
+            invalidate(sql);
+        }
+    }
+
+    @Override
+    public long copyIn(DatabaseContext databaseContext, String sql, Object[][] rows) throws SQLException {
+        try {
+            return delegate.copyIn(databaseContext, sql, rows);
+        } finally {
+            invalidate(sql);
+        }
+    }
+
+    @Override
+    public long copyIn(DatabaseContext databaseContext, String sql, TableRowAdapter tableRowAdapter,
+                       Object[][] rows) throws SQLException {
+        try {
+            return delegate.copyIn(databaseContext, sql, tableRowAdapter, rows);
+        } finally {
+            invalidate(sql);
+        }
+    }
+
+    @Override
+    public int execute(Connection connection, String sql, Object... params) throws SQLException {
+        try {
+            return delegate.execute(connection, sql, params);
+        } finally {
+            invalidate(sql);
+        }
+    }
+
+    @Override
+    public int execute(Connection connection, String sql, TableRowAdapter tableRowAdapter,
+                       Object... params) throws SQLException {
+        try {
+            return delegate.execute(connection, sql, tableRowAdapter, params);
+        } finally {
+            invalidate(sql);
+        }
+    }
+
+    @Override
+    public int[] executeBatch(Connection connection, String sql, Object[][] params) throws SQLException {
+        try {
+            return delegate.executeBatch(connection, sql, params);
+        } finally {
+            invalidate(sql);
+        }
+    }
+
+    @Override
+    public int[] executeBatch(Connection connection, String sql, TableRowAdapter tableRowAdapter,
+                              Object[][] params) throws SQLException {
+        try {
+            return delegate.executeBatch(connection, sql, tableRowAdapter, params);
+        } finally {
+            invalidate(sql);
+        }
+    }
+
+    /**
+     * Removes the cached results which read the table.
+     *
+     * @return the number of results removed
+     */
+    public int invalidateTable(String tableName) {
+        String normalizedTableName = normalizeTableName(tableName);
+        tableVersions.computeIfAbsent(normalizedTableName, name -> new AtomicLong()).incrementAndGet();
+        int count = queryResultCache.invalidate(normalizedTableName);
+        evictionCount.addAndGet(count);
+        return count;
+    }
+
+    public void clear() {
+        clearVersion.incrementAndGet();
+        queryResultCache.clear();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of results invalidated by the changes of tables.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private boolean isCacheable(Connection connection, TableRowAdapter tableRowAdapter) throws SQLException {
+        return tableRowAdapter instanceof DomainModelDescriptor
+                && cacheable.test(tableRowAdapter.getDomainModelClass())
+                && connection.getAutoCommit();
+    }
+
+    /**
+     * Returns the sum of versions of the tables, which is increased by any invalidation
+     * of the tables, because the versions never decrease.
+     */
+    private long getVersion(Set<String> tableNames) {
+        long version = clearVersion.get();
+        for (String tableName : tableNames) {
+            AtomicLong tableVersion = tableVersions.get(tableName);
+            version += tableVersion == null ? 0 : tableVersion.get();
+        }
+        return version;
+    }
+
+    private void invalidate(String sql) {
+        if (READ_ONLY_PATTERN.matcher(sql).find()) {
+            return;
+        }
+        Matcher matcher = WRITE_TABLE_PATTERN.matcher(sql);
+        if (matcher.find()) {
+            String tableName = matcher.group(1);
+            invalidateTable(tableName);
+            Databases.registerCompletionAction(() -> invalidateTable(tableName));
+        } else {
+            clear();
+            Databases.registerCompletionAction(this::clear);
+        }
+    }
+
+    private List copyResult(DomainModelDescriptor domainModelDescriptor, List result) {
+        List copiedResult = new ArrayList(result.size());
+        for (Object domainObject : result) {
+            copiedResult.add(domainObject == null ? null : domainModelDescriptor.copyDomainObject(domainObject));
+        }
+        return copiedResult;
+    }
+
+    /**
+     * Returns the tables read by the query, including the tables listed with commas and the
+     * tables of derived tables, or null if the tables cannot be parsed, and the result of
+     * query must not be cached.
+     */
+    static Set<String> getReadTableNames(String sql, TableRowAdapter tableRowAdapter) {
+        Set<String> tableNames = new HashSet<>();
+        if (tableRowAdapter.getTableName() != null) {
+            tableNames.add(normalizeTableName(tableRowAdapter.getTableName()));
+        }
+        // The tables of derived table are parsed by the following FROM and JOIN
+        Matcher matcher = READ_TABLE_PATTERN.matcher(sql);
+        while (matcher.find()) {
+            int position = matcher.end();
+            while (true) {
+                if (position < sql.length() && sql.charAt(position) == '(') {
+                    position = skipParentheses(sql, position);
+                    if (position < 0) {
+                        return null;
+                    }
+                } else {
+                    Matcher tableMatcher = TABLE_NAME_PATTERN.matcher(sql).region(position, sql.length());
+                    if (!tableMatcher.lookingAt()) {
+                        return null;
+                    }
+                    tableNames.add(normalizeTableName(tableMatcher.group(1)));
+                    position = tableMatcher.end();
+                }
+
+                Matcher aliasMatcher = TABLE_ALIAS_PATTERN.matcher(sql).region(position, sql.length());
+                if (aliasMatcher.lookingAt()) {
+                    position = aliasMatcher.end();
+                }
+                Matcher separatorMatcher = TABLE_SEPARATOR_PATTERN.matcher(sql).region(position, sql.length());
+                if (!separatorMatcher.lookingAt()) {
+                    break;
+                }
+                position = separatorMatcher.end();
+            }
+        }
+        return tableNames;
+    }
+
+    /**
+     * Returns the position after the parentheses beginning at the given position, or -1 if
+     * they are not closed.
+     */
+    private static int skipParentheses(String sql, int position) {
+        int depth = 0;
+        for (int i = position; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    static String normalizeTableName(String tableName) {
+        String name = tableName.substring(tableName.lastIndexOf('.') + 1);
+        if (name.length() > 1 && "`\"[".indexOf(name.charAt(0)) >= 0) {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
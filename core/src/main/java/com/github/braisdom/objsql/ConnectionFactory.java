@@ -43,6 +43,16 @@ public interface ConnectionFactory {
      */
     Connection getConnection(String dataSourceName) throws SQLException;
 
+    /**
+     * Return a connection for reading only, the connection can be retrieved from a read
+     * replica of the data source, the default is the same as {@link #getConnection(String)}.
+     *
+     * @see ReplicaRoutingConnectionFactory
+     */
+    default Connection getReadOnlyConnection(String dataSourceName) throws SQLException {
+        return getConnection(dataSourceName);
+    }
+
     /**
      * Returns true if current name of data source is <code>DEFAULT_DATA_SOURCE_NAME</code>
      * @return
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * The database behind a data source, it is resolved from the <code>DatabaseMetaData</code>
+ * of the first connection and cached by the name of data source, so that the product name,
+ * quoting and dialect of database are available without <code>DatabaseMetaData</code> for
+ * each statement.
+ *
+ * <p>The context passed to <code>SQLExecutor</code> and <code>ColumnTransition</code> is bound
+ * to the connection of statement, whose <code>DatabaseMetaData</code> is retrieved lazily
+ * only if the information other than the product name is required.
+ *
+ * @see Databases#getDatabaseContext(String, Connection)
+ */
+public final class DatabaseContext {
+
+    private final String dataSourceName;
+    private final String databaseName;
+    private final DatabaseType databaseType;
+    private final Connection connection;
+
+    private DatabaseMetaData metaData;
+    private DatabaseMetaData connectionMetaData;
+
+    private DatabaseContext(String dataSourceName, String databaseName, DatabaseType databaseType,
+                            Connection connection, DatabaseMetaData metaData) {
+        this.dataSourceName = dataSourceName;
+        this.databaseName = databaseName;
+        this.databaseType = databaseType;
+        this.connection = connection;
+        this.metaData = metaData;
+    }
+
+    /**
+     * Resolves the context from the <code>DatabaseMetaData</code> of connection, the context
+     * returned is bound to the connection.
+     *
+     * @param dataSourceName the name of data source, or null if it is unknown
+     */
+    public static DatabaseContext resolve(String dataSourceName, Connection connection) throws SQLException {
+        Objects.requireNonNull(connection, "The connection cannot be null");
+
+        DatabaseMetaData metaData = connection.getMetaData();
+        String databaseName = metaData.getDatabaseProductName();
+        return new DatabaseContext(dataSourceName, databaseName, DatabaseType.resolve(databaseName),
+                connection, metaData);
+    }
+
+    /**
+     * Returns the context bound to the connection, which shares the database resolved.
+     */
+    public DatabaseContext bind(Connection connection) {
+        Objects.requireNonNull(connection, "The connection cannot be null");
+        if (connection == this.connection) {
+            return this;
+        }
+        return new DatabaseContext(dataSourceName, databaseName, databaseType, connection, null);
+    }
+
+    /**
+     * Returns the context without connection, it is cached instead of the bound one,
+     * so that the connection closed is not retained.
+     */
+    DatabaseContext unbind() {
+        return connection == null ? this : new DatabaseContext(dataSourceName, databaseName, databaseType, null, null);
+    }
+
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    /**
+     * Returns the product name of database.
+     *
+     * @see DatabaseMetaData#getDatabaseProductName()
+     */
+    public String getDatabaseName() {
+        return databaseName;
+    }
+
+    public DatabaseType getDatabaseType() {
+        return databaseType;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Returns the <code>DatabaseMetaData</code> of the connection bound, the product name of
+     * database is answered by the context, and the other information is retrieved from the
+     * connection at the first calling.
+     */
+    public DatabaseMetaData getMetaData() {
+        if (metaData == null) {
+            metaData = (DatabaseMetaData) Proxy.newProxyInstance(DatabaseContext.class.getClassLoader(),
+                    new Class[]{DatabaseMetaData.class}, this::invokeMetaData);
+        }
+        return metaData;
+    }
+
+    private Object invokeMetaData(Object proxy, Method method, Object[] args) throws Throwable {
+        if ("getDatabaseProductName".equals(method.getName())) {
+            return databaseName;
+        }
+        if ("getConnection".equals(method.getName())) {
+            return connection;
+        }
+
+        if (connectionMetaData == null) {
+            if (connection == null) {
+                throw new IllegalStateException("The database context is not bound to a connection");
+            }
+            connectionMetaData = connection.getMetaData();
+        }
+        try {
+            return method.invoke(connectionMetaData, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    public String quoteTableName(String tableName) {
+        return Databases.getQuoter().quoteTableName(databaseName, tableName);
+    }
+
+    public String quoteColumnName(String columnName) {
+        return Databases.getQuoter().quoteColumnName(databaseName, columnName);
+    }
+
+    /**
+     * @see DatabaseType#supportsRowValueComparison()
+     */
+    public boolean supportsRowValueComparison() {
+        return databaseType.supportsRowValueComparison();
+    }
+
+    /**
+     * @see DatabaseType#getPaginationClause(boolean, int, int)
+     */
+    public String getPaginationClause(boolean ordered, int offset, int limit) {
+        return databaseType.getPaginationClause(ordered, offset, limit);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s(%s)", dataSourceName, databaseName);
+    }
+}
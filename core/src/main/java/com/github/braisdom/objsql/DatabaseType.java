@@ -45,4 +45,89 @@ public enum DatabaseType {
     public boolean nameEquals(String name) {
         return this.name.equalsIgnoreCase(name);
     }
+
+    /**
+     * Returns true if the database compares the row values, such as <code>(a, b) &gt; (?, ?)</code>,
+     * and applies the index of leading columns for it.
+     */
+    public boolean supportsRowValueComparison() {
+        return this == MySQL || this == PostgreSQL || this == MariaDB || this == SQLite || this == H2Database;
+    }
+
+    /**
+     * Returns the clause for paging the rows, the <code>OFFSET ... FETCH</code> is used for
+     * Oracle and SQL Server, which requires the rows ordered, and the <code>LIMIT ... OFFSET</code>
+     * for the others.
+     *
+     * @param ordered true if the statement has an <code>ORDER BY</code> clause
+     * @param offset the count of rows skipped, it will be ignored if less than 1
+     * @param limit the maximum count of rows, it will be ignored if less than 1
+     */
+    public String getPaginationClause(boolean ordered, int offset, int limit) {
+        StringBuilder clause = new StringBuilder();
+        if (offset <= 0 && limit <= 0) {
+            return clause.toString();
+        }
+
+        if (this == Oracle || this == MsSqlServer) {
+            if (this == MsSqlServer && !ordered) {
+                clause.append(" ORDER BY (SELECT NULL)");
+            }
+            clause.append(" OFFSET ").append(Math.max(offset, 0)).append(" ROWS");
+            if (limit > 0) {
+                clause.append(" FETCH NEXT ").append(limit).append(" ROWS ONLY");
+            }
+            return clause.toString();
+        }
+
+        if (limit > 0) {
+            clause.append(" LIMIT ").append(limit);
+        } else if (this == MySQL || this == MariaDB) {
+            clause.append(" LIMIT 18446744073709551615");
+        } else if (this == SQLite) {
+            clause.append(" LIMIT -1");
+        }
+
+        if (offset > 0) {
+            clause.append(" OFFSET ").append(offset);
+        }
+        return clause.toString();
+    }
+
+    /**
+     * Returns the type of database by the product name of JDBC driver, or <code>Unknown</code>
+     * if the database is not supported.
+     *
+     * @see java.sql.DatabaseMetaData#getDatabaseProductName()
+     */
+    public static DatabaseType resolve(String databaseProductName) {
+        if (databaseProductName == null) {
+            return Unknown;
+        }
+        for (DatabaseType databaseType : values()) {
+            if (databaseType.nameEquals(databaseProductName)) {
+                return databaseType;
+            }
+        }
+
+        String productName = databaseProductName.toLowerCase();
+        if (productName.contains("sql server")) {
+            return MsSqlServer;
+        } else if (productName.equals("h2")) {
+            return H2Database;
+        } else if (productName.contains("oracle")) {
+            return Oracle;
+        } else if (productName.contains("mariadb")) {
+            return MariaDB;
+        } else if (productName.contains("mysql")) {
+            return MySQL;
+        } else if (productName.contains("postgresql")) {
+            return PostgreSQL;
+        } else if (productName.contains("clickhouse")) {
+            return Clickhouse;
+        } else if (productName.contains("hive")) {
+            return Hive;
+        }
+        return Unknown;
+    }
 }
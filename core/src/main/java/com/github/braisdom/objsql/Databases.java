@@ -16,14 +16,31 @@
  */
 package com.github.braisdom.objsql;
 
+import com.github.braisdom.objsql.annotations.DomainModel;
+import com.github.braisdom.objsql.jdbc.CachingQueryRunner;
 import com.github.braisdom.objsql.jdbc.DbUtils;
 import com.github.braisdom.objsql.util.StringUtil;
 
+import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
 import java.util.logging.Level;
+import java.util.stream.Stream;
 
 /**
  * This class consists exclusively of utility methods that operate of behavior of database.
@@ -49,6 +66,25 @@ public final class Databases {
      */
     private static ThreadLocal<Connection> connectionThreadLocal = new ThreadLocal<>();
 
+    /**
+     * Holds the data source of the connection in a thread, it is absent if the connection
+     * is held without the name of data source.
+     */
+    private static ThreadLocal<String> transactionDataSourceThreadLocal = new ThreadLocal<>();
+
+    /**
+     * Holds the connections of data sources in the units of work of a thread, the connection
+     * is acquired at the first database accessing of the unit of work, and closed when the
+     * unit of work terminated.
+     */
+    private static ThreadLocal<Map<String, Connection>> scopedConnectionsThreadLocal = new ThreadLocal<>();
+
+    /**
+     * Holds the actions executed when the connection of a thread is released, that is, the
+     * transaction is committed or rolled back.
+     */
+    private static ThreadLocal<List<Runnable>> completionActionsThreadLocal = new ThreadLocal<>();
+
     /**
      * Quoting name of table or column by various database type.
      */
@@ -64,6 +100,46 @@ public final class Databases {
 
     private static PersistenceFactory persistenceFactory;
 
+    /**
+     * Loads the independent relationships in parallel, the relationships will be loaded
+     * one after another if it is absent.
+     */
+    private static Executor relationExecutor;
+
+    /**
+     * Executes the asynchronous database accessing, it is created lazily with virtual
+     * threads if the JDK supports.
+     */
+    private static volatile Executor asyncExecutor;
+
+    /**
+     * Executes the statements scattered to the shards, it is separated from the async
+     * executor, because the asynchronous logic waits for the shards.
+     */
+    private static volatile Executor scatterExecutor;
+
+    private static EntityCacheFactory entityCacheFactory;
+
+    /**
+     * Collects the timings of database accessing, nothing is collected by default.
+     */
+    private static MetricsCollector metricsCollector = MetricsCollector.NOOP;
+
+    /**
+     * Observes the statements executed instead of logging all of them, if it is present.
+     */
+    private static StatementObserver statementObserver;
+
+    /**
+     * The databases of data sources resolved from their first connections.
+     */
+    private static final Map<String, DatabaseContext> databaseContexts = new ConcurrentHashMap<>();
+
+    /**
+     * The entity caches of domain models declared as cacheable.
+     */
+    private static final Map<Class, EntityCache> entityCaches = new ConcurrentHashMap<>();
+
     /**
      * Represents a logic of data process, it will provide the connection and sql
      * executor of database, and the concrete logic will be ignored the behavior
@@ -77,6 +153,16 @@ public final class Databases {
         R apply(Connection connection, SQLExecutor<T> sqlExecutor) throws SQLException;
     }
 
+    /**
+     * Represents a logic of database accessing which is executed asynchronously.
+     *
+     * @param <R>
+     */
+    @FunctionalInterface
+    public static interface AsyncInvoke<R> {
+        R apply() throws SQLException;
+    }
+
     /**
      * Represents logic will be executed in the transaction(There's only one
      * connection of database)
@@ -88,6 +174,18 @@ public final class Databases {
         R apply() throws Exception;
     }
 
+    /**
+     * Represents a unit of work which shares the connections of data sources, the connection
+     * remains in auto-commit mode.
+     *
+     * @param <R>
+     * @param <E> the exception thrown by the unit of work
+     */
+    @FunctionalInterface
+    public static interface UnitOfWork<R, E extends Throwable> {
+        R apply() throws E;
+    }
+
     @FunctionalInterface
     public static interface Benchmarkable<R> {
         R apply() throws Exception;
@@ -95,15 +193,91 @@ public final class Databases {
 
     public static void setCurrentThreadConnection(Connection connection) {
         connectionThreadLocal.set(connection);
+        transactionDataSourceThreadLocal.remove();
+    }
+
+    /**
+     * Holds the connection of the data source in current thread, the data source is recorded
+     * for routing the statements of sharded domain models.
+     */
+    public static void setCurrentThreadConnection(String dataSourceName, Connection connection) {
+        connectionThreadLocal.set(connection);
+        transactionDataSourceThreadLocal.set(dataSourceName);
     }
 
     public static void clearCurrentThreadConnection() {
+        List<Runnable> completionActions = completionActionsThreadLocal.get();
         connectionThreadLocal.remove();
+        transactionDataSourceThreadLocal.remove();
+        completionActionsThreadLocal.remove();
+        runCompletionActions(completionActions);
+    }
+
+    /**
+     * Registers the action executed after the transaction of current thread completed, whether
+     * it is committed or rolled back. For example, the cached rows changed in a transaction
+     * are evicted again after committing, because they might be cached by other threads with
+     * the values before committing.
+     *
+     * @return false if current thread holds no connection, the action is not registered
+     */
+    public static boolean registerCompletionAction(Runnable action) {
+        Objects.requireNonNull(action, "The action cannot be null");
+        if (connectionThreadLocal.get() == null) {
+            return false;
+        }
+
+        List<Runnable> completionActions = completionActionsThreadLocal.get();
+        if (completionActions == null) {
+            completionActions = new ArrayList<>();
+            completionActionsThreadLocal.set(completionActions);
+        }
+        completionActions.add(action);
+        return true;
+    }
+
+    private static void runCompletionActions(List<Runnable> completionActions) {
+        if (completionActions == null) {
+            return;
+        }
+        for (Runnable completionAction : completionActions) {
+            try {
+                completionAction.run();
+            } catch (RuntimeException ex) {
+                getLoggerFactory().create(Databases.class).error(ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Returns true if current thread holds a connection, such as in a transaction, all
+     * statements of the thread will be executed with the connection.
+     */
+    public static boolean hasCurrentThreadConnection() {
+        return connectionThreadLocal.get() != null;
+    }
+
+    /**
+     * Returns true if the statements of current thread are committed by themselves, that is,
+     * the thread holds no connection or the connection is in auto-commit mode.
+     */
+    public static boolean isCurrentThreadAutoCommit() throws SQLException {
+        Connection connection = connectionThreadLocal.get();
+        return connection == null || connection.getAutoCommit();
+    }
+
+    /**
+     * Returns the name of data source which owns the connection held by current thread, or null
+     * if the thread holds no connection or the data source of the connection is unknown.
+     */
+    public static String getCurrentThreadDataSourceName() {
+        return connectionThreadLocal.get() == null ? null : transactionDataSourceThreadLocal.get();
     }
 
     public static void installConnectionFactory(ConnectionFactory connectionFactory) {
         Objects.requireNonNull(connectionFactory, "The connectionFactory cannot be null");
         Databases.connectionFactory = connectionFactory;
+        Databases.databaseContexts.clear();
     }
 
     public static void installSqlExecutor(SQLExecutor sqlExecutor) {
@@ -111,6 +285,87 @@ public final class Databases {
         Databases.sqlExecutor = sqlExecutor;
     }
 
+    /**
+     * Installs the statement cache into the sql executor installed, which caches the
+     * <code>PreparedStatement</code>s for each connection, the statistics of cache can be
+     * retrieved from {@link #getStatementCache()}. The sql executor and its decorators,
+     * such as the cache of query results, are kept.
+     *
+     * @param maxStatements the maximum of statements cached for each connection
+     * @throws IllegalStateException if the sql executor installed is not a <code>DefaultSQLExecutor</code>
+     */
+    public static void installStatementCache(int maxStatements) {
+        SQLExecutor sqlExecutor = getSqlExecutor();
+        if (sqlExecutor instanceof CachingSQLExecutor) {
+            sqlExecutor = ((CachingSQLExecutor) sqlExecutor).getDelegate();
+        }
+        if (!(sqlExecutor instanceof DefaultSQLExecutor)) {
+            throw new IllegalStateException(String.format("The statement cache cannot be installed into %s",
+                    sqlExecutor.getClass().getName()));
+        }
+        ((DefaultSQLExecutor) sqlExecutor).setQueryRunner(new CachingQueryRunner(true, maxStatements));
+    }
+
+    /**
+     * Returns the statement cache of installed sql executor, or null if the
+     * statement cache is not installed.
+     */
+    public static CachingQueryRunner getStatementCache() {
+        SQLExecutor sqlExecutor = getSqlExecutor();
+        if (sqlExecutor instanceof CachingSQLExecutor) {
+            sqlExecutor = ((CachingSQLExecutor) sqlExecutor).getDelegate();
+        }
+        if (sqlExecutor instanceof DefaultSQLExecutor
+                && ((DefaultSQLExecutor) sqlExecutor).getQueryRunner() instanceof CachingQueryRunner) {
+            return (CachingQueryRunner) ((DefaultSQLExecutor) sqlExecutor).getQueryRunner();
+        }
+        return null;
+    }
+
+    /**
+     * Decorates the installed sql executor with the cache of query results, the results
+     * are invalidated by the changes of tables through the sql executor.
+     *
+     * @see CachingSQLExecutor
+     */
+    public static void installQueryResultCache(QueryResultCache queryResultCache) {
+        Objects.requireNonNull(queryResultCache, "The queryResultCache cannot be null");
+        SQLExecutor sqlExecutor = getSqlExecutor();
+        if (sqlExecutor instanceof CachingSQLExecutor) {
+            sqlExecutor = ((CachingSQLExecutor) sqlExecutor).getDelegate();
+        }
+        installSqlExecutor(new CachingSQLExecutor(sqlExecutor, queryResultCache));
+    }
+
+    /**
+     * Returns the caching sql executor installed, or null if the cache of query results
+     * is not installed.
+     */
+    public static CachingSQLExecutor getQueryResultCache() {
+        SQLExecutor sqlExecutor = getSqlExecutor();
+        return sqlExecutor instanceof CachingSQLExecutor ? (CachingSQLExecutor) sqlExecutor : null;
+    }
+
+    /**
+     * Installs the metrics collector, the timings of connection acquisition, statement
+     * execution, result hydration and relation loading will be reported to it.
+     */
+    public static void installMetricsCollector(MetricsCollector metricsCollector) {
+        Objects.requireNonNull(metricsCollector, "The metricsCollector cannot be null");
+        Databases.metricsCollector = metricsCollector;
+    }
+
+    /**
+     * Installs the statement observer, which decides the statements to be logged instead
+     * of logging all statements.
+     *
+     * @param statementObserver the statement observer, or null for logging all statements
+     * @see SlowQueryDetector
+     */
+    public static void installStatementObserver(StatementObserver statementObserver) {
+        Databases.statementObserver = statementObserver;
+    }
+
     public static void installQueryFacotry(QueryFactory queryFactory) {
         Objects.requireNonNull(queryFactory, "The queryFactory cannot be null");
         Databases.queryFactory = queryFactory;
@@ -131,14 +386,87 @@ public final class Databases {
         Databases.quoter = quoter;
     }
 
+    /**
+     * Installs the executor for loading the relationships in parallel, each branch of
+     * relationships will be loaded with a separated connection, so the connection pool
+     * should be large enough for the concurrent branches. The relationships are still
+     * loaded one after another in a transaction.
+     *
+     * @param relationExecutor the executor for loading relationships, or null for loading
+     *                         the relationships one after another
+     */
+    public static void installRelationExecutor(Executor relationExecutor) {
+        Databases.relationExecutor = relationExecutor;
+    }
+
+    /**
+     * Installs the executor for accessing database asynchronously, each task acquires its
+     * own connection, so the connection pool should be large enough for the concurrent tasks.
+     *
+     * @see #supplyAsync(AsyncInvoke)
+     */
+    public static void installAsyncExecutor(Executor asyncExecutor) {
+        Objects.requireNonNull(asyncExecutor, "The asyncExecutor cannot be null");
+        Databases.asyncExecutor = asyncExecutor;
+    }
+
+    /**
+     * Installs the executor for the statements scattered to the shards, it must not be the
+     * async executor or any executor whose tasks wait for the shards, otherwise the tasks
+     * waiting may occupy all threads of the executor.
+     *
+     * @see com.github.braisdom.objsql.sharding.ShardingRule#scatter
+     */
+    public static void installScatterExecutor(Executor scatterExecutor) {
+        Objects.requireNonNull(scatterExecutor, "The scatterExecutor cannot be null");
+        Databases.scatterExecutor = scatterExecutor;
+    }
+
+    /**
+     * Installs the factory of entity caches, the domain objects cached by the previous
+     * factory will be discarded.
+     */
+    public static void installEntityCacheFactory(EntityCacheFactory entityCacheFactory) {
+        Objects.requireNonNull(entityCacheFactory, "The entityCacheFactory cannot be null");
+        Databases.entityCacheFactory = entityCacheFactory;
+        Databases.entityCaches.clear();
+    }
+
+    /**
+     * Executes the logic in a transaction, the transaction of current thread is joined if
+     * it is present, and the connection of unit of work is used if it is bound to the
+     * data source.
+     *
+     * @throws SQLException if current thread holds a connection of another data source,
+     *                      because the statements would be executed in the wrong database
+     */
     public static <R> R executeTransactionally(String dataSourceName, TransactionalExecutor<R> executor) throws SQLException {
+        if (connectionThreadLocal.get() != null) {
+            String currentDataSourceName = transactionDataSourceThreadLocal.get();
+            if (!Objects.equals(currentDataSourceName, dataSourceName)) {
+                throw new SQLException(String.format("The transaction of %s cannot be executed in the "
+                        + "connection of %s held by current thread", dataSourceName, currentDataSourceName));
+            }
+            try {
+                return executor.apply();
+            } catch (SQLException ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new RollbackCauseException(ex.getMessage(), ex);
+            }
+        }
+
+        Connection scopedConnection = getScopedConnection(dataSourceName);
         Connection connection = null;
+        boolean committed = false;
         try {
-            connection = Databases.getConnectionFactory().getConnection(dataSourceName);
+            connection = scopedConnection == null ? getConnection(dataSourceName) : scopedConnection;
             connection.setAutoCommit(false);
             connectionThreadLocal.set(connection);
+            transactionDataSourceThreadLocal.set(dataSourceName);
             R result = executor.apply();
             connection.commit();
+            committed = true;
             return result;
         } catch (SQLException ex) {
             DbUtils.rollback(connection);
@@ -147,19 +475,149 @@ public final class Databases {
             DbUtils.rollback(connection);
             throw new RollbackCauseException(ex.getMessage(), ex);
         } finally {
+            List<Runnable> completionActions = completionActionsThreadLocal.get();
             connectionThreadLocal.remove();
+            transactionDataSourceThreadLocal.remove();
+            completionActionsThreadLocal.remove();
+            runCompletionActions(completionActions);
+            if (scopedConnection == null) {
+                DbUtils.close(connection);
+            } else {
+                restoreAutoCommit(scopedConnection, committed);
+            }
+        }
+    }
+
+    /**
+     * Restores the auto-commit mode of the connection of unit of work after the transaction,
+     * the failure is logged instead of thrown if the transaction failed, so that it will not
+     * hide the cause of the transaction.
+     */
+    private static void restoreAutoCommit(Connection connection, boolean committed) throws SQLException {
+        try {
+            connection.setAutoCommit(true);
+        } catch (SQLException ex) {
+            if (committed) {
+                throw ex;
+            }
+            getLoggerFactory().create(Databases.class).error(ex.getMessage(), ex);
+        }
+    }
+
+    public static <R, E extends Throwable> R withConnection(UnitOfWork<R, E> unitOfWork) throws SQLException, E {
+        return withConnection(ConnectionFactory.DEFAULT_DATA_SOURCE_NAME, unitOfWork);
+    }
+
+    /**
+     * Executes the unit of work with one connection of the data source, all database accessing
+     * of the data source in current thread shares the connection, which is acquired lazily and
+     * closed when the unit of work terminated. The connection remains in auto-commit mode,
+     * so each statement is committed by itself, except the statements in a transaction.
+     *
+     * <p>The nested unit of work of the same data source joins the outer one. The reading in
+     * the unit of work is executed with the connection too, instead of a read replica, and the
+     * asynchronous logic executed in other threads acquires its own connections. A stream out
+     * of transaction acquires its own connection either, see {@link #stream(String, DatabaseInvoke)}.
+     */
+    public static <R, E extends Throwable> R withConnection(String dataSourceName,
+                                                            UnitOfWork<R, E> unitOfWork) throws SQLException, E {
+        Objects.requireNonNull(dataSourceName, "The dataSourceName cannot be null");
+        Objects.requireNonNull(unitOfWork, "The unitOfWork cannot be null");
+
+        Map<String, Connection> scopedConnections = scopedConnectionsThreadLocal.get();
+        if (scopedConnections == null) {
+            scopedConnections = new HashMap<>();
+            scopedConnectionsThreadLocal.set(scopedConnections);
+        } else if (scopedConnections.containsKey(dataSourceName)) {
+            return unitOfWork.apply();
+        }
+
+        scopedConnections.put(dataSourceName, null);
+        try {
+            return unitOfWork.apply();
+        } finally {
+            Connection connection = scopedConnections.remove(dataSourceName);
+            if (scopedConnections.isEmpty()) {
+                scopedConnectionsThreadLocal.remove();
+            }
             DbUtils.close(connection);
         }
     }
 
+    /**
+     * Returns true if current thread is in a unit of work of the data source.
+     */
+    private static boolean isConnectionScoped(String dataSourceName) {
+        Map<String, Connection> scopedConnections = scopedConnectionsThreadLocal.get();
+        return scopedConnections != null && scopedConnections.containsKey(dataSourceName);
+    }
+
+    /**
+     * Returns the connection of the unit of work bound to the data source, or null if current
+     * thread is not in a unit of work of the data source.
+     */
+    private static Connection getScopedConnection(String dataSourceName) throws SQLException {
+        Map<String, Connection> scopedConnections = scopedConnectionsThreadLocal.get();
+        if (scopedConnections == null || !scopedConnections.containsKey(dataSourceName)) {
+            return null;
+        }
+
+        Connection connection = scopedConnections.get(dataSourceName);
+        if (connection == null) {
+            connection = getConnection(dataSourceName);
+            scopedConnections.put(dataSourceName, connection);
+        }
+        return connection;
+    }
+
+    /**
+     * Executes the transaction in the async executor, the transaction is bound to the
+     * thread of executor until it is committed or rolled back.
+     */
+    public static <R> CompletableFuture<R> executeTransactionallyAsync(String dataSourceName,
+                                                                     TransactionalExecutor<R> executor) {
+        Objects.requireNonNull(executor, "The executor cannot be null");
+        return supplyAsync(() -> executeTransactionally(dataSourceName, executor));
+    }
+
+    /**
+     * Accesses database in the async executor, the exception thrown will complete the future
+     * exceptionally.
+     *
+     * <p>If the current thread is in a transaction, the logic is executed in the current
+     * thread with the connection of transaction, and the completed future is returned,
+     * because the connection cannot be shared between threads and the transaction may end
+     * before the logic executed.
+     */
+    public static <R> CompletableFuture<R> supplyAsync(AsyncInvoke<R> asyncInvoke) {
+        Objects.requireNonNull(asyncInvoke, "The asyncInvoke cannot be null");
+
+        if (connectionThreadLocal.get() != null) {
+            CompletableFuture<R> future = new CompletableFuture<>();
+            try {
+                future.complete(asyncInvoke.apply());
+            } catch (SQLException | RuntimeException ex) {
+                future.completeExceptionally(ex);
+            }
+            return future;
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return asyncInvoke.apply();
+            } catch (SQLException ex) {
+                throw new CompletionException(ex);
+            }
+        }, getAsyncExecutor());
+    }
+
     public static void truncateTable(String tableName) throws SQLException {
         truncateTable(ConnectionFactory.DEFAULT_DATA_SOURCE_NAME, tableName);
     }
 
     public static void truncateTable(String dataSourceName, String tableName) throws SQLException {
         execute(dataSourceName, (connection, sqlExecutor) -> {
-            String databaseName = connection.getMetaData().getDatabaseProductName();
-            String quotedTableName = getQuoter().quoteTableName(databaseName, tableName);
+            String quotedTableName = getDatabaseContext(dataSourceName, connection).quoteTableName(tableName);
             connection.createStatement().execute(String.format("TRUNCATE TABLE %s", quotedTableName));
             return null;
         });
@@ -181,15 +639,34 @@ public final class Databases {
     }
 
     public static <T, R> R execute(String dataSourceName, DatabaseInvoke<T, R> databaseInvoke) throws SQLException {
+        return execute(dataSourceName, databaseInvoke, false);
+    }
+
+    /**
+     * Executes the logic which reads only, the connection can be retrieved from a read replica
+     * of the data source, excepts the connection held by current thread or its unit of work.
+     *
+     * @see ConnectionFactory#getReadOnlyConnection(String)
+     */
+    public static <T, R> R executeReadOnly(String dataSourceName, DatabaseInvoke<T, R> databaseInvoke) throws SQLException {
+        return execute(dataSourceName, databaseInvoke, true);
+    }
+
+    private static <T, R> R execute(String dataSourceName, DatabaseInvoke<T, R> databaseInvoke,
+                                    boolean readOnly) throws SQLException {
         Objects.requireNonNull(databaseInvoke, "The datasourceName cannot be null");
         Objects.requireNonNull(databaseInvoke, "The databaseInvoke cannot be null");
 
         Connection connection = connectionThreadLocal.get();
         SQLExecutor<T> sqlExecutor = getSqlExecutor();
 
+        if (connection == null) {
+            connection = getScopedConnection(dataSourceName);
+        }
+
         if (connection == null) {
             try {
-                connection = getConnectionFactory().getConnection(dataSourceName);
+                connection = readOnly ? getReadOnlyConnection(dataSourceName) : getConnection(dataSourceName);
                 return databaseInvoke.apply(connection, sqlExecutor);
             } finally {
                 DbUtils.close(connection);
@@ -199,12 +676,78 @@ public final class Databases {
         }
     }
 
+    /**
+     * Executes the logic which returns a lazy stream, the connection will not be closed
+     * until the stream closed, excepts the connection held by current thread. The stream
+     * reads only, so the connection can be retrieved from a read replica.
+     *
+     * <p>The stream takes its own connection in a unit of work instead of sharing the
+     * connection of unit of work, because the streaming result set blocks other statements
+     * of the connection on some drivers (MySQL), or requires the connection out of auto-commit
+     * mode (PostgreSQL). The connection is taken from the primary to read the writes of the
+     * unit of work.
+     */
+    public static <T> Stream<T> stream(String dataSourceName,
+                                       DatabaseInvoke<T, Stream<T>> databaseInvoke) throws SQLException {
+        Objects.requireNonNull(dataSourceName, "The datasourceName cannot be null");
+        Objects.requireNonNull(databaseInvoke, "The databaseInvoke cannot be null");
+
+        Connection connection = connectionThreadLocal.get();
+        SQLExecutor<T> sqlExecutor = getSqlExecutor();
+
+        if (connection == null) {
+            Connection streamingConnection = isConnectionScoped(dataSourceName)
+                    ? getConnection(dataSourceName) : getReadOnlyConnection(dataSourceName);
+            try {
+                return databaseInvoke.apply(streamingConnection, sqlExecutor)
+                        .onClose(() -> DbUtils.closeQuietly(streamingConnection));
+            } catch (SQLException | RuntimeException ex) {
+                DbUtils.close(streamingConnection);
+                throw ex;
+            }
+        } else {
+            return databaseInvoke.apply(connection, sqlExecutor);
+        }
+    }
+
     public static <R> R sqlBenchmarking(Benchmarkable<R> benchmarkable, Logger logger,
                                         String message, Object... params) throws SQLException {
+        return sqlBenchmarking(benchmarkable, (Class) null, MetricsCollector.OPERATION_EXECUTE, logger, message, params);
+    }
+
+    /**
+     * Executes the statement and reports the elapsed time to the logger in milliseconds,
+     * and to the metrics collector in nanoseconds.
+     *
+     * @param domainModelClass the domain model class, or null if it is unknown
+     * @param operation        the operation of statement, such as query, insert, etc
+     */
+    public static <R> R sqlBenchmarking(Benchmarkable<R> benchmarkable, Class domainModelClass, String operation,
+                                        Logger logger, String message, Object... params) throws SQLException {
+        return sqlBenchmarking(benchmarkable, domainModelClass, operation, null, logger, message, params);
+    }
+
+    /**
+     * @param hydrationTime the nanoseconds of result hydration which is excluded from
+     *                      the statement execution, it is measured by the result handler
+     */
+    static <R> R sqlBenchmarking(Benchmarkable<R> benchmarkable, Class domainModelClass, String operation,
+                                 LongSupplier hydrationTime, Logger logger,
+                                 String message, Object... params) throws SQLException {
         try {
-            long begin = System.currentTimeMillis();
+            long begin = System.nanoTime();
             R result = benchmarkable.apply();
-            logger.info(System.currentTimeMillis() - begin, message, params);
+            long elapsedNanos = System.nanoTime() - begin;
+            long executionNanos = hydrationTime == null ? elapsedNanos : elapsedNanos - hydrationTime.getAsLong();
+            getMetricsCollector().recordTiming(MetricsCollector.Phase.STATEMENT_EXECUTION,
+                    domainModelClass, operation, executionNanos);
+            StatementObserver statementObserver = Databases.statementObserver;
+            if (statementObserver == null) {
+                logger.info(TimeUnit.NANOSECONDS.toMillis(elapsedNanos), message, params);
+            } else {
+                statementObserver.observe(domainModelClass, operation, message, params,
+                        elapsedNanos, getRowCount(result));
+            }
             return result;
         } catch (Exception ex) {
             if (ex instanceof SQLException)
@@ -222,6 +765,78 @@ public final class Databases {
         }
     }
 
+    private static long getRowCount(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection) result).size();
+        } else if (result instanceof Number) {
+            return ((Number) result).longValue();
+        } else if (result instanceof int[]) {
+            long rowCount = 0;
+            for (int count : (int[]) result) {
+                if (count < 0) {
+                    return -1;
+                }
+                rowCount += count;
+            }
+            return rowCount;
+        } else if (result instanceof Object[]) {
+            return ((Object[]) result).length;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the context of database bound to the connection, the database is resolved from
+     * the first connection of the data source and cached, excepts the connection held by a
+     * transaction of another data source.
+     *
+     * @param dataSourceName the name of data source, the database is resolved for each calling
+     *                       if it is null
+     */
+    public static DatabaseContext getDatabaseContext(String dataSourceName, Connection connection) throws SQLException {
+        Objects.requireNonNull(connection, "The connection cannot be null");
+
+        DatabaseContext databaseContext = dataSourceName == null ? null : databaseContexts.get(dataSourceName);
+        if (databaseContext != null) {
+            return databaseContext.bind(connection);
+        }
+
+        databaseContext = DatabaseContext.resolve(dataSourceName, connection);
+        if (dataSourceName != null && (connection != connectionThreadLocal.get()
+                || dataSourceName.equals(transactionDataSourceThreadLocal.get()))) {
+            databaseContexts.putIfAbsent(dataSourceName, databaseContext.unbind());
+        }
+        return databaseContext;
+    }
+
+    /**
+     * Acquires a connection from the installed connection factory, the elapsed time is
+     * reported to the metrics collector.
+     */
+    public static Connection getConnection(String dataSourceName) throws SQLException {
+        ConnectionFactory connectionFactory = getConnectionFactory();
+        long begin = System.nanoTime();
+        Connection connection = connectionFactory.getConnection(dataSourceName);
+        getMetricsCollector().recordTiming(MetricsCollector.Phase.CONNECTION_ACQUISITION,
+                null, dataSourceName, System.nanoTime() - begin);
+        return connection;
+    }
+
+    /**
+     * Acquires a connection for reading only from the installed connection factory, the
+     * elapsed time is reported to the metrics collector.
+     *
+     * @see ConnectionFactory#getReadOnlyConnection(String)
+     */
+    public static Connection getReadOnlyConnection(String dataSourceName) throws SQLException {
+        ConnectionFactory connectionFactory = getConnectionFactory();
+        long begin = System.nanoTime();
+        Connection connection = connectionFactory.getReadOnlyConnection(dataSourceName);
+        getMetricsCollector().recordTiming(MetricsCollector.Phase.CONNECTION_ACQUISITION,
+                null, dataSourceName, System.nanoTime() - begin);
+        return connection;
+    }
+
     public static String getDefaultDataSourceName() {
         return ConnectionFactory.DEFAULT_DATA_SOURCE_NAME;
     }
@@ -262,6 +877,43 @@ public final class Databases {
         return sqlExecutor;
     }
 
+    /**
+     * Returns the executor for loading relationships in parallel, or null if the relationships
+     * should be loaded with the current connection, that is, the executor is absent or the
+     * connection is held by current thread.
+     */
+    public static Executor getRelationExecutor() {
+        if (connectionThreadLocal.get() != null)
+            return null;
+
+        return relationExecutor;
+    }
+
+    public static EntityCacheFactory getEntityCacheFactory() {
+        if (entityCacheFactory == null)
+            entityCacheFactory = DefaultEntityCache::new;
+
+        return entityCacheFactory;
+    }
+
+    /**
+     * Returns the entity cache of domain model, or null if the domain model is not cacheable.
+     *
+     * @see DomainModel#cacheable()
+     */
+    public static EntityCache getEntityCache(DomainModelDescriptor domainModelDescriptor) {
+        Class domainModelClass = domainModelDescriptor.getDomainModelClass();
+        DomainModel domainModel = domainModelClass == null ? null
+                : (DomainModel) domainModelClass.getAnnotation(DomainModel.class);
+        if (domainModel == null || !domainModel.cacheable()) {
+            return null;
+        }
+
+        return entityCaches.computeIfAbsent(domainModelClass, clazz -> getEntityCacheFactory()
+                .create(domainModelDescriptor, domainModel.cacheMaxSize(),
+                        TimeUnit.SECONDS.toMillis(domainModel.cacheTtlSeconds())));
+    }
+
     public static Quoter getQuoter() {
         if (quoter == null)
             quoter = new DefaultQuoter();
@@ -269,6 +921,59 @@ public final class Databases {
         return quoter;
     }
 
+    public static MetricsCollector getMetricsCollector() {
+        return metricsCollector;
+    }
+
+    public static StatementObserver getStatementObserver() {
+        return statementObserver;
+    }
+
+    /**
+     * Returns the executor for accessing database asynchronously, the executor of virtual
+     * threads is created by default on JDK 21 or later, otherwise a pool of daemon threads
+     * twice the number of processors.
+     */
+    public static Executor getAsyncExecutor() {
+        if (asyncExecutor == null) {
+            synchronized (Databases.class) {
+                if (asyncExecutor == null) {
+                    asyncExecutor = createDefaultExecutor("objsql-async-");
+                }
+            }
+        }
+        return asyncExecutor;
+    }
+
+    /**
+     * Returns the executor for the statements scattered to the shards, it is created in the
+     * same way as the async executor by default.
+     */
+    public static Executor getScatterExecutor() {
+        if (scatterExecutor == null) {
+            synchronized (Databases.class) {
+                if (scatterExecutor == null) {
+                    scatterExecutor = createDefaultExecutor("objsql-scatter-");
+                }
+            }
+        }
+        return scatterExecutor;
+    }
+
+    private static Executor createDefaultExecutor(String threadNamePrefix) {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2, runnable -> {
+                Thread thread = new Thread(runnable, threadNamePrefix + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
     public static LoggerFactory getLoggerFactory() {
         if (loggerFactory == null) {
             loggerFactory = new LoggerFactory() {
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The in-process implementation of <code>EntityCache</code>, the least recently used domain
+ * objects are evicted when the cache is full. The domain objects are copied by
+ * {@link DomainModelDescriptor#copyDomainObject(Object)} when they are put into or got from
+ * the cache, and the integral primary keys are compared by value regardless of their types.
+ */
+public class DefaultEntityCache implements EntityCache {
+
+    private final DomainModelDescriptor domainModelDescriptor;
+    private final long ttlMillis;
+    private final Map<Object, CachedObject> cachedObjects;
+
+    private static class CachedObject {
+
+        private final Object domainObject;
+        private final long expiredAt;
+
+        public CachedObject(Object domainObject, long expiredAt) {
+            this.domainObject = domainObject;
+            this.expiredAt = expiredAt;
+        }
+    }
+
+    public DefaultEntityCache(DomainModelDescriptor domainModelDescriptor, int maxSize, long ttlMillis) {
+        this.domainModelDescriptor = domainModelDescriptor;
+        this.ttlMillis = ttlMillis;
+        this.cachedObjects = new LinkedHashMap<Object, CachedObject>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CachedObject> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @Override
+    public Object get(Object primaryKey) {
+        CachedObject cachedObject;
+        synchronized (cachedObjects) {
+            cachedObject = cachedObjects.get(normalizeKey(primaryKey));
+            if (cachedObject != null && ttlMillis > 0 && cachedObject.expiredAt < System.currentTimeMillis()) {
+                cachedObjects.remove(normalizeKey(primaryKey));
+                cachedObject = null;
+            }
+        }
+        return cachedObject == null ? null : domainModelDescriptor.copyDomainObject(cachedObject.domainObject);
+    }
+
+    @Override
+    public void put(Object primaryKey, Object domainObject) {
+        long expiredAt = ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : Long.MAX_VALUE;
+        CachedObject cachedObject = new CachedObject(domainModelDescriptor.copyDomainObject(domainObject), expiredAt);
+        synchronized (cachedObjects) {
+            cachedObjects.put(normalizeKey(primaryKey), cachedObject);
+        }
+    }
+
+    @Override
+    public void remove(Object primaryKey) {
+        synchronized (cachedObjects) {
+            cachedObjects.remove(normalizeKey(primaryKey));
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (cachedObjects) {
+            cachedObjects.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cachedObjects) {
+            return cachedObjects.size();
+        }
+    }
+
+    private static Object normalizeKey(Object primaryKey) {
+        if (primaryKey instanceof Integer || primaryKey instanceof Short || primaryKey instanceof Byte) {
+            return ((Number) primaryKey).longValue();
+        }
+        return primaryKey;
+    }
+}
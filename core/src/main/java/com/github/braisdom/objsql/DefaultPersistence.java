@@ -17,14 +17,13 @@
 package com.github.braisdom.objsql;
 
 import com.github.braisdom.objsql.annotations.PrimaryKey;
+import com.github.braisdom.objsql.sharding.ShardingRule;
 import com.github.braisdom.objsql.transition.ColumnTransition;
-import com.github.braisdom.objsql.util.ArrayUtil;
 import com.github.braisdom.objsql.util.StringUtil;
 
-import java.sql.DatabaseMetaData;
+import java.lang.reflect.Array;
 import java.sql.SQLException;
-import java.util.Arrays;
-import java.util.Objects;
+import java.util.*;
 
 import static com.github.braisdom.objsql.util.FunctionWithThrowable.castFunctionWithThrowable;
 
@@ -66,25 +65,25 @@ public class DefaultPersistence<T> extends AbstractPersistence<T> {
             }
         }
 
-        String dataSourceName = Tables.getDataSourceName(domainModelDescriptor.getDomainModelClass());
+        ShardingRule shardingRule = ShardingRule.get(domainModelDescriptor.getDomainModelClass());
+        String dataSourceName = shardingRule == null
+                ? Tables.getDataSourceName(domainModelDescriptor.getDomainModelClass())
+                : getOwningShard(shardingRule, dirtyObject);
         return Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
-            DatabaseMetaData metaData = connection.getMetaData();
-            Quoter quoter = Databases.getQuoter();
+            DatabaseContext databaseContext = Databases.getDatabaseContext(dataSourceName, connection);
+            StatementTemplate statementTemplate = getStatementTemplate(databaseContext.getDatabaseName());
 
-            String databaseName = metaData.getDatabaseProductName();
-            String tableName = quoter.quoteTableName(databaseName, domainModelDescriptor.getTableName());
-            String[] columnNames = domainModelDescriptor.getInsertableColumns();
-            String[] quotedColumnNames = quoter.quoteColumnNames(databaseName, columnNames);
+            String sql = statementTemplate.getInsertSql();
+            Object[] values = filterValues(databaseContext, dirtyObject, statementTemplate.getInsertFieldNames());
 
-            String sql = formatInsertSql(tableName, columnNames, quotedColumnNames);
-            Object[] values = filterValues(metaData, dirtyObject, columnNames);
-
-            T domainObject = (T) sqlExecutor.insert(connection, sql, domainModelDescriptor, values);
+            T domainObject = (T) sqlExecutor.insert(databaseContext, sql, domainModelDescriptor, values);
             Object primaryValue = Tables.getPrimaryValue(domainObject);
 
             if (primaryValue != null) {
                 Tables.writePrimaryValue(dirtyObject, primaryValue);
             }
+            domainModelDescriptor.resetDirtyFields(dirtyObject);
+            evictCachedObjects(dirtyObject);
 
             return dirtyObject;
         });
@@ -101,43 +100,165 @@ public class DefaultPersistence<T> extends AbstractPersistence<T> {
             }
         }
 
-        String dataSourceName = Tables.getDataSourceName(domainModelDescriptor.getDomainModelClass());
+        ShardingRule shardingRule = ShardingRule.get(domainModelDescriptor.getDomainModelClass());
+        if (shardingRule == null) {
+            return insert(Tables.getDataSourceName(domainModelDescriptor.getDomainModelClass()), dirtyObjects);
+        }
+
+        Map<String, List<Integer>> shardGroups = new LinkedHashMap<>();
+        for (int i = 0; i < dirtyObjects.length; i++) {
+            shardGroups.computeIfAbsent(getOwningShard(shardingRule, dirtyObjects[i]),
+                    dataSourceName -> new ArrayList<>()).add(i);
+        }
+
+        int[] insertedCounts = new int[dirtyObjects.length];
+        for (Map.Entry<String, List<Integer>> shardGroup : shardGroups.entrySet()) {
+            List<Integer> rowIndexes = shardGroup.getValue();
+            int[] counts = insert(shardGroup.getKey(), getShardObjects(dirtyObjects, rowIndexes));
+            for (int i = 0; i < counts.length && i < rowIndexes.size(); i++) {
+                insertedCounts[rowIndexes.get(i)] = counts[i];
+            }
+        }
+        return insertedCounts;
+    }
+
+    private int[] insert(String dataSourceName, T[] dirtyObjects) throws SQLException {
         return Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
-            DatabaseMetaData metaData = connection.getMetaData();
-            Quoter quoter = Databases.getQuoter();
+            DatabaseContext databaseContext = Databases.getDatabaseContext(dataSourceName, connection);
+            String databaseName = databaseContext.getDatabaseName();
+            StatementTemplate statementTemplate = getStatementTemplate(databaseName);
+            String[] fieldNames = statementTemplate.getInsertFieldNames();
 
-            String databaseName = metaData.getDatabaseProductName();
-            String tableName = quoter.quoteTableName(databaseName, domainModelDescriptor.getTableName());
-            String[] columnNames = domainModelDescriptor.getInsertableColumns();
-            String[] quotedColumnNames = quoter.quoteColumnNames(databaseName, columnNames);
-            String sql = formatInsertSql(tableName, columnNames, quotedColumnNames);
+            if (dirtyObjects.length == 0) {
+                return new int[0];
+            }
 
-            Object[][] values = new Object[dirtyObjects.length][];
-            for (int i = 0; i < dirtyObjects.length; i++) {
-                Object[] rowValues = filterValues(metaData, dirtyObjects[i], columnNames);
-                values[i] = new Object[rowValues.length];
-                for (int t = 0; t < rowValues.length; t++) {
-                    values[i][t] = rowValues[t];
+            if (statementTemplate.getCopySql() != null && dirtyObjects.length > 1) {
+                Object[][] values = filterValues(databaseContext, dirtyObjects, 0, dirtyObjects.length, fieldNames);
+                if (sqlExecutor.copyIn(databaseContext, statementTemplate.getCopySql(),
+                        domainModelDescriptor, values) >= 0) {
+                    resetDirtyFields(dirtyObjects);
+                    evictCachedObjects(dirtyObjects);
+                    return createInsertedCounts(dirtyObjects.length);
                 }
             }
-            return sqlExecutor.insert(connection, sql, domainModelDescriptor, values);
+
+            // The driver of SQL Server returns the identity of last row only for a multi-row insert
+            int maxRowsPerInsert = databaseContext.getDatabaseType() == DatabaseType.MsSqlServer
+                    && isGeneratedPrimaryKey(fieldNames, domainModelDescriptor.getPrimaryKey())
+                    ? 1 : getMaxRowsPerInsert(databaseName, fieldNames.length);
+            if (maxRowsPerInsert > 1 && dirtyObjects.length > 1) {
+                for (int offset = 0; offset < dirtyObjects.length; offset += maxRowsPerInsert) {
+                    int rowCount = Math.min(maxRowsPerInsert, dirtyObjects.length - offset);
+                    insertRows(sqlExecutor, databaseContext, statementTemplate,
+                            dirtyObjects, offset, rowCount);
+                }
+                resetDirtyFields(dirtyObjects);
+                evictCachedObjects(dirtyObjects);
+                return createInsertedCounts(dirtyObjects.length);
+            }
+
+            Object[][] values = filterValues(databaseContext, dirtyObjects, 0, dirtyObjects.length, fieldNames);
+            int[] insertedCounts = sqlExecutor.insert(connection, statementTemplate.getInsertSql(),
+                    domainModelDescriptor, values);
+            resetDirtyFields(dirtyObjects);
+            evictCachedObjects(dirtyObjects);
+            return insertedCounts;
         });
     }
 
-    private Object[] filterValues(DatabaseMetaData metaData, T dirtyObject, String[] columnNames) {
-        return Arrays.stream(columnNames)
-                .filter(columnName -> {
-                    String fieldName = domainModelDescriptor.getFieldName(columnName);
-                    return !domainModelDescriptor.hasDefaultValue(fieldName);
-                })
-                .map(castFunctionWithThrowable(columnName -> {
-                    String fieldName = domainModelDescriptor.getFieldName(columnName);
+    private void insertRows(SQLExecutor sqlExecutor, DatabaseContext databaseContext,
+                            StatementTemplate statementTemplate, T[] dirtyObjects,
+                            int offset, int rowCount) throws SQLException {
+        String[] fieldNames = statementTemplate.getInsertFieldNames();
+        Object[] params = new Object[rowCount * fieldNames.length];
+        Object[][] values = filterValues(databaseContext, dirtyObjects, offset, rowCount, fieldNames);
+        for (int i = 0; i < rowCount; i++) {
+            System.arraycopy(values[i], 0, params, i * fieldNames.length, fieldNames.length);
+        }
+
+        String sql = statementTemplate.getMultiRowInsertSql(rowCount);
+        PrimaryKey primaryKey = domainModelDescriptor.getPrimaryKey();
+        Object[] generatedKeys = sqlExecutor.insertRows(databaseContext.getConnection(), sql,
+                domainModelDescriptor, primaryKey == null ? null : primaryKey.name(), params);
+
+        if (!isGeneratedPrimaryKey(fieldNames, primaryKey)) {
+            return;
+        }
+
+        if (generatedKeys != null && generatedKeys.length == rowCount) {
+            for (int i = 0; i < rowCount; i++) {
+                domainModelDescriptor.setGeneratedKey(dirtyObjects[offset + i], generatedKeys[i]);
+            }
+        } else if (generatedKeys != null && generatedKeys.length == 1 && rowCount > 1
+                && generatedKeys[0] instanceof Number
+                && databaseContext.getDatabaseType() == DatabaseType.SQLite
+                && isRowidPrimaryKey(fieldNames, primaryKey)) {
+            // The SQLite returns the rowid of last row only, and the rowids of rows inserted
+            // by a statement are allocated consecutively in a serialized write transaction
+            long firstKey = ((Number) generatedKeys[0]).longValue() - rowCount + 1;
+            for (int i = 0; i < rowCount; i++) {
+                domainModelDescriptor.setGeneratedKey(dirtyObjects[offset + i], firstKey + i);
+            }
+        } else {
+            throw new PersistenceException(String.format("The generated keys of %s cannot be resolved, "
+                            + "%d keys are returned for %d rows inserted", domainModelDescriptor.getTableName(),
+                    generatedKeys == null ? 0 : generatedKeys.length, rowCount));
+        }
+    }
+
+    /**
+     * Returns true if the primary key is generated by the database, that is, it is skipped
+     * at inserting.
+     */
+    private boolean isGeneratedPrimaryKey(String[] insertFieldNames, PrimaryKey primaryKey) {
+        if (primaryKey == null) {
+            return false;
+        }
+        String fieldName = domainModelDescriptor.getFieldName(primaryKey.name());
+        return fieldName != null && !Arrays.asList(insertFieldNames).contains(fieldName);
+    }
+
+    /**
+     * Returns true if the primary key is generated as the rowid of SQLite, that is, an integer
+     * primary key which is skipped at inserting. The primary keys of domain objects are left
+     * alone if they are bound at inserting.
+     */
+    private boolean isRowidPrimaryKey(String[] insertFieldNames, PrimaryKey primaryKey) {
+        if (!isGeneratedPrimaryKey(insertFieldNames, primaryKey)) {
+            return false;
+        }
+
+        String fieldName = domainModelDescriptor.getFieldName(primaryKey.name());
+        Class fieldType = domainModelDescriptor.getFieldType(fieldName);
+        return fieldType == Long.class || fieldType == long.class
+                || fieldType == Integer.class || fieldType == int.class;
+    }
+
+    private Object[][] filterValues(DatabaseContext databaseContext, T[] dirtyObjects,
+                                    int offset, int rowCount, String[] fieldNames) {
+        Object[][] values = new Object[rowCount][];
+        for (int i = 0; i < rowCount; i++) {
+            values[i] = filterValues(databaseContext, dirtyObjects[offset + i], fieldNames);
+        }
+        return values;
+    }
+
+    private int[] createInsertedCounts(int rowCount) {
+        int[] insertedCounts = new int[rowCount];
+        Arrays.fill(insertedCounts, 1);
+        return insertedCounts;
+    }
+
+    private Object[] filterValues(DatabaseContext databaseContext, T dirtyObject, String[] fieldNames) {
+        return Arrays.stream(fieldNames)
+                .map(castFunctionWithThrowable(fieldName -> {
                     FieldValue fieldValue = domainModelDescriptor.getFieldValue(dirtyObject, fieldName);
 
                     ColumnTransition<T> columnTransition = domainModelDescriptor
                             .getColumnTransition(fieldName);
                     if (columnTransition != null) {
-                        return columnTransition.sinking(metaData, dirtyObject,
+                        return columnTransition.sinking(databaseContext, dirtyObject,
                                 domainModelDescriptor, fieldName, fieldValue);
                     } else {
                         return fieldValue;
@@ -160,55 +281,204 @@ public class DefaultPersistence<T> extends AbstractPersistence<T> {
         PrimaryKey primaryKey = domainModelDescriptor.getPrimaryKey();
         ensurePrimaryKeyNotNull(primaryKey);
 
-        Quoter quoter = Databases.getQuoter();
-        String dataSourceName = Tables.getDataSourceName(domainModelDescriptor.getDomainModelClass());
+        if (isUnchanged(dirtyObject)) {
+            return dirtyObject;
+        }
+
+        // The row is updated in all shards if the shard key is absent
+        ShardingRule shardingRule = ShardingRule.get(domainModelDescriptor.getDomainModelClass());
+        Object shardValue = shardingRule == null ? null : shardingRule.isPrimaryShardKey()
+                ? id : shardingRule.getShardValue(domainModelDescriptor, dirtyObject);
+        for (String dataSourceName : getDataSourceNames(shardingRule, shardValue)) {
+            Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
+                DatabaseContext databaseContext = Databases.getDatabaseContext(dataSourceName, connection);
+                StatementTemplate statementTemplate = getStatementTemplate(databaseContext.getDatabaseName());
+
+                BitSet updatedColumns = new BitSet();
+                Object[] values = filterUpdateValues(databaseContext, statementTemplate, dirtyObject, id, updatedColumns);
+                if (values != null) {
+                    sqlExecutor.execute(connection, getUpdateSql(statementTemplate, updatedColumns),
+                            domainModelDescriptor, values);
+                    evictCachedObjects(id);
+                }
+                return null;
+            });
+        }
+        domainModelDescriptor.resetDirtyFields(dirtyObject);
+
+        return dirtyObject;
+    }
+
+    @Override
+    public int[] update(final T[] dirtyObjects, final boolean skipValidation) throws SQLException {
+        Objects.requireNonNull(dirtyObjects, "The dirtyObjects cannot be null");
+
+        if (!skipValidation) {
+            Validator.Violation[] violations = Tables.validate(dirtyObjects);
+            if (violations.length > 0) {
+                throw new ValidationException(violations);
+            }
+        }
+
+        PrimaryKey primaryKey = domainModelDescriptor.getPrimaryKey();
+        ensurePrimaryKeyNotNull(primaryKey);
+
+        ShardingRule shardingRule = ShardingRule.get(domainModelDescriptor.getDomainModelClass());
+        int[] updatedCounts;
+        if (shardingRule == null) {
+            updatedCounts = update(Tables.getDataSourceName(domainModelDescriptor.getDomainModelClass()), dirtyObjects);
+        } else {
+            // The rows without shard key are updated in all shards
+            Map<String, List<Integer>> shardGroups = new LinkedHashMap<>();
+            for (int i = 0; i < dirtyObjects.length; i++) {
+                Object shardValue = shardingRule.getShardValue(domainModelDescriptor, dirtyObjects[i]);
+                for (String dataSourceName : getDataSourceNames(shardingRule, shardValue)) {
+                    shardGroups.computeIfAbsent(dataSourceName, name -> new ArrayList<>()).add(i);
+                }
+            }
+
+            updatedCounts = new int[dirtyObjects.length];
+            for (Map.Entry<String, List<Integer>> shardGroup : shardGroups.entrySet()) {
+                List<Integer> rowIndexes = shardGroup.getValue();
+                int[] counts = update(shardGroup.getKey(), getShardObjects(dirtyObjects, rowIndexes));
+                for (int i = 0; i < counts.length && i < rowIndexes.size(); i++) {
+                    updatedCounts[rowIndexes.get(i)] += counts[i];
+                }
+            }
+        }
+        resetDirtyFields(dirtyObjects);
+        evictCachedObjects(dirtyObjects);
+        return updatedCounts;
+    }
+
+    private int[] update(String dataSourceName, T[] dirtyObjects) throws SQLException {
         return Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
-            DatabaseMetaData metaData = connection.getMetaData();
-            String[] rawColumnNames = domainModelDescriptor.getUpdatableColumns();
-
-            String[] columnNames = Arrays.stream(rawColumnNames)
-                    .filter(rawColumnName -> {
-                        if (domainModelDescriptor.skipNullOnUpdate()) {
-                            String fieldName = domainModelDescriptor.getFieldName(rawColumnName);
-                            return !domainModelDescriptor.getFieldValue(dirtyObject, fieldName).isNull();
-                        } else {
-                            return true;
-                        }
-                    }).toArray(String[]::new);
-
-            Object[] values = Arrays.stream(columnNames)
-                    .map(castFunctionWithThrowable(columnName -> {
-                        String fieldName = domainModelDescriptor.getFieldName(columnName);
-                        ColumnTransition<T> columnTransition = domainModelDescriptor
-                                .getColumnTransition(fieldName);
-                        FieldValue fieldValue = domainModelDescriptor.getFieldValue(dirtyObject, fieldName);
-                        if (columnTransition != null) {
-                            return columnTransition.sinking(connection.getMetaData(), dirtyObject,
-                                    domainModelDescriptor, fieldName, fieldValue);
-                        } else {
-                            return fieldValue;
-                        }
-                    })).toArray(Object[]::new);
-
-            String databaseName = metaData.getDatabaseProductName();
-            String[] quotedColumnNames = quoter.quoteColumnNames(databaseName, columnNames);
-            StringBuilder updatesSql = new StringBuilder();
-            Arrays.stream(quotedColumnNames).forEach(columnName ->
-                    updatesSql.append(columnName).append("=").append("?").append(","));
-
-            ensureNotBlank(updatesSql.toString(), "updates");
-            updatesSql.delete(updatesSql.length() - 1, updatesSql.length());
-
-            String tableName = quoter.quoteTableName(databaseName, domainModelDescriptor.getTableName());
-            String sql = formatUpdateSql(tableName, updatesSql.toString(), String.format("%s = ?",
-                    quoter.quoteColumnName(databaseName, primaryKey.name())));
-
-            sqlExecutor.execute(connection, sql, ArrayUtil.appendElement(Object.class, values, id));
+            DatabaseContext databaseContext = Databases.getDatabaseContext(dataSourceName, connection);
+            StatementTemplate statementTemplate = getStatementTemplate(databaseContext.getDatabaseName());
 
-            return dirtyObject;
+            // The rows updating the same columns share a statement
+            Object[][] values = new Object[dirtyObjects.length][];
+            Map<BitSet, List<Integer>> rowGroups = new LinkedHashMap<>();
+            for (int i = 0; i < dirtyObjects.length; i++) {
+                Object id = domainModelDescriptor.getPrimaryValue(dirtyObjects[i]);
+                if (id == null) {
+                    throw new PersistenceException(String.format("The primary value of %s cannot be null",
+                            domainModelDescriptor.getTableName()));
+                }
+
+                if (isUnchanged(dirtyObjects[i])) {
+                    continue;
+                }
+
+                BitSet updatedColumns = new BitSet();
+                values[i] = filterUpdateValues(databaseContext, statementTemplate, dirtyObjects[i], id, updatedColumns);
+                if (values[i] != null) {
+                    rowGroups.computeIfAbsent(updatedColumns, columns -> new ArrayList<>()).add(i);
+                }
+            }
+
+            int[] updatedCounts = new int[dirtyObjects.length];
+            for (Map.Entry<BitSet, List<Integer>> rowGroup : rowGroups.entrySet()) {
+                String sql = getUpdateSql(statementTemplate, rowGroup.getKey());
+                List<Integer> rowIndexes = rowGroup.getValue();
+
+                for (int offset = 0; offset < rowIndexes.size(); offset += MAX_ROWS_PER_BATCH) {
+                    int rowCount = Math.min(MAX_ROWS_PER_BATCH, rowIndexes.size() - offset);
+                    Object[][] params = new Object[rowCount][];
+                    for (int i = 0; i < rowCount; i++) {
+                        params[i] = values[rowIndexes.get(offset + i)];
+                    }
+
+                    int[] counts = sqlExecutor.executeBatch(connection, sql, domainModelDescriptor, params);
+                    for (int i = 0; i < counts.length && i < rowCount; i++) {
+                        updatedCounts[rowIndexes.get(offset + i)] = counts[i];
+                    }
+                }
+            }
+            return updatedCounts;
         });
     }
 
+    /**
+     * Returns true if none of updatable fields changed since the domain object was queried
+     * or saved, the update of domain object can be skipped. The fields written without the
+     * setters are not tracked, the domain object must be marked by
+     * {@link DomainModelDescriptor#markDirty(Object)} after such writes.
+     */
+    private boolean isUnchanged(T dirtyObject) {
+        if (!domainModelDescriptor.isDirtyTracked(dirtyObject)) {
+            return false;
+        }
+        for (String columnName : domainModelDescriptor.getUpdatableColumns()) {
+            String fieldName = domainModelDescriptor.getFieldName(columnName);
+            if (domainModelDescriptor.isFieldDirty(dirtyObject, fieldName)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void resetDirtyFields(T[] dirtyObjects) {
+        for (T dirtyObject : dirtyObjects) {
+            domainModelDescriptor.resetDirtyFields(dirtyObject);
+        }
+    }
+
+    /**
+     * Returns the values of updated columns followed by the primary value, the indexes of
+     * updated columns are marked in the given <code>BitSet</code>. Only the changed fields
+     * are updated if the changes of domain object are tracked, and it returns null if no
+     * field needs to be updated.
+     */
+    private Object[] filterUpdateValues(DatabaseContext databaseContext, StatementTemplate statementTemplate,
+                                        T dirtyObject, Object id, BitSet updatedColumns) throws SQLException {
+        String[] fieldNames = statementTemplate.getUpdatableFieldNames();
+        boolean dirtyTracked = domainModelDescriptor.isDirtyTracked(dirtyObject);
+        List<Object> values = new ArrayList<>(fieldNames.length + 1);
+        for (int i = 0; i < fieldNames.length; i++) {
+            if (dirtyTracked && !domainModelDescriptor.isFieldDirty(dirtyObject, fieldNames[i])) {
+                continue;
+            }
+
+            FieldValue fieldValue = domainModelDescriptor.getFieldValue(dirtyObject, fieldNames[i]);
+            if (domainModelDescriptor.skipNullOnUpdate() && fieldValue.isNull()) {
+                continue;
+            }
+
+            ColumnTransition<T> columnTransition = domainModelDescriptor.getColumnTransition(fieldNames[i]);
+            if (columnTransition != null) {
+                values.add(columnTransition.sinking(databaseContext, dirtyObject,
+                        domainModelDescriptor, fieldNames[i], fieldValue));
+            } else {
+                values.add(fieldValue);
+            }
+            updatedColumns.set(i);
+        }
+
+        if (updatedColumns.isEmpty()) {
+            if (dirtyTracked) {
+                return null;
+            }
+            throw new PersistenceException(String.format("Empty updates for %s ",
+                    domainModelDescriptor.getTableName()));
+        }
+
+        values.add(id);
+        return values.toArray();
+    }
+
+    private String getUpdateSql(StatementTemplate statementTemplate, BitSet updatedColumns) {
+        String[] quotedColumnNames = statementTemplate.getQuotedUpdatableColumnNames();
+        if (updatedColumns.cardinality() == quotedColumnNames.length) {
+            return statementTemplate.getUpdateSql();
+        }
+
+        String[] updatedColumnNames = updatedColumns.stream()
+                .mapToObj(i -> quotedColumnNames[i]).toArray(String[]::new);
+        return formatUpdateSql(statementTemplate.getQuotedTableName(), formatUpdates(updatedColumnNames),
+                String.format("%s = ?", statementTemplate.getQuotedPrimaryKeyName()));
+    }
+
     @Override
     public int update(String updates, String predication) throws SQLException {
         Objects.requireNonNull(updates, "The updates cannot be null");
@@ -217,15 +487,19 @@ public class DefaultPersistence<T> extends AbstractPersistence<T> {
         ensureNotBlank(updates, "updates");
         ensureNotBlank(updates, "predication");
 
-        Quoter quoter = Databases.getQuoter();
-        String dataSourceName = Tables.getDataSourceName(domainModelDescriptor.getDomainModelClass());
+        ShardingRule shardingRule = ShardingRule.get(domainModelDescriptor.getDomainModelClass());
 
-        return Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
-            String databaseName = connection.getMetaData().getDatabaseProductName();
-            String tableName = quoter.quoteTableName(databaseName, domainModelDescriptor.getTableName());
-            String sql = formatUpdateSql(tableName, updates, predication);
-            return sqlExecutor.execute(connection, sql);
-        });
+        int updatedCount = 0;
+        for (String dataSourceName : getDataSourceNames(shardingRule, null)) {
+            updatedCount += Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
+                DatabaseContext databaseContext = Databases.getDatabaseContext(dataSourceName, connection);
+                String tableName = databaseContext.quoteTableName(domainModelDescriptor.getTableName());
+                String sql = formatUpdateSql(tableName, updates, predication);
+                return sqlExecutor.execute(connection, sql, domainModelDescriptor);
+            });
+        }
+        clearCachedObjects();
+        return updatedCount;
     }
 
     @Override
@@ -233,14 +507,19 @@ public class DefaultPersistence<T> extends AbstractPersistence<T> {
         Objects.requireNonNull(predication, "The criteria cannot be null");
         ensureNotBlank(predication, "predication");
 
-        Quoter quoter = Databases.getQuoter();
-        String dataSourceName = Tables.getDataSourceName(domainModelDescriptor.getDomainModelClass());
-        return Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
-            String databaseName = connection.getMetaData().getDatabaseProductName();
-            String tableName = quoter.quoteTableName(databaseName, domainModelDescriptor.getTableName());
-            String sql = formatDeleteSql(tableName, predication);
-            return sqlExecutor.execute(connection, sql);
-        });
+        ShardingRule shardingRule = ShardingRule.get(domainModelDescriptor.getDomainModelClass());
+
+        int deletedCount = 0;
+        for (String dataSourceName : getDataSourceNames(shardingRule, null)) {
+            deletedCount += Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
+                DatabaseContext databaseContext = Databases.getDatabaseContext(dataSourceName, connection);
+                String tableName = databaseContext.quoteTableName(domainModelDescriptor.getTableName());
+                String sql = formatDeleteSql(tableName, predication);
+                return sqlExecutor.execute(connection, sql, domainModelDescriptor);
+            });
+        }
+        clearCachedObjects();
+        return deletedCount;
     }
 
     @Override
@@ -250,15 +529,68 @@ public class DefaultPersistence<T> extends AbstractPersistence<T> {
         PrimaryKey primaryKey = domainModelDescriptor.getPrimaryKey();
         ensurePrimaryKeyNotNull(primaryKey);
 
-        Quoter quoter = Databases.getQuoter();
-        String dataSourceName = Tables.getDataSourceName(domainModelDescriptor.getDomainModelClass());
-        return Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
-            String databaseName = connection.getMetaData().getDatabaseProductName();
-            String tableName = quoter.quoteTableName(databaseName, domainModelDescriptor.getTableName());
-            String quotedPrimaryName = quoter.quoteColumnName(databaseName, primaryKey.name());
-            String sql = formatDeleteSql(tableName, String.format("%s = %s", quotedPrimaryName, quoter.quoteValue(id)));
+        ShardingRule shardingRule = ShardingRule.get(domainModelDescriptor.getDomainModelClass());
+        Object shardValue = shardingRule != null && shardingRule.isPrimaryShardKey() ? id : null;
 
-            return sqlExecutor.execute(connection, sql);
+        int deletedCount = 0;
+        for (String dataSourceName : getDataSourceNames(shardingRule, shardValue)) {
+            deletedCount += Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
+                String databaseName = Databases.getDatabaseContext(dataSourceName, connection).getDatabaseName();
+                String sql = getStatementTemplate(databaseName).getDeleteSql();
+                return sqlExecutor.execute(connection, sql, domainModelDescriptor, id);
+            });
+        }
+        evictCachedObjects(id);
+        return deletedCount;
+    }
+
+    @Override
+    public int delete(final Object[] ids) throws SQLException {
+        Objects.requireNonNull(ids, "The ids cannot be null");
+
+        PrimaryKey primaryKey = domainModelDescriptor.getPrimaryKey();
+        ensurePrimaryKeyNotNull(primaryKey);
+
+        if (ids.length == 0) {
+            return 0;
+        }
+
+        ShardingRule shardingRule = ShardingRule.get(domainModelDescriptor.getDomainModelClass());
+        if (shardingRule == null || !shardingRule.isPrimaryShardKey()) {
+            int deletedCount = 0;
+            for (String dataSourceName : getDataSourceNames(shardingRule, null)) {
+                deletedCount += delete(dataSourceName, ids);
+            }
+            return deletedCount;
+        }
+
+        Map<String, List<Object>> shardGroups = new LinkedHashMap<>();
+        for (Object id : ids) {
+            shardGroups.computeIfAbsent(getDataSourceNames(shardingRule, id).get(0), dataSourceName -> new ArrayList<>()).add(id);
+        }
+
+        int deletedCount = 0;
+        for (Map.Entry<String, List<Object>> shardGroup : shardGroups.entrySet()) {
+            deletedCount += delete(shardGroup.getKey(), shardGroup.getValue().toArray());
+        }
+        return deletedCount;
+    }
+
+    private int delete(String dataSourceName, Object[] ids) throws SQLException {
+        return Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
+            String databaseName = Databases.getDatabaseContext(dataSourceName, connection).getDatabaseName();
+            StatementTemplate statementTemplate = getStatementTemplate(databaseName);
+            int maxIdsPerDelete = Math.min(MAX_ROWS_PER_BATCH, getMaxParameters(databaseName));
+
+            int deletedCount = 0;
+            for (int offset = 0; offset < ids.length; offset += maxIdsPerDelete) {
+                int idCount = Math.min(maxIdsPerDelete, ids.length - offset);
+                Object[] params = Arrays.copyOfRange(ids, offset, offset + idCount);
+                deletedCount += sqlExecutor.execute(connection, statementTemplate.getBatchDeleteSql(idCount),
+                        domainModelDescriptor, params);
+                evictCachedObjects(params);
+            }
+            return deletedCount;
         });
     }
 
@@ -266,9 +598,83 @@ public class DefaultPersistence<T> extends AbstractPersistence<T> {
     public int execute(final String sql) throws SQLException {
         Objects.requireNonNull(sql, "The sql cannot be null");
 
-        String dataSourceName = Tables.getDataSourceName(domainModelDescriptor.getDomainModelClass());
-        return Databases.execute(dataSourceName, (connection, sqlExecutor) ->
-                sqlExecutor.execute(connection, sql));
+        ShardingRule shardingRule = ShardingRule.get(domainModelDescriptor.getDomainModelClass());
+
+        int affectedCount = 0;
+        for (String dataSourceName : getDataSourceNames(shardingRule, null)) {
+            affectedCount += Databases.execute(dataSourceName, (connection, sqlExecutor) ->
+                    sqlExecutor.execute(connection, sql, domainModelDescriptor));
+        }
+        clearCachedObjects();
+        return affectedCount;
+    }
+
+    /**
+     * Returns the data sources of the rows with the value of shard key, that is, the shard owning
+     * the value, or all shards if the value is absent. The data source of domain model is
+     * returned if it is not sharded.
+     */
+    private List<String> getDataSourceNames(ShardingRule shardingRule, Object shardValue)
+            throws PersistenceException {
+        if (shardingRule == null) {
+            return Collections.singletonList(Tables.getDataSourceName(domainModelDescriptor.getDomainModelClass()));
+        }
+        try {
+            return shardingRule.route(shardValue);
+        } catch (QueryException ex) {
+            throw new PersistenceException(ex.getMessage(), ex);
+        }
+    }
+
+    private String getOwningShard(ShardingRule shardingRule, T dirtyObject) throws PersistenceException {
+        Object shardValue = shardingRule.getShardValue(domainModelDescriptor, dirtyObject);
+        if (shardValue == null) {
+            throw new PersistenceException(String.format("The shard key %s of %s cannot be null",
+                    shardingRule.getShardKey(), domainModelDescriptor.getTableName()));
+        }
+        return getDataSourceNames(shardingRule, shardValue).get(0);
+    }
+
+    private T[] getShardObjects(T[] dirtyObjects, List<Integer> rowIndexes) {
+        T[] shardObjects = (T[]) Array.newInstance(dirtyObjects.getClass().getComponentType(), rowIndexes.size());
+        for (int i = 0; i < shardObjects.length; i++) {
+            shardObjects[i] = dirtyObjects[rowIndexes.get(i)];
+        }
+        return shardObjects;
+    }
+
+    /**
+     * Removes the domain objects from the entity cache, the domain objects are identified
+     * by the primary keys or the domain objects themselves. They are removed again after
+     * the transaction committed, because the rows before committing might be cached again
+     * by other threads.
+     */
+    private void evictCachedObjects(Object... primaryKeysOrObjects) {
+        EntityCache entityCache = Databases.getEntityCache(domainModelDescriptor);
+        if (entityCache == null) {
+            return;
+        }
+
+        Class domainModelClass = domainModelDescriptor.getDomainModelClass();
+        List<Object> primaryKeys = new ArrayList<>(primaryKeysOrObjects.length);
+        for (Object primaryKeyOrObject : primaryKeysOrObjects) {
+            Object primaryKey = domainModelClass.isInstance(primaryKeyOrObject)
+                    ? domainModelDescriptor.getPrimaryValue((T) primaryKeyOrObject) : primaryKeyOrObject;
+            if (primaryKey != null) {
+                primaryKeys.add(primaryKey);
+            }
+        }
+
+        primaryKeys.forEach(entityCache::remove);
+        Databases.registerCompletionAction(() -> primaryKeys.forEach(entityCache::remove));
+    }
+
+    private void clearCachedObjects() {
+        EntityCache entityCache = Databases.getEntityCache(domainModelDescriptor);
+        if (entityCache != null) {
+            entityCache.clear();
+            Databases.registerCompletionAction(entityCache::clear);
+        }
     }
 
     private void ensurePrimaryKeyNotNull(PrimaryKey primaryKey) throws PersistenceException {
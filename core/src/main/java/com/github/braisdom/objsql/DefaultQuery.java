@@ -18,12 +18,19 @@ package com.github.braisdom.objsql;
 
 import com.github.braisdom.objsql.relation.Relationship;
 import com.github.braisdom.objsql.relation.RelationshipNetwork;
+import com.github.braisdom.objsql.sharding.ShardingRule;
 import com.github.braisdom.objsql.util.StringUtil;
 
-import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * The default implementation of <code>Query</code> with JavaBean
@@ -32,6 +39,11 @@ import java.util.Objects;
 public class DefaultQuery<T> extends AbstractQuery<T> {
 
     private static final String SELECT_STATEMENT = "SELECT %s FROM %s";
+    private static final String BASE_TABLE_ALIAS = "j0";
+    private static final String IDENTIFIER = "[`\"\\[]?[\\w$]+[`\"\\]]?";
+    private static final Pattern ORDERING_TERM_PATTERN = Pattern.compile(String.format(
+            "^\\s*(?:(%s)\\.)?(%s)(\\s+(?:ASC|DESC))?(\\s+NULLS\\s+(?:FIRST|LAST))?\\s*$", IDENTIFIER, IDENTIFIER),
+            Pattern.CASE_INSENSITIVE);
 
     public DefaultQuery(Class<T> domainModelClass) {
         super(domainModelClass);
@@ -39,21 +51,160 @@ public class DefaultQuery<T> extends AbstractQuery<T> {
 
     @Override
     public List<T> execute(Relationship... relationships) throws SQLException {
-        Quoter quoter = Databases.getQuoter();
-        String dataSourceName = Tables.getDataSourceName(domainModelDescriptor.getDomainModelClass());
-        return Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
-            String databaseName = connection.getMetaData().getDatabaseProductName();
-            String tableName = quoter.quoteTableName(databaseName, domainModelDescriptor.getTableName());
-            String sql = createQuerySQL(tableName, projection, filter, groupBy,
-                    having, orderBy, offset, limit);
-            List rows = sqlExecutor.query(connection, sql, domainModelDescriptor, params);
-
-            if (relationships.length > 0 && rows.size() > 0) {
-                new RelationshipNetwork(connection, domainModelDescriptor).process(rows, relationships);
+        List<String> dataSourceNames = getDataSourceNames();
+        boolean scattered = dataSourceNames.size() > 1;
+        Keyset ordering = scattered ? getShardOrdering(orderBy) : null;
+
+        // The offset is applied after the rows of shards merged
+        int shardOffset = scattered ? 0 : offset;
+        int shardLimit = scattered && limit > 0 ? Math.max(offset, 0) + limit : limit;
+        // The ordering of derived table without paging is rejected by some databases, such as
+        // SQL Server, the rows are ordered by the joined query instead
+        boolean joined = !getJoinedRelationships(relationships, orderBy).isEmpty();
+        String baseOrderBy = joined && shardOffset <= 0 && shardLimit <= 0 ? null : orderBy;
+        List<List<T>> shardRows = ShardingRule.scatter(dataSourceNames, dataSourceName ->
+                Databases.executeReadOnly(dataSourceName, (connection, sqlExecutor) -> {
+                    DatabaseContext databaseContext = Databases.getDatabaseContext(dataSourceName, connection);
+                    String databaseName = databaseContext.getDatabaseName();
+                    String tableName = databaseContext.quoteTableName(domainModelDescriptor.getTableName());
+                    String sql = createQuerySQL(databaseName, tableName, projection, filter, groupBy,
+                            having, baseOrderBy, shardOffset, shardLimit);
+                    return executeQuery(databaseContext, sqlExecutor, sql, orderBy, params, relationships);
+                }));
+
+        return scattered ? ShardingRule.gather(shardRows, ordering, domainModelDescriptor, offset, limit)
+                : shardRows.get(0);
+    }
+
+    @Override
+    public Page<T> fetchPage(Keyset keyset, String continuationToken, int pageSize,
+                             Relationship... relationships) throws SQLException {
+        Objects.requireNonNull(keyset, "The keyset cannot be null");
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("The pageSize must be greater than 0");
+        }
+
+        Object[] lastKey = continuationToken == null ? null : keyset.decode(continuationToken);
+        List<String> dataSourceNames = getDataSourceNames();
+        if (dataSourceNames.size() > 1) {
+            getShardOrdering(null);
+        }
+
+        List<List<T>> shardRows = ShardingRule.scatter(dataSourceNames, dataSourceName ->
+                Databases.executeReadOnly(dataSourceName, (connection, sqlExecutor) -> {
+                    DatabaseContext databaseContext = Databases.getDatabaseContext(dataSourceName, connection);
+                    String databaseName = databaseContext.getDatabaseName();
+                    String tableName = databaseContext.quoteTableName(domainModelDescriptor.getTableName());
+                    String pageFilter = filter;
+                    Object[] pageParams = params == null ? new Object[0] : params;
+
+                    if (lastKey != null) {
+                        String predicate = keyset.getPredicate(databaseName);
+                        Object[] keyParams = keyset.getParameters(databaseName, lastKey);
+                        pageFilter = StringUtil.isBlank(filter) ? predicate : String.format("(%s) AND %s", filter, predicate);
+                        pageParams = Arrays.copyOf(pageParams, pageParams.length + keyParams.length);
+                        System.arraycopy(keyParams, 0, pageParams, pageParams.length - keyParams.length, keyParams.length);
+                    }
+
+                    // One more row is fetched to determine whether the next page exists
+                    String pageOrderBy = keyset.getOrderBy(databaseName);
+                    String sql = createQuerySQL(databaseName, tableName, projection, pageFilter, groupBy,
+                            having, pageOrderBy, 0, pageSize + 1);
+                    return executeQuery(databaseContext, sqlExecutor, sql, pageOrderBy, pageParams, relationships);
+                }));
+
+        List<T> rows = dataSourceNames.size() > 1
+                ? ShardingRule.gather(shardRows, keyset, domainModelDescriptor, 0, pageSize + 1) : shardRows.get(0);
+        if (rows.size() <= pageSize) {
+            return new Page<>(rows, null);
+        }
+        List<T> pageRows = new ArrayList<>(rows.subList(0, pageSize));
+        Object[] nextKey = keyset.getKey(domainModelDescriptor, pageRows.get(pageSize - 1));
+        return new Page<>(pageRows, keyset.encode(nextKey));
+    }
+
+    /**
+     * Returns the data sources to be queried, that is, the shards owning the value of shard
+     * key in the filter, or all shards if the shard key is not constrained.
+     */
+    private List<String> getDataSourceNames() throws QueryException {
+        Class domainModelClass = domainModelDescriptor.getDomainModelClass();
+        ShardingRule shardingRule = ShardingRule.get(domainModelClass);
+        if (shardingRule == null) {
+            return Collections.singletonList(Tables.getDataSourceName(domainModelClass));
+        }
+        return shardingRule.route(shardingRule.findShardValue(filter, params));
+    }
+
+    /**
+     * Returns the ordering for merging the rows of shards, the grouped rows cannot be merged.
+     */
+    private Keyset getShardOrdering(String orderBy) throws QueryException {
+        if (!StringUtil.isBlank(groupBy) || !StringUtil.isBlank(having)) {
+            throw new QueryException(String.format("The grouped query of %s cannot be scattered to shards",
+                    domainModelDescriptor.getTableName()));
+        }
+        try {
+            return ShardingRule.parseOrdering(orderBy);
+        } catch (IllegalArgumentException ex) {
+            throw new QueryException(String.format("The ordering '%s' cannot be merged across shards", orderBy), ex);
+        }
+    }
+
+    private List<T> executeQuery(DatabaseContext databaseContext, SQLExecutor sqlExecutor, String sql,
+                                 String orderBy, Object[] params, Relationship[] relationships) throws SQLException {
+        List<Relationship> joinedRelationships = getJoinedRelationships(relationships, orderBy);
+        Relationship[] remainingRelationships = relationships;
+        List rows;
+        if (joinedRelationships.isEmpty()) {
+            rows = sqlExecutor.query(databaseContext, sql, domainModelDescriptor, params);
+        } else {
+            JoinedRowAdapter<T> joinedRowAdapter = new JoinedRowAdapter<>(domainModelDescriptor, joinedRelationships);
+            String joinedSql = createJoinedQuerySQL(databaseContext.getDatabaseName(), sql, orderBy, joinedRowAdapter);
+            rows = sqlExecutor.query(databaseContext, joinedSql, joinedRowAdapter, params);
+            remainingRelationships = Arrays.stream(relationships)
+                    .filter(r -> !joinedRelationships.contains(r)).toArray(Relationship[]::new);
+        }
+
+        if (remainingRelationships.length > 0 && rows.size() > 0) {
+            new RelationshipNetwork(databaseContext.getConnection(), domainModelDescriptor,
+                    databaseContext.getDataSourceName(), Databases.getRelationExecutor())
+                    .process(rows, remainingRelationships);
+        }
+
+        return rows;
+    }
+
+    @Override
+    public Stream<T> stream() throws SQLException {
+        List<String> dataSourceNames = getDataSourceNames();
+        if (dataSourceNames.size() > 1 && (!StringUtil.isBlank(orderBy) || offset > 0 || limit > 0)) {
+            throw new QueryException(String.format("The ordered or paged stream of %s cannot be scattered to shards",
+                    domainModelDescriptor.getTableName()));
+        }
+
+        // The rows of shards are streamed one shard after another
+        List<Stream<T>> streams = new ArrayList<>(dataSourceNames.size());
+        try {
+            for (String dataSourceName : dataSourceNames) {
+                streams.add(Databases.stream(dataSourceName, (connection, sqlExecutor) -> {
+                    DatabaseContext databaseContext = Databases.getDatabaseContext(dataSourceName, connection);
+                    String databaseName = databaseContext.getDatabaseName();
+                    String tableName = databaseContext.quoteTableName(domainModelDescriptor.getTableName());
+                    String sql = createQuerySQL(databaseName, tableName, projection, filter, groupBy,
+                            having, orderBy, offset, limit);
+                    return sqlExecutor.stream(databaseContext, fetchSize, sql, domainModelDescriptor, params);
+                }));
             }
+        } catch (SQLException | RuntimeException ex) {
+            streams.forEach(Stream::close);
+            throw ex;
+        }
 
-            return rows;
-        });
+        if (streams.size() == 1) {
+            return streams.get(0);
+        }
+        return streams.stream().flatMap(stream -> stream).onClose(() -> streams.forEach(Stream::close));
     }
 
     @Override
@@ -65,7 +216,132 @@ public class DefaultQuery<T> extends AbstractQuery<T> {
         return null;
     }
 
-    private String createQuerySQL(String tableName, String projections, String filter, String groupBy,
+    /**
+     * Returns the relationships whose related objects can be loaded by LEFT JOIN, that is, the
+     * to-one relationships of base class which has no relationships to be loaded after them.
+     * The query with a customized projection cannot be joined, because the associated
+     * column might be absent, neither can the query ordered by expressions, which cannot
+     * be qualified with the alias of base table.
+     */
+    private List<Relationship> getJoinedRelationships(Relationship[] relationships, String orderBy) {
+        List<Relationship> joinedRelationships = new ArrayList<>();
+        if (!isDefaultProjection() || (!StringUtil.isBlank(orderBy) && qualifyOrdering(orderBy) == null)) {
+            return joinedRelationships;
+        }
+
+        for (Relationship relationship : relationships) {
+            boolean hasChildRelationships = Arrays.stream(relationships)
+                    .anyMatch(r -> r.getBaseClass().equals(relationship.getRelatedClass()));
+            if (relationship.isJoinFetch() && !hasChildRelationships
+                    && relationship.getBaseClass().equals(domainModelDescriptor.getDomainModelClass())) {
+                joinedRelationships.add(relationship);
+            }
+        }
+        return joinedRelationships;
+    }
+
+    /**
+     * Wraps the query of base table as a derived table, and joins it with the tables of
+     * to-one relations, so that the filter, grouping and paging of the query are applied to
+     * the base table only. The columns of joined tables are aliased with the prefix of join.
+     */
+    private String createJoinedQuerySQL(String databaseName, String sql, String orderBy,
+                                        JoinedRowAdapter<T> joinedRowAdapter) {
+        Quoter quoter = Databases.getQuoter();
+        StringBuilder projections = new StringBuilder(BASE_TABLE_ALIAS).append(".*");
+        StringBuilder joins = new StringBuilder();
+
+        for (int i = 0; i < joinedRowAdapter.getJoinCount(); i++) {
+            Relationship relationship = joinedRowAdapter.getRelationship(i);
+            DomainModelDescriptor joinedModelDescriptor = joinedRowAdapter.getJoinedModelDescriptor(i);
+            String tableAlias = joinedRowAdapter.getTableAlias(i);
+
+            for (String columnName : joinedModelDescriptor.getColumns()) {
+                projections.append(", ").append(tableAlias).append('.')
+                        .append(quoter.quoteColumnName(databaseName, columnName))
+                        .append(" AS ").append(joinedRowAdapter.getColumnAlias(i, columnName));
+            }
+
+            String joinedColumn = relationship.isBelongsTo() ? relationship.getPrimaryKey() : relationship.getForeignKey();
+            String baseColumn = relationship.isBelongsTo() ? relationship.getForeignKey() : relationship.getPrimaryKey();
+            joins.append(" LEFT JOIN ")
+                    .append(quoter.quoteTableName(databaseName, joinedModelDescriptor.getTableName()))
+                    .append(' ').append(tableAlias).append(" ON ")
+                    .append(tableAlias).append('.').append(quoter.quoteColumnName(databaseName, joinedColumn))
+                    .append(" = ")
+                    .append(BASE_TABLE_ALIAS).append('.').append(quoter.quoteColumnName(databaseName, baseColumn));
+        }
+
+        StringBuilder joinedSql = new StringBuilder()
+                .append(String.format(SELECT_STATEMENT, projections, String.format("(%s) %s", sql, BASE_TABLE_ALIAS)))
+                .append(joins);
+        if (!StringUtil.isBlank(orderBy)) {
+            joinedSql.append(" ORDER BY ").append(qualifyOrdering(orderBy));
+        }
+        return joinedSql.toString();
+    }
+
+    /**
+     * Qualifies the columns of ordering with the alias of base table, the columns qualified
+     * with the name of base table are qualified with the alias instead.
+     *
+     * @return the ordering qualified, or null if it is not ordering by the columns of base table
+     */
+    private String qualifyOrdering(String orderBy) {
+        StringJoiner qualifiedOrderBy = new StringJoiner(", ");
+        for (String term : orderBy.split(",")) {
+            Matcher matcher = ORDERING_TERM_PATTERN.matcher(term);
+            if (!matcher.matches() || (matcher.group(1) != null
+                    && !unquote(matcher.group(1)).equalsIgnoreCase(domainModelDescriptor.getTableName()))) {
+                return null;
+            }
+            qualifiedOrderBy.add(BASE_TABLE_ALIAS + '.' + matcher.group(2)
+                    + Objects.toString(matcher.group(3), "") + Objects.toString(matcher.group(4), ""));
+        }
+        return qualifiedOrderBy.toString();
+    }
+
+    private static String unquote(String identifier) {
+        return "`\"[".indexOf(identifier.charAt(0)) >= 0 ? identifier.substring(1, identifier.length() - 1) : identifier;
+    }
+
+    @Override
+    public T queryByPrimaryKey(Object primaryKey, Relationship... relationships) throws SQLException {
+        Objects.requireNonNull(primaryKey, "The primaryKey cannot be null");
+
+        EntityCache entityCache = Databases.getEntityCache(domainModelDescriptor);
+        T domainObject = entityCache == null ? null : (T) entityCache.get(primaryKey);
+        if (domainObject != null) {
+            if (relationships.length > 0) {
+                ShardingRule shardingRule = ShardingRule.get(domainModelDescriptor.getDomainModelClass());
+                String dataSourceName = shardingRule == null
+                        ? Tables.getDataSourceName(domainModelDescriptor.getDomainModelClass())
+                        : shardingRule.route(shardingRule.getShardValue(domainModelDescriptor, domainObject)).get(0);
+                List rows = new ArrayList<>(Arrays.asList(domainObject));
+                Databases.executeReadOnly(dataSourceName, (connection, sqlExecutor) -> {
+                    new RelationshipNetwork(connection, domainModelDescriptor, dataSourceName,
+                            Databases.getRelationExecutor()).process(rows, relationships);
+                    return null;
+                });
+            }
+            return domainObject;
+        }
+
+        // The partial objects of a customized projection and the uncommitted rows are not cached
+        boolean cacheable = entityCache != null && isDefaultProjection() && Databases.isCurrentThreadAutoCommit();
+        where(String.format("%s = ?", domainModelDescriptor.getPrimaryKey().name()), primaryKey);
+        domainObject = queryFirst(relationships);
+        if (domainObject != null && cacheable) {
+            entityCache.put(primaryKey, domainObject);
+        }
+        return domainObject;
+    }
+
+    private boolean isDefaultProjection() {
+        return StringUtil.isBlank(projection) || "*".equals(projection.trim());
+    }
+
+    private String createQuerySQL(String databaseName, String tableName, String projections, String filter, String groupBy,
                                   String having, String orderBy, int offset, int limit) {
         Objects.requireNonNull(tableName, "The tableName cannot be null");
 
@@ -92,13 +368,8 @@ public class DefaultQuery<T> extends AbstractQuery<T> {
             sql.append(" ORDER BY ").append(orderBy);
         }
 
-        if (offset > 0) {
-            sql.append(" OFFSET ").append(offset);
-        }
-
-        if (limit > 0) {
-            sql.append(" LIMIT ").append(limit);
-        }
+        sql.append(DatabaseType.resolve(databaseName)
+                .getPaginationClause(!StringUtil.isBlank(orderBy), offset, limit));
 
         return sql.toString();
     }
@@ -16,117 +16,433 @@
  */
 package com.github.braisdom.objsql;
 
+import com.github.braisdom.objsql.jdbc.DbUtils;
 import com.github.braisdom.objsql.jdbc.QueryRunner;
 import com.github.braisdom.objsql.jdbc.ResultSetHandler;
 import com.github.braisdom.objsql.reflection.PropertyUtils;
 import com.github.braisdom.objsql.transition.ColumnTransition;
 
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * The default implementation of <code>SQLExecutor</code> based on JDBC.
+ *
+ * <p>The methods with connection remain the extension points of subclasses, the methods with
+ * <code>DatabaseContext</code> invoke them if they are overridden, and the context is still
+ * shared with them when the subclass invokes the super methods.
+ *
+ * @param <T>
+ */
 public class DefaultSQLExecutor<T> implements SQLExecutor<T> {
 
+    @FunctionalInterface
+    private interface ConnectionInvoke<R> {
+        R apply() throws SQLException;
+    }
+
     private final Logger logger = Databases.getLoggerFactory().create(DefaultSQLExecutor.class);
-    private final QueryRunner queryRunner;
+    private volatile QueryRunner queryRunner;
+
+    private final boolean queryOverridden;
+    private final boolean streamOverridden;
+    private final boolean insertOverridden;
+    private final boolean insertRowsOverridden;
+    private final boolean copyInOverridden;
+    private final boolean executeOverridden;
+    private final boolean executeBatchOverridden;
+    private final ThreadLocal<DatabaseContext> databaseContextThreadLocal = new ThreadLocal<>();
 
     public DefaultSQLExecutor() {
-        queryRunner = new QueryRunner(true);
+        this(new QueryRunner(true));
+    }
+
+    public DefaultSQLExecutor(QueryRunner queryRunner) {
+        Objects.requireNonNull(queryRunner, "The queryRunner cannot be null");
+        this.queryRunner = queryRunner;
+        this.queryOverridden = isOverridden("query", Connection.class, String.class,
+                TableRowAdapter.class, Object[].class);
+        this.streamOverridden = isOverridden("stream", Connection.class, int.class, String.class,
+                TableRowAdapter.class, Object[].class);
+        this.insertOverridden = isOverridden("insert", Connection.class, String.class,
+                TableRowAdapter.class, Object[].class);
+        this.insertRowsOverridden = isOverridden("insertRows", Connection.class, String.class,
+                String.class, Object[].class);
+        this.copyInOverridden = isOverridden("copyIn", Connection.class, String.class, Object[][].class);
+        this.executeOverridden = isOverridden("execute", Connection.class, String.class, Object[].class);
+        this.executeBatchOverridden = isOverridden("executeBatch", Connection.class, String.class,
+                Object[][].class);
+    }
+
+    public QueryRunner getQueryRunner() {
+        return queryRunner;
+    }
+
+    /**
+     * Replaces the query runner, such as installing the statement cache into the sql executor
+     * installed.
+     *
+     * @see Databases#installStatementCache(int)
+     */
+    void setQueryRunner(QueryRunner queryRunner) {
+        Objects.requireNonNull(queryRunner, "The queryRunner cannot be null");
+        this.queryRunner = queryRunner;
     }
 
     @Override
     public List<T> query(Connection connection, String sql, TableRowAdapter tableRowAdapter,
                          Object... params) throws SQLException {
-        return Databases.sqlBenchmarking(() ->
-                queryRunner.query(connection, sql,
-                        new DomainModelListHandler(tableRowAdapter, connection.getMetaData()), params), logger, sql, params);
+        return doQuery(getDatabaseContext(connection), sql, tableRowAdapter, params);
+    }
+
+    @Override
+    public List<T> query(DatabaseContext databaseContext, String sql, TableRowAdapter tableRowAdapter,
+                         Object... params) throws SQLException {
+        if (queryOverridden) {
+            return invokeOverridden(databaseContext, () ->
+                    query(databaseContext.getConnection(), sql, tableRowAdapter, params));
+        }
+        return doQuery(databaseContext, sql, tableRowAdapter, params);
+    }
+
+    private List<T> doQuery(DatabaseContext databaseContext, String sql, TableRowAdapter tableRowAdapter,
+                            Object[] params) throws SQLException {
+        Connection connection = databaseContext.getConnection();
+        DomainModelListHandler handler = new DomainModelListHandler(tableRowAdapter, databaseContext);
+        return Databases.sqlBenchmarking(() -> queryRunner.query(connection, sql, handler, params),
+                tableRowAdapter.getDomainModelClass(), MetricsCollector.OPERATION_QUERY,
+                handler::getHydrationTime, logger, sql, params);
+    }
+
+    @Override
+    public Stream<T> stream(Connection connection, int fetchSize, String sql,
+                            TableRowAdapter tableRowAdapter, Object... params) throws SQLException {
+        return doStream(getDatabaseContext(connection), fetchSize, sql, tableRowAdapter, params);
+    }
+
+    @Override
+    public Stream<T> stream(DatabaseContext databaseContext, int fetchSize, String sql,
+                            TableRowAdapter tableRowAdapter, Object... params) throws SQLException {
+        if (streamOverridden) {
+            return invokeOverridden(databaseContext, () ->
+                    stream(databaseContext.getConnection(), fetchSize, sql, tableRowAdapter, params));
+        }
+        return doStream(databaseContext, fetchSize, sql, tableRowAdapter, params);
+    }
+
+    private Stream<T> doStream(DatabaseContext databaseContext, int fetchSize, String sql,
+                               TableRowAdapter tableRowAdapter, Object[] params) throws SQLException {
+        Connection connection = databaseContext.getConnection();
+        DatabaseType databaseType = databaseContext.getDatabaseType();
+        // The PostgreSQL uses cursor to fetch rows only if the auto commit is off
+        boolean cursorRequired = databaseType == DatabaseType.PostgreSQL && connection.getAutoCommit();
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+
+        try {
+            if (cursorRequired) {
+                connection.setAutoCommit(false);
+            }
+
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // The MySQL driver streams rows one by one only with Integer.MIN_VALUE
+            if (databaseType == DatabaseType.MySQL || databaseType == DatabaseType.MariaDB) {
+                statement.setFetchSize(Integer.MIN_VALUE);
+            } else if (fetchSize > 0) {
+                statement.setFetchSize(fetchSize);
+            }
+            queryRunner.fillStatement(statement, params);
+
+            PreparedStatement preparedStatement = statement;
+            resultSet = Databases.sqlBenchmarking(() -> preparedStatement.executeQuery(),
+                    tableRowAdapter.getDomainModelClass(), MetricsCollector.OPERATION_STREAM, logger, sql, params);
+
+            Iterator<T> iterator = new DomainModelIterator(tableRowAdapter, databaseContext, resultSet);
+            Statement closingStatement = statement;
+            ResultSet closingResultSet = resultSet;
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                    Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(() -> closeStreaming(connection, closingStatement, closingResultSet, cursorRequired));
+        } catch (SQLException | RuntimeException ex) {
+            DbUtils.closeQuietly(resultSet);
+            DbUtils.closeQuietly(statement);
+            if (cursorRequired) {
+                connection.setAutoCommit(true);
+            }
+            throw ex;
+        }
     }
 
     @Override
     public T insert(Connection connection, String sql, TableRowAdapter tableRowAdapter,
                     Object... params) throws SQLException {
+        return doInsert(getDatabaseContext(connection), sql, tableRowAdapter, params);
+    }
+
+    @Override
+    public T insert(DatabaseContext databaseContext, String sql, TableRowAdapter tableRowAdapter,
+                    Object... params) throws SQLException {
+        if (insertOverridden) {
+            return invokeOverridden(databaseContext, () ->
+                    insert(databaseContext.getConnection(), sql, tableRowAdapter, params));
+        }
+        return doInsert(databaseContext, sql, tableRowAdapter, params);
+    }
+
+    private T doInsert(DatabaseContext databaseContext, String sql, TableRowAdapter tableRowAdapter,
+                       Object[] params) throws SQLException {
         return (T) Databases.sqlBenchmarking(() ->
-                queryRunner.insert(connection, sql,
-                        new DomainModelHandler(tableRowAdapter, connection.getMetaData()), params), logger, sql, params);
+                queryRunner.insert(databaseContext.getConnection(), sql,
+                        new DomainModelHandler(tableRowAdapter, databaseContext), params),
+                tableRowAdapter.getDomainModelClass(), MetricsCollector.OPERATION_INSERT, logger, sql, params);
     }
 
     @Override
     public int[] insert(Connection connection, String sql, TableRowAdapter tableRowAdapter,
                         Object[][] params) throws SQLException {
         return Databases.sqlBenchmarking(() ->
-                queryRunner.insertBatch(connection, sql, params), logger, sql, params);
+                queryRunner.insertBatch(connection, sql, params),
+                tableRowAdapter.getDomainModelClass(), MetricsCollector.OPERATION_INSERT_BATCH, logger, sql, params);
+    }
+
+    @Override
+    public Object[] insertRows(Connection connection, String sql, String keyColumnName,
+                               Object... params) throws SQLException {
+        return doInsertRows(connection, sql, null, keyColumnName, params);
+    }
+
+    @Override
+    public Object[] insertRows(Connection connection, String sql, TableRowAdapter tableRowAdapter,
+                               String keyColumnName, Object... params) throws SQLException {
+        if (insertRowsOverridden) {
+            return insertRows(connection, sql, keyColumnName, params);
+        }
+        return doInsertRows(connection, sql, tableRowAdapter.getDomainModelClass(), keyColumnName, params);
+    }
+
+    private Object[] doInsertRows(Connection connection, String sql, Class domainModelClass,
+                                  String keyColumnName, Object[] params) throws SQLException {
+        return Databases.sqlBenchmarking(() ->
+                queryRunner.insert(connection, sql, new GeneratedKeysHandler(keyColumnName), params),
+                domainModelClass, MetricsCollector.OPERATION_INSERT_ROWS, logger, sql, params);
+    }
+
+    @Override
+    public long copyIn(Connection connection, String sql, Object[][] rows) throws SQLException {
+        return doCopyIn(getDatabaseContext(connection), sql, null, rows);
+    }
+
+    @Override
+    public long copyIn(DatabaseContext databaseContext, String sql, Object[][] rows) throws SQLException {
+        if (copyInOverridden) {
+            return invokeOverridden(databaseContext, () -> copyIn(databaseContext.getConnection(), sql, rows));
+        }
+        return doCopyIn(databaseContext, sql, null, rows);
+    }
+
+    @Override
+    public long copyIn(DatabaseContext databaseContext, String sql, TableRowAdapter tableRowAdapter,
+                       Object[][] rows) throws SQLException {
+        if (copyInOverridden) {
+            return invokeOverridden(databaseContext, () -> copyIn(databaseContext.getConnection(), sql, rows));
+        }
+        return doCopyIn(databaseContext, sql, tableRowAdapter.getDomainModelClass(), rows);
+    }
+
+    private long doCopyIn(DatabaseContext databaseContext, String sql, Class domainModelClass,
+                          Object[][] rows) throws SQLException {
+        if (databaseContext.getDatabaseType() != DatabaseType.PostgreSQL) {
+            return -1;
+        }
+        return Databases.sqlBenchmarking(() ->
+                PostgreSQLCopy.copyIn(databaseContext.getConnection(), sql, rows),
+                domainModelClass, MetricsCollector.OPERATION_COPY_IN, logger, sql, rows.length);
     }
 
     @Override
     public int execute(Connection connection, String sql, Object... params) throws SQLException {
+        return doExecute(connection, sql, null, params);
+    }
+
+    @Override
+    public int execute(Connection connection, String sql, TableRowAdapter tableRowAdapter,
+                       Object... params) throws SQLException {
+        if (executeOverridden) {
+            return execute(connection, sql, params);
+        }
+        return doExecute(connection, sql, tableRowAdapter.getDomainModelClass(), params);
+    }
+
+    private int doExecute(Connection connection, String sql, Class domainModelClass,
+                          Object[] params) throws SQLException {
         return Databases.sqlBenchmarking(() ->
-                queryRunner.update(connection, sql, params), logger, sql, params);
+                queryRunner.update(connection, sql, params),
+                domainModelClass, MetricsCollector.OPERATION_EXECUTE, logger, sql, params);
+    }
+
+    @Override
+    public int[] executeBatch(Connection connection, String sql, Object[][] params) throws SQLException {
+        return doExecuteBatch(connection, sql, null, params);
+    }
+
+    @Override
+    public int[] executeBatch(Connection connection, String sql, TableRowAdapter tableRowAdapter,
+                              Object[][] params) throws SQLException {
+        if (executeBatchOverridden) {
+            return executeBatch(connection, sql, params);
+        }
+        return doExecuteBatch(connection, sql, tableRowAdapter.getDomainModelClass(), params);
+    }
+
+    private int[] doExecuteBatch(Connection connection, String sql, Class domainModelClass,
+                                 Object[][] params) throws SQLException {
+        return Databases.sqlBenchmarking(() ->
+                queryRunner.batch(connection, sql, params),
+                domainModelClass, MetricsCollector.OPERATION_EXECUTE_BATCH, logger, sql, params);
+    }
+
+    private boolean isOverridden(String methodName, Class<?>... parameterTypes) {
+        try {
+            return getClass().getMethod(methodName, parameterTypes).getDeclaringClass() != DefaultSQLExecutor.class;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Invokes the method with connection overridden by subclass, the context is shared with
+     * the super method invoked by it.
+     */
+    private <R> R invokeOverridden(DatabaseContext databaseContext, ConnectionInvoke<R> invoke) throws SQLException {
+        DatabaseContext previousContext = databaseContextThreadLocal.get();
+        databaseContextThreadLocal.set(databaseContext);
+        try {
+            return invoke.apply();
+        } finally {
+            if (previousContext == null) {
+                databaseContextThreadLocal.remove();
+            } else {
+                databaseContextThreadLocal.set(previousContext);
+            }
+        }
+    }
+
+    private DatabaseContext getDatabaseContext(Connection connection) throws SQLException {
+        DatabaseContext databaseContext = databaseContextThreadLocal.get();
+        return databaseContext != null && databaseContext.getConnection() == connection
+                ? databaseContext : DatabaseContext.resolve(null, connection);
+    }
+
+    private void closeStreaming(Connection connection, Statement statement,
+                                ResultSet resultSet, boolean cursorRequired) {
+        DbUtils.closeQuietly(resultSet);
+        DbUtils.closeQuietly(statement);
+        if (cursorRequired) {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex.getMessage(), ex);
+            }
+        }
     }
 }
 
-class DomainModelListHandler implements ResultSetHandler<List> {
+class DomainModelIterator<T> implements Iterator<T> {
 
     private final TableRowAdapter tableRowDescriptor;
-    private final DatabaseMetaData databaseMetaData;
+    private final DatabaseContext databaseContext;
+    private final ResultSet rs;
 
-    public DomainModelListHandler(TableRowAdapter tableRowDescriptor,
-                                  DatabaseMetaData databaseMetaData) {
+    private ResultSetMetaData metaData;
+    private RowMappingPlan rowMappingPlan;
+    private Boolean hasNext;
+
+    public DomainModelIterator(TableRowAdapter tableRowDescriptor, DatabaseContext databaseContext,
+                               ResultSet rs) {
         this.tableRowDescriptor = tableRowDescriptor;
-        this.databaseMetaData = databaseMetaData;
+        this.databaseContext = databaseContext;
+        this.rs = rs;
     }
 
     @Override
-    public List handle(ResultSet rs) throws SQLException {
-        List results = new ArrayList();
-
-        if (!rs.next()) {
-            return results;
+    public boolean hasNext() {
+        if (hasNext == null) {
+            try {
+                hasNext = rs.next();
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex.getMessage(), ex);
+            }
         }
+        return hasNext;
+    }
 
-        do {
-            results.add(createBean(rs));
-        } while (rs.next());
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
 
-        return results;
+        try {
+            if (rowMappingPlan == null) {
+                metaData = rs.getMetaData();
+                rowMappingPlan = RowMappingPlan.get(tableRowDescriptor, metaData);
+            }
+            hasNext = null;
+            return (T) rowMappingPlan.createBean(tableRowDescriptor, databaseContext, metaData, rs);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
     }
+}
 
-    private Object createBean(ResultSet rs) throws SQLException {
-        Object bean = tableRowDescriptor.newInstance();
-        ResultSetMetaData metaData = rs.getMetaData();
-        int columnCount = metaData.getColumnCount();
+class DomainModelListHandler implements ResultSetHandler<List> {
 
-        for (int i = 1; i <= columnCount; i++) {
-            String columnName = metaData.getColumnLabel(i);
-            String fieldName = tableRowDescriptor.getFieldName(columnName);
-            Object rawColumnValue = rs.getObject(columnName);
-
-            if (fieldName != null) {
-                if (tableRowDescriptor.isTransitable(fieldName)) {
-                    ColumnTransition columnTransition = tableRowDescriptor.getColumnTransition(fieldName);
-                    Object value = columnTransition == null ? rawColumnValue : columnTransition
-                            .rising(databaseMetaData, metaData, bean, tableRowDescriptor, fieldName, rawColumnValue);
-
-                    Class fieldType = tableRowDescriptor.getFieldType(fieldName);
-                    if (fieldType != null && value != null &&
-                            !fieldType.isAssignableFrom(value.getClass())) {
-                        throw new ClassCastException(String.format("Inconsistent data types field:%s(%s) " +
-                                        "vs column:%s(%s) in %s", fieldName, fieldType.getName(), columnName,
-                                value.getClass().getName(), bean.getClass().getName()));
-                    }
+    private final TableRowAdapter tableRowDescriptor;
+    private final DatabaseContext databaseContext;
 
-                    tableRowDescriptor.setFieldValue(bean, fieldName, value);
-                } else {
-                    tableRowDescriptor.setFieldValue(bean, fieldName, rawColumnValue);
-                }
-            } else {
-                if (PropertyUtils.supportRawAttribute(bean)) {
-                    PropertyUtils.writeRawAttribute(bean, columnName, rawColumnValue);
-                }
+    private long hydrationTime;
+
+    public DomainModelListHandler(TableRowAdapter tableRowDescriptor,
+                                  DatabaseContext databaseContext) {
+        this.tableRowDescriptor = tableRowDescriptor;
+        this.databaseContext = databaseContext;
+    }
+
+    @Override
+    public List handle(ResultSet rs) throws SQLException {
+        long begin = System.nanoTime();
+        List results = new ArrayList();
+
+        try {
+            if (!rs.next()) {
+                return results;
             }
+
+            ResultSetMetaData metaData = rs.getMetaData();
+            RowMappingPlan rowMappingPlan = RowMappingPlan.get(tableRowDescriptor, metaData);
+
+            do {
+                results.add(rowMappingPlan.createBean(tableRowDescriptor, databaseContext, metaData, rs));
+            } while (rs.next());
+
+            return results;
+        } finally {
+            hydrationTime = System.nanoTime() - begin;
+            MetricsCollector metricsCollector = Databases.getMetricsCollector();
+            metricsCollector.recordTiming(MetricsCollector.Phase.RESULT_HYDRATION,
+                    tableRowDescriptor.getDomainModelClass(), MetricsCollector.OPERATION_QUERY, hydrationTime);
+            metricsCollector.recordRows(tableRowDescriptor.getDomainModelClass(),
+                    MetricsCollector.OPERATION_QUERY, results.size());
         }
+    }
 
-        return bean;
+    /**
+     * Returns the nanoseconds of mapping the rows to domain objects.
+     */
+    public long getHydrationTime() {
+        return hydrationTime;
     }
 }
 
@@ -136,11 +452,11 @@ class DomainModelHandler implements ResultSetHandler<Object> {
             .asList(new String[]{"last_insert_rowid()", "GENERATED_KEY", "GENERATED_KEYS"});
 
     private final TableRowAdapter tableRowDescriptor;
-    private final DatabaseMetaData databaseMetaData;
+    private final DatabaseContext databaseContext;
 
-    public DomainModelHandler(TableRowAdapter tableRowDescriptor, DatabaseMetaData databaseMetaData) {
+    public DomainModelHandler(TableRowAdapter tableRowDescriptor, DatabaseContext databaseContext) {
         this.tableRowDescriptor = tableRowDescriptor;
-        this.databaseMetaData = databaseMetaData;
+        this.databaseContext = databaseContext;
     }
 
     @Override
@@ -165,7 +481,7 @@ class DomainModelHandler implements ResultSetHandler<Object> {
                     if (tableRowDescriptor.isTransitable(fieldName)) {
                         ColumnTransition columnTransition = tableRowDescriptor.getColumnTransition(fieldName);
                         Object value = columnTransition == null ? rawColumnValue : columnTransition
-                                .rising(databaseMetaData, metaData, bean, tableRowDescriptor, fieldName, rawColumnValue);
+                                .rising(databaseContext, metaData, bean, tableRowDescriptor, fieldName, rawColumnValue);
 
                         Class fieldType = tableRowDescriptor.getFieldType(fieldName);
                         if (fieldType != null && value != null &&
@@ -190,3 +506,30 @@ class DomainModelHandler implements ResultSetHandler<Object> {
         return bean;
     }
 }
+
+class GeneratedKeysHandler implements ResultSetHandler<Object[]> {
+
+    private final String keyColumnName;
+
+    public GeneratedKeysHandler(String keyColumnName) {
+        this.keyColumnName = keyColumnName;
+    }
+
+    @Override
+    public Object[] handle(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int keyColumnIndex = 1;
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            if (metaData.getColumnLabel(i).equalsIgnoreCase(keyColumnName)) {
+                keyColumnIndex = i;
+                break;
+            }
+        }
+
+        List<Object> keys = new ArrayList<>();
+        while (rs.next()) {
+            keys.add(rs.getObject(keyColumnIndex));
+        }
+        return keys.toArray();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import java.io.Serializable;
+import java.util.BitSet;
+
+/**
+ * Records the fields changed by the generated setters of a domain object, the fields
+ * are identified by the index of <code>FieldAccessor</code>.
+ *
+ * <p>The changes are tracked only after the domain object is synchronized with the
+ * database, that is, the domain object is queried or saved. Before that, all fields
+ * of the domain object are regarded as changed.
+ *
+ * <p>Only the generated setters record the changes, the fields written directly, for
+ * example by the methods of domain model, field-access mappers or reflection, are not
+ * recorded. The domain object must be marked by {@link #markAll()} after such writes,
+ * otherwise the update skips the fields.
+ *
+ * @see FieldAccessor#getDirtyFields(Object)
+ */
+public final class DirtyFields implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final BitSet fields = new BitSet();
+    private boolean tracking;
+
+    public void mark(int fieldIndex) {
+        fields.set(fieldIndex);
+    }
+
+    public boolean isDirty(int fieldIndex) {
+        return !tracking || fields.get(fieldIndex);
+    }
+
+    /**
+     * Returns true if the domain object has been synchronized with the database.
+     */
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    /**
+     * Regards all fields as changed until the domain object is synchronized with the
+     * database again.
+     */
+    public void markAll() {
+        fields.clear();
+        tracking = false;
+    }
+
+    /**
+     * Clears the changes after the domain object synchronized with the database.
+     */
+    public void reset() {
+        fields.clear();
+        tracking = true;
+    }
+}
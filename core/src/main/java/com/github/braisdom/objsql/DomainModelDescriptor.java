@@ -43,4 +43,40 @@ public interface DomainModelDescriptor<T> extends TableRowAdapter<T> {
     String[] getInsertableColumns();
 
     String[] getUpdatableColumns();
+
+    /**
+     * Returns true if the changes of domain object are tracked since it was queried
+     * or saved, so that only the changed fields need to be updated.
+     */
+    default boolean isDirtyTracked(T domainObject) {
+        return false;
+    }
+
+    /**
+     * Returns true if the field may be changed since the domain object was queried or saved.
+     */
+    default boolean isFieldDirty(T domainObject, String fieldName) {
+        return true;
+    }
+
+    /**
+     * Regards all fields of the domain object as changed, it is required after the fields
+     * are written without the setters, which are not tracked.
+     */
+    default void markDirty(T domainObject) {
+    }
+
+    /**
+     * Clears the changes after the domain object is synchronized with database.
+     */
+    default void resetDirtyFields(T domainObject) {
+    }
+
+    /**
+     * Returns a copy of the domain object with the values of columns and raw attributes,
+     * the relations are not copied.
+     */
+    default T copyDomainObject(T domainObject) {
+        throw new UnsupportedOperationException("The copyDomainObject is unsupported");
+    }
 }
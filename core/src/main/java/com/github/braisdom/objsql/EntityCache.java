@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+/**
+ * The second-level cache of domain objects keyed by primary key, it is opt-in for each
+ * domain model by <code>@DomainModel(cacheable = true)</code>. The domain objects queried by
+ * primary key or loaded by relations are put into the cache, and the cached objects are
+ * removed when they are updated or deleted by <code>Persistence</code>. The objects of a
+ * customized projection and the objects queried in a transaction are never put into the cache.
+ *
+ * <p>The implementation should isolate the domain objects cached from the domain objects
+ * returned, that is, the changes of a returned object are invisible to the cache.
+ * An external store can be plugged in by {@link Databases#installEntityCacheFactory(EntityCacheFactory)}.
+ *
+ * @see DefaultEntityCache
+ */
+public interface EntityCache {
+
+    /**
+     * Returns the domain object cached, or null if it is absent or expired.
+     */
+    Object get(Object primaryKey);
+
+    void put(Object primaryKey, Object domainObject);
+
+    void remove(Object primaryKey);
+
+    /**
+     * Removes all domain objects cached, it is invoked when the rows are updated or
+     * deleted without primary key.
+     */
+    void clear();
+}
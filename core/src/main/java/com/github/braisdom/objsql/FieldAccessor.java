@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+/**
+ * Reads and writes the fields of a domain model by index without reflection.
+ * The implementation is generated as a nested class of each <code>DomainModel</code>
+ * at compiling, and <code>BeanModelDescriptor</code> delegates to it when it presents.
+ *
+ * @param <T> the domain model class
+ * @see com.github.braisdom.objsql.apt.DomainModelCodeGenerator
+ * @see BeanModelDescriptor
+ */
+public interface FieldAccessor<T> {
+
+    /**
+     * The simple name of the nested class generated in domain model.
+     */
+    String GENERATED_CLASS_NAME = "GeneratedFieldAccessor";
+
+    /**
+     * Returns the names of accessible fields, the position of name is the
+     * index of field.
+     */
+    String[] getFieldNames();
+
+    Object getFieldValue(T bean, int fieldIndex);
+
+    void setFieldValue(T bean, int fieldIndex, Object value);
+
+    /**
+     * Returns the changes of bean recorded by the generated setters, or null
+     * if the changes are not tracked.
+     */
+    default DirtyFields getDirtyFields(T bean) {
+        return null;
+    }
+
+    /**
+     * Returns true if the changes of field are recorded by its setter, the field
+     * with a customized setter is not tracked.
+     */
+    default boolean isDirtyTracked(int fieldIndex) {
+        return false;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+
+/**
+ * The in-memory implementation of <code>MetricsCollector</code>, the timings and row
+ * counts are recorded into a {@link LatencyHistogram} for each phase, domain model class
+ * and operation.
+ *
+ * <pre>
+ *     HistogramMetricsCollector metricsCollector = new HistogramMetricsCollector();
+ *     Databases.installMetricsCollector(metricsCollector);
+ *     ...
+ *     metricsCollector.getTimings(Phase.STATEMENT_EXECUTION, Member.class, "query")
+ *             .getValueAtPercentile(99);
+ * </pre>
+ */
+public class HistogramMetricsCollector implements MetricsCollector {
+
+    private static final Class UNKNOWN_DOMAIN_MODEL = Void.class;
+    private static final int ROWS_INDEX = Phase.values().length;
+
+    private final Map<Class, Map<String, AtomicReferenceArray<LatencyHistogram>>> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordTiming(Phase phase, Class domainModelClass, String operation, long elapsedNanos) {
+        getOrCreateHistogram(domainModelClass, operation, phase.ordinal()).record(Math.max(0, elapsedNanos));
+    }
+
+    @Override
+    public void recordRows(Class domainModelClass, String operation, long rowCount) {
+        getOrCreateHistogram(domainModelClass, operation, ROWS_INDEX).record(Math.max(0, rowCount));
+    }
+
+    /**
+     * Returns the timings in nanoseconds, or null if nothing is recorded.
+     */
+    public LatencyHistogram getTimings(Phase phase, Class domainModelClass, String operation) {
+        return getHistogram(domainModelClass, operation, phase.ordinal());
+    }
+
+    /**
+     * Returns the row counts, or null if nothing is recorded.
+     */
+    public LatencyHistogram getRows(Class domainModelClass, String operation) {
+        return getHistogram(domainModelClass, operation, ROWS_INDEX);
+    }
+
+    /**
+     * Visits the timings recorded, the histograms are named as
+     * <code>phase:domainModelClass:operation</code>.
+     */
+    public void forEachTimings(BiConsumer<String, LatencyHistogram> consumer) {
+        histograms.forEach((domainModelClass, operations) -> operations.forEach((operation, phaseHistograms) -> {
+            for (Phase phase : Phase.values()) {
+                LatencyHistogram histogram = phaseHistograms.get(phase.ordinal());
+                if (histogram != null) {
+                    String domainModelName = domainModelClass == UNKNOWN_DOMAIN_MODEL
+                            ? "" : domainModelClass.getName();
+                    consumer.accept(String.format("%s:%s:%s", phase.name(), domainModelName, operation), histogram);
+                }
+            }
+        }));
+    }
+
+    public void reset() {
+        histograms.clear();
+    }
+
+    private LatencyHistogram getHistogram(Class domainModelClass, String operation, int index) {
+        Map<String, AtomicReferenceArray<LatencyHistogram>> operations = histograms.get(
+                domainModelClass == null ? UNKNOWN_DOMAIN_MODEL : domainModelClass);
+        if (operations == null) {
+            return null;
+        }
+        AtomicReferenceArray<LatencyHistogram> phaseHistograms = operations.get(operation);
+        return phaseHistograms == null ? null : phaseHistograms.get(index);
+    }
+
+    private LatencyHistogram getOrCreateHistogram(Class domainModelClass, String operation, int index) {
+        Class clazz = domainModelClass == null ? UNKNOWN_DOMAIN_MODEL : domainModelClass;
+        Map<String, AtomicReferenceArray<LatencyHistogram>> operations = histograms.get(clazz);
+        if (operations == null) {
+            operations = histograms.computeIfAbsent(clazz, key -> new ConcurrentHashMap<>());
+        }
+        AtomicReferenceArray<LatencyHistogram> phaseHistograms = operations.get(operation);
+        if (phaseHistograms == null) {
+            phaseHistograms = operations.computeIfAbsent(operation,
+                    key -> new AtomicReferenceArray<>(ROWS_INDEX + 1));
+        }
+        LatencyHistogram histogram = phaseHistograms.get(index);
+        if (histogram == null) {
+            phaseHistograms.compareAndSet(index, null, new LatencyHistogram());
+            histogram = phaseHistograms.get(index);
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import com.github.braisdom.objsql.relation.Relationship;
+
+import java.util.List;
+
+/**
+ * Adapts the rows of base table joined with the tables of to-one relations. The columns
+ * of joined table are aliased with the prefix of join, and they will be split from the
+ * columns of base table by <code>RowMappingPlan</code>, then hydrated into the related
+ * objects.
+ *
+ * @see Relationship#isJoinFetch()
+ */
+final class JoinedRowAdapter<T> implements TableRowAdapter<T> {
+
+    private static final String JOINED_TABLE_ALIAS = "j%d";
+    private static final String JOINED_COLUMN_PREFIX = "j%d__";
+
+    private final DomainModelDescriptor<T> baseModelDescriptor;
+    private final Relationship[] relationships;
+    private final DomainModelDescriptor[] joinedModelDescriptors;
+    private final String[] columnPrefixes;
+
+    public JoinedRowAdapter(DomainModelDescriptor<T> baseModelDescriptor, List<Relationship> relationships) {
+        this.baseModelDescriptor = baseModelDescriptor;
+        this.relationships = relationships.toArray(new Relationship[0]);
+        this.joinedModelDescriptors = new DomainModelDescriptor[this.relationships.length];
+        this.columnPrefixes = new String[this.relationships.length];
+
+        for (int i = 0; i < this.relationships.length; i++) {
+            joinedModelDescriptors[i] = baseModelDescriptor
+                    .getRelatedModeDescriptor(this.relationships[i].getRelatedClass());
+            columnPrefixes[i] = String.format(JOINED_COLUMN_PREFIX, i + 1);
+        }
+    }
+
+    public DomainModelDescriptor<T> getBaseModelDescriptor() {
+        return baseModelDescriptor;
+    }
+
+    public int getJoinCount() {
+        return relationships.length;
+    }
+
+    public Relationship getRelationship(int joinIndex) {
+        return relationships[joinIndex];
+    }
+
+    public DomainModelDescriptor getJoinedModelDescriptor(int joinIndex) {
+        return joinedModelDescriptors[joinIndex];
+    }
+
+    public String getTableAlias(int joinIndex) {
+        return String.format(JOINED_TABLE_ALIAS, joinIndex + 1);
+    }
+
+    public String getColumnAlias(int joinIndex, String columnName) {
+        return columnPrefixes[joinIndex] + columnName;
+    }
+
+    /**
+     * Returns the index of join which the column belongs to, or -1 if the column belongs
+     * to the base table. The label of column may be converted into upper or lower case by
+     * database.
+     */
+    public int getJoinIndex(String columnLabel) {
+        for (int i = 0; i < columnPrefixes.length; i++) {
+            if (columnLabel.regionMatches(true, 0, columnPrefixes[i], 0, columnPrefixes[i].length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String getJoinedColumnName(int joinIndex, String columnLabel) {
+        return columnLabel.substring(columnPrefixes[joinIndex].length());
+    }
+
+    public void setJoinedObject(T bean, int joinIndex, Object joinedObject) {
+        baseModelDescriptor.setFieldValue(bean, relationships[joinIndex].getRelationField().getName(), joinedObject);
+    }
+
+    @Override
+    public String getTableName() {
+        return baseModelDescriptor.getTableName();
+    }
+
+    @Override
+    public Class getDomainModelClass() {
+        return baseModelDescriptor.getDomainModelClass();
+    }
+
+    @Override
+    public T newInstance() {
+        return baseModelDescriptor.newInstance();
+    }
+
+    @Override
+    public String getFieldName(String columnName) {
+        return baseModelDescriptor.getFieldName(columnName);
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import com.github.braisdom.objsql.util.StringUtil;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * The ordering of keyset pagination, it seeks the rows after the last-seen key instead of
+ * skipping them by <code>OFFSET</code>, so that the cost of a page is independent of its
+ * position. The columns should be covered by an index, and the last of them must be unique
+ * in the table, the primary key for example, and none of them can be null.
+ *
+ * <pre>
+ *     Keyset keyset = Keyset.of("created_at DESC", "id DESC");
+ *     Page&lt;Member&gt; page = Member.createQuery().fetchPage(keyset, null, 20);
+ *     Page&lt;Member&gt; nextPage = Member.createQuery().fetchPage(keyset, page.getContinuationToken(), 20);
+ * </pre>
+ *
+ * <p>The last-seen key is carried by an opaque continuation token, which encodes the values
+ * of columns with their types, the values are bound as parameters of the statement
+ * as they are, so the columns with a <code>ColumnTransition</code> are not supported.
+ *
+ * @see Query#fetchPage(Keyset, String, int, com.github.braisdom.objsql.relation.Relationship...)
+ */
+public final class Keyset {
+
+    private static final int TOKEN_VERSION = 1;
+
+    private final String[] columns;
+    private final boolean[] descending;
+
+    private Keyset(String[] columns, boolean[] descending) {
+        this.columns = columns;
+        this.descending = descending;
+    }
+
+    /**
+     * Creates the keyset by the orderings, such as <code>"id"</code> or <code>"created_at DESC"</code>.
+     */
+    public static Keyset of(String... orderings) {
+        Objects.requireNonNull(orderings, "The orderings cannot be null");
+        if (orderings.length == 0) {
+            throw new IllegalArgumentException("The orderings cannot be empty");
+        }
+
+        String[] columns = new String[orderings.length];
+        boolean[] descending = new boolean[orderings.length];
+        for (int i = 0; i < orderings.length; i++) {
+            if (StringUtil.isBlank(orderings[i])) {
+                throw new IllegalArgumentException("The ordering cannot be blank");
+            }
+            String[] parts = orderings[i].trim().split("\\s+");
+            if (parts.length > 2 || (parts.length == 2
+                    && !"ASC".equalsIgnoreCase(parts[1]) && !"DESC".equalsIgnoreCase(parts[1]))) {
+                throw new IllegalArgumentException(String.format("'%s' is invalid ordering", orderings[i]));
+            }
+            columns[i] = parts[0];
+            descending[i] = parts.length == 2 && "DESC".equalsIgnoreCase(parts[1]);
+        }
+        return new Keyset(columns, descending);
+    }
+
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    public boolean isDescending(int index) {
+        return descending[index];
+    }
+
+    /**
+     * Returns the <code>ORDER BY</code> expression of keyset, the columns are quoted for the database.
+     */
+    public String getOrderBy(String databaseName) {
+        Quoter quoter = Databases.getQuoter();
+        StringJoiner orderBy = new StringJoiner(", ");
+        for (int i = 0; i < columns.length; i++) {
+            orderBy.add(quoter.quoteColumnName(databaseName, columns[i]) + (descending[i] ? " DESC" : " ASC"));
+        }
+        return orderBy.toString();
+    }
+
+    /**
+     * Returns the predicate of rows after the last-seen key, it is a comparison of row values
+     * if the database supports it and all columns are in the same direction, such as
+     * <code>(a, b) &gt; (?, ?)</code>. Otherwise it is expanded as
+     * <code>(a &gt; ?) OR (a = ? AND b &gt; ?)</code>, and the parameters of leading columns
+     * are repeated.
+     *
+     * @see #getParameters(String, Object[])
+     */
+    public String getPredicate(String databaseName) {
+        Quoter quoter = Databases.getQuoter();
+        String[] quotedColumns = Arrays.stream(columns)
+                .map(column -> quoter.quoteColumnName(databaseName, column)).toArray(String[]::new);
+
+        if (isRowValueComparable(DatabaseType.resolve(databaseName))) {
+            String placeholders = String.join(", ", Collections.nCopies(columns.length, "?"));
+            return String.format("(%s) %s (%s)", String.join(", ", quotedColumns),
+                    descending[0] ? "<" : ">", placeholders);
+        }
+
+        StringJoiner predicate = new StringJoiner(" OR ");
+        for (int i = 0; i < quotedColumns.length; i++) {
+            StringJoiner conjunction = new StringJoiner(" AND ", "(", ")");
+            for (int j = 0; j < i; j++) {
+                conjunction.add(quotedColumns[j] + " = ?");
+            }
+            conjunction.add(quotedColumns[i] + (descending[i] ? " < ?" : " > ?"));
+            predicate.add(conjunction.toString());
+        }
+        return columns.length == 1 ? predicate.toString() : String.format("(%s)", predicate);
+    }
+
+    /**
+     * Returns the parameters for the predicate of last-seen key in the same order.
+     */
+    public Object[] getParameters(String databaseName, Object[] lastKey) {
+        checkKey(lastKey);
+        if (isRowValueComparable(DatabaseType.resolve(databaseName))) {
+            return lastKey.clone();
+        }
+
+        List<Object> parameters = new ArrayList<>();
+        for (int i = 0; i < lastKey.length; i++) {
+            for (int j = 0; j <= i; j++) {
+                parameters.add(lastKey[j]);
+            }
+        }
+        return parameters.toArray();
+    }
+
+    /**
+     * Returns the key of the domain object, that is, the values of keyset columns.
+     */
+    public Object[] getKey(DomainModelDescriptor descriptor, Object domainObject) {
+        Object[] key = new Object[columns.length];
+        String primaryKeyName = descriptor.getPrimaryKey() == null ? null : descriptor.getPrimaryKey().name();
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equalsIgnoreCase(primaryKeyName)) {
+                key[i] = descriptor.getPrimaryValue(domainObject);
+            } else {
+                String fieldName = descriptor.getFieldName(columns[i]);
+                if (fieldName == null) {
+                    throw new IllegalArgumentException(String.format("The column '%s' of %s is absent",
+                            columns[i], descriptor.getDomainModelClass().getSimpleName()));
+                }
+                key[i] = descriptor.getFieldValue(domainObject, fieldName).getValue();
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Returns the comparator of keys in the ordering of keyset, the null values are ordered first.
+     *
+     * @see #getKey(DomainModelDescriptor, Object)
+     */
+    public Comparator<Object[]> getKeyComparator() {
+        return (key1, key2) -> {
+            for (int i = 0; i < columns.length; i++) {
+                int result;
+                if (key1[i] == null || key2[i] == null) {
+                    result = key1[i] == null ? (key2[i] == null ? 0 : -1) : 1;
+                } else {
+                    result = ((Comparable) key1[i]).compareTo(key2[i]);
+                }
+                if (result != 0) {
+                    return descending[i] ? -result : result;
+                }
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * Encodes the last-seen key as a continuation token, which is safe in the URL.
+     */
+    public String encode(Object[] lastKey) {
+        checkKey(lastKey);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(TOKEN_VERSION);
+            output.writeByte(lastKey.length);
+            for (Object value : lastKey) {
+                writeValue(output, value);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decodes the last-seen key from the continuation token.
+     *
+     * @throws IllegalArgumentException if the token is malformed or not encoded for the keyset
+     */
+    public Object[] decode(String continuationToken) {
+        Objects.requireNonNull(continuationToken, "The continuationToken cannot be null");
+        try (DataInputStream input = new DataInputStream(
+                new ByteArrayInputStream(Base64.getUrlDecoder().decode(continuationToken)))) {
+            if (input.readByte() != TOKEN_VERSION || input.readByte() != columns.length) {
+                throw new IllegalArgumentException("The continuationToken is not encoded for the keyset");
+            }
+            Object[] lastKey = new Object[columns.length];
+            for (int i = 0; i < lastKey.length; i++) {
+                lastKey[i] = readValue(input);
+            }
+            return lastKey;
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("The continuationToken is malformed", ex);
+        }
+    }
+
+    private boolean isRowValueComparable(DatabaseType databaseType) {
+        if (columns.length == 1 || !databaseType.supportsRowValueComparison()) {
+            return false;
+        }
+        for (boolean direction : descending) {
+            if (direction != descending[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkKey(Object[] lastKey) {
+        Objects.requireNonNull(lastKey, "The lastKey cannot be null");
+        if (lastKey.length != columns.length) {
+            throw new IllegalArgumentException(String.format("The lastKey requires %d values", columns.length));
+        }
+        for (int i = 0; i < lastKey.length; i++) {
+            if (lastKey[i] == null) {
+                throw new IllegalArgumentException(String.format("The value of '%s' cannot be null", columns[i]));
+            }
+        }
+    }
+
+    private static void writeValue(DataOutputStream output, Object value) throws IOException {
+        if (value instanceof Integer) {
+            output.writeByte('I');
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte('J');
+            output.writeLong((Long) value);
+        } else if (value instanceof Short) {
+            output.writeByte('S');
+            output.writeShort((Short) value);
+        } else if (value instanceof Double) {
+            output.writeByte('D');
+            output.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            output.writeByte('F');
+            output.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte('Z');
+            output.writeBoolean((Boolean) value);
+        } else if (value instanceof BigDecimal) {
+            output.writeByte('N');
+            writeString(output, value.toString());
+        } else if (value instanceof BigInteger) {
+            output.writeByte('B');
+            writeString(output, value.toString());
+        } else if (value instanceof String) {
+            output.writeByte('s');
+            writeString(output, (String) value);
+        } else if (value instanceof Timestamp) {
+            output.writeByte('T');
+            output.writeLong(((Timestamp) value).getTime());
+            output.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof java.sql.Date) {
+            output.writeByte('d');
+            output.writeLong(((java.sql.Date) value).getTime());
+        } else if (value instanceof Date) {
+            output.writeByte('t');
+            output.writeLong(((Date) value).getTime());
+        } else if (value instanceof LocalDate) {
+            output.writeByte('L');
+            writeString(output, value.toString());
+        } else if (value instanceof LocalDateTime) {
+            output.writeByte('l');
+            writeString(output, value.toString());
+        } else {
+            throw new IllegalArgumentException(String.format("The %s cannot be encoded in continuationToken",
+                    value.getClass().getName()));
+        }
+    }
+
+    private static Object readValue(DataInputStream input) throws IOException {
+        byte type = input.readByte();
+        switch (type) {
+            case 'I':
+                return input.readInt();
+            case 'J':
+                return input.readLong();
+            case 'S':
+                return input.readShort();
+            case 'D':
+                return input.readDouble();
+            case 'F':
+                return input.readFloat();
+            case 'Z':
+                return input.readBoolean();
+            case 'N':
+                return new BigDecimal(readString(input));
+            case 'B':
+                return new BigInteger(readString(input));
+            case 's':
+                return readString(input);
+            case 'T':
+                Timestamp timestamp = new Timestamp(input.readLong());
+                timestamp.setNanos(input.readInt());
+                return timestamp;
+            case 'd':
+                return new java.sql.Date(input.readLong());
+            case 't':
+                return new Date(input.readLong());
+            case 'L':
+                return LocalDate.parse(readString(input));
+            case 'l':
+                return LocalDateTime.parse(readString(input));
+            default:
+                throw new IllegalArgumentException("The continuationToken is malformed");
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > input.available()) {
+            throw new IOException("Illegal length of string");
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative values in the style of HdrHistogram. The values
+ * less than 128 are counted exactly, and the larger values are counted in the buckets of
+ * 64 sub-buckets for each power of two, so the relative error of percentiles is less
+ * than 1.6% within a fixed footprint of about 30KB.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BUCKET_COUNT = SUB_BUCKET_COUNT << 1;
+    private static final int BUCKET_COUNT = LINEAR_BUCKET_COUNT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalValue = new LongAdder();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("The value cannot be negative");
+        }
+
+        counts.incrementAndGet(getBucketIndex(value));
+        totalCount.increment();
+        totalValue.add(value);
+
+        long max = maxValue.get();
+        while (value > max && !maxValue.compareAndSet(max, value)) {
+            max = maxValue.get();
+        }
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getTotal() {
+        return totalValue.sum();
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) getTotal() / count;
+    }
+
+    /**
+     * Returns the value which the given percentage of recorded values are less than or
+     * equal to, the value is the upper bound of its bucket.
+     *
+     * @param percentile the percentile between 0 and 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("The percentile must be between 0 and 100");
+        }
+
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+
+        long targetCount = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long accumulatedCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            accumulatedCount += counts.get(i);
+            if (accumulatedCount >= targetCount) {
+                return Math.min(getHighestValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalValue.reset();
+        maxValue.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.1f, p50=%d, p99=%d, max=%d", getCount(), getMean(),
+                getValueAtPercentile(50), getValueAtPercentile(99), getMax());
+    }
+
+    static int getBucketIndex(long value) {
+        if (value < LINEAR_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_COUNT
+                + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    static long getHighestValue(int bucketIndex) {
+        if (bucketIndex < LINEAR_BUCKET_COUNT) {
+            return bucketIndex;
+        }
+        int offset = bucketIndex - LINEAR_BUCKET_COUNT;
+        int shift = offset / SUB_BUCKET_COUNT + 1;
+        long subBucket = offset % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The in-process implementation of <code>QueryResultCache</code>, the least recently used
+ * results are evicted when the cache is full, and the results are expired after the ttl.
+ * The keys of results are indexed by the tables they read, so a result is invalidated
+ * without scanning the whole cache.
+ */
+public class LocalQueryResultCache implements QueryResultCache {
+
+    private final long ttlMillis;
+    private final Map<Key, CachedResult> cachedResults;
+    private final Map<String, Set<Key>> tableKeys = new HashMap<>();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private static class CachedResult {
+
+        private final List result;
+        private final Set<String> tableNames;
+        private final long expiredAt;
+
+        public CachedResult(List result, Set<String> tableNames, long expiredAt) {
+            this.result = result;
+            this.tableNames = tableNames;
+            this.expiredAt = expiredAt;
+        }
+    }
+
+    /**
+     * @param maxSize   the maximum of results cached
+     * @param ttlMillis the time to live of results, or non positive if the results never expire
+     */
+    public LocalQueryResultCache(int maxSize, long ttlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The maxSize must be positive");
+        }
+        this.ttlMillis = ttlMillis;
+        this.cachedResults = new LinkedHashMap<Key, CachedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+                if (size() > maxSize) {
+                    unindex(eldest.getKey(), eldest.getValue());
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public List get(Key key) {
+        synchronized (cachedResults) {
+            CachedResult cachedResult = cachedResults.get(key);
+            if (cachedResult == null) {
+                return null;
+            }
+            if (ttlMillis > 0 && cachedResult.expiredAt < System.currentTimeMillis()) {
+                remove(key);
+                evictionCount.incrementAndGet();
+                return null;
+            }
+            return cachedResult.result;
+        }
+    }
+
+    @Override
+    public void put(Key key, List result, Set<String> tableNames) {
+        long expiredAt = ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : Long.MAX_VALUE;
+        CachedResult cachedResult = new CachedResult(result, new HashSet<>(tableNames), expiredAt);
+        synchronized (cachedResults) {
+            remove(key);
+            for (String tableName : cachedResult.tableNames) {
+                tableKeys.computeIfAbsent(tableName, name -> new HashSet<>()).add(key);
+            }
+            cachedResults.put(key, cachedResult);
+        }
+    }
+
+    @Override
+    public int invalidate(String tableName) {
+        synchronized (cachedResults) {
+            Set<Key> keys = tableKeys.get(tableName);
+            if (keys == null) {
+                return 0;
+            }
+            int count = 0;
+            for (Key key : new ArrayList<>(keys)) {
+                if (remove(key)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (cachedResults) {
+            cachedResults.clear();
+            tableKeys.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cachedResults) {
+            return cachedResults.size();
+        }
+    }
+
+    /**
+     * Returns the number of results evicted for the capacity or expiration.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private boolean remove(Key key) {
+        CachedResult cachedResult = cachedResults.remove(key);
+        if (cachedResult == null) {
+            return false;
+        }
+        unindex(key, cachedResult);
+        return true;
+    }
+
+    private void unindex(Key key, CachedResult cachedResult) {
+        for (String tableName : cachedResult.tableNames) {
+            Set<Key> keys = tableKeys.get(tableName);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    tableKeys.remove(tableName);
+                }
+            }
+        }
+    }
+}
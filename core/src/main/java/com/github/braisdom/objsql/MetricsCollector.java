@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+/**
+ * It defines an extension point for various metrics frameworks, such as Micrometer,
+ * Dropwizard Metrics, etc. The timings are measured in nanoseconds and tagged by the
+ * domain model class and operation.
+ *
+ * <p>The collector is invoked in the thread accessing database, so it should be
+ * thread-safe and return quickly.
+ *
+ * @see Databases#installMetricsCollector(MetricsCollector)
+ * @see HistogramMetricsCollector
+ */
+public interface MetricsCollector {
+
+    String OPERATION_QUERY = "query";
+    String OPERATION_STREAM = "stream";
+    String OPERATION_INSERT = "insert";
+    String OPERATION_INSERT_BATCH = "insertBatch";
+    String OPERATION_INSERT_ROWS = "insertRows";
+    String OPERATION_COPY_IN = "copyIn";
+    String OPERATION_EXECUTE = "execute";
+    String OPERATION_EXECUTE_BATCH = "executeBatch";
+    String OPERATION_RELATION = "relation";
+
+    enum Phase {
+        /**
+         * Acquiring a connection from the <code>ConnectionFactory</code>, the operation
+         * is the name of data source.
+         */
+        CONNECTION_ACQUISITION,
+        /**
+         * Executing a statement, excluding the hydration of results.
+         */
+        STATEMENT_EXECUTION,
+        /**
+         * Mapping the rows of result set to domain objects.
+         */
+        RESULT_HYDRATION,
+        /**
+         * Loading the related objects of domain objects queried.
+         */
+        RELATION_LOADING
+    }
+
+    MetricsCollector NOOP = new MetricsCollector() {
+        @Override
+        public void recordTiming(Phase phase, Class domainModelClass, String operation, long elapsedNanos) {
+        }
+
+        @Override
+        public void recordRows(Class domainModelClass, String operation, long rowCount) {
+        }
+    };
+
+    /**
+     * @param domainModelClass the domain model class, or null if it is unknown
+     */
+    void recordTiming(Phase phase, Class domainModelClass, String operation, long elapsedNanos);
+
+    /**
+     * Records the number of rows returned by a query or affected by a statement.
+     *
+     * @param domainModelClass the domain model class, or null if it is unknown
+     */
+    void recordRows(Class domainModelClass, String operation, long rowCount);
+}
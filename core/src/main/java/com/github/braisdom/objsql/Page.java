@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of rows fetched by keyset pagination, the next page is fetched with its
+ * continuation token.
+ *
+ * @param <T> the domain model class
+ * @see Query#fetchPage(Keyset, String, int, com.github.braisdom.objsql.relation.Relationship...)
+ */
+public class Page<T> {
+
+    private final List<T> rows;
+    private final String continuationToken;
+
+    public Page(List<T> rows, String continuationToken) {
+        this.rows = Collections.unmodifiableList(rows);
+        this.continuationToken = continuationToken;
+    }
+
+    public List<T> getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the token of the next page, or null if it is the last page.
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    public boolean hasNext() {
+        return continuationToken != null;
+    }
+}
@@ -17,6 +17,7 @@
 package com.github.braisdom.objsql;
 
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 public interface Persistence<T> {
 
@@ -26,13 +27,62 @@ public interface Persistence<T> {
 
     int[] insert(T[] dirtyObjects, boolean skipValidation) throws SQLException;
 
+    /**
+     * Updates the fields changed by the setters since the domain object was queried or saved,
+     * the update is skipped if none changed. The fields written without the setters are not
+     * tracked, the domain object must be marked by its <code>markDirty</code> after such writes.
+     */
     T update(Object id, T dirtyObject, boolean skipValidation) throws SQLException;
 
+    /**
+     * Updates the domain objects by their primary values in JDBC batches.
+     *
+     * @return the counts of rows updated, in the order of domain objects
+     */
+    int[] update(T[] dirtyObjects, boolean skipValidation) throws SQLException;
+
     int update(String updates, String predication) throws SQLException;
 
     int delete(Object id) throws SQLException;
 
+    /**
+     * Deletes the rows by the primary keys, the keys are chunked into IN clauses.
+     *
+     * @return the count of rows deleted
+     */
+    int delete(Object[] ids) throws SQLException;
+
     int delete(String predication) throws SQLException;
 
     int execute(String sql) throws SQLException;
+
+    /**
+     * Saves the domain object in the async executor, the domain object should not be
+     * changed until the future completed.
+     *
+     * @see Databases#supplyAsync(Databases.AsyncInvoke)
+     */
+    default CompletableFuture<T> saveAsync(T dirtyObject, boolean skipValidation) {
+        return Databases.supplyAsync(() -> save(dirtyObject, skipValidation));
+    }
+
+    default CompletableFuture<T> insertAsync(T dirtyObject, boolean skipValidation) {
+        return Databases.supplyAsync(() -> insert(dirtyObject, skipValidation));
+    }
+
+    default CompletableFuture<int[]> insertAsync(T[] dirtyObjects, boolean skipValidation) {
+        return Databases.supplyAsync(() -> insert(dirtyObjects, skipValidation));
+    }
+
+    default CompletableFuture<T> updateAsync(Object id, T dirtyObject, boolean skipValidation) {
+        return Databases.supplyAsync(() -> update(id, dirtyObject, skipValidation));
+    }
+
+    default CompletableFuture<Integer> deleteAsync(Object id) {
+        return Databases.supplyAsync(() -> delete(id));
+    }
+
+    default CompletableFuture<Integer> executeAsync(String sql) {
+        return Databases.supplyAsync(() -> execute(sql));
+    }
 }
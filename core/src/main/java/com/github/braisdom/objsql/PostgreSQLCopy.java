@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * Loads the rows into PostgreSQL by <code>COPY ... FROM STDIN</code> in text format. The
+ * <code>CopyManager</code> of PostgreSQL JDBC driver is invoked by reflection, so that
+ * ObjectiveSql has no dependency on the driver.
+ */
+final class PostgreSQLCopy {
+
+    private static final String PG_CONNECTION_CLASS_NAME = "org.postgresql.PGConnection";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private PostgreSQLCopy() {
+    }
+
+    /**
+     * Returns the count of rows copied, or -1 if the connection is not a PostgreSQL connection.
+     */
+    public static long copyIn(Connection connection, String sql, Object[][] rows) throws SQLException {
+        Class<?> pgConnectionClass = loadPGConnectionClass(connection);
+        if (pgConnectionClass == null || !connection.isWrapperFor(pgConnectionClass)) {
+            return -1;
+        }
+
+        try {
+            Object pgConnection = connection.unwrap(pgConnectionClass);
+            Object copyManager = pgConnectionClass.getMethod("getCopyAPI").invoke(pgConnection);
+            Method copyIn = copyManager.getClass().getMethod("copyIn", String.class, Reader.class);
+            return (Long) copyIn.invoke(copyManager, sql, new RowsReader(rows));
+        } catch (InvocationTargetException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException(cause.getMessage(), cause);
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            return -1;
+        }
+    }
+
+    private static Class<?> loadPGConnectionClass(Connection connection) {
+        ClassLoader[] classLoaders = new ClassLoader[]{connection.getClass().getClassLoader(),
+                Thread.currentThread().getContextClassLoader()};
+        for (ClassLoader classLoader : classLoaders) {
+            try {
+                return Class.forName(PG_CONNECTION_CLASS_NAME, false, classLoader);
+            } catch (ClassNotFoundException ex) {
+                // Try the next class loader
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Encodes the rows lazily, only one row is buffered at a time.
+     */
+    private static class RowsReader extends Reader {
+
+        private final Object[][] rows;
+        private final StringBuilder buffer;
+        private int rowIndex;
+        private int position;
+
+        public RowsReader(Object[][] rows) {
+            this.rows = rows;
+            this.buffer = new StringBuilder();
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            while (position >= buffer.length()) {
+                if (rowIndex >= rows.length) {
+                    return -1;
+                }
+                buffer.setLength(0);
+                position = 0;
+                encodeRow(buffer, rows[rowIndex++]);
+            }
+
+            int count = Math.min(len, buffer.length() - position);
+            buffer.getChars(position, position + count, cbuf, off);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static void encodeRow(StringBuilder buffer, Object[] row) {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                buffer.append('\t');
+            }
+            encodeValue(buffer, row[i]);
+        }
+        buffer.append('\n');
+    }
+
+    private static void encodeValue(StringBuilder buffer, Object value) {
+        if (value instanceof FieldValue) {
+            value = ((FieldValue) value).getValue();
+        }
+
+        if (value == null) {
+            buffer.append("\\N");
+        } else if (value instanceof Boolean) {
+            buffer.append((Boolean) value ? 't' : 'f');
+        } else if (value instanceof byte[]) {
+            buffer.append("\\\\x");
+            for (byte b : (byte[]) value) {
+                buffer.append(HEX_DIGITS[(b >> 4) & 0x0F]).append(HEX_DIGITS[b & 0x0F]);
+            }
+        } else if (value.getClass().equals(Date.class)) {
+            buffer.append(new Timestamp(((Date) value).getTime()));
+        } else {
+            String string = value.toString();
+            for (int i = 0; i < string.length(); i++) {
+                char c = string.charAt(i);
+                switch (c) {
+                    case '\\':
+                        buffer.append("\\\\");
+                        break;
+                    case '\t':
+                        buffer.append("\\t");
+                        break;
+                    case '\n':
+                        buffer.append("\\n");
+                        break;
+                    case '\r':
+                        buffer.append("\\r");
+                        break;
+                    default:
+                        buffer.append(c);
+                }
+            }
+        }
+    }
+}
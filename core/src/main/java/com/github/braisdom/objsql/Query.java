@@ -20,6 +20,8 @@ import com.github.braisdom.objsql.relation.Relationship;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * A programmable structure for SQL statement.
@@ -41,7 +43,58 @@ public interface Query<T> {
 
     Query orderBy(String orderBy);
 
+    /**
+     * Gives the hint of rows fetched from database each round trip, it works
+     * for {@link #stream()} only.
+     */
+    Query fetchSize(int fetchSize);
+
     List<T> execute(Relationship... relationships) throws SQLException;
 
     T queryFirst(Relationship... relationships) throws SQLException;
+
+    /**
+     * Returns the row of primary key, the filter given before will be replaced. The
+     * domain object will be got from the entity cache if the domain model is cacheable.
+     *
+     * @see com.github.braisdom.objsql.annotations.DomainModel#cacheable()
+     */
+    T queryByPrimaryKey(Object primaryKey, Relationship... relationships) throws SQLException;
+
+    /**
+     * Returns the rows as a lazy stream which hydrates one row at a time, the relationships
+     * cannot be applied for streaming. The stream holds the connection and must be closed
+     * after consuming.
+     */
+    Stream<T> stream() throws SQLException;
+
+    /**
+     * Returns a page of rows after the last-seen key of continuation token, the rows are ordered
+     * by the keyset and filtered by the filter given before, the ordering, offset and limit given
+     * before will be ignored.
+     *
+     * @param continuationToken the token of previous page, or null for the first page
+     * @param pageSize the maximum count of rows in the page
+     * @see Keyset
+     */
+    Page<T> fetchPage(Keyset keyset, String continuationToken, int pageSize,
+                      Relationship... relationships) throws SQLException;
+
+    /**
+     * Executes the query in the async executor, the query should not be changed until
+     * the future completed.
+     *
+     * @see Databases#supplyAsync(Databases.AsyncInvoke)
+     */
+    default CompletableFuture<List<T>> executeAsync(Relationship... relationships) {
+        return Databases.supplyAsync(() -> execute(relationships));
+    }
+
+    default CompletableFuture<T> queryFirstAsync(Relationship... relationships) {
+        return Databases.supplyAsync(() -> queryFirst(relationships));
+    }
+
+    default CompletableFuture<T> queryByPrimaryKeyAsync(Object primaryKey, Relationship... relationships) {
+        return Databases.supplyAsync(() -> queryByPrimaryKey(primaryKey, relationships));
+    }
 }
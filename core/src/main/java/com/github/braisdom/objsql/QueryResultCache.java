@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The storage of query results cached by {@link CachingSQLExecutor}, each result is
+ * stored with the names of tables it reads, so that it can be invalidated when any of
+ * the tables is changed.
+ *
+ * <p>The results are owned by the cache, the <code>CachingSQLExecutor</code> copies the
+ * domain objects before putting them into or after getting them from the cache.
+ *
+ * @see LocalQueryResultCache
+ */
+public interface QueryResultCache {
+
+    /**
+     * Returns the cached result of the key, or null if it is absent or expired.
+     */
+    List get(Key key);
+
+    /**
+     * Caches the result of the key.
+     *
+     * @param tableNames the lower case names of tables read by the query
+     */
+    void put(Key key, List result, Set<String> tableNames);
+
+    /**
+     * Removes the results which read the table.
+     *
+     * @param tableName the lower case name of table
+     * @return the number of results removed
+     */
+    int invalidate(String tableName);
+
+    void clear();
+
+    /**
+     * The identity of a query, which consists of the data source, sql, parameters and the
+     * domain model class of results, the same query of different shards is cached separately.
+     */
+    final class Key {
+
+        private final String dataSourceName;
+        private final String sql;
+        private final Object[] params;
+        private final Class domainModelClass;
+        private final int hashCode;
+
+        /**
+         * @param dataSourceName the name of data source queried, or null if it is unknown
+         */
+        public Key(String dataSourceName, String sql, Object[] params, Class domainModelClass) {
+            Objects.requireNonNull(sql, "The sql cannot be null");
+            Objects.requireNonNull(domainModelClass, "The domainModelClass cannot be null");
+            this.dataSourceName = dataSourceName;
+            this.sql = sql;
+            this.params = params == null ? new Object[0] : params.clone();
+            this.domainModelClass = domainModelClass;
+            this.hashCode = 31 * (31 * (31 * Objects.hashCode(dataSourceName) + sql.hashCode())
+                    + Arrays.deepHashCode(this.params)) + domainModelClass.hashCode();
+        }
+
+        public String getDataSourceName() {
+            return dataSourceName;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public Object[] getParams() {
+            return params.clone();
+        }
+
+        public Class getDomainModelClass() {
+            return domainModelClass;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hashCode == key.hashCode && sql.equals(key.sql)
+                    && Objects.equals(dataSourceName, key.dataSourceName)
+                    && domainModelClass.equals(key.domainModelClass)
+                    && Arrays.deepEquals(params, key.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s (%s@%s)", sql, Arrays.deepToString(params), domainModelClass.getName(),
+                    dataSourceName);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import com.github.braisdom.objsql.jdbc.ProxyFactory;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A <code>ConnectionFactory</code> which routes the reading connections to the read replicas
+ * of data source, and the others to the primary, for example:
+ * <pre>
+ *     ReplicaRoutingConnectionFactory connectionFactory = new ReplicaRoutingConnectionFactory(primaryFactory);
+ *     connectionFactory.addReplica(ConnectionFactory.DEFAULT_DATA_SOURCE_NAME, "replica-1", replicaDataSource, 2);
+ *     Databases.installConnectionFactory(connectionFactory);
+ * </pre>
+ *
+ * <p>The replica is chosen by the least count of connections in use relative to its weight,
+ * the replica which fails to give a connection is skipped for a while, and the primary is
+ * used if no replica is available.
+ *
+ * <p>To read its own writes, a thread is pinned to the primary for a window after it takes
+ * a connection from the primary, the connection of <code>Databases#executeTransactionally</code>
+ * is used for all statements in the transaction either. The pin belongs to the current thread,
+ * so the relations loaded in parallel by the relation executor are not pinned.
+ *
+ * @see Databases#executeReadOnly(String, Databases.DatabaseInvoke)
+ */
+public class ReplicaRoutingConnectionFactory implements ConnectionFactory {
+
+    public static final long DEFAULT_PINNING_MILLIS = 1000;
+    public static final long DEFAULT_RETRY_MILLIS = 5000;
+
+    private final ConnectionFactory primaryConnectionFactory;
+    private final long pinningNanos;
+    private final long retryNanos;
+    private final Map<String, List<Replica>> replicas = new ConcurrentHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final ThreadLocal<Map<String, Long>> primaryAccesses = ThreadLocal.withInitial(HashMap::new);
+
+    public ReplicaRoutingConnectionFactory(ConnectionFactory primaryConnectionFactory) {
+        this(primaryConnectionFactory, DEFAULT_PINNING_MILLIS, DEFAULT_RETRY_MILLIS);
+    }
+
+    /**
+     * @param pinningMillis the window of reading from the primary after a thread takes
+     *                      a connection from the primary, 0 for never
+     * @param retryMillis the interval of retrying the replica which failed to give a connection
+     */
+    public ReplicaRoutingConnectionFactory(ConnectionFactory primaryConnectionFactory,
+                                           long pinningMillis, long retryMillis) {
+        Objects.requireNonNull(primaryConnectionFactory, "The primaryConnectionFactory cannot be null");
+        this.primaryConnectionFactory = primaryConnectionFactory;
+        this.pinningNanos = TimeUnit.MILLISECONDS.toNanos(pinningMillis);
+        this.retryNanos = TimeUnit.MILLISECONDS.toNanos(retryMillis);
+    }
+
+    /**
+     * Adds a read replica for the data source.
+     *
+     * @param weight the relative capacity of the replica, it must be greater than 0
+     */
+    public ReplicaRoutingConnectionFactory addReplica(String dataSourceName, String replicaName,
+                                                      DataSource dataSource, int weight) {
+        Objects.requireNonNull(dataSourceName, "The dataSourceName cannot be null");
+        Objects.requireNonNull(dataSource, "The dataSource cannot be null");
+        if (weight <= 0) {
+            throw new IllegalArgumentException("The weight must be greater than 0");
+        }
+        replicas.computeIfAbsent(dataSourceName, name -> new CopyOnWriteArrayList<>())
+                .add(new Replica(replicaName, dataSource, weight));
+        return this;
+    }
+
+    /**
+     * Returns the replicas of the data source with their statistics.
+     */
+    public List<Replica> getReplicas(String dataSourceName) {
+        List<Replica> dataSourceReplicas = replicas.get(dataSourceName);
+        return dataSourceReplicas == null ? Collections.emptyList()
+                : Collections.unmodifiableList(dataSourceReplicas);
+    }
+
+    /**
+     * Returns true if the reading of current thread is routed to the primary, because the
+     * thread took a connection from the primary recently.
+     */
+    public boolean isPinnedToPrimary(String dataSourceName) {
+        Long accessTime = primaryAccesses.get().get(dataSourceName);
+        return accessTime != null && System.nanoTime() - accessTime < pinningNanos;
+    }
+
+    public ConnectionFactory getPrimaryConnectionFactory() {
+        return primaryConnectionFactory;
+    }
+
+    @Override
+    public Connection getConnection(String dataSourceName) throws SQLException {
+        if (pinningNanos > 0) {
+            primaryAccesses.get().put(dataSourceName, System.nanoTime());
+        }
+        return primaryConnectionFactory.getConnection(dataSourceName);
+    }
+
+    @Override
+    public Connection getReadOnlyConnection(String dataSourceName) throws SQLException {
+        List<Replica> dataSourceReplicas = replicas.get(dataSourceName);
+        if (dataSourceReplicas == null || dataSourceReplicas.isEmpty() || isPinnedToPrimary(dataSourceName)) {
+            return primaryConnectionFactory.getConnection(dataSourceName);
+        }
+
+        Set<Replica> failedReplicas = null;
+        Replica replica;
+        while ((replica = chooseReplica(dataSourceReplicas, failedReplicas)) != null) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException ex) {
+                replica.unavailableUntil = System.nanoTime() + retryNanos;
+                if (failedReplicas == null) {
+                    failedReplicas = new HashSet<>();
+                }
+                failedReplicas.add(replica);
+            }
+        }
+        return primaryConnectionFactory.getConnection(dataSourceName);
+    }
+
+    @Override
+    public boolean isDefaultDataSource(String dataSourceName) {
+        return primaryConnectionFactory.isDefaultDataSource(dataSourceName);
+    }
+
+    private Replica chooseReplica(List<Replica> dataSourceReplicas, Set<Replica> failedReplicas) {
+        int size = dataSourceReplicas.size();
+        int start = (sequence.getAndIncrement() & Integer.MAX_VALUE) % size;
+        long now = System.nanoTime();
+        Replica chosenReplica = null;
+        double chosenLoad = Double.MAX_VALUE;
+
+        // The replicas in the same load are chosen in turn
+        for (int i = 0; i < size; i++) {
+            Replica replica = dataSourceReplicas.get((start + i) % size);
+            if ((failedReplicas != null && failedReplicas.contains(replica))
+                    || now - replica.unavailableUntil < 0) {
+                continue;
+            }
+            double load = (replica.activeCount.get() + 1) / (double) replica.weight;
+            if (load < chosenLoad) {
+                chosenReplica = replica;
+                chosenLoad = load;
+            }
+        }
+        return chosenReplica;
+    }
+
+    /**
+     * A read replica of data source, it describes the connections in use, the latency of
+     * acquiring connection and the time of connection used.
+     */
+    public static class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private final int weight;
+        private final AtomicInteger activeCount = new AtomicInteger();
+        private final LongAdder failureCount = new LongAdder();
+        private final LatencyHistogram acquisitionLatency = new LatencyHistogram();
+        private final LatencyHistogram usageLatency = new LatencyHistogram();
+        private volatile long unavailableUntil = System.nanoTime();
+
+        private Replica(String name, DataSource dataSource, int weight) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.weight = weight;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public int getActiveCount() {
+            return activeCount.get();
+        }
+
+        public long getFailureCount() {
+            return failureCount.sum();
+        }
+
+        public boolean isAvailable() {
+            return System.nanoTime() - unavailableUntil >= 0;
+        }
+
+        /**
+         * Returns the latency of acquiring connection from the replica in nanoseconds.
+         */
+        public LatencyHistogram getAcquisitionLatency() {
+            return acquisitionLatency;
+        }
+
+        /**
+         * Returns the time from the connection acquired to closed in nanoseconds.
+         */
+        public LatencyHistogram getUsageLatency() {
+            return usageLatency;
+        }
+
+        private Connection getConnection() throws SQLException {
+            long begin = System.nanoTime();
+            Connection connection;
+            try {
+                connection = dataSource.getConnection();
+            } catch (SQLException | RuntimeException ex) {
+                failureCount.increment();
+                throw ex;
+            }
+            long acquired = System.nanoTime();
+            acquisitionLatency.record(acquired - begin);
+            activeCount.incrementAndGet();
+
+            AtomicBoolean closed = new AtomicBoolean();
+            return ProxyFactory.instance().createConnection((proxy, method, args) -> {
+                if ("close".equals(method.getName()) && closed.compareAndSet(false, true)) {
+                    activeCount.decrementAndGet();
+                    usageLatency.record(System.nanoTime() - acquired);
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                }
+            });
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s[weight=%d, active=%d, failures=%d, acquisition={%s}, usage={%s}]",
+                    name, weight, getActiveCount(), getFailureCount(), acquisitionLatency, usageLatency);
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import com.github.braisdom.objsql.reflection.PropertyUtils;
+import com.github.braisdom.objsql.reflection.ReflectionException;
+import com.github.braisdom.objsql.transition.ColumnTransition;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Describes how the columns of a <code>ResultSet</code> are mapped into a domain model.
+ * The plan is resolved once per domain model class and shape of <code>ResultSetMetaData</code>,
+ * so that the hydration of each row only reads the column values by index and writes them
+ * into the bean.
+ *
+ * <p>For the rows joined with the tables of to-one relations, the columns of each joined
+ * table are mapped by a nested plan of the related domain model.
+ *
+ * @see JoinedRowAdapter
+ */
+final class RowMappingPlan {
+
+    private static final int MAX_CACHED_PLANS = 1024;
+
+    private static final Map<PlanKey, RowMappingPlan> PLANS = new ConcurrentHashMap<>();
+
+    private final Class domainModelClass;
+    private final ColumnMapping[] columnMappings;
+    private final Method rawAttributeWriter;
+    private final RowMappingPlan[] joinedPlans;
+
+    private static class PlanKey {
+
+        private final Object[] adapterShape;
+        private final String[] columnLabels;
+        private final int hashCode;
+
+        public PlanKey(Object[] adapterShape, String[] columnLabels) {
+            this.adapterShape = adapterShape;
+            this.columnLabels = columnLabels;
+            this.hashCode = Arrays.hashCode(adapterShape) * 31 + Arrays.hashCode(columnLabels);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PlanKey)) {
+                return false;
+            }
+            PlanKey planKey = (PlanKey) o;
+            return Arrays.equals(adapterShape, planKey.adapterShape)
+                    && Arrays.equals(columnLabels, planKey.columnLabels);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class ColumnMapping {
+
+        private final int columnIndex;
+        private final String columnName;
+        private final String fieldName;
+        private final Class fieldType;
+        private final boolean transitable;
+        private final ColumnTransition columnTransition;
+        private final PropertyDescriptor writer;
+        private final int fieldIndex;
+
+        public ColumnMapping(int columnIndex, String columnName, String fieldName, Class fieldType,
+                             boolean transitable, ColumnTransition columnTransition,
+                             PropertyDescriptor writer, int fieldIndex) {
+            this.columnIndex = columnIndex;
+            this.columnName = columnName;
+            this.fieldName = fieldName;
+            this.fieldType = fieldType;
+            this.transitable = transitable;
+            this.columnTransition = columnTransition;
+            this.writer = writer;
+            this.fieldIndex = fieldIndex;
+        }
+    }
+
+    private RowMappingPlan(TableRowAdapter tableRowAdapter, String[] columnNames, int[] columnIndexes,
+                           RowMappingPlan[] joinedPlans) {
+        this.domainModelClass = tableRowAdapter.getDomainModelClass();
+        this.columnMappings = new ColumnMapping[columnNames.length];
+        this.rawAttributeWriter = resolveRawAttributeWriter(domainModelClass);
+        this.joinedPlans = joinedPlans;
+
+        boolean beanWritable = isBeanWritable(tableRowAdapter);
+        for (int i = 0; i < columnNames.length; i++) {
+            String columnName = columnNames[i];
+            String fieldName = tableRowAdapter.getFieldName(columnName);
+
+            if (fieldName == null) {
+                columnMappings[i] = new ColumnMapping(columnIndexes[i], columnName, null, null,
+                        false, null, null, -1);
+            } else {
+                boolean transitable = tableRowAdapter.isTransitable(fieldName);
+                ColumnTransition columnTransition = transitable
+                        ? tableRowAdapter.getColumnTransition(fieldName) : null;
+                Class fieldType = transitable ? tableRowAdapter.getFieldType(fieldName) : null;
+                int fieldIndex = beanWritable
+                        ? ((BeanModelDescriptor) tableRowAdapter).getFieldIndex(fieldName) : -1;
+                PropertyDescriptor writer = beanWritable && fieldIndex < 0
+                        ? PropertyUtils.getPropertyDescriptorByName(domainModelClass, fieldName) : null;
+
+                if (writer != null && !PropertyUtils.isWritable(writer)) {
+                    writer = null;
+                }
+                columnMappings[i] = new ColumnMapping(columnIndexes[i], columnName, fieldName, fieldType,
+                        transitable, columnTransition, writer, fieldIndex);
+            }
+        }
+    }
+
+    private static RowMappingPlan create(TableRowAdapter tableRowAdapter, String[] columnLabels) {
+        if (!(tableRowAdapter instanceof JoinedRowAdapter)) {
+            int[] columnIndexes = new int[columnLabels.length];
+            for (int i = 0; i < columnLabels.length; i++) {
+                columnIndexes[i] = i + 1;
+            }
+            return new RowMappingPlan(tableRowAdapter, columnLabels, columnIndexes, new RowMappingPlan[0]);
+        }
+
+        JoinedRowAdapter joinedRowAdapter = (JoinedRowAdapter) tableRowAdapter;
+        int joinCount = joinedRowAdapter.getJoinCount();
+        List<String>[] columnNames = new List[joinCount + 1];
+        List<Integer>[] columnIndexes = new List[joinCount + 1];
+        for (int i = 0; i <= joinCount; i++) {
+            columnNames[i] = new ArrayList<>();
+            columnIndexes[i] = new ArrayList<>();
+        }
+
+        // The columns of base table are placed at first, and follows the columns of each join
+        for (int i = 0; i < columnLabels.length; i++) {
+            int joinIndex = joinedRowAdapter.getJoinIndex(columnLabels[i]);
+            columnNames[joinIndex + 1].add(joinIndex < 0 ? columnLabels[i]
+                    : joinedRowAdapter.getJoinedColumnName(joinIndex, columnLabels[i]));
+            columnIndexes[joinIndex + 1].add(i + 1);
+        }
+
+        RowMappingPlan[] joinedPlans = new RowMappingPlan[joinCount];
+        for (int i = 0; i < joinCount; i++) {
+            joinedPlans[i] = new RowMappingPlan(joinedRowAdapter.getJoinedModelDescriptor(i),
+                    columnNames[i + 1].toArray(new String[0]), toIntArray(columnIndexes[i + 1]),
+                    new RowMappingPlan[0]);
+        }
+        return new RowMappingPlan(joinedRowAdapter.getBaseModelDescriptor(),
+                columnNames[0].toArray(new String[0]), toIntArray(columnIndexes[0]), joinedPlans);
+    }
+
+    private static Object[] getAdapterShape(TableRowAdapter tableRowAdapter) {
+        if (!(tableRowAdapter instanceof JoinedRowAdapter)) {
+            return new Object[]{tableRowAdapter.getClass(), tableRowAdapter.getDomainModelClass()};
+        }
+
+        JoinedRowAdapter joinedRowAdapter = (JoinedRowAdapter) tableRowAdapter;
+        TableRowAdapter baseModelDescriptor = joinedRowAdapter.getBaseModelDescriptor();
+        Object[] adapterShape = new Object[(joinedRowAdapter.getJoinCount() + 1) * 2 + 1];
+        adapterShape[0] = JoinedRowAdapter.class;
+        adapterShape[1] = baseModelDescriptor.getClass();
+        adapterShape[2] = baseModelDescriptor.getDomainModelClass();
+        for (int i = 0; i < joinedRowAdapter.getJoinCount(); i++) {
+            TableRowAdapter joinedModelDescriptor = joinedRowAdapter.getJoinedModelDescriptor(i);
+            adapterShape[i * 2 + 3] = joinedModelDescriptor.getClass();
+            adapterShape[i * 2 + 4] = joinedModelDescriptor.getDomainModelClass();
+        }
+        return adapterShape;
+    }
+
+    private static int[] toIntArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Returns the plan for the given adapter and result set shape, the plan will be
+     * resolved at the first time and reused for the subsequent result sets.
+     */
+    public static RowMappingPlan get(TableRowAdapter tableRowAdapter,
+                                     ResultSetMetaData resultSetMetaData) throws SQLException {
+        int columnCount = resultSetMetaData.getColumnCount();
+        String[] columnLabels = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnLabels[i] = resultSetMetaData.getColumnLabel(i + 1);
+        }
+
+        PlanKey planKey = new PlanKey(getAdapterShape(tableRowAdapter), columnLabels);
+        RowMappingPlan plan = PLANS.get(planKey);
+        if (plan == null) {
+            plan = create(tableRowAdapter, columnLabels);
+            if (PLANS.size() >= MAX_CACHED_PLANS) {
+                PLANS.clear();
+            }
+            PLANS.put(planKey, plan);
+        }
+        return plan;
+    }
+
+    public Object createBean(TableRowAdapter tableRowAdapter, DatabaseContext databaseContext,
+                             ResultSetMetaData resultSetMetaData, ResultSet rs) throws SQLException {
+        if (joinedPlans.length == 0) {
+            return createBean(tableRowAdapter, databaseContext, resultSetMetaData, rs, null);
+        }
+
+        JoinedRowAdapter joinedRowAdapter = (JoinedRowAdapter) tableRowAdapter;
+        return createBean(joinedRowAdapter.getBaseModelDescriptor(), databaseContext,
+                resultSetMetaData, rs, joinedRowAdapter);
+    }
+
+    private Object createBean(TableRowAdapter tableRowAdapter, DatabaseContext databaseContext,
+                              ResultSetMetaData resultSetMetaData, ResultSet rs,
+                              JoinedRowAdapter joinedRowAdapter) throws SQLException {
+        Object bean = tableRowAdapter.newInstance();
+
+        for (ColumnMapping columnMapping : columnMappings) {
+            Object rawColumnValue = rs.getObject(columnMapping.columnIndex);
+
+            if (columnMapping.fieldName == null) {
+                writeRawAttribute(bean, columnMapping.columnName, rawColumnValue);
+            } else if (columnMapping.transitable) {
+                Object value = columnMapping.columnTransition == null ? rawColumnValue
+                        : columnMapping.columnTransition.rising(databaseContext, resultSetMetaData,
+                        bean, tableRowAdapter, columnMapping.fieldName, rawColumnValue);
+
+                if (columnMapping.fieldType != null && value != null &&
+                        !columnMapping.fieldType.isAssignableFrom(value.getClass())) {
+                    throw new ClassCastException(String.format("Inconsistent data types field:%s(%s) " +
+                                    "vs column:%s(%s) in %s", columnMapping.fieldName,
+                            columnMapping.fieldType.getName(), columnMapping.columnName,
+                            value.getClass().getName(), bean.getClass().getName()));
+                }
+
+                writeField(tableRowAdapter, bean, columnMapping, value);
+            } else {
+                writeField(tableRowAdapter, bean, columnMapping, rawColumnValue);
+            }
+        }
+
+        for (int i = 0; i < joinedPlans.length; i++) {
+            // All columns of the joined table are null if no row is matched by LEFT JOIN
+            Object joinedBean = joinedPlans[i].isNullRow(rs) ? null : joinedPlans[i].createBean(
+                    joinedRowAdapter.getJoinedModelDescriptor(i), databaseContext, resultSetMetaData, rs);
+            joinedRowAdapter.setJoinedObject(bean, i, joinedBean);
+        }
+
+        // The bean queried is synchronized with database, the changes are tracked from now
+        if (tableRowAdapter instanceof DomainModelDescriptor) {
+            ((DomainModelDescriptor) tableRowAdapter).resetDirtyFields(bean);
+        }
+
+        return bean;
+    }
+
+    private boolean isNullRow(ResultSet rs) throws SQLException {
+        for (ColumnMapping columnMapping : columnMappings) {
+            if (rs.getObject(columnMapping.columnIndex) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeField(TableRowAdapter tableRowAdapter, Object bean,
+                            ColumnMapping columnMapping, Object value) {
+        if (columnMapping.fieldIndex >= 0) {
+            ((BeanModelDescriptor) tableRowAdapter).setFieldValue(bean, columnMapping.fieldIndex, value);
+        } else if (columnMapping.writer == null) {
+            tableRowAdapter.setFieldValue(bean, columnMapping.fieldName, value);
+        } else {
+            PropertyUtils.write(bean, columnMapping.writer, value);
+        }
+    }
+
+    private void writeRawAttribute(Object bean, String columnName, Object value) {
+        if (rawAttributeWriter != null) {
+            try {
+                rawAttributeWriter.invoke(bean, columnName, value);
+            } catch (IllegalAccessException | InvocationTargetException ex) {
+                throw new ReflectionException(ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private static Method resolveRawAttributeWriter(Class domainModelClass) {
+        if (domainModelClass == null) {
+            return null;
+        }
+        try {
+            return domainModelClass.getMethod("setRawAttribute", String.class, Object.class);
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * The setters of JavaBean can be resolved in advance only if the adapter does not
+     * customize the way of writing field.
+     */
+    private static boolean isBeanWritable(TableRowAdapter tableRowAdapter) {
+        if (!(tableRowAdapter instanceof BeanModelDescriptor)) {
+            return false;
+        }
+        try {
+            Method setFieldValue = tableRowAdapter.getClass()
+                    .getMethod("setFieldValue", Object.class, String.class, Object.class);
+            return BeanModelDescriptor.class.equals(setFieldValue.getDeclaringClass());
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+}
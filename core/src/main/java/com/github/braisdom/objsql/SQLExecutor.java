@@ -19,11 +19,16 @@ package com.github.braisdom.objsql;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * This class is a extension point for ObjectiveSql, who will be customized
  * for different JDBC programming.
  *
+ * <p>The methods with <code>DatabaseContext</code> are invoked by ObjectiveSql, the context is
+ * bound to the connection of statement, and the database of it is resolved only once for
+ * a data source. By default, they delegate to the methods with connection.
+ *
  * @param <T>
  */
 public interface SQLExecutor<T> {
@@ -31,17 +36,111 @@ public interface SQLExecutor<T> {
     List<T> query(Connection connection, String sql,
                   TableRowAdapter tableRowAdapter, Object... params) throws SQLException;
 
+    default List<T> query(DatabaseContext databaseContext, String sql,
+                          TableRowAdapter tableRowAdapter, Object... params) throws SQLException {
+        return query(databaseContext.getConnection(), sql, tableRowAdapter, params);
+    }
+
+    /**
+     * Returns the rows as a lazy stream, each row will be hydrated when it is consumed,
+     * and the underlying statement will be released when the stream closed.
+     *
+     * @param fetchSize the hint of rows fetched from database each round trip
+     */
+    default Stream<T> stream(Connection connection, int fetchSize, String sql,
+                             TableRowAdapter tableRowAdapter, Object... params) throws SQLException {
+        throw new UnsupportedOperationException("The stream is unsupported");
+    }
+
+    default Stream<T> stream(DatabaseContext databaseContext, int fetchSize, String sql,
+                             TableRowAdapter tableRowAdapter, Object... params) throws SQLException {
+        return stream(databaseContext.getConnection(), fetchSize, sql, tableRowAdapter, params);
+    }
+
     default T insert(Connection connection, String sql,
              TableRowAdapter tableRowAdapter, Object... params) throws SQLException {
         throw new UnsupportedOperationException("The insert is unsupported");
     };
 
+    default T insert(DatabaseContext databaseContext, String sql,
+                     TableRowAdapter tableRowAdapter, Object... params) throws SQLException {
+        return insert(databaseContext.getConnection(), sql, tableRowAdapter, params);
+    }
+
     default int[] insert(Connection connection, String sql,
                  TableRowAdapter tableRowAdapter, Object[][] params) throws SQLException {
         throw new UnsupportedOperationException("The insert is unsupported");
     }
 
+    /**
+     * Executes the insert statement with multiple rows in VALUES clause.
+     *
+     * @param keyColumnName the column of generated keys, it is used when the database
+     *                      returns more than one column of generated keys
+     * @return the generated keys in the order of rows, it may be less than the rows
+     * if the database does not return the key of each row.
+     */
+    default Object[] insertRows(Connection connection, String sql, String keyColumnName,
+                                Object... params) throws SQLException {
+        throw new UnsupportedOperationException("The insertRows is unsupported");
+    }
+
+    /**
+     * Executes the insert statement with multiple rows of the domain model, by default, it
+     * delegates to the method without domain model.
+     */
+    default Object[] insertRows(Connection connection, String sql, TableRowAdapter tableRowAdapter,
+                                String keyColumnName, Object... params) throws SQLException {
+        return insertRows(connection, sql, keyColumnName, params);
+    }
+
+    /**
+     * Loads the rows by the bulk loading protocol of database, such as COPY of PostgreSQL.
+     *
+     * @return the count of rows loaded, or -1 if the bulk loading is unavailable for the connection
+     */
+    default long copyIn(Connection connection, String sql, Object[][] rows) throws SQLException {
+        return -1;
+    }
+
+    default long copyIn(DatabaseContext databaseContext, String sql, Object[][] rows) throws SQLException {
+        return copyIn(databaseContext.getConnection(), sql, rows);
+    }
+
+    default long copyIn(DatabaseContext databaseContext, String sql, TableRowAdapter tableRowAdapter,
+                        Object[][] rows) throws SQLException {
+        return copyIn(databaseContext, sql, rows);
+    }
+
     default int execute(Connection connection, String sql, Object... params) throws SQLException {
         throw new UnsupportedOperationException("The execute is unsupported");
     };
+
+    /**
+     * Executes the statement changing the table of domain model, by default, it delegates
+     * to the method without domain model.
+     */
+    default int execute(Connection connection, String sql, TableRowAdapter tableRowAdapter,
+                        Object... params) throws SQLException {
+        return execute(connection, sql, params);
+    }
+
+    /**
+     * Executes the statement with each group of parameters in a JDBC batch, the default
+     * executes the statement for each group of parameters one by one.
+     *
+     * @return the counts of rows affected by each group of parameters
+     */
+    default int[] executeBatch(Connection connection, String sql, Object[][] params) throws SQLException {
+        int[] counts = new int[params.length];
+        for (int i = 0; i < params.length; i++) {
+            counts[i] = execute(connection, sql, params[i]);
+        }
+        return counts;
+    }
+
+    default int[] executeBatch(Connection connection, String sql, TableRowAdapter tableRowAdapter,
+                               Object[][] params) throws SQLException {
+        return executeBatch(connection, sql, params);
+    }
 }
@@ -0,0 +1,372 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * The <code>StatementObserver</code> which logs a sample of statements and all statements
+ * slower than the threshold, the slow statements are kept with their parameters and row
+ * counts. The statements are aggregated by the shape of sql, in which the literals are
+ * replaced with <code>?</code> and the lists of parameters are collapsed, and the most
+ * expensive shapes of the last two windows can be retrieved at runtime.
+ *
+ * <pre>
+ *     SlowQueryDetector detector = new SlowQueryDetector(0.01, 200, TimeUnit.MILLISECONDS, 20);
+ *     Databases.installStatementObserver(detector);
+ *     ...
+ *     detector.getTopShapes().forEach(System.out::println);
+ * </pre>
+ */
+public class SlowQueryDetector implements StatementObserver {
+
+    public static final int DEFAULT_MAX_SHAPES = 1000;
+    public static final int DEFAULT_MAX_SLOW_STATEMENTS = 100;
+    public static final long DEFAULT_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final int MAX_CACHED_SHAPES = 4096;
+    private static final Map<String, String> SQL_SHAPES = new ConcurrentHashMap<>();
+
+    private static final Pattern STRING_LITERAL_PATTERN = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL_PATTERN = Pattern.compile("(?<![\\w.$])\\d+(?:\\.\\d+)?(?:[eE][-+]?\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST_PATTERN = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern ROW_LIST_PATTERN = Pattern.compile("\\(\\?\\)(?:\\s*,\\s*\\(\\?\\))+");
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+
+    private final Logger logger = Databases.getLoggerFactory().create(SlowQueryDetector.class);
+
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final int topK;
+    private final int maxShapes;
+    private final int maxSlowStatements;
+    private final long windowNanos;
+
+    private final Deque<SlowStatement> slowStatements = new ArrayDeque<>();
+    private final AtomicLong observedCount = new AtomicLong();
+    private final AtomicLong sampledCount = new AtomicLong();
+    private final AtomicLong slowCount = new AtomicLong();
+
+    private volatile Map<String, ShapeStatistics> currentShapes = new ConcurrentHashMap<>();
+    private volatile Map<String, ShapeStatistics> previousShapes = Collections.emptyMap();
+    private volatile long windowStartedAt = System.nanoTime();
+
+    /**
+     * @param sampleRate    the rate of statements logged, between 0 and 1
+     * @param slowThreshold the statements slower than it are always logged and kept
+     * @param topK          the number of the most expensive shapes retrieved
+     */
+    public SlowQueryDetector(double sampleRate, long slowThreshold, TimeUnit timeUnit, int topK) {
+        this(sampleRate, slowThreshold, timeUnit, topK, DEFAULT_MAX_SHAPES,
+                DEFAULT_MAX_SLOW_STATEMENTS, DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * @param maxShapes         the maximum of shapes aggregated in a window, the statements of
+     *                          new shapes are not aggregated when it is reached
+     * @param maxSlowStatements the maximum of slow statements kept, the oldest is discarded first
+     * @param windowMillis      the length of window, the shapes are aggregated in the current
+     *                          and previous windows
+     */
+    public SlowQueryDetector(double sampleRate, long slowThreshold, TimeUnit timeUnit, int topK,
+                             int maxShapes, int maxSlowStatements, long windowMillis) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("The sampleRate must be between 0 and 1");
+        }
+        Objects.requireNonNull(timeUnit, "The timeUnit cannot be null");
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = timeUnit.toNanos(slowThreshold);
+        this.topK = topK;
+        this.maxShapes = maxShapes;
+        this.maxSlowStatements = maxSlowStatements;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    }
+
+    @Override
+    public void observe(Class domainModelClass, String operation, String sql, Object[] params,
+                        long elapsedNanos, long rowCount) {
+        observedCount.incrementAndGet();
+
+        String shape = getShape(sql);
+        ShapeStatistics statistics = getShapeStatistics(shape);
+        if (statistics != null) {
+            statistics.add(elapsedNanos, rowCount);
+        }
+
+        if (elapsedNanos >= slowThresholdNanos) {
+            slowCount.incrementAndGet();
+            SlowStatement slowStatement = new SlowStatement(domainModelClass, operation, sql, shape,
+                    params == null ? new Object[0] : params.clone(), elapsedNanos, rowCount, System.currentTimeMillis());
+            synchronized (slowStatements) {
+                slowStatements.addFirst(slowStatement);
+                if (slowStatements.size() > maxSlowStatements) {
+                    slowStatements.removeLast();
+                }
+            }
+            logger.info(TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    String.format("[slow, %d rows] %s", rowCount, sql), params);
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            sampledCount.incrementAndGet();
+            logger.info(TimeUnit.NANOSECONDS.toMillis(elapsedNanos), sql, params);
+        }
+    }
+
+    /**
+     * Returns the most expensive shapes of the current and previous windows, which are
+     * ordered by the total elapsed time.
+     */
+    public List<QueryShape> getTopShapes() {
+        Map<String, QueryShape> shapes = new HashMap<>();
+        for (Map<String, ShapeStatistics> windowShapes : Arrays.asList(previousShapes, currentShapes)) {
+            for (Map.Entry<String, ShapeStatistics> entry : windowShapes.entrySet()) {
+                QueryShape queryShape = entry.getValue().toQueryShape(entry.getKey());
+                shapes.merge(entry.getKey(), queryShape, QueryShape::merge);
+            }
+        }
+
+        List<QueryShape> topShapes = new ArrayList<>(shapes.values());
+        topShapes.sort(Comparator.comparingLong(QueryShape::getTotalNanos).reversed());
+        return topShapes.size() > topK ? new ArrayList<>(topShapes.subList(0, topK)) : topShapes;
+    }
+
+    /**
+     * Returns the slow statements kept, the latest first.
+     */
+    public List<SlowStatement> getSlowStatements() {
+        synchronized (slowStatements) {
+            return new ArrayList<>(slowStatements);
+        }
+    }
+
+    public long getObservedCount() {
+        return observedCount.get();
+    }
+
+    public long getSampledCount() {
+        return sampledCount.get();
+    }
+
+    public long getSlowCount() {
+        return slowCount.get();
+    }
+
+    public void reset() {
+        synchronized (this) {
+            currentShapes = new ConcurrentHashMap<>();
+            previousShapes = Collections.emptyMap();
+            windowStartedAt = System.nanoTime();
+        }
+        synchronized (slowStatements) {
+            slowStatements.clear();
+        }
+        observedCount.set(0);
+        sampledCount.set(0);
+        slowCount.set(0);
+    }
+
+    /**
+     * Returns the shape of sql, in which the literals are replaced with <code>?</code>, and
+     * the lists of parameters and rows are collapsed into one.
+     */
+    public static String getShape(String sql) {
+        String shape = SQL_SHAPES.get(sql);
+        if (shape == null) {
+            shape = STRING_LITERAL_PATTERN.matcher(sql).replaceAll("?");
+            shape = NUMBER_LITERAL_PATTERN.matcher(shape).replaceAll("?");
+            shape = PARAMETER_LIST_PATTERN.matcher(shape).replaceAll("(?)");
+            shape = ROW_LIST_PATTERN.matcher(shape).replaceAll("(?)");
+            shape = WHITESPACE_PATTERN.matcher(shape).replaceAll(" ").trim();
+
+            if (SQL_SHAPES.size() >= MAX_CACHED_SHAPES) {
+                SQL_SHAPES.clear();
+            }
+            SQL_SHAPES.put(sql, shape);
+        }
+        return shape;
+    }
+
+    private ShapeStatistics getShapeStatistics(String shape) {
+        if (System.nanoTime() - windowStartedAt > windowNanos) {
+            synchronized (this) {
+                if (System.nanoTime() - windowStartedAt > windowNanos) {
+                    previousShapes = currentShapes;
+                    currentShapes = new ConcurrentHashMap<>();
+                    windowStartedAt = System.nanoTime();
+                }
+            }
+        }
+
+        Map<String, ShapeStatistics> shapes = currentShapes;
+        ShapeStatistics statistics = shapes.get(shape);
+        if (statistics == null && shapes.size() < maxShapes) {
+            statistics = shapes.computeIfAbsent(shape, key -> new ShapeStatistics());
+        }
+        return statistics;
+    }
+
+    private static class ShapeStatistics {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder totalRows = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        public void add(long elapsedNanos, long rowCount) {
+            count.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulate(elapsedNanos);
+            if (rowCount > 0) {
+                totalRows.add(rowCount);
+            }
+        }
+
+        public QueryShape toQueryShape(String shape) {
+            return new QueryShape(shape, count.sum(), totalNanos.sum(), maxNanos.get(), totalRows.sum());
+        }
+    }
+
+    /**
+     * The statistics of statements in the same shape.
+     */
+    public static class QueryShape {
+
+        private final String shape;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long totalRows;
+
+        public QueryShape(String shape, long count, long totalNanos, long maxNanos, long totalRows) {
+            this.shape = shape;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.totalRows = totalRows;
+        }
+
+        public String getShape() {
+            return shape;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        public long getTotalRows() {
+            return totalRows;
+        }
+
+        public QueryShape merge(QueryShape other) {
+            return new QueryShape(shape, count + other.count, totalNanos + other.totalNanos,
+                    Math.max(maxNanos, other.maxNanos), totalRows + other.totalRows);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[count=%d, total=%dms, mean=%dus, max=%dms, rows=%d] %s", count,
+                    TimeUnit.NANOSECONDS.toMillis(totalNanos), TimeUnit.NANOSECONDS.toMicros(getMeanNanos()),
+                    TimeUnit.NANOSECONDS.toMillis(maxNanos), totalRows, shape);
+        }
+    }
+
+    /**
+     * The statement slower than the threshold, with its parameters and row count.
+     */
+    public static class SlowStatement {
+
+        private final Class domainModelClass;
+        private final String operation;
+        private final String sql;
+        private final String shape;
+        private final Object[] params;
+        private final long elapsedNanos;
+        private final long rowCount;
+        private final long executedAt;
+
+        public SlowStatement(Class domainModelClass, String operation, String sql, String shape,
+                             Object[] params, long elapsedNanos, long rowCount, long executedAt) {
+            this.domainModelClass = domainModelClass;
+            this.operation = operation;
+            this.sql = sql;
+            this.shape = shape;
+            this.params = params;
+            this.elapsedNanos = elapsedNanos;
+            this.rowCount = rowCount;
+            this.executedAt = executedAt;
+        }
+
+        public Class getDomainModelClass() {
+            return domainModelClass;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public String getShape() {
+            return shape;
+        }
+
+        public Object[] getParams() {
+            return params.clone();
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * Returns the milliseconds since epoch when the statement was observed.
+         */
+        public long getExecutedAt() {
+            return executedAt;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%dms, %d rows] %s, with: %s", TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    rowCount, sql, Arrays.deepToString(params));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+/**
+ * Observes the statements executed by the <code>SQLExecutor</code>, it replaces the logging
+ * of every statement once installed, so the implementation decides which statements should
+ * be logged.
+ *
+ * <p>The observer is invoked in the thread executing statement, so it should be thread-safe
+ * and return quickly.
+ *
+ * @see Databases#installStatementObserver(StatementObserver)
+ * @see SlowQueryDetector
+ */
+public interface StatementObserver {
+
+    /**
+     * @param domainModelClass the domain model class, or null if it is unknown
+     * @param operation        the operation of statement, such as query, insert, etc
+     * @param elapsedNanos     the nanoseconds of execution including the result hydration
+     * @param rowCount         the number of rows returned or affected, or -1 if it is unknown
+     */
+    void observe(Class domainModelClass, String operation, String sql, Object[] params,
+                 long elapsedNanos, long rowCount);
+}
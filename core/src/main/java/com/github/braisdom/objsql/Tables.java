@@ -20,6 +20,7 @@ import com.github.braisdom.objsql.annotations.Column;
 import com.github.braisdom.objsql.annotations.DomainModel;
 import com.github.braisdom.objsql.annotations.PrimaryKey;
 import com.github.braisdom.objsql.reflection.PropertyUtils;
+import com.github.braisdom.objsql.sharding.ShardingRule;
 import com.github.braisdom.objsql.util.StringUtil;
 import com.github.braisdom.objsql.util.WordUtil;
 
@@ -29,6 +30,7 @@ import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.stream.Stream;
 
 /**
  * Utility methods relates to the database table.
@@ -40,6 +42,7 @@ public final class Tables {
 
     public static final String DEFAULT_PRIMARY_KEY = "id";
     public static final String DEFAULT_KEY_SUFFIX = "id";
+    public static final int DEFAULT_FETCH_SIZE = 1000;
 
     private static Validator validator = bean -> {
         javax.validation.Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
@@ -180,16 +183,88 @@ public final class Tables {
         return query(new BeanModelDescriptor<>(domainModelClass), sql, params);
     }
 
+    /**
+     * Queries the rows by the statement, the statement of sharded domain model is executed in
+     * the shard owning the shard key if constrained, otherwise in all shards, and the rows of
+     * shards are merged by the trailing <code>ORDER BY</code> and <code>LIMIT</code>.
+     *
+     * @see ShardingRule
+     */
     public static final <T> List<T> query(DomainModelDescriptor<T> domainModelDescriptor, String sql, Object... params) throws SQLException {
-        String dataSourceName = Tables.getDataSourceName(domainModelDescriptor.getDomainModelClass());
-        return (List<T>) Databases.execute(dataSourceName, (connection, sqlExecutor) ->
-                sqlExecutor.query(connection, sql, domainModelDescriptor, params));
+        ShardingRule shardingRule = ShardingRule.get(domainModelDescriptor.getDomainModelClass());
+        if (shardingRule == null) {
+            String dataSourceName = Tables.getDataSourceName(domainModelDescriptor.getDomainModelClass());
+            return (List<T>) Databases.executeReadOnly(dataSourceName, (connection, sqlExecutor) ->
+                    sqlExecutor.query(Databases.getDatabaseContext(dataSourceName, connection),
+                            sql, domainModelDescriptor, params));
+        }
+
+        List<String> dataSourceNames = shardingRule.route(shardingRule.findShardValue(sql, params));
+        List<List<T>> shardRows = ShardingRule.scatter(dataSourceNames, dataSourceName ->
+                (List<T>) Databases.executeReadOnly(dataSourceName, (connection, sqlExecutor) ->
+                        sqlExecutor.query(Databases.getDatabaseContext(dataSourceName, connection),
+                                sql, domainModelDescriptor, params)));
+        return dataSourceNames.size() > 1 ? ShardingRule.gather(shardRows, sql, domainModelDescriptor)
+                : shardRows.get(0);
+    }
+
+    public static final <T> Stream<T> stream(Class<T> domainModelClass, String sql, Object... params) throws SQLException {
+        return stream(new BeanModelDescriptor<>(domainModelClass), DEFAULT_FETCH_SIZE, sql, params);
     }
 
+    /**
+     * Queries the rows without materializing them into a list, the connection will be held
+     * until the stream closed, so the stream must be closed after consuming, for example:
+     * <pre>
+     *     try (Stream&lt;Member&gt; members = Tables.stream(descriptor, 500, sql)) {
+     *         members.forEach(member -> ...);
+     *     }
+     * </pre>
+     */
+    public static final <T> Stream<T> stream(DomainModelDescriptor<T> domainModelDescriptor, int fetchSize,
+                                             String sql, Object... params) throws SQLException {
+        ShardingRule shardingRule = ShardingRule.get(domainModelDescriptor.getDomainModelClass());
+        if (shardingRule == null) {
+            String dataSourceName = Tables.getDataSourceName(domainModelDescriptor.getDomainModelClass());
+            return Databases.stream(dataSourceName, (connection, sqlExecutor) ->
+                    sqlExecutor.stream(Databases.getDatabaseContext(dataSourceName, connection),
+                            fetchSize, sql, domainModelDescriptor, params));
+        }
+
+        // The rows of shards are streamed one shard after another, they are not merged by ordering
+        List<Stream<T>> streams = new ArrayList<>();
+        try {
+            for (String dataSourceName : shardingRule.route(shardingRule.findShardValue(sql, params))) {
+                streams.add(Databases.stream(dataSourceName, (connection, sqlExecutor) ->
+                        sqlExecutor.stream(Databases.getDatabaseContext(dataSourceName, connection),
+                                fetchSize, sql, domainModelDescriptor, params)));
+            }
+        } catch (SQLException | RuntimeException ex) {
+            streams.forEach(Stream::close);
+            throw ex;
+        }
+        return streams.size() == 1 ? streams.get(0)
+                : streams.stream().flatMap(stream -> stream).onClose(() -> streams.forEach(Stream::close));
+    }
+
+    /**
+     * Executes the statement, the statement of sharded domain model is executed in the shard
+     * owning the shard key if constrained, otherwise in all shards one after another, and
+     * the affected rows are summed.
+     */
     public static final int execute(Class<?> domainModelClass, String sql, Object... params) throws SQLException {
-        String dataSourceName = Tables.getDataSourceName(domainModelClass);
-        return Databases.execute(dataSourceName, (connection, sqlExecutor) ->
-                sqlExecutor.execute(connection, sql, params));
+        ShardingRule shardingRule = ShardingRule.get(domainModelClass);
+        List<String> dataSourceNames = shardingRule == null
+                ? Collections.singletonList(Tables.getDataSourceName(domainModelClass))
+                : shardingRule.route(shardingRule.findShardValue(sql, params));
+
+        TableRowAdapter tableRowAdapter = new BeanModelDescriptor<>(domainModelClass);
+        int affectedCount = 0;
+        for (String dataSourceName : dataSourceNames) {
+            affectedCount += Databases.execute(dataSourceName, (connection, sqlExecutor) ->
+                    sqlExecutor.execute(connection, sql, tableRowAdapter, params));
+        }
+        return affectedCount;
     }
 
     public static final Long count(Class<?> domainModelClass, String predicate, Object... params) throws SQLException {
@@ -197,23 +272,20 @@ public final class Tables {
         String countAlias = "count_rows";
         List rows = query.select("COUNT(*) AS " + countAlias).where(predicate, params).execute();
 
-        if (rows.size() > 0) {
-            Map<String, Object> countRowsMap = PropertyUtils.getRawAttributes(rows.get(0));
+        // The query of sharded domain model returns a count for each shard
+        long totalCount = 0L;
+        for (Object row : rows) {
+            Map<String, Object> countRowsMap = PropertyUtils.getRawAttributes(row);
             Object count = countRowsMap.get(countRowsMap.keySet().toArray()[0]);
-            if (count == null) {
-                return 0L;
-            } else if (count instanceof Long) {
-                return (Long) count;
+            if (count instanceof Long) {
+                totalCount += (Long) count;
             } else if (count instanceof Integer) {
-                return Long.valueOf((Integer) count);
+                totalCount += (Integer) count;
             } else if(count instanceof BigDecimal) {
-                return ((BigDecimal)count).longValue();
-            } else {
-                return 0L;
+                totalCount += ((BigDecimal)count).longValue();
             }
-        } else {
-            return 0L;
         }
+        return totalCount;
     }
 
     public static final String encodeDefaultKey(String name) {
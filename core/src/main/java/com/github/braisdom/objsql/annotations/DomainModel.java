@@ -17,6 +17,8 @@
 package com.github.braisdom.objsql.annotations;
 
 import com.github.braisdom.objsql.ConnectionFactory;
+import com.github.braisdom.objsql.sharding.HashShardingStrategy;
+import com.github.braisdom.objsql.sharding.ShardingStrategy;
 
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -125,4 +127,52 @@ public @interface DomainModel {
      * @since 1.3.6
      */
     boolean autoGeneratedPrimaryKey() default false;
+
+    /**
+     * Loads the domain objects by COPY of PostgreSQL at batch inserting if true,
+     * it is much faster than the INSERT statement for bulk loading, but the generated
+     * keys will not be written back to the domain objects.
+     */
+    boolean copyOnBatchInserting() default false;
+
+    /**
+     * Caches the domain objects by primary key, it applies to the tables which are
+     * rarely changed, such as the reference tables. The domain objects are cached
+     * when they are queried by primary key or loaded by relations.
+     *
+     * @see com.github.braisdom.objsql.EntityCache
+     */
+    boolean cacheable() default false;
+
+    /**
+     * The maximum of domain objects cached, the least recently used domain objects
+     * will be evicted.
+     */
+    int cacheMaxSize() default 1000;
+
+    /**
+     * The seconds of domain objects cached, the non-positive means never expired.
+     */
+    long cacheTtlSeconds() default 600;
+
+    /**
+     * The names of data sources which the rows are spread across, the <code>dataSource</code>
+     * is ignored if the shards are defined. The rows are written into the shard owning the
+     * shard key, and queried from it if the shard key is constrained by equality,
+     * otherwise from all shards in parallel.
+     *
+     * @see com.github.braisdom.objsql.sharding.ShardingRule
+     */
+    String[] shards() default {};
+
+    /**
+     * The column which determines the shard of a row, the primary key by default.
+     */
+    String shardKey() default "";
+
+    /**
+     * The strategy which maps the value of shard key to a shard, it must have a public
+     * constructor without parameters.
+     */
+    Class<? extends ShardingStrategy> shardingStrategy() default HashShardingStrategy.class;
 }
@@ -93,4 +93,14 @@ public @interface Relation {
     String foreignFieldName() default "";
 
     String condition() default "";
+
+    /**
+     * Returns true if the related object is loaded by LEFT JOIN in the query of base
+     * table, instead of a separated query. It applies to the HAS_ONE and BELONGS_TO
+     * without condition only, and the related table should have at most one row
+     * associated with each row of base table.
+     *
+     * @return
+     */
+    boolean joinFetch() default false;
 }
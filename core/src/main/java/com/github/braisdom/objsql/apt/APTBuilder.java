@@ -85,6 +85,14 @@ public final class APTBuilder {
         }
     }
 
+    /**
+     * Returns true if the method has been declared in the class, the method will
+     * not be injected in that case.
+     */
+    public boolean containsMethod(JCMethodDecl methodDecl) {
+        return Utils.containsMethod(classDecl.sym, methodDecl, false);
+    }
+
     public void injectForce(JCMethodDecl methodDecl) {
         classDecl.defs = classDecl.defs.append(methodDecl);
     }
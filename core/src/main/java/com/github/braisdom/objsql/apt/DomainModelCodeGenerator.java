@@ -17,21 +17,29 @@ import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.*;
 import com.sun.tools.javac.tree.TreeMaker;
 import com.sun.tools.javac.util.List;
+import com.sun.tools.javac.util.ListBuffer;
 import org.mangosdk.spi.ProviderFor;
 
 import javax.annotation.processing.Processor;
 import java.lang.annotation.Annotation;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 @ProviderFor(Processor.class)
 public class DomainModelCodeGenerator extends DomainModelProcessor {
 
+    private static final String DIRTY_FIELDS_NAME = "dirtyFields";
+
     @Override
     public void handle(AnnotationValues annotationValues, JCTree ast, APTBuilder aptBuilder) {
-        handleSetterGetter(annotationValues, aptBuilder);
-        handlePrimary(annotationValues, aptBuilder);
+        Set<String> dirtyTrackedFields = new HashSet<>();
+
+        handleSetterGetter(annotationValues, aptBuilder, dirtyTrackedFields);
+        handlePrimary(annotationValues, aptBuilder, dirtyTrackedFields);
         handleTableName(aptBuilder);
         handleCreateQueryMethod(aptBuilder);
         handleCreateSelectMethod(aptBuilder);
@@ -44,8 +52,10 @@ public class DomainModelCodeGenerator extends DomainModelProcessor {
         handleCreateArray2Method(aptBuilder);
         handleUpdateMethod(annotationValues, aptBuilder);
         handleUpdate2Method(aptBuilder);
+        handleUpdateArrayMethod(aptBuilder);
         handleDestroyMethod(annotationValues, aptBuilder);
         handleDestroy2Method(aptBuilder);
+        handleDestroyArrayMethod(annotationValues, aptBuilder);
         handleExecuteMethod(aptBuilder);
         handleQueryMethod(aptBuilder);
         handleQuery2Method(aptBuilder);
@@ -60,6 +70,9 @@ public class DomainModelCodeGenerator extends DomainModelProcessor {
         handleNewInstanceFrom1Method(aptBuilder);
         handleRawAttributesField(aptBuilder);
         handleInnerTableClass(aptBuilder);
+        handleDirtyFieldsField(aptBuilder);
+        handleMarkDirtyMethod(aptBuilder);
+        handleFieldAccessorClass(aptBuilder, dirtyTrackedFields);
     }
 
     @Override
@@ -67,24 +80,32 @@ public class DomainModelCodeGenerator extends DomainModelProcessor {
         return DomainModel.class;
     }
 
-    private void handleSetterGetter(AnnotationValues annotationValues, APTBuilder aptBuilder) {
+    private void handleSetterGetter(AnnotationValues annotationValues, APTBuilder aptBuilder,
+                                    Set<String> dirtyTrackedFields) {
         JCVariableDecl[] fields = aptBuilder.getFields();
         DomainModel domainModel = annotationValues.getAnnotationValue(DomainModel.class);
         aptBuilder.getTreeMaker().at(aptBuilder.get().pos);
+        int fieldIndex = 0;
         for (JCVariableDecl field : fields) {
             if (!aptBuilder.isStatic(field.mods)) {
                 JCTree.JCMethodDecl setter = aptBuilder.newSetter(field, domainModel.fluent());
                 JCTree.JCMethodDecl getter = aptBuilder.newGetter(field);
 
+                if ((field.mods.flags & Flags.FINAL) == 0) {
+                    markDirtyInSetter(aptBuilder, setter, field, fieldIndex++, dirtyTrackedFields);
+                }
+
                 aptBuilder.inject(setter);
                 aptBuilder.inject(getter);
             }
         }
     }
 
-    private void handlePrimary(AnnotationValues annotationValues, APTBuilder aptBuilder) {
+    private void handlePrimary(AnnotationValues annotationValues, APTBuilder aptBuilder,
+                               Set<String> dirtyTrackedFields) {
         TreeMaker treeMaker = aptBuilder.getTreeMaker();
         DomainModel domainModel = annotationValues.getAnnotationValue(DomainModel.class);
+        int fieldIndex = getAccessibleFields(aptBuilder).size();
 
         JCTree.JCAnnotation annotation = treeMaker.Annotation(aptBuilder.typeRef(PrimaryKey.class),
                 List.of(treeMaker.Assign(treeMaker.Ident(aptBuilder.toName("name")),
@@ -96,24 +117,48 @@ public class DomainModelCodeGenerator extends DomainModelProcessor {
                 aptBuilder.toName(domainModel.primaryFieldName()), aptBuilder.typeRef(domainModel.primaryClass()), null);
         JCMethodDecl queryByPrimaryKey = createQueryByPrimaryKeyMethod(domainModel, primaryField, aptBuilder);
 
+        JCMethodDecl primarySetter = aptBuilder.newSetter(primaryField, domainModel.fluent());
+        markDirtyInSetter(aptBuilder, primarySetter, primaryField, fieldIndex, dirtyTrackedFields);
+
         aptBuilder.inject(primaryField);
         aptBuilder.inject(queryByPrimaryKey);
-        aptBuilder.inject(aptBuilder.newSetter(primaryField, domainModel.fluent()));
+        aptBuilder.inject(primarySetter);
         aptBuilder.inject(aptBuilder.newGetter(primaryField));
     }
 
-    private JCMethodDecl createQueryByPrimaryKeyMethod(DomainModel domainModel, JCVariableDecl primaryField, APTBuilder aptBuilder) {
+    /**
+     * Records the change of field in the generated setter, the index of field is
+     * consistent with the generated <code>FieldAccessor</code>. The field with a
+     * customized setter is not tracked.
+     */
+    private void markDirtyInSetter(APTBuilder aptBuilder, JCMethodDecl setter, JCVariableDecl field,
+                                   int fieldIndex, Set<String> dirtyTrackedFields) {
+        if (aptBuilder.containsMethod(setter)) {
+            return;
+        }
+
         TreeMaker treeMaker = aptBuilder.getTreeMaker();
+        JCExpression dirtyFieldsNotNull = treeMaker.Binary(JCTree.Tag.NE,
+                treeMaker.Select(aptBuilder.varRef("this"), aptBuilder.toName(DIRTY_FIELDS_NAME)),
+                treeMaker.Literal(TypeTag.BOT, null));
+        JCExpression markDirty = treeMaker.Apply(List.nil(), treeMaker.Select(
+                treeMaker.Select(aptBuilder.varRef("this"), aptBuilder.toName(DIRTY_FIELDS_NAME)),
+                aptBuilder.toName("mark")), List.of(treeMaker.Literal(fieldIndex)));
+
+        setter.body.stats = setter.body.stats.prepend(treeMaker.If(dirtyFieldsNotNull,
+                treeMaker.Exec(markDirty), null));
+        dirtyTrackedFields.add(field.name.toString());
+    }
+
+    private JCMethodDecl createQueryByPrimaryKeyMethod(DomainModel domainModel, JCVariableDecl primaryField, APTBuilder aptBuilder) {
         MethodBuilder methodBuilder = aptBuilder.createMethodBuilder();
         StatementBuilder statementBuilder = aptBuilder.createStatementBuilder();
 
         statementBuilder.append(aptBuilder.newGenericsType(Query.class,
                 aptBuilder.getClassName()), "query", "createQuery");
-        statementBuilder.append("query", "where",
-                List.of(treeMaker.Literal(String.format("%s = ?", domainModel.primaryColumnName())), aptBuilder.varRef("primaryKey")));
 
-        methodBuilder.setReturnStatement("query", "queryFirst",
-                aptBuilder.varRef("relationships"));
+        methodBuilder.setReturnStatement("query", "queryByPrimaryKey",
+                aptBuilder.varRef("primaryKey"), aptBuilder.varRef("relationships"));
         return methodBuilder
                 .addStatements(statementBuilder.build())
                 .addParameter("primaryKey", primaryField.vartype)
@@ -358,6 +403,26 @@ public class DomainModelCodeGenerator extends DomainModelProcessor {
                 .build("update", Flags.PUBLIC | Flags.STATIC | Flags.FINAL));
     }
 
+    private void handleUpdateArrayMethod(APTBuilder aptBuilder) {
+        MethodBuilder methodBuilder = aptBuilder.createMethodBuilder();
+        TreeMaker treeMaker = aptBuilder.getTreeMaker();
+        StatementBuilder statementBuilder = aptBuilder.createStatementBuilder();
+
+        statementBuilder.append(aptBuilder.newGenericsType(Persistence.class, aptBuilder.getClassName()), "persistence",
+                "createPersistence");
+
+        methodBuilder.setReturnStatement("persistence", "update",
+                aptBuilder.varRef("dirtyObjects"), aptBuilder.varRef("skipValidation"));
+
+        aptBuilder.inject(methodBuilder
+                .setReturnType(aptBuilder.newArrayType(treeMaker.TypeIdent(TypeTag.INT)))
+                .addStatements(statementBuilder.build())
+                .addParameter("dirtyObjects", aptBuilder.newArrayType(aptBuilder.getClassName()))
+                .addParameter("skipValidation", treeMaker.TypeIdent(TypeTag.BOOLEAN))
+                .setThrowsClauses(SQLException.class)
+                .build("update", Flags.PUBLIC | Flags.STATIC | Flags.FINAL));
+    }
+
     private void handleDestroyMethod(AnnotationValues annotationValues, APTBuilder aptBuilder) {
         MethodBuilder methodBuilder = aptBuilder.createMethodBuilder();
         TreeMaker treeMaker = aptBuilder.getTreeMaker();
@@ -397,6 +462,26 @@ public class DomainModelCodeGenerator extends DomainModelProcessor {
                 .build("destroy", Flags.PUBLIC | Flags.STATIC | Flags.FINAL));
     }
 
+    private void handleDestroyArrayMethod(AnnotationValues annotationValues, APTBuilder aptBuilder) {
+        MethodBuilder methodBuilder = aptBuilder.createMethodBuilder();
+        TreeMaker treeMaker = aptBuilder.getTreeMaker();
+        StatementBuilder statementBuilder = aptBuilder.createStatementBuilder();
+        DomainModel domainModel = annotationValues.getAnnotationValue(DomainModel.class);
+
+        statementBuilder.append(aptBuilder.newGenericsType(Persistence.class, aptBuilder.getClassName()), "persistence",
+                "createPersistence");
+
+        methodBuilder.setReturnStatement("persistence", "delete",
+                aptBuilder.varRef("ids"));
+
+        aptBuilder.inject(methodBuilder
+                .setReturnType(treeMaker.TypeIdent(TypeTag.INT))
+                .addStatements(statementBuilder.build())
+                .addParameter("ids", aptBuilder.newArrayType(domainModel.primaryClass()))
+                .setThrowsClauses(SQLException.class)
+                .build("destroy", Flags.PUBLIC | Flags.STATIC | Flags.FINAL));
+    }
+
     private void handleExecuteMethod(APTBuilder aptBuilder) {
         MethodBuilder methodBuilder = aptBuilder.createMethodBuilder();
 
@@ -664,4 +749,142 @@ public class DomainModelCodeGenerator extends DomainModelProcessor {
         aptBuilder.inject(asTableMethod.build("asTable", Flags.PUBLIC | Flags.STATIC | Flags.FINAL));
         aptBuilder.inject(classDecl);
     }
+
+    /**
+     * Generates the <code>@Transient</code> field of <code>DirtyFields</code> recording the changes.
+     */
+    private void handleDirtyFieldsField(APTBuilder aptBuilder) {
+        TreeMaker treeMaker = aptBuilder.getTreeMaker();
+        JCExpression dirtyFieldsInit = treeMaker.NewClass(null, List.nil(), aptBuilder.typeRef(DirtyFields.class),
+                List.nil(), null);
+        JCModifiers modifiers = treeMaker.Modifiers(Flags.PRIVATE | Flags.FINAL);
+        modifiers.annotations = modifiers.annotations.append(treeMaker.Annotation(aptBuilder.typeRef(Transient.class), List.nil()));
+
+        aptBuilder.inject(treeMaker.VarDef(modifiers, aptBuilder.toName(DIRTY_FIELDS_NAME),
+                aptBuilder.typeRef(DirtyFields.class), dirtyFieldsInit));
+    }
+
+    /**
+     * Generates the <code>markDirty</code> which regards all fields as changed, it is required
+     * after the fields are written without the setters, otherwise the update skips them.
+     */
+    private void handleMarkDirtyMethod(APTBuilder aptBuilder) {
+        TreeMaker treeMaker = aptBuilder.getTreeMaker();
+        MethodBuilder methodBuilder = aptBuilder.createMethodBuilder();
+        JCExpression dirtyFields = treeMaker.Select(aptBuilder.varRef("this"), aptBuilder.toName(DIRTY_FIELDS_NAME));
+        JCExpression dirtyFieldsNotNull = treeMaker.Binary(JCTree.Tag.NE, dirtyFields,
+                treeMaker.Literal(TypeTag.BOT, null));
+        JCExpression markAll = treeMaker.Apply(List.nil(), treeMaker.Select(
+                treeMaker.Select(aptBuilder.varRef("this"), aptBuilder.toName(DIRTY_FIELDS_NAME)),
+                aptBuilder.toName("markAll")), List.nil());
+
+        aptBuilder.inject(methodBuilder
+                .addStatement(treeMaker.If(dirtyFieldsNotNull, treeMaker.Exec(markAll), null))
+                .build("markDirty", Flags.PUBLIC | Flags.FINAL));
+    }
+
+    private java.util.List<JCVariableDecl> getAccessibleFields(APTBuilder aptBuilder) {
+        java.util.List<JCVariableDecl> fields = new ArrayList<>();
+        for (JCVariableDecl field : aptBuilder.getFields()) {
+            if (!aptBuilder.isStatic(field.mods) && (field.mods.flags & Flags.FINAL) == 0) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Generates the nested <code>GeneratedFieldAccessor</code> which reads and writes the fields
+     * of domain model by index through the getters and setters, the <code>BeanModelDescriptor</code>
+     * will use it instead of reflection. The branches are generated as <code>if</code> statements
+     * for the <code>TreeMaker</code> of <code>switch</code> is incompatible between JDK versions.
+     */
+    private void handleFieldAccessorClass(APTBuilder aptBuilder, Set<String> dirtyTrackedFields) {
+        TreeMaker treeMaker = aptBuilder.getTreeMaker();
+        JCClassDecl classDecl = treeMaker.ClassDef(treeMaker.Modifiers(Flags.PUBLIC | Flags.FINAL | Flags.STATIC),
+                aptBuilder.toName(FieldAccessor.GENERATED_CLASS_NAME), List.nil(), null,
+                List.of(aptBuilder.newGenericsType(FieldAccessor.class, aptBuilder.getClassName())), List.nil());
+
+        java.util.List<JCVariableDecl> fields = getAccessibleFields(aptBuilder);
+
+        ListBuffer<JCExpression> fieldNames = new ListBuffer<>();
+        StatementBuilder getterStatements = aptBuilder.createStatementBuilder();
+        StatementBuilder setterStatements = aptBuilder.createStatementBuilder();
+        StatementBuilder dirtyTrackedStatements = aptBuilder.createStatementBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            JCVariableDecl field = fields.get(i);
+            String fieldName = field.name.toString();
+            String getterName = Utils.camelize(String.format("%s_%s",
+                    APTBuilder.isBoolean(field.vartype) ? "is" : "get", fieldName), true);
+            String setterName = Utils.camelize(String.format("%s_%s", "set", fieldName), true);
+
+            fieldNames.append(treeMaker.Literal(fieldName));
+            getterStatements.append(treeMaker.If(createFieldIndexMatched(aptBuilder, i),
+                    treeMaker.Return(aptBuilder.methodCall("bean", getterName)), null));
+            setterStatements.append(treeMaker.If(createFieldIndexMatched(aptBuilder, i), treeMaker.Block(0, List.of(
+                    treeMaker.Exec(aptBuilder.methodCall("bean", setterName,
+                            treeMaker.TypeCast(field.vartype, aptBuilder.varRef("value")))),
+                    treeMaker.Return(null))), null));
+            if (dirtyTrackedFields.contains(fieldName)) {
+                dirtyTrackedStatements.append(treeMaker.If(createFieldIndexMatched(aptBuilder, i),
+                        treeMaker.Return(treeMaker.Literal(true)), null));
+            }
+        }
+        getterStatements.append(createUnknownFieldIndexThrow(aptBuilder));
+        setterStatements.append(createUnknownFieldIndexThrow(aptBuilder));
+        dirtyTrackedStatements.append(treeMaker.Return(treeMaker.Literal(false)));
+
+        MethodBuilder getFieldNamesMethod = aptBuilder.createMethodBuilder();
+        getFieldNamesMethod.setReturnStatement(treeMaker.NewArray(aptBuilder.typeRef(String.class),
+                List.nil(), fieldNames.toList()));
+        classDecl.defs = classDecl.defs.append(getFieldNamesMethod
+                .setReturnType(aptBuilder.newArrayType(String.class))
+                .build("getFieldNames", Flags.PUBLIC));
+
+        MethodBuilder getFieldValueMethod = aptBuilder.createMethodBuilder();
+        classDecl.defs = classDecl.defs.append(getFieldValueMethod
+                .addStatements(getterStatements.build())
+                .addParameter("bean", aptBuilder.typeRef(aptBuilder.getClassName()))
+                .addParameter("fieldIndex", treeMaker.TypeIdent(TypeTag.INT))
+                .setReturnType(aptBuilder.typeRef(Object.class))
+                .build("getFieldValue", Flags.PUBLIC));
+
+        MethodBuilder setFieldValueMethod = aptBuilder.createMethodBuilder();
+        classDecl.defs = classDecl.defs.append(setFieldValueMethod
+                .addStatements(setterStatements.build())
+                .addParameter("bean", aptBuilder.typeRef(aptBuilder.getClassName()))
+                .addParameter("fieldIndex", treeMaker.TypeIdent(TypeTag.INT))
+                .addParameter("value", aptBuilder.typeRef(Object.class))
+                .build("setFieldValue", Flags.PUBLIC));
+
+        MethodBuilder getDirtyFieldsMethod = aptBuilder.createMethodBuilder();
+        getDirtyFieldsMethod.setReturnStatement(treeMaker.Select(aptBuilder.varRef("bean"),
+                aptBuilder.toName(DIRTY_FIELDS_NAME)));
+        classDecl.defs = classDecl.defs.append(getDirtyFieldsMethod
+                .addParameter("bean", aptBuilder.typeRef(aptBuilder.getClassName()))
+                .setReturnType(aptBuilder.typeRef(DirtyFields.class))
+                .build("getDirtyFields", Flags.PUBLIC));
+
+        MethodBuilder isDirtyTrackedMethod = aptBuilder.createMethodBuilder();
+        classDecl.defs = classDecl.defs.append(isDirtyTrackedMethod
+                .addStatements(dirtyTrackedStatements.build())
+                .addParameter("fieldIndex", treeMaker.TypeIdent(TypeTag.INT))
+                .setReturnType(treeMaker.TypeIdent(TypeTag.BOOLEAN))
+                .build("isDirtyTracked", Flags.PUBLIC));
+
+        aptBuilder.inject(classDecl);
+    }
+
+    private JCExpression createFieldIndexMatched(APTBuilder aptBuilder, int fieldIndex) {
+        TreeMaker treeMaker = aptBuilder.getTreeMaker();
+        return treeMaker.Binary(JCTree.Tag.EQ, aptBuilder.varRef("fieldIndex"), treeMaker.Literal(fieldIndex));
+    }
+
+    private JCStatement createUnknownFieldIndexThrow(APTBuilder aptBuilder) {
+        TreeMaker treeMaker = aptBuilder.getTreeMaker();
+        JCExpression message = treeMaker.Binary(JCTree.Tag.PLUS,
+                treeMaker.Literal("Unknown field index: "), aptBuilder.varRef("fieldIndex"));
+        return treeMaker.Throw(treeMaker.NewClass(null, List.nil(),
+                aptBuilder.typeRef(IllegalArgumentException.class), List.of(message), null));
+    }
 }
@@ -78,9 +78,9 @@ public class TransactionalCodeGenerator extends DomainModelProcessor {
                 treeMaker.Select(aptBuilder.varRef("connection"), aptBuilder.toName("setAutoCommit")),
                 List.of(treeMaker.Literal(false)))));
 
-        // Databases.setCurrentThreadConnection(connection);
+        // Databases.setCurrentThreadConnection(dataSourceName, connection);
         tryStatement.append(treeMaker.Exec(aptBuilder.staticMethodCall(Databases.class,
-                "setCurrentThreadConnection", aptBuilder.varRef("connection"))));
+                "setCurrentThreadConnection", treeMaker.Literal(dataSourceName), aptBuilder.varRef("connection"))));
 
         if(methodDecl.restype.type.getTag().equals(TypeTag.VOID)) {
             tryStatement.append(treeMaker.Exec(originalMethodInvocation));
@@ -421,6 +421,16 @@ public abstract class AbstractQueryRunner {
         DbUtils.close(stmt);
     }
 
+    /**
+     * Releases a <code>Statement</code> whose execution failed, so that it will not be
+     * reused. This implementation does nothing, the statement is closed by
+     * {@link #close(Statement)} either.
+     *
+     * @param stmt Statement to release
+     */
+    protected void discard(Statement stmt) {
+    }
+
     /**
      * Close a <code>ResultSet</code>. This implementation avoids closing if
      * null and does <strong>not</strong> suppress any exceptions. Subclasses
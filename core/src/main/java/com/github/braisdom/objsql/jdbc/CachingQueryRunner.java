@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A <code>QueryRunner</code> which reuses the <code>PreparedStatement</code>s instead of
+ * preparing and closing them at every invocation. The statements are cached by SQL in
+ * a LRU cache scoped to the physical connection, which is unwrapped from the proxy of
+ * connection pool, because the pools hand out a new proxy at each checkout. The statements
+ * are prepared with the physical connection, so they survive the proxy returned to pool.
+ *
+ * <p>A cached statement is checked out while it is executing and returned to the cache
+ * when it is closed, so the nested invocations with the same SQL on a shared connection
+ * (for example, the connection held by current thread in a transaction) will never
+ * execute the same statement concurrently. The parameters and batch of a statement are
+ * cleared before it is returned, and the statement whose execution failed is closed. The
+ * statements of closed connections will be released when a new connection is cached.
+ */
+public class CachingQueryRunner extends QueryRunner {
+
+    public static final int DEFAULT_MAX_STATEMENTS = 256;
+
+    private final int maxStatements;
+    private final Map<Connection, StatementCache> statementCaches;
+    private final Map<Statement, CheckedOutStatement> checkedOutStatements;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private static class CheckedOutStatement {
+
+        private final StatementCache statementCache;
+        private final String cacheKey;
+
+        public CheckedOutStatement(StatementCache statementCache, String cacheKey) {
+            this.statementCache = statementCache;
+            this.cacheKey = cacheKey;
+        }
+    }
+
+    private class StatementCache extends LinkedHashMap<String, PreparedStatement> {
+
+        public StatementCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() > maxStatements) {
+                evictionCount.incrementAndGet();
+                DbUtils.closeQuietly(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public CachingQueryRunner() {
+        this(false, DEFAULT_MAX_STATEMENTS);
+    }
+
+    /**
+     * Constructor for CachingQueryRunner.
+     *
+     * @param pmdKnownBroken Some drivers don't support {@link java.sql.ParameterMetaData#getParameterType(int) }
+     * @param maxStatements  The maximum of statements cached for each connection.
+     */
+    public CachingQueryRunner(boolean pmdKnownBroken, int maxStatements) {
+        super(pmdKnownBroken);
+        if (maxStatements <= 0) {
+            throw new IllegalArgumentException("The maxStatements must be positive");
+        }
+        this.maxStatements = maxStatements;
+        this.statementCaches = new IdentityHashMap<>();
+        this.checkedOutStatements = Collections.synchronizedMap(new IdentityHashMap<>());
+    }
+
+    @Override
+    protected PreparedStatement prepareStatement(Connection conn, String sql) throws SQLException {
+        Connection physicalConnection = getPhysicalConnection(conn);
+        return checkOut(physicalConnection, sql, () -> super.prepareStatement(physicalConnection, sql));
+    }
+
+    @Override
+    protected PreparedStatement prepareStatement(Connection conn, String sql, int returnedKeys)
+            throws SQLException {
+        Connection physicalConnection = getPhysicalConnection(conn);
+        return checkOut(physicalConnection, returnedKeys + ":" + sql,
+                () -> super.prepareStatement(physicalConnection, sql, returnedKeys));
+    }
+
+    /**
+     * Returns the statement to cache instead of closing it, the statement which is
+     * closed or not prepared by this runner will be closed directly.
+     */
+    @Override
+    protected void close(Statement stmt) throws SQLException {
+        CheckedOutStatement checkedOutStatement = stmt == null ? null : checkedOutStatements.remove(stmt);
+        if (checkedOutStatement == null || stmt.isClosed()) {
+            super.close(stmt);
+            return;
+        }
+
+        // The rows queued by a batch which failed to fill must not be executed by the next batch
+        try {
+            ((PreparedStatement) stmt).clearParameters();
+            stmt.clearBatch();
+        } catch (SQLException ex) {
+            super.close(stmt);
+            throw ex;
+        }
+
+        PreparedStatement replaced;
+        synchronized (checkedOutStatement.statementCache) {
+            replaced = checkedOutStatement.statementCache.put(checkedOutStatement.cacheKey, (PreparedStatement) stmt);
+        }
+        if (replaced != null && replaced != stmt) {
+            DbUtils.closeQuietly(replaced);
+        }
+    }
+
+    /**
+     * Closes the statement whose execution failed instead of returning it to cache.
+     */
+    @Override
+    protected void discard(Statement stmt) {
+        if (stmt != null && checkedOutStatements.remove(stmt) != null) {
+            DbUtils.closeQuietly(stmt);
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    @FunctionalInterface
+    private interface StatementPreparer {
+        PreparedStatement prepare() throws SQLException;
+    }
+
+    private PreparedStatement checkOut(Connection conn, String cacheKey,
+                                       StatementPreparer statementPreparer) throws SQLException {
+        StatementCache statementCache;
+        synchronized (statementCaches) {
+            statementCache = statementCaches.get(conn);
+            if (statementCache == null) {
+                purgeClosedConnections();
+                statementCache = new StatementCache();
+                statementCaches.put(conn, statementCache);
+            }
+        }
+
+        PreparedStatement stmt;
+        synchronized (statementCache) {
+            stmt = statementCache.remove(cacheKey);
+        }
+
+        if (stmt != null && !stmt.isClosed()) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+            stmt = statementPreparer.prepare();
+        }
+
+        checkedOutStatements.put(stmt, new CheckedOutStatement(statementCache, cacheKey));
+        return stmt;
+    }
+
+    /**
+     * Releases the statements of closed connections, it must be invoked with the lock
+     * of statement caches.
+     */
+    private void purgeClosedConnections() {
+        Iterator<Map.Entry<Connection, StatementCache>> iterator = statementCaches.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Connection, StatementCache> entry = iterator.next();
+            if (isClosed(entry.getKey())) {
+                synchronized (entry.getValue()) {
+                    entry.getValue().values().forEach(DbUtils::closeQuietly);
+                    entry.getValue().clear();
+                }
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the physical connection of the proxy handed out by connection pool, or the
+     * connection itself if it wraps nothing.
+     */
+    private static Connection getPhysicalConnection(Connection conn) {
+        try {
+            if (conn.isWrapperFor(Connection.class)) {
+                Connection physicalConnection = conn.unwrap(Connection.class);
+                return physicalConnection == null ? conn : physicalConnection;
+            }
+        } catch (SQLException ex) {
+            // The driver does not support unwrapping, the connection is cached itself
+        }
+        return conn;
+    }
+
+    private static boolean isClosed(Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException ex) {
+            return true;
+        }
+    }
+}
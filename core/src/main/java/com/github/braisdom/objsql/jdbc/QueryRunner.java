@@ -147,6 +147,7 @@ public class QueryRunner extends AbstractQueryRunner {
             rows = stmt.executeBatch();
 
         } catch (SQLException e) {
+            this.discard(stmt);
             this.rethrow(e, sql, (Object[])params);
         } finally {
             close(stmt);
@@ -343,6 +344,7 @@ public class QueryRunner extends AbstractQueryRunner {
             result = rsh.handle(rs);
 
         } catch (SQLException e) {
+            this.discard(stmt);
             this.rethrow(e, sql, params);
 
         } finally {
@@ -483,6 +485,7 @@ public class QueryRunner extends AbstractQueryRunner {
             rows = stmt.executeUpdate();
 
         } catch (SQLException e) {
+            this.discard(stmt);
             this.rethrow(e, sql, params);
 
         } finally {
@@ -593,20 +596,26 @@ public class QueryRunner extends AbstractQueryRunner {
         }
 
         PreparedStatement stmt = null;
+        ResultSet resultSet = null;
         T generatedKeys = null;
 
         try {
-            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            stmt = this.prepareStatement(conn, sql, Statement.RETURN_GENERATED_KEYS);
             this.fillStatement(stmt, params);
             stmt.executeUpdate();
-            ResultSet resultSet = stmt.getGeneratedKeys();
+            resultSet = stmt.getGeneratedKeys();
             generatedKeys = rsh.handle(resultSet);
         } catch (SQLException e) {
+            this.discard(stmt);
             this.rethrow(e, sql, params);
         } finally {
-            close(stmt);
-            if (closeConn) {
-                close(conn);
+            try {
+                close(resultSet);
+            } finally {
+                close(stmt);
+                if (closeConn) {
+                    close(conn);
+                }
             }
         }
 
@@ -684,6 +693,7 @@ public class QueryRunner extends AbstractQueryRunner {
             }
             return stmt.executeBatch();
         } catch (SQLException e) {
+            this.discard(stmt);
             this.rethrow(e, sql, (Object[])params);
         } finally {
             close(stmt);
@@ -16,12 +16,9 @@
  */
 package com.github.braisdom.objsql.relation;
 
-import com.github.braisdom.objsql.reflection.PropertyUtils;
-
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 public class BelongsToProcessor implements RelationProcessor {
 
@@ -32,22 +29,29 @@ public class BelongsToProcessor implements RelationProcessor {
         String primaryKey = relationship.getPrimaryKey();
         String foreignFieldName = relationship.getForeignFieldName();
 
+        Class baseClass = relationship.getBaseClass();
         Class relatedClass = relationship.getRelatedClass();
-        List baseObjects = context.getObjects(relationship.getBaseClass());
+        List baseObjects = context.getObjects(baseClass);
+
+        FieldAccess foreignFieldAccess = FieldAccess.create(context, baseClass, foreignFieldName);
+        FieldAccess associatedFieldAccess = FieldAccess.create(context, baseClass, associatedFieldName);
+        Object[] foreignValues = new Object[baseObjects.size()];
+        for (int i = 0; i < foreignValues.length; i++) {
+            foreignValues[i] = foreignFieldAccess.read(baseObjects.get(i));
+        }
 
-        List associatedKeys = (List) baseObjects.stream()
-                .map(o -> PropertyUtils.read(o, foreignFieldName))
-                .distinct()
-                .collect(Collectors.toList());
+        Object[] associatedKeys = Arrays.stream(foreignValues).distinct().toArray();
         List rawRelatedObjects = context.queryRelatedObjects(relatedClass,
-                primaryKey, associatedKeys.toArray(), relationship.getRelationCondition());
-        Map<Object, List> groupedRelatedObjects = (Map<Object, List>) rawRelatedObjects
-                .stream().collect(Collectors.groupingBy(o -> PropertyUtils.read(o, primaryFieldName)));
+                primaryKey, associatedKeys, relationship.getRelationCondition());
+        RelationIndex relationIndex = RelationIndex.create(rawRelatedObjects,
+                FieldAccess.create(context, relatedClass, primaryFieldName));
 
-        baseObjects.stream().forEach(o -> {
-            Object primaryValue = PropertyUtils.read(o, foreignFieldName);
-            List relatedObjects = groupedRelatedObjects.get(primaryValue);
-            Relationship.setRelationalObjects(relationship, o, associatedFieldName, relatedObjects);
-        });
+        for (int i = 0; i < foreignValues.length; i++) {
+            int position = relationIndex.first(foreignValues[i]);
+            if (position >= 0 && relationIndex.next(position) >= 0) {
+                throw new RelationalException(String.format("The %s[belongs_to] has too many relations", associatedFieldName));
+            }
+            associatedFieldAccess.write(baseObjects.get(i), position < 0 ? null : relationIndex.get(position));
+        }
     }
 }
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.relation;
+
+import com.github.braisdom.objsql.BeanModelDescriptor;
+import com.github.braisdom.objsql.DomainModelDescriptor;
+import com.github.braisdom.objsql.reflection.PropertyUtils;
+
+import java.beans.PropertyDescriptor;
+
+/**
+ * Accesses a field of the domain objects in relationships, the way of accessing is
+ * resolved once for all objects. The field is accessed by the generated <code>FieldAccessor</code>
+ * if it is present, otherwise by the getter and setter.
+ */
+final class FieldAccess {
+
+    private final BeanModelDescriptor beanModelDescriptor;
+    private final int fieldIndex;
+    private final PropertyDescriptor propertyDescriptor;
+
+    private FieldAccess(BeanModelDescriptor beanModelDescriptor, int fieldIndex,
+                        PropertyDescriptor propertyDescriptor) {
+        this.beanModelDescriptor = beanModelDescriptor;
+        this.fieldIndex = fieldIndex;
+        this.propertyDescriptor = propertyDescriptor;
+    }
+
+    public static FieldAccess create(RelationProcessor.Context context, Class clazz, String fieldName) {
+        DomainModelDescriptor domainModelDescriptor = context.getDomainModelDescriptor(clazz);
+        if (domainModelDescriptor instanceof BeanModelDescriptor) {
+            BeanModelDescriptor beanModelDescriptor = (BeanModelDescriptor) domainModelDescriptor;
+            int fieldIndex = beanModelDescriptor.getFieldIndex(fieldName);
+            if (fieldIndex >= 0) {
+                return new FieldAccess(beanModelDescriptor, fieldIndex, null);
+            }
+        }
+        return new FieldAccess(null, -1, PropertyUtils.getPropertyDescriptorByNameOrThrow(clazz, fieldName));
+    }
+
+    public Object read(Object bean) {
+        if (propertyDescriptor == null) {
+            return beanModelDescriptor.getFieldValue(bean, fieldIndex);
+        }
+        return PropertyUtils.read(bean, propertyDescriptor);
+    }
+
+    public void write(Object bean, Object value) {
+        if (propertyDescriptor == null) {
+            beanModelDescriptor.setFieldValue(bean, fieldIndex, value);
+        } else {
+            PropertyUtils.write(bean, propertyDescriptor, value);
+        }
+    }
+}
@@ -16,12 +16,9 @@
  */
 package com.github.braisdom.objsql.relation;
 
-import com.github.braisdom.objsql.reflection.PropertyUtils;
-
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 public class HasAnyProcessor implements RelationProcessor {
 
@@ -32,24 +29,34 @@ public class HasAnyProcessor implements RelationProcessor {
         String foreignKey = relationship.getForeignKey();
         String foreignFieldName = relationship.getForeignFieldName();
 
+        Class baseClass = relationship.getBaseClass();
         Class relatedClass = relationship.getRelatedClass();
-        List baseObjects = context.getObjects(relationship.getBaseClass());
+        List baseObjects = context.getObjects(baseClass);
 
-        List associatedKeys = (List) baseObjects.stream()
-                .map(o -> PropertyUtils.read(o, primaryFieldName))
-                .distinct()
-                .collect(Collectors.toList());
+        FieldAccess primaryFieldAccess = FieldAccess.create(context, baseClass, primaryFieldName);
+        FieldAccess associatedFieldAccess = FieldAccess.create(context, baseClass, associatedFieldName);
+        Object[] primaryValues = new Object[baseObjects.size()];
+        for (int i = 0; i < primaryValues.length; i++) {
+            primaryValues[i] = primaryFieldAccess.read(baseObjects.get(i));
+        }
 
+        Object[] associatedKeys = Arrays.stream(primaryValues).distinct().toArray();
         List rawRelatedObjects = context.queryRelatedObjects(relatedClass,
-                foreignKey, associatedKeys.toArray(), relationship.getRelationCondition());
-        Map<Object, List> groupedRelatedObjects = (Map<Object, List>) rawRelatedObjects
-                .stream().collect(Collectors.groupingBy(o -> PropertyUtils.read(o, foreignFieldName)));
-
-        baseObjects.stream().forEach(o -> {
-            Object primaryValue = PropertyUtils.read(o, primaryFieldName);
-            List relatedObjects = groupedRelatedObjects.get(primaryValue);
-            Relationship.setRelationalObjects(relationship, o, associatedFieldName, relatedObjects);
-        });
+                foreignKey, associatedKeys, relationship.getRelationCondition());
+        RelationIndex relationIndex = RelationIndex.create(rawRelatedObjects,
+                FieldAccess.create(context, relatedClass, foreignFieldName));
+
+        for (int i = 0; i < primaryValues.length; i++) {
+            if (relationship.isHasOne()) {
+                int position = relationIndex.first(primaryValues[i]);
+                if (position >= 0 && relationIndex.next(position) >= 0) {
+                    throw new RelationalException(String.format("The %s[has_one] has too many relations", associatedFieldName));
+                }
+                associatedFieldAccess.write(baseObjects.get(i), position < 0 ? null : relationIndex.get(position));
+            } else {
+                associatedFieldAccess.write(baseObjects.get(i), relationIndex.getAll(primaryValues[i]));
+            }
+        }
     }
 
 }
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.relation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes the related objects by the associated key, the objects with same key are
+ * chained by their positions, so that no list is allocated for each key.
+ *
+ * <p>If all keys are integral numbers, they are indexed by an open addressing table of
+ * primitive <code>long</code> without boxing, otherwise by a <code>HashMap</code>.
+ */
+final class RelationIndex {
+
+    private static final int NONE = -1;
+
+    private final Object[] objects;
+    private final int[] nextPositions;
+
+    private final long[] longKeys;
+    private final int[] headPositions;
+    private final int mask;
+
+    private final Map<Object, Integer> genericHeadPositions;
+
+    private RelationIndex(List relatedObjects, Object[] keys, boolean integralKeys) {
+        this.objects = relatedObjects.toArray();
+        this.nextPositions = new int[objects.length];
+
+        if (integralKeys) {
+            int capacity = Integer.highestOneBit(Math.max(2, objects.length * 2 - 1)) << 1;
+            this.longKeys = new long[capacity];
+            this.headPositions = new int[capacity];
+            this.mask = capacity - 1;
+            this.genericHeadPositions = null;
+
+            for (int i = 0; i < capacity; i++) {
+                headPositions[i] = NONE;
+            }
+        } else {
+            this.longKeys = null;
+            this.headPositions = null;
+            this.mask = 0;
+            this.genericHeadPositions = new HashMap<>();
+        }
+
+        // Links the objects from the last one, so that the objects of a key are in the original order
+        for (int i = objects.length - 1; i >= 0; i--) {
+            Object key = keys[i];
+            if (key == null) {
+                continue;
+            }
+            if (integralKeys) {
+                long longKey = ((Number) key).longValue();
+                int slot = findSlot(longKey);
+                longKeys[slot] = longKey;
+                nextPositions[i] = headPositions[slot];
+                headPositions[slot] = i;
+            } else {
+                Integer headPosition = genericHeadPositions.put(key, i);
+                nextPositions[i] = headPosition == null ? NONE : headPosition;
+            }
+        }
+    }
+
+    public static RelationIndex create(List relatedObjects, FieldAccess keyAccess) {
+        Object[] keys = new Object[relatedObjects.size()];
+        boolean integralKeys = true;
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyAccess.read(relatedObjects.get(i));
+            integralKeys = integralKeys && (keys[i] == null || isIntegral(keys[i]));
+        }
+        return new RelationIndex(relatedObjects, keys, integralKeys);
+    }
+
+    /**
+     * Returns the position of first object associated with the key, or -1 if absent.
+     */
+    public int first(Object key) {
+        if (key == null) {
+            return NONE;
+        }
+        if (genericHeadPositions != null) {
+            Integer headPosition = genericHeadPositions.get(key);
+            return headPosition == null ? NONE : headPosition;
+        }
+        if (!isIntegral(key)) {
+            return NONE;
+        }
+        return headPositions[findSlot(((Number) key).longValue())];
+    }
+
+    public int next(int position) {
+        return nextPositions[position];
+    }
+
+    public Object get(int position) {
+        return objects[position];
+    }
+
+    /**
+     * Returns the objects associated with the key, or null if absent.
+     */
+    public List getAll(Object key) {
+        int position = first(key);
+        if (position == NONE) {
+            return null;
+        }
+
+        int count = 0;
+        for (int i = position; i != NONE; i = nextPositions[i]) {
+            count++;
+        }
+        List associatedObjects = new ArrayList(count);
+        for (int i = position; i != NONE; i = nextPositions[i]) {
+            associatedObjects.add(objects[i]);
+        }
+        return associatedObjects;
+    }
+
+    private int findSlot(long key) {
+        int slot = hash(key) & mask;
+        while (headPositions[slot] != NONE && longKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static boolean isIntegral(Object key) {
+        return key instanceof Long || key instanceof Integer
+                || key instanceof Short || key instanceof Byte;
+    }
+}
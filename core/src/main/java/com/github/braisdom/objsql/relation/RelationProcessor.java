@@ -16,6 +16,8 @@
  */
 package com.github.braisdom.objsql.relation;
 
+import com.github.braisdom.objsql.DomainModelDescriptor;
+
 import java.sql.SQLException;
 import java.util.List;
 
@@ -26,6 +28,14 @@ public interface RelationProcessor {
                                  Object[] associatedValues, String condition) throws SQLException;
 
         List getObjects(Class clazz);
+
+        /**
+         * Returns the descriptor of domain model in the relationships, or null if it
+         * is unknown, the fields will be accessed by reflection in that case.
+         */
+        default DomainModelDescriptor getDomainModelDescriptor(Class clazz) {
+            return null;
+        }
     }
 
     void process(Context context, Relationship relationship) throws SQLException;
@@ -143,6 +143,20 @@ public final class Relationship {
         return RelationType.BELONGS_TO.equals(relation.relationType());
     }
 
+    public boolean isHasOne() {
+        return RelationType.HAS_ONE.equals(relation.relationType());
+    }
+
+    /**
+     * Returns true if the related object can be loaded by LEFT JOIN in the query of base table.
+     *
+     * @see Relation#joinFetch()
+     */
+    public boolean isJoinFetch() {
+        return relation.joinFetch() && (isBelongsTo() || isHasOne())
+                && StringUtil.isBlank(relation.condition());
+    }
+
     public RelationProcessor createProcessor() {
         if(isBelongsTo()) {
             return new BelongsToProcessor();
@@ -17,37 +17,65 @@
 package com.github.braisdom.objsql.relation;
 
 import com.github.braisdom.objsql.*;
+import com.github.braisdom.objsql.jdbc.DbUtils;
 import com.github.braisdom.objsql.util.StringUtil;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
+/**
+ * Loads the related objects of the rows by the relationships, all relationships reachable
+ * from the base domain model are resolved as a tree, the relationship whose base class is the
+ * related class of another relationship will be loaded after it.
+ *
+ * <p>If an <code>Executor</code> is given, the independent branches of the tree are loaded in
+ * parallel, and each branch is loaded with its own connection retrieved from the
+ * <code>ConnectionFactory</code>, otherwise all relationships are loaded one after another
+ * on the connection given.
+ *
+ * @see Databases#installRelationExecutor(Executor)
+ */
 public class RelationshipNetwork implements RelationProcessor.Context {
 
     private static final String SELECT_RELATION_STATEMENT = "SELECT * FROM %s WHERE %s";
 
+    /**
+     * The keys in an IN list are padded to the nearest size, so that only a few distinct
+     * statements are prepared for the related objects.
+     */
+    private static final int[] PADDED_IN_LIST_SIZES = new int[]{1, 4, 16, 64, 256};
+
+    public static final int MAX_IN_LIST_SIZE = 1000;
+
     private final Connection connection;
     private final DomainModelDescriptor domainModelDescriptor;
+    private final String dataSourceName;
+    private final Executor executor;
     private final Map<Class, List> relationObjectsMap;
 
     public RelationshipNetwork(Connection connection, DomainModelDescriptor domainModelDescriptor) {
+        this(connection, domainModelDescriptor, null, null);
+    }
+
+    public RelationshipNetwork(Connection connection, DomainModelDescriptor domainModelDescriptor,
+                               String dataSourceName, Executor executor) {
         this.connection = connection;
         this.domainModelDescriptor = domainModelDescriptor;
+        this.dataSourceName = dataSourceName;
+        this.executor = executor;
 
-        this.relationObjectsMap = new HashMap<>();
+        this.relationObjectsMap = new ConcurrentHashMap<>();
     }
 
     @Override
     public List queryRelatedObjects(Class clazz, String associationColumn,
                                     Object[] associatedValues, String condition) throws SQLException {
-        List cachedObjects = relationObjectsMap.get(clazz);
-        if (cachedObjects == null) {
-            cachedObjects = queryObjects(clazz, associationColumn, associatedValues, condition);
-            relationObjectsMap.put(clazz, cachedObjects);
-        }
-        return cachedObjects;
+        return queryRelatedObjects(connection, clazz, associationColumn, associatedValues, condition);
     }
 
     @Override
@@ -55,47 +83,261 @@ public class RelationshipNetwork implements RelationProcessor.Context {
         return relationObjectsMap.get(clazz);
     }
 
+    @Override
+    public DomainModelDescriptor getDomainModelDescriptor(Class clazz) {
+        if (domainModelDescriptor.getDomainModelClass().equals(clazz)) {
+            return domainModelDescriptor;
+        }
+        return domainModelDescriptor.getRelatedModeDescriptor(clazz);
+    }
+
     public void process(List rows, Relationship[] relationships) throws SQLException {
+        long begin = System.nanoTime();
+        try {
+            setupRelations(rows, relationships);
+        } finally {
+            Databases.getMetricsCollector().recordTiming(MetricsCollector.Phase.RELATION_LOADING,
+                    domainModelDescriptor.getDomainModelClass(), MetricsCollector.OPERATION_RELATION,
+                    System.nanoTime() - begin);
+        }
+    }
+
+    private void setupRelations(List rows, Relationship[] relationships) throws SQLException {
         catchObjects(domainModelDescriptor.getDomainModelClass(), rows);
 
-        List<Relationship> baseRelationships = Arrays.stream(relationships)
-                .filter(r -> r.getBaseClass().equals(domainModelDescriptor.getDomainModelClass())).collect(Collectors.toList());
+        List<RelationNode> baseNodes = createRelationTree(domainModelDescriptor.getDomainModelClass(), relationships);
+        if (executor == null || dataSourceName == null) {
+            for (RelationNode baseNode : baseNodes) {
+                setupAssociatedObjects(this, baseNode);
+            }
+        } else {
+            CompletableFuture[] futures = baseNodes.stream()
+                    .map(this::setupAssociatedObjectsAsync).toArray(CompletableFuture[]::new);
+            try {
+                CompletableFuture.allOf(futures).join();
+            } catch (CompletionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof SQLException) {
+                    throw (SQLException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new SQLException(cause.getMessage(), cause);
+            }
+        }
+    }
 
-        for (Relationship relationship : baseRelationships) {
-            setupAssociatedObjects(relationship, new ArrayList<>(Arrays.asList(relationships)));
+    /**
+     * Assigns each relationship to the nearest relationship whose related class is the base class
+     * of it, the relationships which are unreachable from the base class are ignored.
+     */
+    private List<RelationNode> createRelationTree(Class baseClass, Relationship[] relationships) {
+        List<Relationship> pendingRelationships = new ArrayList<>(Arrays.asList(relationships));
+        List<RelationNode> baseNodes = takeRelationNodes(baseClass, pendingRelationships);
+
+        Deque<RelationNode> nodes = new ArrayDeque<>(baseNodes);
+        while (!nodes.isEmpty() && !pendingRelationships.isEmpty()) {
+            RelationNode node = nodes.poll();
+            node.children.addAll(takeRelationNodes(node.relationship.getRelatedClass(), pendingRelationships));
+            nodes.addAll(node.children);
         }
+        return baseNodes;
     }
 
-    private void setupAssociatedObjects(Relationship relationship, List<Relationship> relationships) throws SQLException {
-        RelationProcessor relationProcessor = relationship.createProcessor();
-        relationProcessor.process(this, relationship);
-        relationships.remove(relationship);
+    private List<RelationNode> takeRelationNodes(Class baseClass, List<Relationship> pendingRelationships) {
+        List<RelationNode> nodes = new ArrayList<>();
+        Iterator<Relationship> iterator = pendingRelationships.iterator();
+        while (iterator.hasNext()) {
+            Relationship relationship = iterator.next();
+            if (relationship.getBaseClass().equals(baseClass)) {
+                nodes.add(new RelationNode(relationship));
+                iterator.remove();
+            }
+        }
+        return nodes;
+    }
+
+    private void setupAssociatedObjects(RelationProcessor.Context context, RelationNode node) throws SQLException {
+        RelationProcessor relationProcessor = node.relationship.createProcessor();
+        relationProcessor.process(context, node.relationship);
 
-        final Class childClass = relationship.getRelatedClass();
-        Relationship[] childRelationships = relationships.stream()
-                .filter(r -> r.getBaseClass().equals(childClass)).toArray(Relationship[]::new);
-        if (childRelationships.length > 0) {
-            setupAssociatedObjects(childRelationships[0], relationships);
+        for (RelationNode child : node.children) {
+            setupAssociatedObjects(context, child);
         }
     }
 
+    private CompletableFuture<Void> setupAssociatedObjectsAsync(RelationNode node) {
+        return CompletableFuture.runAsync(() -> {
+            Connection branchConnection = null;
+            try {
+                branchConnection = Databases.getReadOnlyConnection(dataSourceName);
+                RelationProcessor relationProcessor = node.relationship.createProcessor();
+                relationProcessor.process(new BranchContext(branchConnection), node.relationship);
+            } catch (SQLException ex) {
+                throw new CompletionException(ex);
+            } finally {
+                DbUtils.closeQuietly(branchConnection);
+            }
+        }, executor).thenCompose(ignored -> CompletableFuture.allOf(node.children.stream()
+                .map(this::setupAssociatedObjectsAsync).toArray(CompletableFuture[]::new)));
+    }
+
+    private List queryRelatedObjects(Connection connection, Class clazz, String associationColumn,
+                                     Object[] associatedValues, String condition) throws SQLException {
+        List cachedObjects = relationObjectsMap.get(clazz);
+        if (cachedObjects == null) {
+            DomainModelDescriptor relatedModelDescriptor = domainModelDescriptor.getRelatedModeDescriptor(clazz);
+            EntityCache entityCache = Databases.getEntityCache(relatedModelDescriptor);
+            if (entityCache != null && StringUtil.isBlank(condition)
+                    && relatedModelDescriptor.getPrimaryKey().name().equalsIgnoreCase(associationColumn)) {
+                cachedObjects = queryCachedObjects(connection, entityCache, relatedModelDescriptor,
+                        associationColumn, associatedValues);
+            } else {
+                cachedObjects = queryObjects(connection, clazz, associationColumn, associatedValues, condition);
+            }
+            relationObjectsMap.put(clazz, cachedObjects);
+        }
+        return cachedObjects;
+    }
+
+    /**
+     * Gets the related objects associated by primary key from the entity cache, and queries
+     * the missing ones only, which will be put into the cache.
+     */
+    private List queryCachedObjects(Connection connection, EntityCache entityCache,
+                                    DomainModelDescriptor relatedModelDescriptor, String associationColumn,
+                                    Object[] associatedValues) throws SQLException {
+        List relatedObjects = new ArrayList();
+        List missingValues = new ArrayList();
+        for (Object associatedValue : associatedValues) {
+            Object cachedObject = associatedValue == null ? null : entityCache.get(associatedValue);
+            if (cachedObject == null) {
+                missingValues.add(associatedValue);
+            } else {
+                relatedObjects.add(cachedObject);
+            }
+        }
+
+        if (!missingValues.isEmpty()) {
+            List queriedObjects = queryObjects(connection, relatedModelDescriptor.getDomainModelClass(),
+                    associationColumn, missingValues.toArray(), null);
+            // The rows queried in a transaction might be rolled back
+            boolean committed = connection.getAutoCommit();
+            for (Object queriedObject : queriedObjects) {
+                Object primaryValue = relatedModelDescriptor.getPrimaryValue(queriedObject);
+                if (primaryValue != null && committed) {
+                    entityCache.put(primaryValue, queriedObject);
+                }
+            }
+            relatedObjects.addAll(queriedObjects);
+        }
+        return relatedObjects;
+    }
+
     protected List queryObjects(Class clazz, String associatedColumnName,
                                 Object[] associatedValues, String condition) throws SQLException {
-        String relationTableName = Tables.getTableName(clazz);
+        return queryObjects(connection, clazz, associatedColumnName, associatedValues, condition);
+    }
 
+    /**
+     * Queries the related objects with the associated values bound as parameters, the values
+     * are split into chunks which are no more than the maximum size of IN list, and the
+     * chunks are queried one after another on the connection.
+     */
+    protected List queryObjects(Connection connection, Class clazz, String associatedColumnName,
+                                Object[] associatedValues, String condition) throws SQLException {
+        String relationTableName = Tables.getTableName(clazz);
         SQLExecutor sqlExecutor = Databases.getSqlExecutor();
-        Quoter quoter = Databases.getQuoter();
+        DomainModelDescriptor relatedModelDescriptor = domainModelDescriptor.getRelatedModeDescriptor(clazz);
 
-        String associatedValueString = String.join(",", quoter.quoteValues(associatedValues));
-        String relationConditions = StringUtil.isBlank(condition)
-                ? String.format(" %s IN (%s) ", associatedColumnName, associatedValueString)
-                : String.format(" %s IN (%s) AND (%s)", associatedColumnName, associatedValueString, condition);
-        String relationTableQuerySql = String.format(SELECT_RELATION_STATEMENT, relationTableName, relationConditions);
+        Object[] keys = Arrays.stream(associatedValues).filter(Objects::nonNull).toArray();
+        List relatedObjects = new ArrayList();
+        if (keys.length == 0) {
+            return relatedObjects;
+        }
+
+        DatabaseContext databaseContext = Databases.getDatabaseContext(dataSourceName, connection);
+        int maxInListSize = getMaxInListSize(databaseContext.getDatabaseName());
+        for (int offset = 0; offset < keys.length; offset += maxInListSize) {
+            int chunkSize = Math.min(maxInListSize, keys.length - offset);
+            Object[] params = new Object[getPaddedInListSize(chunkSize, maxInListSize)];
+            System.arraycopy(keys, offset, params, 0, chunkSize);
+            Arrays.fill(params, chunkSize, params.length, keys[offset + chunkSize - 1]);
+
+            String placeholders = String.join(",", Collections.nCopies(params.length, "?"));
+            String relationConditions = StringUtil.isBlank(condition)
+                    ? String.format(" %s IN (%s) ", associatedColumnName, placeholders)
+                    : String.format(" %s IN (%s) AND (%s)", associatedColumnName, placeholders, condition);
+            String relationTableQuerySql = String.format(SELECT_RELATION_STATEMENT, relationTableName, relationConditions);
+
+            relatedObjects.addAll(sqlExecutor.query(databaseContext, relationTableQuerySql, relatedModelDescriptor, params));
+        }
+        return relatedObjects;
+    }
+
+    /**
+     * Returns the maximum of values in an IN list for the database.
+     */
+    protected int getMaxInListSize(String databaseName) {
+        if (DatabaseType.SQLite.nameEquals(databaseName)) {
+            // The SQLite limits the parameters of a statement to 999 by default
+            return 999;
+        }
+        // The Oracle limits the expressions in a IN list to 1000
+        return MAX_IN_LIST_SIZE;
+    }
 
-        return sqlExecutor.query(connection, relationTableQuerySql, domainModelDescriptor.getRelatedModeDescriptor(clazz));
+    private static int getPaddedInListSize(int size, int maxInListSize) {
+        for (int paddedSize : PADDED_IN_LIST_SIZES) {
+            if (size <= paddedSize && paddedSize < maxInListSize) {
+                return paddedSize;
+            }
+        }
+        return maxInListSize;
     }
 
     protected void catchObjects(Class clazz, List objects) {
         this.relationObjectsMap.put(clazz, objects);
     }
+
+    private static class RelationNode {
+
+        private final Relationship relationship;
+        private final List<RelationNode> children;
+
+        public RelationNode(Relationship relationship) {
+            this.relationship = relationship;
+            this.children = new ArrayList<>();
+        }
+    }
+
+    /**
+     * The context of a branch loaded in parallel, the related objects are queried with the
+     * connection of branch, and shared with other branches.
+     */
+    private class BranchContext implements RelationProcessor.Context {
+
+        private final Connection branchConnection;
+
+        public BranchContext(Connection branchConnection) {
+            this.branchConnection = branchConnection;
+        }
+
+        @Override
+        public List queryRelatedObjects(Class clazz, String associationColumn,
+                                        Object[] associatedValues, String condition) throws SQLException {
+            return RelationshipNetwork.this.queryRelatedObjects(branchConnection, clazz,
+                    associationColumn, associatedValues, condition);
+        }
+
+        @Override
+        public List getObjects(Class clazz) {
+            return RelationshipNetwork.this.getObjects(clazz);
+        }
+
+        @Override
+        public DomainModelDescriptor getDomainModelDescriptor(Class clazz) {
+            return RelationshipNetwork.this.getDomainModelDescriptor(clazz);
+        }
+    }
 }
@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.sharding;
+
+import java.math.BigInteger;
+
+/**
+ * Maps the value of shard key to a shard by its hash, the integral values are taken
+ * modulo the count of shards, so that the rows with sequential keys are spread evenly,
+ * and the others by <code>hashCode</code>, which must be stable across processes.
+ */
+public class HashShardingStrategy implements ShardingStrategy {
+
+    @Override
+    public int getShardIndex(Object shardValue, int shardCount) {
+        if (shardValue instanceof Long || shardValue instanceof Integer
+                || shardValue instanceof Short || shardValue instanceof Byte) {
+            return (int) Math.floorMod(((Number) shardValue).longValue(), (long) shardCount);
+        } else if (shardValue instanceof BigInteger) {
+            return ((BigInteger) shardValue).mod(BigInteger.valueOf(shardCount)).intValue();
+        }
+        return Math.floorMod(shardValue.hashCode(), shardCount);
+    }
+}
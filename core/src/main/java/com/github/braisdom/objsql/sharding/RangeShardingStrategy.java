@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.sharding;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Maps the value of shard key to a shard by the ranges, the shard <code>i</code> owns the
+ * values less than the upper bound <code>i</code>, and the last shard owns the rest. The
+ * subclass gives the upper bounds in ascending order, for example:
+ * <pre>
+ *     public class OrderLineRanges extends RangeShardingStrategy {
+ *         public OrderLineRanges() {
+ *             super(1_000_000_000L, 2_000_000_000L);
+ *         }
+ *     }
+ * </pre>
+ */
+public abstract class RangeShardingStrategy implements ShardingStrategy {
+
+    private final Comparable[] upperBounds;
+
+    protected RangeShardingStrategy(Comparable... upperBounds) {
+        Objects.requireNonNull(upperBounds, "The upperBounds cannot be null");
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (upperBounds[i - 1].compareTo(upperBounds[i]) >= 0) {
+                throw new IllegalArgumentException("The upperBounds must be in ascending order");
+            }
+        }
+        this.upperBounds = upperBounds.clone();
+    }
+
+    @Override
+    public int getShardIndex(Object shardValue, int shardCount) {
+        if (shardCount != upperBounds.length + 1) {
+            throw new IllegalStateException(String.format("The %d ranges cannot be mapped to %d shards",
+                    upperBounds.length + 1, shardCount));
+        }
+        Object value = shardValue;
+        if (upperBounds.length > 0 && upperBounds[0] instanceof Long && (value instanceof Integer
+                || value instanceof Short || value instanceof Byte)) {
+            value = ((Number) value).longValue();
+        }
+        int index = Arrays.binarySearch(upperBounds, value);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.sharding;
+
+import com.github.braisdom.objsql.Databases;
+import com.github.braisdom.objsql.DomainModelDescriptor;
+import com.github.braisdom.objsql.Keyset;
+import com.github.braisdom.objsql.QueryException;
+import com.github.braisdom.objsql.Tables;
+import com.github.braisdom.objsql.annotations.DomainModel;
+import com.github.braisdom.objsql.annotations.PrimaryKey;
+import com.github.braisdom.objsql.reflection.ClassUtils;
+import com.github.braisdom.objsql.util.StringUtil;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The rule of sharding resolved from the <code>DomainModel</code>, it routes the rows to
+ * the shards by the value of shard key, and gathers the rows queried from several shards.
+ *
+ * <p>The shard key is regarded as constrained if the predicate has an equality between the
+ * shard key and a parameter, such as <code>order_id = ?</code>, without any <code>OR</code>,
+ * <code>NOT</code> or subquery, otherwise the statement is scattered to all shards. The rows
+ * of shards are merged by the ordering, and the offset and limit are applied again, so the
+ * offset of each shard is pushed down as a part of its limit.
+ *
+ * <p>The statements in the transaction are executed with the connection held by current
+ * thread, so they must be routed to the shard of the connection and are never scattered.
+ *
+ * @see DomainModel#shards()
+ */
+public final class ShardingRule {
+
+    private static final ThreadLocal<Boolean> SCATTERING = ThreadLocal.withInitial(() -> false);
+
+    private static final ClassValue<Optional<ShardingRule>> RULES = new ClassValue<Optional<ShardingRule>>() {
+        @Override
+        protected Optional<ShardingRule> computeValue(Class<?> type) {
+            DomainModel domainModel = type.getAnnotation(DomainModel.class);
+            if (domainModel == null || domainModel.shards().length == 0) {
+                return Optional.empty();
+            }
+            return Optional.of(new ShardingRule(type, domainModel));
+        }
+    };
+
+    private static final Pattern OR_NOT_PATTERN = Pattern.compile("\\b(?:OR|NOT)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SELECT_PATTERN = Pattern.compile("\\bSELECT\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern QUOTES_PATTERN = Pattern.compile("[`\"\\[\\]]");
+    private static final Pattern TRAILING_ORDER_BY_PATTERN = Pattern.compile(
+            "\\bORDER\\s+BY\\s+([^()]+?)\\s*(?:\\bLIMIT\\s+\\d+\\s*)?;?\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TRAILING_LIMIT_PATTERN = Pattern.compile(
+            "\\bLIMIT\\s+(\\d+)\\s*;?\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern OFFSET_PATTERN = Pattern.compile(
+            "\\bOFFSET\\s+\\d+|\\bLIMIT\\s+\\d+\\s*,", Pattern.CASE_INSENSITIVE);
+
+    private final String[] shards;
+    private final String shardKey;
+    private final boolean primaryShardKey;
+    private final ShardingStrategy shardingStrategy;
+    private final Pattern shardKeyPattern;
+
+    /**
+     * Invokes the logic for a shard.
+     */
+    @FunctionalInterface
+    public interface ShardInvoke<R> {
+        R apply(String dataSourceName) throws SQLException;
+    }
+
+    private ShardingRule(Class domainModelClass, DomainModel domainModel) {
+        PrimaryKey primaryKey = Tables.getPrimaryKey(domainModelClass);
+        String primaryKeyName = primaryKey == null ? domainModel.primaryColumnName() : primaryKey.name();
+
+        this.shards = domainModel.shards().clone();
+        this.shardKey = StringUtil.isBlank(domainModel.shardKey()) ? primaryKeyName : domainModel.shardKey();
+        this.primaryShardKey = shardKey.equalsIgnoreCase(primaryKeyName);
+        this.shardingStrategy = ClassUtils.createNewInstance(domainModel.shardingStrategy());
+        this.shardKeyPattern = Pattern.compile(String.format("(?<![\\w.])(?:[\\w`\"]+\\.)?[`\"\\[]?%s[`\"\\]]?\\s*=\\s*\\?",
+                Pattern.quote(shardKey)), Pattern.CASE_INSENSITIVE);
+    }
+
+    /**
+     * Returns the rule of the domain model, or null if the domain model is not sharded.
+     */
+    public static ShardingRule get(Class domainModelClass) {
+        return RULES.get(domainModelClass).orElse(null);
+    }
+
+    public String[] getShards() {
+        return shards.clone();
+    }
+
+    public String getShardKey() {
+        return shardKey;
+    }
+
+    /**
+     * Returns true if the primary key is the shard key, the rows can be located by primary key.
+     */
+    public boolean isPrimaryShardKey() {
+        return primaryShardKey;
+    }
+
+    /**
+     * Returns the name of data source which owns the value of shard key.
+     */
+    public String getShard(Object shardValue) {
+        Objects.requireNonNull(shardValue, "The shardValue cannot be null");
+        int index = shardingStrategy.getShardIndex(shardValue, shards.length);
+        if (index < 0 || index >= shards.length) {
+            throw new IllegalStateException(String.format("The shard %d of '%s' is out of %d shards",
+                    index, shardValue, shards.length));
+        }
+        return shards[index];
+    }
+
+    /**
+     * Returns the value of shard key in the domain object.
+     */
+    public Object getShardValue(DomainModelDescriptor descriptor, Object domainObject) {
+        if (primaryShardKey) {
+            return descriptor.getPrimaryValue(domainObject);
+        }
+        String fieldName = descriptor.getFieldName(shardKey);
+        if (fieldName == null) {
+            throw new IllegalStateException(String.format("The shard key '%s' of %s is absent", shardKey,
+                    descriptor.getDomainModelClass().getSimpleName()));
+        }
+        return descriptor.getFieldValue(domainObject, fieldName).getValue();
+    }
+
+    /**
+     * Returns the names of data source for the value of shard key, all shards are returned
+     * if the value is null.
+     *
+     * <p>All statements will be executed with the connection if current thread holds one,
+     * so the value must be owned by the data source of the connection.
+     *
+     * @throws QueryException if current thread holds a connection which is not of the shard,
+     *                        or the statement needs more than one shard in the connection
+     */
+    public List<String> route(Object shardValue) throws QueryException {
+        List<String> dataSourceNames = shardValue == null ? Arrays.asList(shards)
+                : Collections.singletonList(getShard(shardValue));
+        if (!Databases.hasCurrentThreadConnection()) {
+            return dataSourceNames;
+        }
+
+        String currentDataSourceName = Databases.getCurrentThreadDataSourceName();
+        if (dataSourceNames.size() > 1) {
+            throw new QueryException(String.format("The statement without shard key %s needs %d shards, it cannot be " +
+                    "executed with the connection of current thread", shardKey, dataSourceNames.size()));
+        } else if (!dataSourceNames.get(0).equals(currentDataSourceName)) {
+            throw new QueryException(String.format("The shard value '%s' is owned by '%s', but current thread " +
+                    "holds the connection of '%s'", shardValue, dataSourceNames.get(0), currentDataSourceName));
+        }
+        return dataSourceNames;
+    }
+
+    /**
+     * Returns the value of shard key constrained by the predicate, or null if it is not constrained.
+     *
+     * @param predicate the predicate or statement with the parameters as '?'
+     */
+    public Object findShardValue(String predicate, Object[] params) {
+        if (StringUtil.isBlank(predicate) || params == null || OR_NOT_PATTERN.matcher(predicate).find()) {
+            return null;
+        }
+
+        Matcher selectMatcher = SELECT_PATTERN.matcher(predicate);
+        if (selectMatcher.find() && selectMatcher.find()) {
+            return null;
+        }
+
+        Matcher matcher = shardKeyPattern.matcher(predicate);
+        if (!matcher.find() || countParameters(predicate) != params.length) {
+            return null;
+        }
+        // The parameter of shard key is the last '?' of the matched equality
+        int parameterIndex = countParameters(predicate.substring(0, matcher.end())) - 1;
+        return params[parameterIndex];
+    }
+
+    private static int countParameters(String sql) {
+        int count = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Parses the ordering of rows from the <code>ORDER BY</code> expression, the expression
+     * must consist of columns with optional directions.
+     *
+     * @return the ordering, or null if the expression is blank
+     * @throws IllegalArgumentException if the expression is not ordering by columns
+     */
+    public static Keyset parseOrdering(String orderBy) {
+        if (StringUtil.isBlank(orderBy)) {
+            return null;
+        }
+        return Keyset.of(QUOTES_PATTERN.matcher(orderBy).replaceAll("").split(","));
+    }
+
+    /**
+     * Invokes the logic for each shard, the shards are invoked in parallel by the scatter
+     * executor if more than one. The scatter executor is separated from the async executor,
+     * so that the asynchronous queries waiting for the shards never occupy the threads
+     * of shards.
+     *
+     * @return the results in the order of shards
+     * @see Databases#getScatterExecutor()
+     */
+    public static <R> List<R> scatter(List<String> dataSourceNames, ShardInvoke<R> shardInvoke) throws SQLException {
+        if (dataSourceNames.size() == 1) {
+            return Collections.singletonList(shardInvoke.apply(dataSourceNames.get(0)));
+        }
+
+        // The nested scattering, such as loading the sharded relations of shard rows, is
+        // invoked in current thread to avoid waiting for the threads of scatter executor
+        if (SCATTERING.get()) {
+            List<R> results = new ArrayList<>(dataSourceNames.size());
+            for (String dataSourceName : dataSourceNames) {
+                results.add(shardInvoke.apply(dataSourceName));
+            }
+            return results;
+        }
+
+        List<CompletableFuture<R>> futures = new ArrayList<>(dataSourceNames.size());
+        for (String dataSourceName : dataSourceNames) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                SCATTERING.set(true);
+                try {
+                    return shardInvoke.apply(dataSourceName);
+                } catch (SQLException ex) {
+                    throw new CompletionException(ex);
+                } finally {
+                    SCATTERING.remove();
+                }
+            }, Databases.getScatterExecutor()));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause.getMessage(), cause);
+        }
+
+        List<R> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<R> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    /**
+     * Merges the rows of shards queried by the statement, the trailing <code>ORDER BY</code>
+     * and <code>LIMIT</code> of statement are applied to the rows merged.
+     *
+     * @throws QueryException if the statement has an offset or an ordering not by columns,
+     *                        which cannot be applied to the rows merged
+     */
+    public static <T> List<T> gather(List<List<T>> shardRows, String sql,
+                                     DomainModelDescriptor descriptor) throws QueryException {
+        if (OFFSET_PATTERN.matcher(sql).find()) {
+            throw new QueryException("The statement with an offset cannot be scattered to shards");
+        }
+
+        Keyset ordering = null;
+        Matcher orderByMatcher = TRAILING_ORDER_BY_PATTERN.matcher(sql);
+        if (orderByMatcher.find()) {
+            try {
+                ordering = parseOrdering(orderByMatcher.group(1));
+            } catch (IllegalArgumentException ex) {
+                throw new QueryException(String.format("The ordering '%s' cannot be merged across shards",
+                        orderByMatcher.group(1)), ex);
+            }
+        }
+
+        Matcher limitMatcher = TRAILING_LIMIT_PATTERN.matcher(sql);
+        int limit = limitMatcher.find() ? Integer.parseInt(limitMatcher.group(1)) : -1;
+        return gather(shardRows, ordering, descriptor, 0, limit);
+    }
+
+    /**
+     * Merges the rows of shards by the ordering, and applies the offset and limit to the rows merged.
+     *
+     * @param ordering the ordering of rows, or null if the rows are unordered
+     * @param offset the count of rows skipped, it will be ignored if less than 1
+     * @param limit the maximum count of rows, it will be ignored if less than 1
+     */
+    public static <T> List<T> gather(List<List<T>> shardRows, Keyset ordering, DomainModelDescriptor descriptor,
+                                     int offset, int limit) {
+        List<T> rows = new ArrayList<>();
+        if (ordering == null) {
+            shardRows.forEach(rows::addAll);
+        } else {
+            List<Object[]> keys = new ArrayList<>();
+            Map<Object[], T> keyedRows = new IdentityHashMap<>();
+            for (List<T> shardRow : shardRows) {
+                for (T row : shardRow) {
+                    Object[] key = ordering.getKey(descriptor, row);
+                    keys.add(key);
+                    keyedRows.put(key, row);
+                }
+            }
+            keys.sort(ordering.getKeyComparator());
+            keys.forEach(key -> rows.add(keyedRows.get(key)));
+        }
+
+        int fromIndex = Math.min(Math.max(offset, 0), rows.size());
+        int toIndex = limit > 0 ? Math.min(fromIndex + limit, rows.size()) : rows.size();
+        return fromIndex == 0 && toIndex == rows.size() ? rows : new ArrayList<>(rows.subList(fromIndex, toIndex));
+    }
+}
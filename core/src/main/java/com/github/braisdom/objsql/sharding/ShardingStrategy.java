@@ -0,0 +1,34 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.sharding;
+
+/**
+ * A strategy which maps the value of shard key to a shard of the domain model.
+ *
+ * @see com.github.braisdom.objsql.annotations.DomainModel#shardingStrategy()
+ */
+public interface ShardingStrategy {
+
+    /**
+     * Returns the index of shard owning the value.
+     *
+     * @param shardValue the value of shard key, it is never null
+     * @param shardCount the count of shards
+     * @return an index from 0 to <code>shardCount - 1</code>
+     */
+    int getShardIndex(Object shardValue, int shardCount);
+}
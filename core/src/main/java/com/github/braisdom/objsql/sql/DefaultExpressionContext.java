@@ -27,10 +27,18 @@ public class DefaultExpressionContext implements ExpressionContext {
 
     private final DatabaseType databaseType;
     private final List<Dataset> datasets;
+    private final boolean parameterized;
+    private final List<Object> parameters;
 
     public DefaultExpressionContext(DatabaseType databaseType) {
+        this(databaseType, false);
+    }
+
+    public DefaultExpressionContext(DatabaseType databaseType, boolean parameterized) {
         this.databaseType = databaseType;
         this.datasets = new ArrayList<>();
+        this.parameterized = parameterized;
+        this.parameters = new ArrayList<>();
     }
 
     @Override
@@ -65,4 +73,20 @@ public class DefaultExpressionContext implements ExpressionContext {
     public String quoteString(String stringValue) {
         return String.format("'%s'", stringValue);
     }
+
+    @Override
+    public boolean isParameterized() {
+        return parameterized;
+    }
+
+    @Override
+    public String addParameter(Object value) {
+        parameters.add(value);
+        return "?";
+    }
+
+    @Override
+    public Object[] getParameters() {
+        return parameters.toArray();
+    }
 }
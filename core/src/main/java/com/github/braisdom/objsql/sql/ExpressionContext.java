@@ -31,4 +31,17 @@ public interface ExpressionContext {
     String quoteColumn(String columnName);
 
     String quoteString(String stringValue);
+
+    /**
+     * Returns true if the literal values should be bound as parameters of
+     * <code>PreparedStatement</code> instead of inlined into SQL.
+     */
+    boolean isParameterized();
+
+    /**
+     * Collects the value in order and returns the placeholder rendered into SQL.
+     */
+    String addParameter(Object value);
+
+    Object[] getParameters();
 }
@@ -19,6 +19,7 @@ package com.github.braisdom.objsql.sql;
 import com.github.braisdom.objsql.DatabaseType;
 import com.github.braisdom.objsql.Tables;
 import com.github.braisdom.objsql.sql.expression.JoinExpression;
+import com.github.braisdom.objsql.sql.expression.KeysetExpression;
 import com.github.braisdom.objsql.util.FunctionWithThrowable;
 import com.github.braisdom.objsql.util.SuppressedException;
 
@@ -35,11 +36,67 @@ public class Select<T> extends AbstractExpression implements Dataset {
     protected Expression[] groupByExpressions;
     protected Expression havingExpression;
     protected Expression[] orderByExpressions;
+    protected LogicalExpression keysetExpression;
     protected int limit = -1;
     protected int offset = -1;
     protected Dataset[] unionDatasets;
     protected Dataset[] unionAllDatasets;
 
+    /**
+     * The context which inlines the literal values into SQL, the literals of projections,
+     * grouping and ordering must be identical in SQL, otherwise the bound parameters are
+     * regarded as different expressions, such as the projection which must appear in
+     * <code>GROUP BY</code> of PostgreSQL, Oracle and SQL Server.
+     */
+    private static class InlinedExpressionContext implements ExpressionContext {
+
+        private final ExpressionContext expressionContext;
+
+        public InlinedExpressionContext(ExpressionContext expressionContext) {
+            this.expressionContext = expressionContext;
+        }
+
+        @Override
+        public DatabaseType getDatabaseType() {
+            return expressionContext.getDatabaseType();
+        }
+
+        @Override
+        public String getAlias(Dataset dataset, boolean forceCreate) {
+            return expressionContext.getAlias(dataset, forceCreate);
+        }
+
+        @Override
+        public String quoteTable(String tableName) {
+            return expressionContext.quoteTable(tableName);
+        }
+
+        @Override
+        public String quoteColumn(String columnName) {
+            return expressionContext.quoteColumn(columnName);
+        }
+
+        @Override
+        public String quoteString(String stringValue) {
+            return expressionContext.quoteString(stringValue);
+        }
+
+        @Override
+        public boolean isParameterized() {
+            return false;
+        }
+
+        @Override
+        public String addParameter(Object value) {
+            throw new UnsupportedOperationException("The literal values are inlined");
+        }
+
+        @Override
+        public Object[] getParameters() {
+            return expressionContext.getParameters();
+        }
+    }
+
     public Select() {
         // Do nothing
     }
@@ -119,6 +176,23 @@ public class Select<T> extends AbstractExpression implements Dataset {
         return this;
     }
 
+    /**
+     * Seeks the rows after the last-seen key for keyset pagination, the rows are ordered by
+     * the columns in the same direction, the ordering given before will be replaced. The columns
+     * should be covered by an index, and the last of them must be unique.
+     *
+     * @param lastKey the values of columns in the last row of previous page,
+     *                or null for the first page
+     */
+    public Select seek(Object[] lastKey, boolean descending, Column... columns) {
+        if (lastKey != null) {
+            this.keysetExpression = new KeysetExpression(columns, lastKey, descending);
+        }
+        this.orderByExpressions = Arrays.stream(columns)
+                .map(column -> descending ? column.desc() : column.asc()).toArray(Expression[]::new);
+        return this;
+    }
+
     public Select limit(int limit) {
         this.limit = limit;
         return this;
@@ -145,8 +219,9 @@ public class Select<T> extends AbstractExpression implements Dataset {
     }
 
     public List<T> execute(DatabaseType databaseType, Class<T> domainClass) throws SQLException, SQLSyntaxException {
-        String sql = toSql(new DefaultExpressionContext(databaseType));
-        return Tables.query(domainClass, sql);
+        ExpressionContext expressionContext = new DefaultExpressionContext(databaseType, true);
+        String sql = toSql(expressionContext);
+        return Tables.query(domainClass, sql, expressionContext.getParameters());
     }
 
     @Override
@@ -160,14 +235,7 @@ public class Select<T> extends AbstractExpression implements Dataset {
         processWhere(expressionContext, sql);
         processGroupBy(expressionContext, sql);
         processOrderBy(expressionContext, sql);
-
-        if (offset > 0) {
-            sql.append(" OFFSET ").append(offset);
-        }
-
-        if (limit > 0) {
-            sql.append(" LIMIT ").append(limit);
-        }
+        processPagination(expressionContext, sql);
 
         processUnion(expressionContext, sql);
 
@@ -175,13 +243,14 @@ public class Select<T> extends AbstractExpression implements Dataset {
     }
 
     protected void processProjections(ExpressionContext expressionContext, StringBuilder sql) throws SQLSyntaxException {
+        ExpressionContext inlinedContext = inline(expressionContext);
         if (projections.size() == 0) {
             sql.append(" * ");
         } else {
             try {
                 String[] projectionStrings = projections.stream()
                         .map(FunctionWithThrowable
-                                .castFunctionWithThrowable(projection -> projection.toSql(expressionContext))).toArray(String[]::new);
+                                .castFunctionWithThrowable(projection -> projection.toSql(inlinedContext))).toArray(String[]::new);
                 sql.append(String.join(",", projectionStrings));
             } catch (SuppressedException ex) {
                 if (ex.getCause() instanceof SQLSyntaxException) {
@@ -214,9 +283,13 @@ public class Select<T> extends AbstractExpression implements Dataset {
     }
 
     protected void processWhere(ExpressionContext expressionContext, StringBuilder sql) throws SQLSyntaxException {
-        if (whereExpression != null) {
+        LogicalExpression expression = whereExpression;
+        if (keysetExpression != null) {
+            expression = expression == null ? keysetExpression : expression.and(keysetExpression);
+        }
+        if (expression != null) {
             sql.append(" WHERE ");
-            sql.append(whereExpression.toSql(expressionContext));
+            sql.append(expression.toSql(expressionContext));
         }
     }
 
@@ -239,12 +312,13 @@ public class Select<T> extends AbstractExpression implements Dataset {
     }
 
     protected void processGroupBy(ExpressionContext expressionContext, StringBuilder sql) throws SQLSyntaxException {
+        ExpressionContext inlinedContext = inline(expressionContext);
         if (groupByExpressions != null && groupByExpressions.length > 0) {
             try {
                 sql.append(" GROUP BY ");
                 String[] groupByStrings = Arrays.stream(groupByExpressions)
                         .map(FunctionWithThrowable
-                                .castFunctionWithThrowable(groupBy -> groupBy.toSql(expressionContext))).toArray(String[]::new);
+                                .castFunctionWithThrowable(groupBy -> groupBy.toSql(inlinedContext))).toArray(String[]::new);
                 sql.append(String.join(", ", groupByStrings));
 
                 if (havingExpression != null) {
@@ -262,12 +336,13 @@ public class Select<T> extends AbstractExpression implements Dataset {
     }
 
     protected void processOrderBy(ExpressionContext expressionContext, StringBuilder sql) throws SQLSyntaxException {
+        ExpressionContext inlinedContext = inline(expressionContext);
         if (orderByExpressions != null && orderByExpressions.length > 0) {
             try {
                 sql.append(" ORDER BY ");
                 String[] orderByStrings = Arrays.stream(orderByExpressions)
                         .map(FunctionWithThrowable
-                                .castFunctionWithThrowable(orderBy -> orderBy.toSql(expressionContext))).toArray(String[]::new);
+                                .castFunctionWithThrowable(orderBy -> orderBy.toSql(inlinedContext))).toArray(String[]::new);
                 sql.append(String.join(", ", orderByStrings));
             } catch (SuppressedException ex) {
                 if (ex.getCause() instanceof SQLSyntaxException) {
@@ -279,6 +354,21 @@ public class Select<T> extends AbstractExpression implements Dataset {
         }
     }
 
+    /**
+     * Returns the context inlining the literal values, only the literals of predicates,
+     * such as <code>WHERE</code> and <code>HAVING</code>, are bound as parameters.
+     */
+    protected ExpressionContext inline(ExpressionContext expressionContext) {
+        return expressionContext.isParameterized() ? new InlinedExpressionContext(expressionContext) : expressionContext;
+    }
+
+    protected void processPagination(ExpressionContext expressionContext, StringBuilder sql) {
+        DatabaseType databaseType = expressionContext.getDatabaseType() == null
+                ? DatabaseType.Unknown : expressionContext.getDatabaseType();
+        boolean ordered = orderByExpressions != null && orderByExpressions.length > 0;
+        sql.append(databaseType.getPaginationClause(ordered, offset, limit));
+    }
+
     protected void processUnion(ExpressionContext expressionContext, StringBuilder sql) throws SQLSyntaxException {
         if (unionDatasets != null) {
             for (Dataset dataset : unionDatasets) {
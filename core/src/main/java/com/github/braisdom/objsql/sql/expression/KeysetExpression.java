@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.sql.expression;
+
+import com.github.braisdom.objsql.DatabaseType;
+import com.github.braisdom.objsql.sql.*;
+
+import java.util.StringJoiner;
+
+/**
+ * The predicate of rows after the last-seen key, it is rendered as a comparison of row values,
+ * such as <code>(a, b) &gt; (?, ?)</code>, or expanded as <code>(a &gt; ?) OR (a = ? AND b &gt; ?)</code>
+ * for the database which does not support it.
+ */
+public class KeysetExpression extends AbstractExpression implements LogicalExpression {
+
+    private final Expression[] columns;
+    private final Object[] lastKey;
+    private final boolean descending;
+
+    public KeysetExpression(Expression[] columns, Object[] lastKey, boolean descending) {
+        if (columns.length == 0 || columns.length != lastKey.length) {
+            throw new IllegalArgumentException("The lastKey requires a value for each column");
+        }
+        this.columns = columns;
+        this.lastKey = lastKey;
+        this.descending = descending;
+    }
+
+    @Override
+    public LogicalExpression and(LogicalExpression logicalExpression) {
+        return new PolynaryExpression(PolynaryExpression.AND, this, logicalExpression);
+    }
+
+    @Override
+    public LogicalExpression or(LogicalExpression logicalExpression) {
+        return new PolynaryExpression(PolynaryExpression.OR, this, logicalExpression);
+    }
+
+    @Override
+    public String toSql(ExpressionContext expressionContext) throws SQLSyntaxException {
+        String operator = descending ? " < " : " > ";
+        DatabaseType databaseType = expressionContext.getDatabaseType();
+
+        if (columns.length > 1 && databaseType != null && databaseType.supportsRowValueComparison()) {
+            StringJoiner columnStrings = new StringJoiner(", ", "(", ")");
+            StringJoiner valueStrings = new StringJoiner(", ", "(", ")");
+            for (int i = 0; i < columns.length; i++) {
+                columnStrings.add(columns[i].toSql(expressionContext).trim());
+                valueStrings.add(new LiteralExpression(lastKey[i]).toSql(expressionContext));
+            }
+            return columnStrings + operator + valueStrings;
+        }
+
+        StringJoiner disjunction = new StringJoiner(" OR ", "(", ")");
+        for (int i = 0; i < columns.length; i++) {
+            StringJoiner conjunction = new StringJoiner(" AND ", "(", ")");
+            for (int j = 0; j < i; j++) {
+                conjunction.add(columns[j].toSql(expressionContext).trim() + PolynaryExpression.EQ
+                        + new LiteralExpression(lastKey[j]).toSql(expressionContext));
+            }
+            conjunction.add(columns[i].toSql(expressionContext).trim() + operator
+                    + new LiteralExpression(lastKey[i]).toSql(expressionContext));
+            disjunction.add(conjunction.toString());
+        }
+        return disjunction.toString();
+    }
+}
@@ -35,6 +35,9 @@ public class LiteralExpression extends AbstractExpression {
         if(rawLiteral == null) {
             return " NULL ";
         }
+        if(expressionContext.isParameterized()) {
+            return expressionContext.addParameter(rawLiteral);
+        }
         if(String.class.isAssignableFrom(rawLiteral.getClass())) {
             return String.format("'%s'", rawLiteral);
         }
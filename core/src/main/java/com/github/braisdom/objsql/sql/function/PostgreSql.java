@@ -58,7 +58,10 @@ public class PostgreSql {
         return new LiteralExpression(str) {
             @Override
             public String toSql(ExpressionContext expressionContext) throws SQLSyntaxException {
-                return String.format("date %s", super.toSql(expressionContext));
+                String literal = super.toSql(expressionContext);
+                // The typed literal cannot be parameterized, such as date ?
+                return expressionContext.isParameterized() ? String.format("CAST(%s AS date)", literal)
+                        : String.format("date %s", literal);
             }
         };
     }
@@ -67,7 +70,9 @@ public class PostgreSql {
         return new LiteralExpression(str) {
             @Override
             public String toSql(ExpressionContext expressionContext) throws SQLSyntaxException {
-                return String.format("timestamp %s", super.toSql(expressionContext));
+                String literal = super.toSql(expressionContext);
+                return expressionContext.isParameterized() ? String.format("CAST(%s AS timestamp)", literal)
+                        : String.format("timestamp %s", literal);
             }
         };
     }
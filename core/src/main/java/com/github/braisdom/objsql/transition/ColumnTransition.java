@@ -16,6 +16,7 @@
  */
 package com.github.braisdom.objsql.transition;
 
+import com.github.braisdom.objsql.DatabaseContext;
 import com.github.braisdom.objsql.FieldValue;
 import com.github.braisdom.objsql.TableRowAdapter;
 
@@ -25,6 +26,10 @@ import java.sql.SQLException;
 
 /**
  * A transition between database and Java bean.
+ *
+ * <p>The methods with <code>DatabaseContext</code> are invoked by ObjectiveSql, and delegate to
+ * the methods with <code>DatabaseMetaData</code> by default, the metadata answers the product
+ * name of database without accessing the connection.
  * @param <T>
  */
 public interface ColumnTransition<T> {
@@ -50,4 +55,17 @@ public interface ColumnTransition<T> {
                           String fieldName, Object columnValue) throws SQLException {
         return columnValue;
     }
+
+    default Object sinking(DatabaseContext databaseContext,
+                           T object, TableRowAdapter tableRowDescriptor,
+                           String fieldName, FieldValue fieldValue) throws SQLException {
+        return sinking(databaseContext.getMetaData(), object, tableRowDescriptor, fieldName, fieldValue);
+    }
+
+    default Object rising(DatabaseContext databaseContext, ResultSetMetaData resultSetMetaData,
+                          T object, TableRowAdapter tableRowDescriptor,
+                          String fieldName, Object columnValue) throws SQLException {
+        return rising(databaseContext.getMetaData(), resultSetMetaData, object, tableRowDescriptor,
+                fieldName, columnValue);
+    }
 }
@@ -16,6 +16,8 @@
  */
 package com.github.braisdom.objsql.transition;
 
+import com.github.braisdom.objsql.DatabaseContext;
+import com.github.braisdom.objsql.DatabaseType;
 import com.github.braisdom.objsql.FieldValue;
 import com.github.braisdom.objsql.TableRowAdapter;
 
@@ -33,13 +35,34 @@ public class SqlDateTimeTransition<T> implements ColumnTransition<T> {
     @Override
     public Object sinking(DatabaseMetaData databaseMetaData, T object,
                           TableRowAdapter tableRowDescriptor, String fieldName, FieldValue fieldValue) throws SQLException {
-        String databaseName = databaseMetaData.getDatabaseProductName();
+        return sinking(DatabaseType.resolve(databaseMetaData.getDatabaseProductName()), fieldValue);
+    }
+
+    @Override
+    public Object sinking(DatabaseContext databaseContext, T object,
+                          TableRowAdapter tableRowDescriptor, String fieldName, FieldValue fieldValue) throws SQLException {
+        return sinking(databaseContext.getDatabaseType(), fieldValue);
+    }
+
+    @Override
+    public Object rising(DatabaseMetaData databaseMetaData, ResultSetMetaData resultSetMetaData,
+                         T object, TableRowAdapter tableRowDescriptor, String columnName, Object columnValue) throws SQLException {
+        return rising(DatabaseType.resolve(databaseMetaData.getDatabaseProductName()), columnName, columnValue);
+    }
+
+    @Override
+    public Object rising(DatabaseContext databaseContext, ResultSetMetaData resultSetMetaData,
+                         T object, TableRowAdapter tableRowDescriptor, String columnName, Object columnValue) throws SQLException {
+        return rising(databaseContext.getDatabaseType(), columnName, columnValue);
+    }
+
+    private Object sinking(DatabaseType databaseType, FieldValue fieldValue) {
         if (fieldValue != null && fieldValue.getValue() != null) {
-            if (SQLite.nameEquals(databaseName)) {
+            if (databaseType == SQLite) {
                 return fieldValue;
-            } else if(Oracle.nameEquals(databaseName)) {
+            } else if(databaseType == Oracle) {
                 return fieldValue;
-            }else if (PostgreSQL.nameEquals(databaseName)) {
+            }else if (databaseType == PostgreSQL) {
                 if (fieldValue.getValue() instanceof Timestamp) {
                     fieldValue.setValue(fieldValue.getValue().toString());
                     return fieldValue;
@@ -52,13 +75,10 @@ public class SqlDateTimeTransition<T> implements ColumnTransition<T> {
         return null;
     }
 
-    @Override
-    public Object rising(DatabaseMetaData databaseMetaData, ResultSetMetaData resultSetMetaData,
-                         T object, TableRowAdapter tableRowDescriptor, String columnName, Object columnValue) throws SQLException {
-        String databaseName = databaseMetaData.getDatabaseProductName();
+    private Object rising(DatabaseType databaseType, String columnName, Object columnValue) {
         try {
             if (columnValue != null) {
-                if (SQLite.nameEquals(databaseName)) {
+                if (databaseType == SQLite) {
                     return Timestamp.from(Instant.ofEpochMilli(Long.valueOf(String.valueOf(columnValue))));
                 } else {
                     return columnValue;
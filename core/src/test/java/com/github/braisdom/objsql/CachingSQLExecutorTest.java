@@ -0,0 +1,205 @@
+package com.github.braisdom.objsql;
+
+import com.github.braisdom.objsql.annotations.DomainModel;
+import com.github.braisdom.objsql.annotations.PrimaryKey;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+public class CachingSQLExecutorTest {
+
+    @DomainModel(tableName = "orders", shards = {"orders_0", "orders_1"})
+    public static class Order {
+        @PrimaryKey(name = "id")
+        private Long id;
+        private String shard;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getShard() {
+            return shard;
+        }
+
+        public void setShard(String shard) {
+            this.shard = shard;
+        }
+    }
+
+    private static Connection createConnection() {
+        DatabaseMetaData metaData = (DatabaseMetaData) Proxy.newProxyInstance(
+                CachingSQLExecutorTest.class.getClassLoader(), new Class[]{DatabaseMetaData.class},
+                (proxy, method, args) -> "getDatabaseProductName".equals(method.getName()) ? "MySQL" : null);
+        return (Connection) Proxy.newProxyInstance(CachingSQLExecutorTest.class.getClassLoader(),
+                new Class[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMetaData":
+                            return metaData;
+                        case "getAutoCommit":
+                            return true;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    public static class ShardExecutor implements SQLExecutor<Order> {
+        private final List<String> queriedShards = new ArrayList<>();
+        private Runnable onQuery = () -> {};
+
+        @Override
+        public List<Order> query(Connection connection, String sql, TableRowAdapter tableRowAdapter,
+                                 Object... params) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Order> query(DatabaseContext databaseContext, String sql, TableRowAdapter tableRowAdapter,
+                                 Object... params) {
+            queriedShards.add(databaseContext.getDataSourceName());
+            onQuery.run();
+            Order order = new Order();
+            order.setId(1L);
+            order.setShard(databaseContext.getDataSourceName());
+            return Collections.singletonList(order);
+        }
+
+        @Override
+        public int execute(Connection connection, String sql, Object... params) {
+            return 1;
+        }
+    }
+
+    @Test
+    public void testQueryShards() throws SQLException {
+        ShardExecutor shardExecutor = new ShardExecutor();
+        CachingSQLExecutor<Order> cachingSQLExecutor = new CachingSQLExecutor<>(shardExecutor,
+                new LocalQueryResultCache(100, 60_000));
+        BeanModelDescriptor<Order> descriptor = new BeanModelDescriptor<>(Order.class);
+        String sql = "SELECT * FROM orders WHERE id = ?";
+
+        DatabaseContext shard0 = DatabaseContext.resolve("orders_0", createConnection());
+        DatabaseContext shard1 = DatabaseContext.resolve("orders_1", createConnection());
+        Assertions.assertEquals(cachingSQLExecutor.query(shard0, sql, descriptor, 1L).get(0).getShard(), "orders_0");
+        Assertions.assertEquals(cachingSQLExecutor.query(shard1, sql, descriptor, 1L).get(0).getShard(), "orders_1");
+        Assertions.assertEquals(cachingSQLExecutor.query(shard0, sql, descriptor, 1L).get(0).getShard(), "orders_0");
+        Assertions.assertEquals(cachingSQLExecutor.query(shard1, sql, descriptor, 1L).get(0).getShard(), "orders_1");
+
+        Assertions.assertEquals(shardExecutor.queriedShards, Arrays.asList("orders_0", "orders_1"));
+        Assertions.assertEquals(cachingSQLExecutor.getHitCount(), 2);
+        Assertions.assertEquals(cachingSQLExecutor.getMissCount(), 2);
+    }
+
+    @Test
+    public void testInvalidateWhileQuerying() throws SQLException {
+        ShardExecutor shardExecutor = new ShardExecutor();
+        CachingSQLExecutor<Order> cachingSQLExecutor = new CachingSQLExecutor<>(shardExecutor,
+                new LocalQueryResultCache(100, 60_000));
+        BeanModelDescriptor<Order> descriptor = new BeanModelDescriptor<>(Order.class);
+        DatabaseContext shard0 = DatabaseContext.resolve("orders_0", createConnection());
+        String sql = "SELECT * FROM orders WHERE id = ?";
+
+        shardExecutor.onQuery = () -> cachingSQLExecutor.invalidateTable("orders");
+        cachingSQLExecutor.query(shard0, sql, descriptor, 1L);
+        shardExecutor.onQuery = () -> {};
+        cachingSQLExecutor.query(shard0, sql, descriptor, 1L);
+        cachingSQLExecutor.query(shard0, sql, descriptor, 1L);
+
+        Assertions.assertEquals(shardExecutor.queriedShards.size(), 2);
+        Assertions.assertEquals(cachingSQLExecutor.getHitCount(), 1);
+    }
+
+    @Test
+    public void testInvalidateAfterTransaction() throws SQLException {
+        ShardExecutor shardExecutor = new ShardExecutor();
+        CachingSQLExecutor<Order> cachingSQLExecutor = new CachingSQLExecutor<>(shardExecutor,
+                new LocalQueryResultCache(100, 60_000));
+        BeanModelDescriptor<Order> descriptor = new BeanModelDescriptor<>(Order.class);
+        DatabaseContext shard0 = DatabaseContext.resolve("orders_0", createConnection());
+        String sql = "SELECT * FROM orders WHERE id = ?";
+
+        Connection connection = createConnection();
+        Databases.setCurrentThreadConnection("orders_0", connection);
+        try {
+            cachingSQLExecutor.execute(connection, "UPDATE orders SET shard = ? WHERE id = ?", "orders_0", 1L);
+            // Cached by another thread with the row before committing
+            cachingSQLExecutor.query(shard0, sql, descriptor, 1L);
+        } finally {
+            Databases.clearCurrentThreadConnection();
+        }
+        cachingSQLExecutor.query(shard0, sql, descriptor, 1L);
+
+        Assertions.assertEquals(shardExecutor.queriedShards.size(), 2);
+        Assertions.assertEquals(cachingSQLExecutor.getEvictionCount(), 1);
+    }
+
+    private static boolean isInvalidatedBy(String writeSql) throws SQLException {
+        ShardExecutor shardExecutor = new ShardExecutor();
+        CachingSQLExecutor<Order> cachingSQLExecutor = new CachingSQLExecutor<>(shardExecutor,
+                new LocalQueryResultCache(100, 60_000));
+        BeanModelDescriptor<Order> descriptor = new BeanModelDescriptor<>(Order.class);
+        DatabaseContext shard0 = DatabaseContext.resolve("orders_0", createConnection());
+        String sql = "SELECT * FROM orders o JOIN `shop`.`items` i ON i.order_id = o.id WHERE o.id = ?";
+
+        cachingSQLExecutor.query(shard0, sql, descriptor, 1L);
+        cachingSQLExecutor.execute(createConnection(), writeSql);
+        cachingSQLExecutor.query(shard0, sql, descriptor, 1L);
+        return shardExecutor.queriedShards.size() == 2;
+    }
+
+    @Test
+    public void testReadTableNames() {
+        BeanModelDescriptor<Order> descriptor = new BeanModelDescriptor<>(Order.class);
+
+        Assertions.assertEquals(CachingSQLExecutor.getReadTableNames("SELECT 1", descriptor),
+                new HashSet<>(Arrays.asList("orders")));
+        Assertions.assertEquals(CachingSQLExecutor.getReadTableNames("SELECT * FROM `shop`.`Orders` o "
+                        + "LEFT JOIN \"Items\" i ON i.order_id = o.id join [dbo].[Users] u ON u.id = o.user_id",
+                descriptor), new HashSet<>(Arrays.asList("orders", "items", "users")));
+        Assertions.assertEquals(CachingSQLExecutor.getReadTableNames("SELECT * FROM (SELECT id FROM products) t "
+                        + "WHERE t.id IN (SELECT product_id from line_items)", descriptor),
+                new HashSet<>(Arrays.asList("orders", "products", "line_items")));
+        Assertions.assertEquals(CachingSQLExecutor.getReadTableNames("SELECT * FROM orders o, `shop`.`Items` AS i,"
+                        + "users WHERE i.order_id = o.id ORDER BY o.id, i.id", descriptor),
+                new HashSet<>(Arrays.asList("orders", "items", "users")));
+        Assertions.assertEquals(CachingSQLExecutor.getReadTableNames("SELECT * FROM (SELECT * FROM orders "
+                        + "WHERE id IN (?, ?)) j0, items i LEFT JOIN users u ON u.id = i.user_id", descriptor),
+                new HashSet<>(Arrays.asList("orders", "items", "users")));
+        Assertions.assertEquals(CachingSQLExecutor.getReadTableNames("SELECT from_date, join_date FROM orders "
+                + "WHERE id = ? GROUP BY from_date, join_date", descriptor), new HashSet<>(Arrays.asList("orders")));
+        // The result is not cached if the tables cannot be parsed
+        Assertions.assertNull(CachingSQLExecutor.getReadTableNames("SELECT * FROM orders, (SELECT 1", descriptor));
+        Assertions.assertNull(CachingSQLExecutor.getReadTableNames("SELECT * FROM orders, ?", descriptor));
+    }
+
+    @Test
+    public void testInvalidateByWrites() throws SQLException {
+        Assertions.assertTrue(isInvalidatedBy("UPDATE orders SET shard = ?"));
+        Assertions.assertTrue(isInvalidatedBy("  insert ignore into `Orders` (id) VALUES (?)"));
+        Assertions.assertTrue(isInvalidatedBy("REPLACE INTO shop.items (id) VALUES (?)"));
+        Assertions.assertTrue(isInvalidatedBy("MERGE INTO \"ITEMS\" USING dual ON (1 = 1)"));
+        Assertions.assertTrue(isInvalidatedBy("DELETE FROM [dbo].[orders] WHERE id = ?"));
+        Assertions.assertTrue(isInvalidatedBy("TRUNCATE TABLE items"));
+        Assertions.assertTrue(isInvalidatedBy("COPY orders FROM STDIN"));
+        // The statement of unknown table clears all cached results
+        Assertions.assertTrue(isInvalidatedBy("CALL refresh_orders()"));
+
+        Assertions.assertFalse(isInvalidatedBy("UPDATE users SET name = ?"));
+        Assertions.assertFalse(isInvalidatedBy("DELETE FROM orders_archive WHERE id = ?"));
+        Assertions.assertFalse(isInvalidatedBy("SELECT * FROM orders FOR UPDATE"));
+    }
+}
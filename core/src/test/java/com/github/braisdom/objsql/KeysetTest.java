@@ -0,0 +1,53 @@
+package com.github.braisdom.objsql;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+public class KeysetTest {
+
+    @Test
+    public void testPredicate() {
+        Keyset keyset = Keyset.of("created_at DESC", "id DESC");
+        Object[] lastKey = new Object[]{LocalDate.of(2020, 1, 1), 10L};
+
+        Assertions.assertEquals(keyset.getPredicate("MySQL"), "(`created_at`, `id`) < (?, ?)");
+        Assertions.assertArrayEquals(keyset.getParameters("MySQL", lastKey), lastKey);
+        Assertions.assertEquals(keyset.getOrderBy("MySQL"), "`created_at` DESC, `id` DESC");
+
+        Assertions.assertEquals(keyset.getPredicate("Microsoft SQL Server"),
+                "((\"created_at\" < ?) OR (\"created_at\" = ? AND \"id\" < ?))");
+        Assertions.assertArrayEquals(keyset.getParameters("Microsoft SQL Server", lastKey),
+                new Object[]{lastKey[0], lastKey[0], 10L});
+
+        Assertions.assertEquals(Keyset.of("name", "id DESC").getPredicate("PostgreSQL"),
+                "((\"name\" > ?) OR (\"name\" = ? AND \"id\" < ?))");
+    }
+
+    @Test
+    public void testContinuationToken() {
+        Keyset keyset = Keyset.of("a", "b", "c", "d");
+        Timestamp timestamp = new Timestamp(1600000000123L);
+        timestamp.setNanos(123456789);
+        Object[] lastKey = new Object[]{"abc/+=", new BigDecimal("12.50"), timestamp, 7};
+
+        String token = keyset.encode(lastKey);
+        Assertions.assertTrue(token.matches("[A-Za-z0-9_-]+"));
+        Assertions.assertArrayEquals(keyset.decode(token), lastKey);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Keyset.of("a").decode(token));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> keyset.encode(new Object[]{1, 2, 3, null}));
+    }
+
+    @Test
+    public void testPaginationClause() {
+        Assertions.assertEquals(DatabaseType.MySQL.getPaginationClause(true, 20, 10), " LIMIT 10 OFFSET 20");
+        Assertions.assertEquals(DatabaseType.SQLite.getPaginationClause(false, 20, -1), " LIMIT -1 OFFSET 20");
+        Assertions.assertEquals(DatabaseType.Oracle.getPaginationClause(true, 20, 10),
+                " OFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY");
+        Assertions.assertEquals(DatabaseType.resolve("Microsoft SQL Server").getPaginationClause(false, -1, 10),
+                " ORDER BY (SELECT NULL) OFFSET 0 ROWS FETCH NEXT 10 ROWS ONLY");
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.braisdom.objsql;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketIndex() {
+        long[] values = {0, 1, 127, 128, 129, 255, 256, 1000, 1_000_000, 123_456_789_012L, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.getBucketIndex(value);
+            Assertions.assertTrue(LatencyHistogram.getHighestValue(index) >= value);
+            Assertions.assertTrue(index == 0 || LatencyHistogram.getHighestValue(index - 1) < value);
+        }
+    }
+
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        Assertions.assertEquals(histogram.getCount(), 100_000);
+        Assertions.assertEquals(histogram.getMax(), 100_000_000);
+        Assertions.assertEquals(histogram.getMean(), 50_000_500, 1);
+        Assertions.assertEquals(histogram.getValueAtPercentile(50), 50_000_000, 50_000_000 * 0.016);
+        Assertions.assertEquals(histogram.getValueAtPercentile(99), 99_000_000, 99_000_000 * 0.016);
+        Assertions.assertEquals(histogram.getValueAtPercentile(100), 100_000_000);
+
+        histogram.reset();
+        Assertions.assertEquals(histogram.getCount(), 0);
+        Assertions.assertEquals(histogram.getValueAtPercentile(99), 0);
+    }
+}
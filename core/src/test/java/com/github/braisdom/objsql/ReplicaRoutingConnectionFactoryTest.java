@@ -0,0 +1,117 @@
+package com.github.braisdom.objsql;
+
+import com.github.braisdom.objsql.ReplicaRoutingConnectionFactory.Replica;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ReplicaRoutingConnectionFactoryTest {
+
+    private static Connection createConnection(String name) {
+        return (Connection) Proxy.newProxyInstance(ReplicaRoutingConnectionFactoryTest.class.getClassLoader(),
+                new Class[]{Connection.class}, (proxy, method, args) -> "toString".equals(method.getName()) ? name : null);
+    }
+
+    private static DataSource createDataSource(String name, AtomicBoolean failing) {
+        return (DataSource) Proxy.newProxyInstance(ReplicaRoutingConnectionFactoryTest.class.getClassLoader(),
+                new Class[]{DataSource.class}, (proxy, method, args) -> {
+                    if (!"getConnection".equals(method.getName())) {
+                        return null;
+                    }
+                    if (failing.get()) {
+                        throw new SQLException(name + " is down");
+                    }
+                    return createConnection(name);
+                });
+    }
+
+    private static ReplicaRoutingConnectionFactory createConnectionFactory(long pinningMillis,
+                                                                           AtomicBoolean failing1,
+                                                                           AtomicBoolean failing2) {
+        return new ReplicaRoutingConnectionFactory(dataSourceName -> createConnection("primary"), pinningMillis, 60_000)
+                .addReplica("orders", "replica-1", createDataSource("replica-1", failing1), 1)
+                .addReplica("orders", "replica-2", createDataSource("replica-2", failing2), 2);
+    }
+
+    @Test
+    public void testChooseReplica() throws SQLException {
+        ReplicaRoutingConnectionFactory connectionFactory = createConnectionFactory(0,
+                new AtomicBoolean(), new AtomicBoolean());
+        Replica replica1 = connectionFactory.getReplicas("orders").get(0);
+        Replica replica2 = connectionFactory.getReplicas("orders").get(1);
+
+        // The replicas are loaded by their weights
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            connections.add(connectionFactory.getReadOnlyConnection("orders"));
+        }
+        Assertions.assertEquals(replica1.getActiveCount(), 2);
+        Assertions.assertEquals(replica2.getActiveCount(), 4);
+        Assertions.assertEquals(replica2.getAcquisitionLatency().getCount(), 4);
+
+        Connection connection = connections.get(0);
+        connection.close();
+        connection.close();
+        Assertions.assertEquals(replica1.getActiveCount() + replica2.getActiveCount(), 5);
+        Assertions.assertEquals(replica1.getUsageLatency().getCount() + replica2.getUsageLatency().getCount(), 1);
+
+        Assertions.assertEquals(connectionFactory.getReadOnlyConnection("users").toString(), "primary");
+        Assertions.assertFalse(connectionFactory.isPinnedToPrimary("orders"));
+    }
+
+    @Test
+    public void testFailover() throws SQLException {
+        AtomicBoolean failing1 = new AtomicBoolean(true);
+        AtomicBoolean failing2 = new AtomicBoolean();
+        ReplicaRoutingConnectionFactory connectionFactory = createConnectionFactory(0, failing1, failing2);
+        Replica replica1 = connectionFactory.getReplicas("orders").get(0);
+        Replica replica2 = connectionFactory.getReplicas("orders").get(1);
+
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertEquals(connectionFactory.getReadOnlyConnection("orders").toString(), "replica-2");
+        }
+        // The failed replica is skipped until the retry interval elapsed
+        Assertions.assertEquals(replica1.getFailureCount(), 1);
+        Assertions.assertFalse(replica1.isAvailable());
+        Assertions.assertTrue(replica2.isAvailable());
+
+        failing1.set(false);
+        failing2.set(true);
+        Assertions.assertEquals(connectionFactory.getReadOnlyConnection("orders").toString(), "primary");
+        Assertions.assertEquals(replica2.getFailureCount(), 1);
+        Assertions.assertEquals(connectionFactory.getReadOnlyConnection("orders").toString(), "primary");
+        Assertions.assertEquals(replica2.getFailureCount(), 1);
+    }
+
+    @Test
+    public void testPinning() throws Exception {
+        ReplicaRoutingConnectionFactory connectionFactory = createConnectionFactory(60_000,
+                new AtomicBoolean(), new AtomicBoolean());
+
+        Assertions.assertTrue(connectionFactory.getReadOnlyConnection("orders").toString().startsWith("replica"));
+        Assertions.assertEquals(connectionFactory.getConnection("orders").toString(), "primary");
+        Assertions.assertTrue(connectionFactory.isPinnedToPrimary("orders"));
+        Assertions.assertFalse(connectionFactory.isPinnedToPrimary("users"));
+        Assertions.assertEquals(connectionFactory.getReadOnlyConnection("orders").toString(), "primary");
+
+        // The pin belongs to the thread which took the connection from the primary
+        List<String> connectionNames = new ArrayList<>();
+        Thread thread = new Thread(() -> {
+            try {
+                connectionNames.add(connectionFactory.getReadOnlyConnection("orders").toString());
+            } catch (SQLException ex) {
+                connectionNames.add(ex.getMessage());
+            }
+        });
+        thread.start();
+        thread.join();
+        Assertions.assertTrue(connectionNames.get(0).startsWith("replica"));
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.braisdom.objsql;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SlowQueryDetectorTest {
+
+    @Test
+    public void testLiteralShape() {
+        Assertions.assertEquals(SlowQueryDetector.getShape("SELECT * FROM t WHERE name = 'O''Brien' AND age > 18"),
+                "SELECT * FROM t WHERE name = ? AND age > ?");
+        Assertions.assertEquals(SlowQueryDetector.getShape("SELECT * FROM t WHERE s = 'it''s 42' AND f(1) = $1"),
+                "SELECT * FROM t WHERE s = ? AND f(?) = $1");
+        // The digits of identifiers are not literals
+        Assertions.assertEquals(SlowQueryDetector.getShape(
+                "SELECT col1, t2.x FROM t2 WHERE t2.x = 3.14e10 AND y = -5 LIMIT 10"),
+                "SELECT col1, t2.x FROM t2 WHERE t2.x = ? AND y = -? LIMIT ?");
+    }
+
+    @Test
+    public void testListShape() {
+        Assertions.assertEquals(SlowQueryDetector.getShape("SELECT * FROM t WHERE id IN (?, ?,?) OR id IN (1, 2, 3)"),
+                "SELECT * FROM t WHERE id IN (?) OR id IN (?)");
+        Assertions.assertEquals(SlowQueryDetector.getShape("SELECT * FROM t WHERE id IN (?)"),
+                "SELECT * FROM t WHERE id IN (?)");
+        Assertions.assertEquals(SlowQueryDetector.getShape("INSERT INTO t (a, b) VALUES (?, ?), (?, ?),\n (?, ?)"),
+                "INSERT INTO t (a, b) VALUES (?)");
+        Assertions.assertEquals(SlowQueryDetector.getShape("INSERT INTO t (a, b) VALUES (?, ?)"),
+                "INSERT INTO t (a, b) VALUES (?)");
+    }
+
+    @Test
+    public void testWhitespaceShape() {
+        String sql = "  SELECT *\n\tFROM t   WHERE a = ?  ";
+        Assertions.assertEquals(SlowQueryDetector.getShape(sql), "SELECT * FROM t WHERE a = ?");
+        Assertions.assertEquals(SlowQueryDetector.getShape(sql), SlowQueryDetector.getShape("SELECT * FROM t WHERE a = 1"));
+    }
+}
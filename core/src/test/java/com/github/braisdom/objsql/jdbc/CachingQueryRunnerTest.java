@@ -0,0 +1,174 @@
+package com.github.braisdom.objsql.jdbc;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachingQueryRunnerTest {
+
+    private static class PhysicalConnection {
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final List<PreparedStatement> preparedStatements = new ArrayList<>();
+        private final List<PreparedStatement> closedStatements = new ArrayList<>();
+        private final Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            PreparedStatement statement = createStatement();
+                            preparedStatements.add(statement);
+                            return statement;
+                        case "isWrapperFor":
+                            return false;
+                        case "isClosed":
+                            return closed.get();
+                        case "close":
+                            closed.set(true);
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+
+        private PreparedStatement createStatement() {
+            AtomicBoolean statementClosed = new AtomicBoolean();
+            AtomicInteger queuedRows = new AtomicInteger();
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "executeUpdate":
+                                return 1;
+                            case "setObject":
+                                if ("bad".equals(args[1])) {
+                                    throw new SQLException("Bad parameter");
+                                }
+                                return null;
+                            case "addBatch":
+                                queuedRows.incrementAndGet();
+                                return null;
+                            case "clearBatch":
+                                queuedRows.set(0);
+                                return null;
+                            case "executeBatch":
+                                return new int[queuedRows.getAndSet(0)];
+                            case "isClosed":
+                                return statementClosed.get();
+                            case "close":
+                                if (statementClosed.compareAndSet(false, true)) {
+                                    closedStatements.add((PreparedStatement) proxy);
+                                }
+                                return null;
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        /**
+         * Returns a proxy of the connection like the one handed out by connection pool.
+         */
+        private Connection checkOut() {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[]{Connection.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "isWrapperFor":
+                                return true;
+                            case "unwrap":
+                                return connection;
+                            case "isClosed":
+                                return false;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+    }
+
+    @Test
+    public void testCheckOutAndReturn() throws SQLException {
+        CachingQueryRunner queryRunner = new CachingQueryRunner(true, 10);
+        PhysicalConnection physicalConnection = new PhysicalConnection();
+        String sql = "UPDATE orders SET amount = ?";
+
+        Assertions.assertEquals(queryRunner.update(physicalConnection.connection, sql, 1), 1);
+        Assertions.assertEquals(queryRunner.update(physicalConnection.connection, sql, 2), 1);
+        Assertions.assertEquals(physicalConnection.preparedStatements.size(), 1);
+        Assertions.assertEquals(queryRunner.getMissCount(), 1);
+        Assertions.assertEquals(queryRunner.getHitCount(), 1);
+
+        // The statement checked out is never shared by the nested invocation with the same sql
+        PreparedStatement outer = queryRunner.prepareStatement(physicalConnection.connection, sql);
+        PreparedStatement inner = queryRunner.prepareStatement(physicalConnection.connection, sql);
+        Assertions.assertNotSame(outer, inner);
+        queryRunner.close(inner);
+        queryRunner.close(outer);
+        Assertions.assertEquals(physicalConnection.closedStatements.size(), 1);
+        Assertions.assertSame(physicalConnection.closedStatements.get(0), inner);
+        Assertions.assertSame(queryRunner.prepareStatement(physicalConnection.connection, sql), outer);
+
+        // The statement closed by the caller is not cached
+        outer.close();
+        queryRunner.close(outer);
+        Assertions.assertNotSame(queryRunner.prepareStatement(physicalConnection.connection, sql), outer);
+        Assertions.assertEquals(physicalConnection.preparedStatements.size(), 3);
+    }
+
+    @Test
+    public void testPhysicalConnection() throws SQLException {
+        CachingQueryRunner queryRunner = new CachingQueryRunner(true, 10);
+        PhysicalConnection physicalConnection = new PhysicalConnection();
+        String sql = "UPDATE orders SET amount = ?";
+
+        // The pool hands out a new proxy at each checkout
+        queryRunner.update(physicalConnection.checkOut(), sql, 1);
+        queryRunner.update(physicalConnection.checkOut(), sql, 2);
+        Assertions.assertEquals(physicalConnection.preparedStatements.size(), 1);
+        Assertions.assertEquals(queryRunner.getHitCount(), 1);
+
+        PhysicalConnection anotherConnection = new PhysicalConnection();
+        physicalConnection.closed.set(true);
+        queryRunner.update(anotherConnection.checkOut(), sql, 3);
+        Assertions.assertEquals(anotherConnection.preparedStatements.size(), 1);
+        Assertions.assertEquals(physicalConnection.closedStatements, physicalConnection.preparedStatements);
+    }
+
+    @Test
+    public void testEviction() throws SQLException {
+        CachingQueryRunner queryRunner = new CachingQueryRunner(true, 1);
+        PhysicalConnection physicalConnection = new PhysicalConnection();
+
+        queryRunner.update(physicalConnection.connection, "UPDATE orders SET amount = ?", 1);
+        queryRunner.update(physicalConnection.connection, "UPDATE items SET amount = ?", 1);
+        Assertions.assertEquals(queryRunner.getEvictionCount(), 1);
+        Assertions.assertSame(physicalConnection.closedStatements.get(0), physicalConnection.preparedStatements.get(0));
+    }
+
+    @Test
+    public void testFailedBatch() throws SQLException {
+        CachingQueryRunner queryRunner = new CachingQueryRunner(true, 10);
+        PhysicalConnection physicalConnection = new PhysicalConnection();
+        String sql = "UPDATE orders SET amount = ?";
+
+        Assertions.assertThrows(SQLException.class, () -> queryRunner.batch(physicalConnection.connection, sql,
+                new Object[][]{{1}, {2}, {"bad"}}));
+        // The statement with the rows queued is closed instead of cached
+        Assertions.assertEquals(physicalConnection.closedStatements, physicalConnection.preparedStatements);
+
+        Assertions.assertEquals(queryRunner.batch(physicalConnection.connection, sql,
+                new Object[][]{{3}}).length, 1);
+        Assertions.assertEquals(queryRunner.batch(physicalConnection.connection, sql,
+                new Object[][]{{4}, {5}}).length, 2);
+        Assertions.assertEquals(physicalConnection.preparedStatements.size(), 2);
+    }
+}
@@ -0,0 +1,136 @@
+package com.github.braisdom.objsql.relation;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class RelationIndexTest {
+
+    public static class Item {
+        private Object key;
+        private String name;
+
+        public Item() {
+        }
+
+        public Item(Object key, String name) {
+            this.key = key;
+            this.name = name;
+        }
+
+        public Object getKey() {
+            return key;
+        }
+
+        public void setKey(Object key) {
+            this.key = key;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    private static RelationIndex createIndex(List<Item> items) {
+        RelationProcessor.Context context = new RelationProcessor.Context() {
+            @Override
+            public List queryRelatedObjects(Class clazz, String associationColumn,
+                                            Object[] associatedValues, String condition) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List getObjects(Class clazz) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        return RelationIndex.create(items, FieldAccess.create(context, Item.class, "key"));
+    }
+
+    private static List<String> getNames(List items) {
+        List<String> names = new ArrayList<>();
+        for (Object item : items) {
+            names.add(((Item) item).getName());
+        }
+        return names;
+    }
+
+    @Test
+    public void testCollisions() {
+        // Enough keys to collide in the open addressing table, including the negative and extreme ones
+        List<Item> items = new ArrayList<>();
+        List<Long> keys = new ArrayList<>();
+        for (long i = -500; i < 500; i++) {
+            keys.add(i * 1024);
+        }
+        keys.addAll(Arrays.asList(Long.MIN_VALUE, Long.MAX_VALUE, 0L));
+        for (Long key : keys) {
+            items.add(new Item(key, "a" + key));
+            items.add(new Item(key, "b" + key));
+        }
+        Collections.reverse(items);
+
+        RelationIndex relationIndex = createIndex(items);
+        for (Long key : keys) {
+            List<String> names = getNames(relationIndex.getAll(key));
+            if (key == 0L) {
+                Assertions.assertEquals(names, Arrays.asList("b0", "a0", "b0", "a0"));
+            } else {
+                Assertions.assertEquals(names, Arrays.asList("b" + key, "a" + key));
+            }
+        }
+        Assertions.assertNull(relationIndex.getAll(1L));
+        Assertions.assertNull(relationIndex.getAll(-1L));
+    }
+
+    @Test
+    public void testMixedIntegralKeys() {
+        List<Item> items = Arrays.asList(new Item(1, "a"), new Item(2L, "b"),
+                new Item(1L, "c"), new Item((short) 2, "d"));
+        RelationIndex relationIndex = createIndex(items);
+
+        Assertions.assertEquals(getNames(relationIndex.getAll(1L)), Arrays.asList("a", "c"));
+        Assertions.assertEquals(getNames(relationIndex.getAll(1)), Arrays.asList("a", "c"));
+        Assertions.assertEquals(getNames(relationIndex.getAll(2)), Arrays.asList("b", "d"));
+        Assertions.assertEquals(relationIndex.first("1"), -1);
+        Assertions.assertEquals(relationIndex.first(1.0), -1);
+
+        int position = relationIndex.first(2L);
+        Assertions.assertEquals(((Item) relationIndex.get(position)).getName(), "b");
+        Assertions.assertEquals(((Item) relationIndex.get(relationIndex.next(position))).getName(), "d");
+        Assertions.assertEquals(relationIndex.next(relationIndex.next(position)), -1);
+    }
+
+    @Test
+    public void testGenericKeys() {
+        List<Item> items = Arrays.asList(new Item("x", "a"), new Item(1L, "b"), new Item("x", "c"));
+        RelationIndex relationIndex = createIndex(items);
+
+        Assertions.assertEquals(getNames(relationIndex.getAll("x")), Arrays.asList("a", "c"));
+        Assertions.assertEquals(getNames(relationIndex.getAll(1L)), Collections.singletonList("b"));
+        Assertions.assertNull(relationIndex.getAll("y"));
+    }
+
+    @Test
+    public void testNullKeys() {
+        List<Item> items = Arrays.asList(new Item(null, "a"), new Item(1L, "b"), new Item(null, "c"));
+        RelationIndex relationIndex = createIndex(items);
+
+        Assertions.assertEquals(getNames(relationIndex.getAll(1L)), Collections.singletonList("b"));
+        Assertions.assertEquals(relationIndex.first(null), -1);
+        Assertions.assertNull(relationIndex.getAll(null));
+
+        RelationIndex nullIndex = createIndex(Arrays.asList(new Item(null, "a"), new Item(null, "b")));
+        Assertions.assertNull(nullIndex.getAll(null));
+        Assertions.assertNull(nullIndex.getAll(0L));
+        Assertions.assertNull(createIndex(Collections.emptyList()).getAll(0L));
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.braisdom.objsql.sharding;
+
+import com.github.braisdom.objsql.Databases;
+import com.github.braisdom.objsql.QueryException;
+import com.github.braisdom.objsql.annotations.DomainModel;
+import com.github.braisdom.objsql.annotations.PrimaryKey;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ShardingRuleTest {
+
+    @DomainModel(tableName = "orders", shards = {"orders_0", "orders_1"})
+    public static class Order {
+        @PrimaryKey(name = "id")
+        private Long id;
+    }
+
+    @DomainModel(tableName = "order_lines", shards = {"lines_0", "lines_1", "lines_2"},
+            shardKey = "order_id", shardingStrategy = OrderLineRanges.class)
+    public static class OrderLine {
+        @PrimaryKey(name = "id")
+        private Long id;
+        private Long orderId;
+    }
+
+    public static class OrderLineRanges extends RangeShardingStrategy {
+        public OrderLineRanges() {
+            super(100L, 200L);
+        }
+    }
+
+    @Test
+    public void testRoute() throws QueryException {
+        ShardingRule orderRule = ShardingRule.get(Order.class);
+        Assertions.assertTrue(orderRule.isPrimaryShardKey());
+        Assertions.assertEquals(orderRule.getShard(3L), "orders_1");
+        Assertions.assertEquals(orderRule.getShard(-4), "orders_0");
+        Assertions.assertEquals(orderRule.route(null), Arrays.asList("orders_0", "orders_1"));
+
+        ShardingRule lineRule = ShardingRule.get(OrderLine.class);
+        Assertions.assertFalse(lineRule.isPrimaryShardKey());
+        Assertions.assertEquals(lineRule.getShard(99), "lines_0");
+        Assertions.assertEquals(lineRule.getShard(100L), "lines_1");
+        Assertions.assertEquals(lineRule.getShard(1000L), "lines_2");
+
+        Assertions.assertNull(ShardingRule.get(ShardingRuleTest.class));
+    }
+
+    @Test
+    public void testRouteWithCurrentThreadConnection() throws QueryException {
+        ShardingRule orderRule = ShardingRule.get(Order.class);
+        Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{Connection.class}, (proxy, method, args) -> null);
+
+        Databases.setCurrentThreadConnection("orders_1", connection);
+        try {
+            Assertions.assertEquals(orderRule.route(3L), Collections.singletonList("orders_1"));
+            Assertions.assertThrows(QueryException.class, () -> orderRule.route(4L));
+            Assertions.assertThrows(QueryException.class, () -> orderRule.route(null));
+        } finally {
+            Databases.clearCurrentThreadConnection();
+        }
+
+        Databases.setCurrentThreadConnection(connection);
+        try {
+            Assertions.assertThrows(QueryException.class, () -> orderRule.route(3L));
+        } finally {
+            Databases.clearCurrentThreadConnection();
+        }
+    }
+
+    @Test
+    public void testFindShardValue() {
+        ShardingRule lineRule = ShardingRule.get(OrderLine.class);
+
+        Assertions.assertEquals(lineRule.findShardValue("quantity > ? AND `order_id` = ?",
+                new Object[]{1, 120L}), 120L);
+        Assertions.assertNull(lineRule.findShardValue("order_id = ? OR quantity > ?", new Object[]{120L, 1}));
+        Assertions.assertNull(lineRule.findShardValue("NOT order_id = ?", new Object[]{120L}));
+        Assertions.assertNull(lineRule.findShardValue("not (order_id = ?)", new Object[]{120L}));
+        Assertions.assertNull(lineRule.findShardValue("quantity > ? AND NOT (`order_id` = ? AND quantity < ?)",
+                new Object[]{1, 120L, 5}));
+        Assertions.assertNull(lineRule.findShardValue("order_id > ?", new Object[]{120L}));
+        Assertions.assertNull(lineRule.findShardValue("order_id IN (SELECT id FROM orders WHERE id = ?)",
+                new Object[]{120L}));
+    }
+
+    @Test
+    public void testNestedScatter() throws Exception {
+        // The nested scattering waits for no thread of the executor with only one thread
+        Databases.installScatterExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        }));
+        List<String> shards = Arrays.asList("orders_0", "orders_1");
+        CompletableFuture<List<List<String>>> future = CompletableFuture.supplyAsync(() -> {
+            try {
+                return ShardingRule.scatter(shards, dataSourceName ->
+                        ShardingRule.scatter(shards, nestedName -> dataSourceName + "/" + nestedName));
+            } catch (SQLException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }, Databases.getAsyncExecutor());
+
+        Assertions.assertEquals(future.get(10, TimeUnit.SECONDS), Arrays.asList(
+                Arrays.asList("orders_0/orders_0", "orders_0/orders_1"),
+                Arrays.asList("orders_1/orders_0", "orders_1/orders_1")));
+    }
+}
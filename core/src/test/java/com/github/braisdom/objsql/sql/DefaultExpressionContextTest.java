@@ -1,4 +1,70 @@
 package com.github.braisdom.objsql.sql;
 
+import com.github.braisdom.objsql.DatabaseType;
+import com.github.braisdom.objsql.annotations.DomainModel;
+import com.github.braisdom.objsql.sql.function.PostgreSql;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static com.github.braisdom.objsql.sql.Expressions.$;
+import static org.mockito.Mockito.mock;
+
 public class DefaultExpressionContextTest {
+
+    @Test
+    public void testParameterized() throws SQLSyntaxException {
+        Dataset dataset = mock(Dataset.class);
+        DefaultExpressionContext mysqlContext = new DefaultExpressionContext(DatabaseType.MySQL, true);
+        DefaultColumn column = new DefaultColumn(DemoTable.class, dataset, "testField");
+
+        Assertions.assertEquals(column.between($(1), $("abc")).toSql(mysqlContext).trim(),
+                "`T0`.`test_field` BETWEEN ? AND ?".trim());
+        Assertions.assertArrayEquals(mysqlContext.getParameters(), new Object[]{1, "abc"});
+    }
+
+    @Test
+    public void testParameterizedTypedLiteral() throws SQLSyntaxException {
+        Dataset dataset = mock(Dataset.class);
+        DefaultExpressionContext postgresContext = new DefaultExpressionContext(DatabaseType.PostgreSQL, true);
+        DefaultColumn column = new DefaultColumn(DemoTable.class, dataset, "testField");
+
+        Assertions.assertEquals(column.gt(PostgreSql.toDate("2020-01-01")).toSql(postgresContext).trim(),
+                "(\"T0\".\"test_field\"  > CAST(? AS date))");
+        Assertions.assertEquals(column.lt(PostgreSql.toDateTime("2020-01-01 10:00:00")).toSql(postgresContext).trim(),
+                "(\"T0\".\"test_field\"  < CAST(? AS timestamp))");
+        Assertions.assertArrayEquals(postgresContext.getParameters(), new Object[]{"2020-01-01", "2020-01-01 10:00:00"});
+
+        DefaultExpressionContext inlinedContext = new DefaultExpressionContext(DatabaseType.PostgreSQL);
+        Assertions.assertEquals(PostgreSql.toDate("2020-01-01").toSql(inlinedContext), "date '2020-01-01'");
+    }
+
+    @Test
+    public void testInlined() throws SQLSyntaxException {
+        Dataset dataset = mock(Dataset.class);
+        DefaultExpressionContext mysqlContext = new DefaultExpressionContext(DatabaseType.MySQL);
+        DefaultColumn column = new DefaultColumn(DemoTable.class, dataset, "testField");
+
+        Assertions.assertEquals(column.between($(1), $("abc")).toSql(mysqlContext).trim(),
+                "`T0`.`test_field` BETWEEN 1 AND 'abc'".trim());
+        Assertions.assertEquals(mysqlContext.getParameters().length, 0);
+    }
+
+    @Test
+    public void testInlinedGrouping() throws SQLSyntaxException {
+        Dataset dataset = mock(Dataset.class);
+        DefaultExpressionContext mysqlContext = new DefaultExpressionContext(DatabaseType.MySQL, true);
+        DefaultColumn column = new DefaultColumn(DemoTable.class, dataset, "testField");
+
+        Select select = new Select();
+        select.project($("vip")).where(column.eq($(1))).groupBy($("vip"));
+
+        Assertions.assertEquals(select.toSql(mysqlContext).replaceAll("\\s+", " ").trim(),
+                "SELECT 'vip' WHERE (`T0`.`test_field` = ?) GROUP BY 'vip'");
+        Assertions.assertArrayEquals(mysqlContext.getParameters(), new Object[]{1});
+    }
+
+    @DomainModel
+    private static class DemoTable {
+        private String testField;
+    }
 }
@@ -0,0 +1,27 @@
+package com.github.braisdom.objsql.spring;
+
+import com.github.braisdom.objsql.ConnectionFactory;
+
+import java.lang.annotation.*;
+
+/**
+ * Executes the annotated method, or all public methods of the annotated class, in a unit of work
+ * which shares one connection of each data source, for example, a request querying several
+ * domain models acquires the connection once. The streams out of transaction acquire their
+ * own connections, because a streaming result set blocks the connection on some drivers.
+ *
+ * <p>The annotation takes effect when the bean is proxied by Spring AOP, such as with
+ * <code>spring-boot-starter-aop</code>.
+ *
+ * @see com.github.braisdom.objsql.Databases#withConnection(String, com.github.braisdom.objsql.Databases.UnitOfWork)
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ConnectionScoped {
+
+    /**
+     * The names of data sources bound in the unit of work.
+     */
+    String[] value() default {ConnectionFactory.DEFAULT_DATA_SOURCE_NAME};
+}
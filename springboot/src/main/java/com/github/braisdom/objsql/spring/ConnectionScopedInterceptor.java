@@ -0,0 +1,47 @@
+package com.github.braisdom.objsql.spring;
+
+import com.github.braisdom.objsql.ConnectionFactory;
+import com.github.braisdom.objsql.Databases;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * Executes the method invocation in the units of work of data sources declared by
+ * <code>ConnectionScoped</code>, the default data source is bound if the annotation
+ * is absent.
+ */
+public class ConnectionScopedInterceptor implements MethodInterceptor {
+
+    private static final String[] DEFAULT_DATA_SOURCE_NAMES = {ConnectionFactory.DEFAULT_DATA_SOURCE_NAME};
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        ConnectionScoped connectionScoped = getConnectionScoped(invocation);
+        String[] dataSourceNames = connectionScoped == null ? DEFAULT_DATA_SOURCE_NAMES : connectionScoped.value();
+        return proceed(invocation, dataSourceNames, 0);
+    }
+
+    private Object proceed(MethodInvocation invocation, String[] dataSourceNames, int index) throws Throwable {
+        if (index == dataSourceNames.length) {
+            return invocation.proceed();
+        }
+        return Databases.withConnection(dataSourceNames[index],
+                () -> proceed(invocation, dataSourceNames, index + 1));
+    }
+
+    private ConnectionScoped getConnectionScoped(MethodInvocation invocation) {
+        Class<?> targetClass = invocation.getThis() == null ? null : AopUtils.getTargetClass(invocation.getThis());
+        Method method = targetClass == null ? invocation.getMethod()
+                : AopUtils.getMostSpecificMethod(invocation.getMethod(), targetClass);
+
+        ConnectionScoped connectionScoped = AnnotationUtils.findAnnotation(method, ConnectionScoped.class);
+        if (connectionScoped == null && targetClass != null) {
+            connectionScoped = AnnotationUtils.findAnnotation(targetClass, ConnectionScoped.class);
+        }
+        return connectionScoped;
+    }
+}
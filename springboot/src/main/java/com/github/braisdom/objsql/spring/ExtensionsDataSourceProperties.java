@@ -1,14 +1,18 @@
 package com.github.braisdom.objsql.spring;
 
+import com.github.braisdom.objsql.ReplicaRoutingConnectionFactory;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @ConfigurationProperties(prefix = "spring.datasource")
 public class ExtensionsDataSourceProperties {
     private Map<String, DataSourceProperties> extensions = new LinkedHashMap();
+    private ReplicasProperties replicas = new ReplicasProperties();
 
     public Map<String, DataSourceProperties> getExtensions() {
         return extensions;
@@ -17,4 +21,63 @@ public class ExtensionsDataSourceProperties {
     public void setExtensions(Map<String, DataSourceProperties> extensions) {
         this.extensions = extensions;
     }
+
+    public ReplicasProperties getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(ReplicasProperties replicas) {
+        this.replicas = replicas;
+    }
+
+    /**
+     * The read replicas of data sources, the replicas of primary data source are configured
+     * with the name <code>objsql-default-datasource</code>, for example:
+     * <pre>
+     *     spring.datasource.replicas.pinning-millis=1000
+     *     spring.datasource.replicas.data-sources.objsql-default-datasource[0].url=jdbc:mysql://replica-1/db
+     *     spring.datasource.replicas.data-sources.objsql-default-datasource[0].weight=2
+     * </pre>
+     */
+    public static class ReplicasProperties {
+        private long pinningMillis = ReplicaRoutingConnectionFactory.DEFAULT_PINNING_MILLIS;
+        private long retryMillis = ReplicaRoutingConnectionFactory.DEFAULT_RETRY_MILLIS;
+        private Map<String, List<ReplicaDataSourceProperties>> dataSources = new LinkedHashMap<>();
+
+        public long getPinningMillis() {
+            return pinningMillis;
+        }
+
+        public void setPinningMillis(long pinningMillis) {
+            this.pinningMillis = pinningMillis;
+        }
+
+        public long getRetryMillis() {
+            return retryMillis;
+        }
+
+        public void setRetryMillis(long retryMillis) {
+            this.retryMillis = retryMillis;
+        }
+
+        public Map<String, List<ReplicaDataSourceProperties>> getDataSources() {
+            return dataSources;
+        }
+
+        public void setDataSources(Map<String, List<ReplicaDataSourceProperties>> dataSources) {
+            this.dataSources = dataSources;
+        }
+    }
+
+    public static class ReplicaDataSourceProperties extends DataSourceProperties {
+        private int weight = 1;
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public void setWeight(int weight) {
+            this.weight = weight;
+        }
+    }
 }
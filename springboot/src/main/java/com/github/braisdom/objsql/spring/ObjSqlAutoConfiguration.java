@@ -2,6 +2,13 @@ package com.github.braisdom.objsql.spring;
 
 import com.github.braisdom.objsql.ConnectionFactory;
 import com.github.braisdom.objsql.Databases;
+import com.github.braisdom.objsql.ReplicaRoutingConnectionFactory;
+import com.github.braisdom.objsql.spring.ExtensionsDataSourceProperties.ReplicaDataSourceProperties;
+import com.github.braisdom.objsql.spring.ExtensionsDataSourceProperties.ReplicasProperties;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
@@ -14,6 +21,7 @@ import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Configuration
@@ -49,8 +57,37 @@ public class ObjSqlAutoConfiguration {
                     .type(properties.getType()).build();
             connectionFactory.dataSourceMap.put(entry.getKey(), extensionDataSource);
         }
-        Databases.installConnectionFactory(connectionFactory);
-        return connectionFactory;
+
+        ReplicasProperties replicas = dataSourceProperties.getReplicas();
+        if (replicas.getDataSources().isEmpty()) {
+            Databases.installConnectionFactory(connectionFactory);
+            return connectionFactory;
+        }
+
+        ReplicaRoutingConnectionFactory routingConnectionFactory = new ReplicaRoutingConnectionFactory(
+                connectionFactory, replicas.getPinningMillis(), replicas.getRetryMillis());
+        for(Map.Entry<String, List<ReplicaDataSourceProperties>> entry : replicas.getDataSources().entrySet()) {
+            for(int i = 0; i < entry.getValue().size(); i++) {
+                ReplicaDataSourceProperties properties = entry.getValue().get(i);
+                DataSource replicaDataSource = properties.initializeDataSourceBuilder()
+                        .type(properties.getType()).build();
+                routingConnectionFactory.addReplica(entry.getKey(), String.format("%s[%d]", entry.getKey(), i),
+                        replicaDataSource, properties.getWeight());
+            }
+        }
+        Databases.installConnectionFactory(routingConnectionFactory);
+        return routingConnectionFactory;
+    }
+
+    /**
+     * Binds the connections to the methods annotated with <code>ConnectionScoped</code>,
+     * or the methods of annotated classes.
+     */
+    @Bean
+    public Advisor connectionScopedAdvisor() {
+        ComposablePointcut pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(ConnectionScoped.class, true))
+                .union(new AnnotationMatchingPointcut(null, ConnectionScoped.class, true));
+        return new DefaultPointcutAdvisor(pointcut, new ConnectionScopedInterceptor());
     }
 
 }